@@ -0,0 +1,296 @@
+package com.infologic.pos.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.repository.SaleRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional in-memory copy of each tenant's recent sales for interactive report slicing.
+ * <p>
+ * A tenant's sales of the last {@code analytics.columnar.window-days} days are loaded into
+ * {@link SalesColumns} on first use and kept current from sale events. All tenants together stay
+ * within {@code analytics.columnar.max-bytes}; the least recently used tenants are dropped first.
+ * Slices outside the window, or for tenants that do not fit, are left to the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalesColumnarCache {
+
+    private final SaleRepository saleRepository;
+
+    @Value("${analytics.columnar.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analytics.columnar.window-days:90}")
+    private int windowDays;
+
+    @Value("${analytics.columnar.max-bytes:67108864}")
+    private long maxBytes;
+
+    // Reload periodically to pick up anything missed while no events were being applied
+    @Value("${analytics.columnar.reload-minutes:30}")
+    private long reloadMinutes;
+
+    private final Map<String, TenantEntry> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Slice a tenant's sales from memory
+     * @param tenantId the tenant
+     * @param startDate the first day
+     * @param endDate the last day
+     * @param groupBy the dimension to group by
+     * @param paymentMethod only sales paid this way, or null
+     * @param status only sales in this status, or null
+     * @param cashierId only sales of this cashier, or null
+     * @return rows with key, count and total, or empty if the slice has to be answered by the database
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<Map<String, Object>>> slice(String tenantId, LocalDate startDate, LocalDate endDate,
+                                                     SliceDimension groupBy, Sale.PaymentMethod paymentMethod,
+                                                     Sale.SaleStatus status, Long cashierId) {
+        if (!enabled || startDate.isBefore(windowStart())) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        SalesColumns columns = columnsFor(tenantId);
+        if (columns == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+
+        SalesColumns.Filter filter = new SalesColumns.Filter(
+                (int) startDate.toEpochDay(),
+                (int) endDate.toEpochDay(),
+                paymentMethod != null ? (byte) paymentMethod.ordinal() : SalesColumns.ANY,
+                status != null ? (byte) status.ordinal() : SalesColumns.ANY,
+                cashierId != null ? cashierId : SalesColumns.ANY_CASHIER);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        columns.slice(filter, groupBy).stream()
+                .sorted(Comparator.comparing(SalesColumns.Row::key, SalesColumnarCache::compareKeys))
+                .forEach(row -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("key", row.key());
+                    item.put("count", row.count());
+                    item.put("total", BigDecimal.valueOf(row.cents(), 2));
+                    rows.add(item);
+                });
+        return Optional.of(rows);
+    }
+
+    /**
+     * Apply a sale from an event to the tenant's columns, if they are loaded
+     * @param tenantId the tenant
+     * @param sale the sale as carried by the event
+     */
+    public void onSale(String tenantId, Sale sale) {
+        TenantEntry entry = tenants.get(tenantId);
+        if (entry == null || sale.getId() == null || sale.getCreatedAt() == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.loading) {
+                entry.pending.add(sale);
+            }
+            if (entry.columns != null && !upsert(entry.columns, sale)) {
+                log.debug("Sale {} arrived out of order, dropping columnar cache of tenant {}", sale.getId(), tenantId);
+                tenants.remove(tenantId, entry);
+                return;
+            }
+        }
+        enforceBudget(tenantId);
+    }
+
+    /**
+     * Drop a tenant's columns so they are reloaded on next use
+     */
+    public void invalidate(String tenantId) {
+        tenants.remove(tenantId);
+    }
+
+    /**
+     * Get cache statistics
+     * @return loaded tenants, rows, bytes, hits, misses and loads
+     */
+    public Map<String, Object> getStatistics() {
+        long rows = 0;
+        for (TenantEntry entry : tenants.values()) {
+            SalesColumns columns = entry.columns;
+            rows += columns != null ? columns.size() : 0;
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("tenants", tenants.size());
+        statistics.put("rows", rows);
+        statistics.put("bytes", totalBytes());
+        statistics.put("maxBytes", maxBytes);
+        statistics.put("hitCount", hits.get());
+        statistics.put("missCount", misses.get());
+        statistics.put("loadCount", loads.get());
+        return statistics;
+    }
+
+    private SalesColumns columnsFor(String tenantId) {
+        TenantEntry entry = tenants.computeIfAbsent(tenantId, id -> new TenantEntry());
+        entry.lastAccess = System.nanoTime();
+        if (entry.columns != null && !entry.isStale(reloadMinutes)) {
+            return entry.columns;
+        }
+
+        entry.loadLock.lock();
+        try {
+            if (entry.columns == null || entry.isStale(reloadMinutes)) {
+                load(tenantId, entry);
+            }
+        } finally {
+            entry.loadLock.unlock();
+        }
+        if (entry.columns == null) {
+            tenants.remove(tenantId, entry);
+            return null;
+        }
+        enforceBudget(tenantId);
+        return tenants.get(tenantId) == entry ? entry.columns : null;
+    }
+
+    private void load(String tenantId, TenantEntry entry) {
+        synchronized (entry) {
+            entry.loading = true;
+        }
+        long started = System.nanoTime();
+        SalesColumns columns = new SalesColumns();
+        boolean fits = true;
+        try (Stream<Object[]> rows = saleRepository.streamColumnarRows(tenantId, windowStart().atStartOfDay())) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                columns.upsert((Long) row[0],
+                        (int) ((LocalDateTime) row[1]).toLocalDate().toEpochDay(),
+                        toCents((BigDecimal) row[2]),
+                        ordinal((Sale.SaleStatus) row[3]),
+                        ordinal((Sale.PaymentMethod) row[4]),
+                        row[5] != null ? (Long) row[5] : SalesColumns.NO_CASHIER);
+                if (columns.sizeInBytes() > maxBytes) {
+                    fits = false;
+                    break;
+                }
+            }
+        }
+
+        synchronized (entry) {
+            if (fits) {
+                for (Sale sale : entry.pending) {
+                    upsert(columns, sale);
+                }
+                entry.columns = columns;
+                entry.loadedAt = System.nanoTime();
+            } else {
+                log.warn("Sales of tenant {} exceed the columnar cache budget of {} bytes", tenantId, maxBytes);
+                entry.columns = null;
+            }
+            entry.pending.clear();
+            entry.loading = false;
+        }
+        loads.incrementAndGet();
+        log.info("Loaded {} sales of tenant {} into the columnar cache in {} ms", columns.size(), tenantId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Drop the least recently used tenants until everything fits; the given tenant goes last
+     */
+    private void enforceBudget(String keepTenantId) {
+        while (totalBytes() > maxBytes && !tenants.isEmpty()) {
+            String victim = tenants.entrySet().stream()
+                    .filter(e -> !e.getKey().equals(keepTenantId) || tenants.size() == 1)
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .map(Map.Entry::getKey)
+                    .orElse(keepTenantId);
+            log.debug("Evicting tenant {} from the columnar cache", victim);
+            tenants.remove(victim);
+        }
+    }
+
+    private long totalBytes() {
+        long bytes = 0;
+        for (TenantEntry entry : tenants.values()) {
+            SalesColumns columns = entry.columns;
+            bytes += columns != null ? columns.sizeInBytes() : 0;
+        }
+        return bytes;
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now().minusDays(windowDays);
+    }
+
+    private static boolean upsert(SalesColumns columns, Sale sale) {
+        return columns.upsert(sale.getId(),
+                (int) sale.getCreatedAt().toLocalDate().toEpochDay(),
+                toCents(sale.getTotalAmount()),
+                ordinal(sale.getStatus()),
+                ordinal(sale.getPaymentMethod()),
+                sale.getCashierId() != null ? sale.getCashierId() : SalesColumns.NO_CASHIER);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount != null ? amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0;
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value != null ? (byte) value.ordinal() : SalesColumns.MISSING;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeys(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static final class TenantEntry {
+        private final ReentrantLock loadLock = new ReentrantLock();
+        private final List<Sale> pending = new ArrayList<>();
+        private volatile SalesColumns columns;
+        private volatile boolean loading;
+        private volatile long loadedAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private boolean isStale(long reloadMinutes) {
+            return System.nanoTime() - loadedAt > TimeUnit.MINUTES.toNanos(reloadMinutes);
+        }
+    }
+}
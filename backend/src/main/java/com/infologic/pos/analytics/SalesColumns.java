@@ -0,0 +1,271 @@
+package com.infologic.pos.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import com.infologic.pos.model.Sale;
+
+/**
+ * The sales of one tenant held column-wise in primitive arrays, ordered by sale ID.
+ * <p>
+ * Each sale takes {@value #BYTES_PER_ROW} bytes. Slices scan the columns in tight loops without
+ * touching any objects; large tables are split into chunks and scanned on the common fork-join pool.
+ * New sales are appended and existing ones updated in place; a sale older than the newest one held
+ * cannot be placed and is reported back so the caller can reload.
+ */
+public final class SalesColumns {
+
+    static final int BYTES_PER_ROW = Long.BYTES * 3 + Integer.BYTES + 2;
+
+    // Stored for sales without a status, payment method or cashier
+    static final byte MISSING = -1;
+    static final long NO_CASHIER = Long.MIN_VALUE;
+
+    // Filter value matching every row
+    static final byte ANY = -2;
+    static final long ANY_CASHIER = Long.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 15;
+    private static final int MAX_DAYS = 4000;
+
+    private static final Sale.PaymentMethod[] PAYMENT_METHODS = Sale.PaymentMethod.values();
+    private static final Sale.SaleStatus[] STATUSES = Sale.SaleStatus.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] saleIds;
+    private int[] epochDays;
+    private long[] cents;
+    private byte[] statuses;
+    private byte[] methods;
+    private long[] cashierIds;
+    private int size;
+
+    public SalesColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    SalesColumns(int capacity) {
+        saleIds = new long[capacity];
+        epochDays = new int[capacity];
+        cents = new long[capacity];
+        statuses = new byte[capacity];
+        methods = new byte[capacity];
+        cashierIds = new long[capacity];
+    }
+
+    /**
+     * Rows matching a slice
+     * @param fromDay first epoch day, inclusive
+     * @param toDay last epoch day, inclusive
+     * @param method payment method ordinal, or {@link #ANY}
+     * @param status status ordinal, or {@link #ANY}
+     * @param cashierId cashier ID, or {@link #ANY_CASHIER}
+     */
+    record Filter(int fromDay, int toDay, byte method, byte status, long cashierId) {
+    }
+
+    /**
+     * One group of a slice. The key is a {@link LocalDate}, payment method, status or cashier ID
+     * depending on the dimension, and null for {@link SliceDimension#NONE}.
+     */
+    public record Row(Object key, long count, long cents) {
+    }
+
+    /**
+     * Insert a sale or update the one with the same ID
+     * @return false if the sale is new but older than the newest sale held
+     */
+    public boolean upsert(long saleId, int epochDay, long amountCents, byte status, byte method, long cashierId) {
+        lock.writeLock().lock();
+        try {
+            int index = size > 0 && saleId <= saleIds[size - 1]
+                    ? Arrays.binarySearch(saleIds, 0, size, saleId)
+                    : -(size + 1);
+            if (index < 0) {
+                if (-(index + 1) != size) {
+                    return false;
+                }
+                ensureCapacity(size + 1);
+                index = size++;
+                saleIds[index] = saleId;
+            }
+            epochDays[index] = epochDay;
+            cents[index] = amountCents;
+            statuses[index] = status;
+            methods[index] = method;
+            cashierIds[index] = cashierId;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memory held by the columns, including spare capacity
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) saleIds.length * BYTES_PER_ROW;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count and sum the sales matching a filter, grouped by a dimension
+     * @param filter the filter
+     * @param groupBy the dimension
+     * @return one row per non-empty group
+     */
+    List<Row> slice(Filter filter, SliceDimension groupBy) {
+        if (groupBy == SliceDimension.DAY && filter.toDay() - filter.fromDay() >= MAX_DAYS) {
+            throw new IllegalArgumentException("Cannot group more than " + MAX_DAYS + " days");
+        }
+        lock.readLock().lock();
+        try {
+            int rows = size;
+            Partial result;
+            if (rows < PARALLEL_THRESHOLD) {
+                result = scan(filter, groupBy, 0, rows);
+            } else {
+                // Workers read the arrays while this thread holds the read lock
+                int chunks = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                result = IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> scan(filter, groupBy, chunk * CHUNK_SIZE, Math.min(rows, (chunk + 1) * CHUNK_SIZE)))
+                        .reduce(Partial::merge)
+                        .orElseGet(() -> new Partial(filter, groupBy));
+            }
+            return result.toRows(filter, groupBy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Partial scan(Filter filter, SliceDimension groupBy, int from, int to) {
+        Partial partial = new Partial(filter, groupBy);
+        int fromDay = filter.fromDay();
+        int toDay = filter.toDay();
+        byte method = filter.method();
+        byte status = filter.status();
+        long cashierId = filter.cashierId();
+
+        for (int i = from; i < to; i++) {
+            int day = epochDays[i];
+            if (day < fromDay || day > toDay
+                    || (method != ANY && methods[i] != method)
+                    || (status != ANY && statuses[i] != status)
+                    || (cashierId != ANY_CASHIER && cashierIds[i] != cashierId)) {
+                continue;
+            }
+            switch (groupBy) {
+                case NONE -> partial.add(0, cents[i]);
+                case DAY -> partial.add(day - fromDay, cents[i]);
+                case PAYMENT_METHOD -> partial.add(methods[i] + 1, cents[i]);
+                case STATUS -> partial.add(statuses[i] + 1, cents[i]);
+                case CASHIER -> partial.addCashier(cashierIds[i], cents[i]);
+            }
+        }
+        return partial;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= saleIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, saleIds.length * 2);
+        saleIds = Arrays.copyOf(saleIds, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        cents = Arrays.copyOf(cents, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        methods = Arrays.copyOf(methods, newCapacity);
+        cashierIds = Arrays.copyOf(cashierIds, newCapacity);
+    }
+
+    /**
+     * Counts and sums of one chunk. Dense slots are used for every dimension but cashier.
+     */
+    private static final class Partial {
+        private final long[] counts;
+        private final long[] sums;
+        private final Map<Long, long[]> byCashier;
+
+        private Partial(Filter filter, SliceDimension groupBy) {
+            int slots = switch (groupBy) {
+                case NONE, CASHIER -> 1;
+                case DAY -> Math.max(1, filter.toDay() - filter.fromDay() + 1);
+                case PAYMENT_METHOD -> PAYMENT_METHODS.length + 1;
+                case STATUS -> STATUSES.length + 1;
+            };
+            counts = new long[slots];
+            sums = new long[slots];
+            byCashier = groupBy == SliceDimension.CASHIER ? new HashMap<>() : null;
+        }
+
+        private void add(int slot, long amount) {
+            counts[slot]++;
+            sums[slot] += amount;
+        }
+
+        private void addCashier(long cashierId, long amount) {
+            long[] totals = byCashier.computeIfAbsent(cashierId, id -> new long[2]);
+            totals[0]++;
+            totals[1] += amount;
+        }
+
+        private Partial merge(Partial other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                sums[i] += other.sums[i];
+            }
+            if (byCashier != null) {
+                other.byCashier.forEach((cashierId, totals) -> {
+                    long[] merged = byCashier.computeIfAbsent(cashierId, id -> new long[2]);
+                    merged[0] += totals[0];
+                    merged[1] += totals[1];
+                });
+            }
+            return this;
+        }
+
+        private List<Row> toRows(Filter filter, SliceDimension groupBy) {
+            List<Row> rows = new ArrayList<>();
+            if (groupBy == SliceDimension.CASHIER) {
+                byCashier.forEach((cashierId, totals) ->
+                        rows.add(new Row(cashierId == NO_CASHIER ? null : cashierId, totals[0], totals[1])));
+                return rows;
+            }
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] == 0) {
+                    continue;
+                }
+                Object key = switch (groupBy) {
+                    case DAY -> LocalDate.ofEpochDay((long) filter.fromDay() + slot);
+                    case PAYMENT_METHOD -> slot == 0 ? null : PAYMENT_METHODS[slot - 1];
+                    case STATUS -> slot == 0 ? null : STATUSES[slot - 1];
+                    default -> null;
+                };
+                rows.add(new Row(key, counts[slot], sums[slot]));
+            }
+            return rows;
+        }
+    }
+}
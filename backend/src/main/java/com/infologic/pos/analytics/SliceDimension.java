@@ -0,0 +1,12 @@
+package com.infologic.pos.analytics;
+
+/**
+ * Dimensions a sales slice can be grouped by
+ */
+public enum SliceDimension {
+    NONE,
+    DAY,
+    PAYMENT_METHOD,
+    STATUS,
+    CASHIER
+}
@@ -0,0 +1,239 @@
+package com.infologic.pos.analytics;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.SaleItem;
+import com.infologic.pos.sketch.SpaceSaving;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Approximate best-selling products per tenant over the last hour, today and the last 7 days.
+ * <p>
+ * Units sold are summarised from sale events in {@link SpaceSaving} sketches, one per five minute
+ * bucket over the last hour and one per hour over the last week, kept in rings whose slots are
+ * reused as time moves on. A tenant never holds more than {@link #MINUTE_BUCKETS} +
+ * {@link #HOUR_BUCKETS} sketches of {@code analytics.top-products.capacity} products, and at most
+ * {@code analytics.top-products.max-tenants} tenants are held. A window is answered by merging its
+ * buckets, with each product's error bound. Sales are counted once, when first seen completed;
+ * later refunds are not subtracted. Each node builds its own sketches from the events it sees.
+ */
+@Component
+public class TopProductsSketch {
+
+    static final int MINUTE_BUCKETS = 12;
+    static final int HOUR_BUCKETS = 168;
+    private static final long MINUTE_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long HOUR_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_COUNTED_SALES = 200_000;
+
+    /**
+     * Period a top products query covers
+     */
+    public enum Window {
+        LAST_HOUR,
+        TODAY,
+        LAST_7_DAYS
+    }
+
+    @Value("${analytics.top-products.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${analytics.top-products.capacity:64}")
+    private int capacity = 64;
+
+    @Value("${analytics.top-products.max-tenants:1000}")
+    private int maxTenants = 1000;
+
+    private final LongSupplier epochMillis;
+    private Cache<String, TenantSketches> tenants;
+    // Sales already counted, so a sale updated after completion is not counted again
+    private Cache<String, Boolean> countedSales;
+
+    public TopProductsSketch() {
+        this(System::currentTimeMillis);
+    }
+
+    TopProductsSketch(LongSupplier epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @PostConstruct
+    void init() {
+        tenants = Caffeine.newBuilder()
+                .maximumSize(maxTenants)
+                .build();
+        countedSales = Caffeine.newBuilder()
+                .maximumSize(MAX_COUNTED_SALES)
+                .expireAfterWrite(8, TimeUnit.DAYS)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count the items of a completed sale from an event
+     * @param tenantId the tenant
+     * @param sale the sale as carried by the event
+     */
+    public void onSale(String tenantId, Sale sale) {
+        if (!enabled || sale.getId() == null || sale.getStatus() != Sale.SaleStatus.COMPLETED
+                || sale.getItems() == null || sale.getItems().isEmpty()) {
+            return;
+        }
+        if (countedSales.asMap().putIfAbsent(tenantId + ':' + sale.getId(), Boolean.TRUE) != null) {
+            return;
+        }
+
+        long now = epochMillis.getAsLong();
+        long time = sale.getCreatedAt() != null
+                ? Math.min(now, sale.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                : now;
+        long hourEpoch = time / HOUR_BUCKET_MILLIS;
+        long minuteEpoch = time / MINUTE_BUCKET_MILLIS;
+        if (hourEpoch <= now / HOUR_BUCKET_MILLIS - HOUR_BUCKETS) {
+            return;
+        }
+
+        TenantSketches sketches = tenants.get(tenantId, id -> new TenantSketches());
+        synchronized (sketches) {
+            SpaceSaving minute = minuteEpoch > now / MINUTE_BUCKET_MILLIS - MINUTE_BUCKETS
+                    ? sketches.bucket(sketches.minutes, sketches.minuteEpochs, minuteEpoch, capacity)
+                    : null;
+            SpaceSaving hour = sketches.bucket(sketches.hours, sketches.hourEpochs, hourEpoch, capacity);
+            for (SaleItem item : sale.getItems()) {
+                if (item.getProduct() == null || item.getProduct().getId() == null || item.getQuantity() == null) {
+                    continue;
+                }
+                if (minute != null) {
+                    minute.add(item.getProduct().getId(), item.getQuantity());
+                }
+                hour.add(item.getProduct().getId(), item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Get a tenant's best-selling products over a window
+     * @param tenantId the tenant
+     * @param window the period
+     * @param limit how many products, at most the sketch capacity
+     * @return product ID, units sold as an upper bound and its error, best-selling first
+     */
+    public List<SpaceSaving.Entry> getTop(String tenantId, Window window, int limit) {
+        TenantSketches sketches = tenants.getIfPresent(tenantId);
+        if (!enabled || sketches == null) {
+            return List.of();
+        }
+
+        long now = epochMillis.getAsLong();
+        synchronized (sketches) {
+            List<SpaceSaving> buckets = switch (window) {
+                case LAST_HOUR -> TenantSketches.current(sketches.minutes, sketches.minuteEpochs,
+                        now / MINUTE_BUCKET_MILLIS - MINUTE_BUCKETS + 1);
+                case TODAY -> TenantSketches.current(sketches.hours, sketches.hourEpochs,
+                        startOfToday(tenantId, now) / HOUR_BUCKET_MILLIS);
+                case LAST_7_DAYS -> TenantSketches.current(sketches.hours, sketches.hourEpochs,
+                        now / HOUR_BUCKET_MILLIS - HOUR_BUCKETS + 1);
+            };
+            return SpaceSaving.merge(buckets, Math.min(limit, capacity));
+        }
+    }
+
+    /**
+     * Get sketch statistics
+     * @return tenants held, bytes held in total and per tenant
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Long> bytesPerTenant = new LinkedHashMap<>();
+        long bytes = 0;
+        for (Map.Entry<String, TenantSketches> entry : tenants.asMap().entrySet()) {
+            long tenantBytes;
+            synchronized (entry.getValue()) {
+                tenantBytes = entry.getValue().sizeInBytes();
+            }
+            bytesPerTenant.put(entry.getKey(), tenantBytes);
+            bytes += tenantBytes;
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("capacity", capacity);
+        statistics.put("tenants", bytesPerTenant.size());
+        statistics.put("bytes", bytes);
+        statistics.put("maxBytesPerTenant", (long) (MINUTE_BUCKETS + HOUR_BUCKETS) * new SpaceSaving(capacity).sizeInBytes());
+        statistics.put("bytesPerTenant", bytesPerTenant);
+        return statistics;
+    }
+
+    /**
+     * Start of the tenant's current day; the hour buckets are whole UTC hours, so in zones with a
+     * fractional offset the window starts at the hour containing midnight
+     */
+    private static long startOfToday(String tenantId, long now) {
+        ZoneId zone = TenantRegistry.getTimeZone(tenantId);
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(now), zone).toLocalDate()
+                .atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static final class TenantSketches {
+        private final SpaceSaving[] minutes = new SpaceSaving[MINUTE_BUCKETS];
+        private final long[] minuteEpochs = new long[MINUTE_BUCKETS];
+        private final SpaceSaving[] hours = new SpaceSaving[HOUR_BUCKETS];
+        private final long[] hourEpochs = new long[HOUR_BUCKETS];
+
+        /**
+         * The sketch of a bucket, taking over the slot of an expired bucket if needed
+         */
+        private SpaceSaving bucket(SpaceSaving[] ring, long[] epochs, long epoch, int capacity) {
+            int slot = (int) Math.floorMod(epoch, (long) ring.length);
+            if (ring[slot] == null) {
+                ring[slot] = new SpaceSaving(capacity);
+            } else if (epochs[slot] != epoch) {
+                ring[slot].clear();
+            }
+            epochs[slot] = epoch;
+            return ring[slot];
+        }
+
+        /**
+         * The sketches of the buckets from an epoch on that are still in the ring
+         */
+        private static List<SpaceSaving> current(SpaceSaving[] ring, long[] epochs, long fromEpoch) {
+            List<SpaceSaving> buckets = new ArrayList<>();
+            for (int slot = 0; slot < ring.length; slot++) {
+                if (ring[slot] != null && epochs[slot] >= fromEpoch) {
+                    buckets.add(ring[slot]);
+                }
+            }
+            return buckets;
+        }
+
+        private long sizeInBytes() {
+            long bytes = 0;
+            for (SpaceSaving sketch : minutes) {
+                bytes += sketch != null ? sketch.sizeInBytes() : 0;
+            }
+            for (SpaceSaving sketch : hours) {
+                bytes += sketch != null ? sketch.sizeInBytes() : 0;
+            }
+            return bytes;
+        }
+    }
+}
@@ -11,8 +11,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +35,16 @@ public class KafkaConfig {
     public static final String INVENTORY_TOPIC = "inventory-events";
     public static final String PAYMENT_TOPIC = "payment-events";
     public static final String SYNC_TOPIC = "sync-events";
+    public static final String USER_TOPIC = "user-events";
+    public static final String REPORT_CACHE_TOPIC = "report-cache-events";
+
+    // Sale events that still failed after their retries, named as the dead-letter recoverer expects
+    public static final String SALES_DLT_TOPIC = SALES_TOPIC + ".DLT";
+
+    public static final String SALE_EVENT_LISTENER_FACTORY = "saleEventListenerContainerFactory";
+
+    private static final long SALE_EVENT_RETRY_INTERVAL_MILLIS = 2000L;
+    private static final long SALE_EVENT_RETRIES = 9L;
 
     // Configure Kafka admin client
     @Bean
@@ -61,6 +75,22 @@ public class KafkaConfig {
         return new NewTopic(SYNC_TOPIC, 3, (short) 1);
     }
 
+    @Bean
+    public NewTopic userTopic() {
+        return new NewTopic(USER_TOPIC, 3, (short) 1);
+    }
+
+    @Bean
+    public NewTopic reportCacheTopic() {
+        return new NewTopic(REPORT_CACHE_TOPIC, 3, (short) 1);
+    }
+
+    // Same partition count as the sales topic: the recoverer keeps each record's partition
+    @Bean
+    public NewTopic salesDeadLetterTopic() {
+        return new NewTopic(SALES_DLT_TOPIC, 3, (short) 1);
+    }
+
     // Producer configuration
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
@@ -100,4 +130,19 @@ public class KafkaConfig {
         factory.setBatchListener(false);
         return factory;
     }
+
+    // Sale events feed the rollups, so one that fails is retried and then parked on the
+    // dead-letter topic instead of being skipped
+    @Bean(SALE_EVENT_LISTENER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, Object> saleEventListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(false);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+            new DeadLetterPublishingRecoverer(kafkaTemplate()),
+            new FixedBackOff(SALE_EVENT_RETRY_INTERVAL_MILLIS, SALE_EVENT_RETRIES)));
+        return factory;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.infologic.pos.config.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Replaces the single pool with a primary and a replica pool when
+ * {@code spring.datasource.replica.url} is set. Read-only transactions are routed to the replica,
+ * everything else to the primary. The replica inherits the primary's credentials and driver unless
+ * given its own, and is pooled by {@code spring.datasource.replica.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Value("${spring.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${spring.datasource.replica.username:}")
+    private String replicaUsername;
+
+    @Value("${spring.datasource.replica.password:}")
+    private String replicaPassword;
+
+    // Zero while the standby has replayed everything it received, so an idle primary reads as current
+    @Value("${spring.datasource.replica.lag-query:SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END}")
+    private String lagQuery;
+
+    @Value("${spring.datasource.replica.max-lag-seconds:5}")
+    private double maxLagSeconds;
+
+    @Value("${spring.datasource.replica.lag-check-interval-ms:5000}")
+    private long lagCheckIntervalMs;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create(properties.getClassLoader())
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(StringUtils.hasText(replicaUsername) ? replicaUsername : properties.determineUsername())
+                .password(StringUtils.hasText(replicaPassword) ? replicaPassword : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica) {
+        return new ReplicaRoutingDataSource(primary, replica);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica) {
+        // Reads fall back to the primary if checks stop for three intervals
+        return new ReplicaLagMonitor(replica, lagQuery, maxLagSeconds, lagCheckIntervalMs * 3);
+    }
+
+    @Bean
+    public ReplicaRoutingTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+            ReplicaLagMonitor replicaLagMonitor, ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaRoutingTransactionManager transactionManager =
+                new ReplicaRoutingTransactionManager(entityManagerFactory, replicaLagMonitor);
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+}
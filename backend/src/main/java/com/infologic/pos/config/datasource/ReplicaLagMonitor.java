@@ -0,0 +1,87 @@
+package com.infologic.pos.config.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically measures how far the replica is behind the primary. Read-only transactions are only
+ * routed to the replica while the last check succeeded, is recent and found the lag within
+ * {@code spring.datasource.replica.max-lag-seconds}.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final long maxCheckAgeMillis;
+
+    private volatile Double lagSeconds;
+    private volatile long checkedAt;
+    private volatile boolean usable;
+
+    /**
+     * @param replica the replica pool
+     * @param lagQuery query returning the replay lag in seconds as a single number
+     * @param maxLagSeconds lag beyond which reads go to the primary
+     * @param maxCheckAgeMillis age beyond which the last check is no longer trusted
+     */
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, double maxLagSeconds, long maxCheckAgeMillis) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.jdbcTemplate.setQueryTimeout(2);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        this.maxCheckAgeMillis = maxCheckAgeMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        Double lag;
+        try {
+            Number result = jdbcTemplate.queryForObject(lagQuery, Number.class);
+            lag = result != null ? result.doubleValue() : 0.0;
+        } catch (Exception e) {
+            log.debug("Replica lag check failed", e);
+            lag = null;
+        }
+
+        boolean nowUsable = lag != null && lag <= maxLagSeconds;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Routing read-only transactions to the replica, lag {}s", lag);
+            } else {
+                log.warn("Routing read-only transactions to the primary, replica lag {}", lag != null ? lag + "s" : "unknown");
+            }
+        }
+        lagSeconds = lag;
+        checkedAt = System.currentTimeMillis();
+        usable = nowUsable;
+    }
+
+    /**
+     * Whether a read-only transaction starting now may use the replica
+     */
+    public boolean isReplicaUsable() {
+        return usable && System.currentTimeMillis() - checkedAt <= maxCheckAgeMillis;
+    }
+
+    /**
+     * Get the state of the last check
+     * @return whether the replica is used, the measured lag and when it was measured
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("replicaUsable", isReplicaUsable());
+        status.put("lagSeconds", lagSeconds);
+        status.put("maxLagSeconds", maxLagSeconds);
+        status.put("checkedAt", checkedAt > 0 ? checkedAt : null);
+        return status;
+    }
+}
@@ -0,0 +1,48 @@
+package com.infologic.pos.config.datasource;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the replica pool while the current transaction has been routed there
+ * by {@link ReplicaRoutingTransactionManager}, and from the primary pool otherwise.
+ * <p>
+ * Tenant schema switching is unaffected: {@code MultiTenantSchemaConnectionProvider} sets the
+ * search path on whichever connection is returned.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> REPLICA_ROUTE = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    static void routeToReplica(boolean replica) {
+        if (replica) {
+            REPLICA_ROUTE.set(Boolean.TRUE);
+        } else {
+            REPLICA_ROUTE.remove();
+        }
+    }
+
+    static boolean isRoutedToReplica() {
+        return REPLICA_ROUTE.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isRoutedToReplica() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,74 @@
+package com.infologic.pos.config.datasource;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * JPA transaction manager that routes new read-only transactions to the replica while the
+ * {@link ReplicaLagMonitor} considers it current.
+ * <p>
+ * The route is chosen before the transaction takes its connection, since Hibernate acquires it
+ * (and the tenant schema is set on it) while the transaction begins. Read-only transactions that
+ * join a read-write one stay on the primary. An EntityManager opened for the whole request keeps
+ * its connection between transactions, so a read-only transaction only takes it to the replica if
+ * it holds no connection yet, and hands the replica connection back when it completes.
+ */
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingTransactionManager(EntityManagerFactory entityManagerFactory, ReplicaLagMonitor lagMonitor) {
+        super(entityManagerFactory);
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        boolean replica = definition.isReadOnly() && lagMonitor.isReplicaUsable();
+        if (replica) {
+            EntityManagerHolder requestHolder = boundEntityManager();
+            if (requestHolder != null && logicalConnection(requestHolder.getEntityManager()).isPhysicallyConnected()) {
+                replica = false;
+            }
+        }
+        ReplicaRoutingDataSource.routeToReplica(replica);
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            ReplicaRoutingDataSource.routeToReplica(false);
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        boolean replica = ReplicaRoutingDataSource.isRoutedToReplica();
+        try {
+            super.doCleanupAfterCompletion(transaction);
+            // Still bound after cleanup means the EntityManager outlives the transaction
+            EntityManagerHolder requestHolder = replica ? boundEntityManager() : null;
+            if (requestHolder != null && requestHolder.getEntityManager().isOpen()) {
+                logicalConnection(requestHolder.getEntityManager()).manualDisconnect();
+            }
+        } finally {
+            ReplicaRoutingDataSource.routeToReplica(false);
+        }
+    }
+
+    private EntityManagerHolder boundEntityManager() {
+        return (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+    }
+
+    private static LogicalConnectionImplementor logicalConnection(EntityManager entityManager) {
+        return entityManager.unwrap(SharedSessionContractImplementor.class).getJdbcCoordinator().getLogicalConnection();
+    }
+}
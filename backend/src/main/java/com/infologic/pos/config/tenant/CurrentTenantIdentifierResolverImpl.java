@@ -9,17 +9,19 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 public class CurrentTenantIdentifierResolverImpl implements CurrentTenantIdentifierResolver {
 
-    private static final String DEFAULT_TENANT = "public";
-    
+    /**
+     * Resolve the schema for the current tenant. Shared tenants all resolve to the shared schema,
+     * so Hibernate hands them the same connection setup and prepared statement cache.
+     */
     @Override
     public String resolveCurrentTenantIdentifier() {
         String tenantId = TenantContext.getCurrentTenant();
         if (tenantId != null) {
-            return tenantId;
+            return TenantRegistry.resolveSchema(tenantId);
         }
         
-        log.debug("No tenant found in context, using default tenant: {}", DEFAULT_TENANT);
-        return DEFAULT_TENANT;
+        log.debug("No tenant found in context, using shared schema: {}", TenantRegistry.getSharedSchema());
+        return TenantRegistry.getSharedSchema();
     }
 
     @Override
@@ -2,8 +2,7 @@ package com.infologic.pos.config.tenant;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.Statement;
 
 import javax.sql.DataSource;
 
@@ -24,8 +23,6 @@ public class MultiTenantSchemaConnectionProvider implements MultiTenantConnectio
 
     @Autowired
     private transient DataSource dataSource;
-    
-    private final Map<String, Boolean> tenantSchemaCache = new HashMap<>();
 
     /**
      * No-argument constructor required by Hibernate
@@ -73,10 +70,16 @@ public class MultiTenantSchemaConnectionProvider implements MultiTenantConnectio
         log.debug("Getting connection for tenant: {}", tenantIdentifier);
         final Connection connection = getAnyConnection();
         
-        try {
+        // Pooled connections stay on the default schema; any other schema, including a shared
+        // schema configured elsewhere, is set here and reset on release
+        String schema = (String) tenantIdentifier;
+        if (TenantRegistry.DEFAULT_SCHEMA.equals(schema)) {
+            return connection;
+        }
+        
+        try (Statement statement = connection.createStatement()) {
             // Set schema for this connection
-            String tenantId = (String) tenantIdentifier;
-            connection.createStatement().execute(String.format("SET search_path TO %s", tenantId));
+            statement.execute(String.format("SET search_path TO %s", schema));
             return connection;
         } catch (SQLException e) {
             log.error("Error setting schema to {}", tenantIdentifier, e);
@@ -87,11 +90,20 @@ public class MultiTenantSchemaConnectionProvider implements MultiTenantConnectio
 
     @Override
     public void releaseConnection(Object tenantIdentifier, Connection connection) throws SQLException {
-        try {
+        if (TenantRegistry.DEFAULT_SCHEMA.equals(tenantIdentifier)) {
+            connection.close();
+            return;
+        }
+        
+        try (Statement statement = connection.createStatement()) {
             // Reset schema to default before returning the connection
-            connection.createStatement().execute("SET search_path TO public");
+            statement.execute(String.format("SET search_path TO %s", TenantRegistry.DEFAULT_SCHEMA));
         } catch (SQLException e) {
-            log.warn("Could not reset search_path to public schema", e);
+            // Checkouts for the default schema do not set it, so a connection left on this tenant's
+            // schema must not be lent again: aborting it makes the pool discard it. Should the abort
+            // fail, the connection is not returned at all.
+            log.warn("Could not reset search_path to {} schema, aborting the connection", TenantRegistry.DEFAULT_SCHEMA, e);
+            connection.abort(Runnable::run);
         }
         
         // Close the connection
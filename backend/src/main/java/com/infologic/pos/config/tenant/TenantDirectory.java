@@ -0,0 +1,72 @@
+package com.infologic.pos.config.tenant;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds the tenants that have data, for jobs that visit every tenant.
+ * <p>
+ * The {@link TenantRegistry} only knows the tenants named in the configuration; every other tenant
+ * lives where the default mode puts it. The directory adds the tenant IDs found on
+ * the products and users of every schema, keeping each one only where its data lives: a tenant ID
+ * in a schema its tenant does not resolve to is a leftover, not data the tenant can reach.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TenantDirectory {
+
+    private static final String TENANT_TABLES =
+            "SELECT table_schema, table_name FROM information_schema.tables "
+            + "WHERE LOWER(table_name) IN ('products', 'users')";
+
+    private final DataSource dataSource;
+    private final TenantRegistry tenantRegistry;
+
+    /**
+     * Find every tenant with products or users, and every registered tenant
+     * @return the tenant IDs in order
+     */
+    public Set<String> findTenants() {
+        Set<String> tenants = new TreeSet<>(tenantRegistry.getRegisteredTenants().keySet());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (Map<String, Object> table : jdbcTemplate.queryForList(TENANT_TABLES)) {
+            String schema = (String) table.get("table_schema");
+            String name = (String) table.get("table_name");
+            try {
+                List<String> tenantIds = jdbcTemplate.queryForList(String.format(
+                        "SELECT DISTINCT tenant_id FROM %s.%s WHERE tenant_id IS NOT NULL",
+                        quote(schema), quote(name)), String.class);
+                tenantIds.stream().filter(tenantId -> livesIn(tenantId, schema)).forEach(tenants::add);
+            } catch (DataAccessException e) {
+                log.warn("Could not read the tenants of {}.{}: {}", schema, name, e.getMessage());
+            }
+        }
+        return tenants;
+    }
+
+    private static boolean livesIn(String tenantId, String schema) {
+        try {
+            // PostgreSQL folds the unquoted schema names of the search path to lower case
+            return TenantRegistry.resolveSchema(tenantId).equalsIgnoreCase(schema);
+        } catch (IllegalArgumentException e) {
+            // Not a valid schema name, so not a tenant of a dedicated schema
+            return false;
+        }
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
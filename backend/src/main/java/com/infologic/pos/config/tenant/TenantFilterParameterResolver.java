@@ -0,0 +1,18 @@
+package com.infologic.pos.config.tenant;
+
+import java.util.function.Supplier;
+
+/**
+ * Supplies the {@code tenantId} parameter of the auto-enabled {@code tenantFilter}.
+ * <p>
+ * Only tenants in the shared schema are filtered; for dedicated tenants the schema already
+ * isolates the rows, so {@code null} is returned and the filter condition matches every row.
+ */
+public class TenantFilterParameterResolver implements Supplier<String> {
+
+    @Override
+    public String get() {
+        String tenantId = TenantContext.getCurrentTenant();
+        return TenantRegistry.isShared(tenantId) ? tenantId : null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.infologic.pos.config.tenant;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry deciding where each tenant's data lives.
+ * <p>
+ * Small tenants share one schema and are isolated by the {@code tenantFilter} on their rows,
+ * large tenants keep a dedicated schema named after the tenant. The mapping is held statically
+ * because Hibernate instantiates the tenant resolver itself, outside of Spring.
+ * <p>
+ * The registry also knows each tenant's time zone, used where reports bucket sales by local time.
+ */
+@Slf4j
+@Component
+public class TenantRegistry {
+
+    // Schema pooled connections start on, and the tenant ID of requests without a tenant
+    public static final String DEFAULT_SCHEMA = "public";
+
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z0-9_]{1,63}");
+
+    private static final Map<String, TenancyMode> TENANT_MODES = new ConcurrentHashMap<>();
+    private static final Map<String, ZoneId> TENANT_TIME_ZONES = new ConcurrentHashMap<>();
+    private static volatile ZoneId defaultTimeZone = ZoneId.systemDefault();
+    private static volatile TenancyMode defaultMode = TenancyMode.DEDICATED;
+    private static volatile String sharedSchema = DEFAULT_SCHEMA;
+
+    @Value("${multitenancy.default-mode:DEDICATED}")
+    private TenancyMode configuredDefaultMode;
+
+    @Value("${multitenancy.shared-schema:public}")
+    private String configuredSharedSchema;
+
+    @Value("${multitenancy.shared-tenants:}")
+    private List<String> sharedTenants;
+
+    @Value("${multitenancy.dedicated-tenants:}")
+    private List<String> dedicatedTenants;
+
+    @Value("${multitenancy.default-time-zone:}")
+    private String configuredDefaultTimeZone;
+
+    // Entries of the form tenant=Area/City
+    @Value("${multitenancy.time-zones:}")
+    private List<String> tenantTimeZones;
+
+    public enum TenancyMode {
+        SHARED, DEDICATED
+    }
+
+    @PostConstruct
+    void init() {
+        defaultMode = configuredDefaultMode;
+        sharedSchema = validateSchemaName(configuredSharedSchema);
+        sharedTenants.stream().filter(t -> !t.isBlank()).forEach(t -> register(t.trim(), TenancyMode.SHARED));
+        dedicatedTenants.stream().filter(t -> !t.isBlank()).forEach(t -> register(t.trim(), TenancyMode.DEDICATED));
+        if (!configuredDefaultTimeZone.isBlank()) {
+            defaultTimeZone = parseZone(configuredDefaultTimeZone.trim());
+        }
+        for (String entry : tenantTimeZones) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid tenant time zone, expected tenant=zone: " + entry);
+            }
+            registerTimeZone(entry.substring(0, separator).trim(), parseZone(entry.substring(separator + 1).trim()));
+        }
+        log.info("Tenant registry initialized: default mode {}, shared schema '{}', {} registered tenants",
+                defaultMode, sharedSchema, TENANT_MODES.size());
+    }
+
+    /**
+     * Register or move a tenant
+     * @param tenantId tenant ID
+     * @param mode tenancy mode
+     */
+    public void register(String tenantId, TenancyMode mode) {
+        TENANT_MODES.put(tenantId, mode);
+        log.debug("Registered tenant {} as {}", tenantId, mode);
+    }
+
+    /**
+     * Set the time zone of a tenant
+     * @param tenantId tenant ID
+     * @param zone the tenant's local time zone
+     */
+    public void registerTimeZone(String tenantId, ZoneId zone) {
+        TENANT_TIME_ZONES.put(tenantId, zone);
+        log.debug("Registered time zone {} for tenant {}", zone, tenantId);
+    }
+
+    /**
+     * Get all explicitly registered tenants
+     * @return tenant ID to tenancy mode
+     */
+    public Map<String, TenancyMode> getRegisteredTenants() {
+        return Collections.unmodifiableMap(TENANT_MODES);
+    }
+
+    /**
+     * Get the tenancy mode of a tenant
+     * @param tenantId tenant ID
+     * @return the registered mode, or the default mode for unknown tenants
+     */
+    public static TenancyMode getMode(String tenantId) {
+        if (tenantId == null || DEFAULT_SCHEMA.equals(tenantId)) {
+            return TenancyMode.SHARED;
+        }
+        return TENANT_MODES.getOrDefault(tenantId, defaultMode);
+    }
+
+    /**
+     * Whether a tenant lives in the shared schema and relies on row filtering
+     * @param tenantId tenant ID
+     * @return true for shared tenants
+     */
+    public static boolean isShared(String tenantId) {
+        return tenantId != null && !DEFAULT_SCHEMA.equals(tenantId) && getMode(tenantId) == TenancyMode.SHARED;
+    }
+
+    /**
+     * Resolve the schema holding a tenant's data
+     * @param tenantId tenant ID
+     * @return schema name
+     */
+    public static String resolveSchema(String tenantId) {
+        if (getMode(tenantId) == TenancyMode.SHARED) {
+            return sharedSchema;
+        }
+        return validateSchemaName(tenantId);
+    }
+
+    /**
+     * Get the schema holding the shared tenants, and the data of requests without a tenant
+     * @return schema name
+     */
+    public static String getSharedSchema() {
+        return sharedSchema;
+    }
+
+    /**
+     * Get the local time zone of a tenant
+     * @param tenantId tenant ID
+     * @return the registered zone, or the default zone for other tenants
+     */
+    public static ZoneId getTimeZone(String tenantId) {
+        return tenantId != null ? TENANT_TIME_ZONES.getOrDefault(tenantId, defaultTimeZone) : defaultTimeZone;
+    }
+
+    private static ZoneId parseZone(String zone) {
+        try {
+            return ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid time zone: " + zone, e);
+        }
+    }
+
+    private static String validateSchemaName(String schema) {
+        if (!SCHEMA_NAME.matcher(schema).matches()) {
+            throw new IllegalArgumentException("Invalid tenant schema name: " + schema);
+        }
+        return schema;
+    }
+}
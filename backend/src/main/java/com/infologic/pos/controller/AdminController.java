@@ -0,0 +1,161 @@
+package com.infologic.pos.controller;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.infologic.pos.analytics.SalesColumnarCache;
+import com.infologic.pos.analytics.TopProductsSketch;
+import com.infologic.pos.config.datasource.ReplicaLagMonitor;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.search.ProductCodeLookup;
+import com.infologic.pos.search.ProductSearchIndex;
+import com.infologic.pos.security.PasswordHashingExecutor;
+import com.infologic.pos.service.InventoryValuationService;
+import com.infologic.pos.service.MfaService;
+import com.infologic.pos.service.ReportJobService;
+import com.infologic.pos.service.ReportResultCache;
+import com.infologic.pos.service.SalesRollupService;
+import com.infologic.pos.service.UserDetailsServiceImpl;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+@Tag(name = "Administration", description = "Operational statistics and maintenance API")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminController {
+    
+    private final UserDetailsServiceImpl userDetailsService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final MfaService mfaService;
+    private final SalesRollupService salesRollupService;
+    private final SalesColumnarCache salesColumnarCache;
+    private final ReportJobService reportJobService;
+    private final ReportResultCache reportResultCache;
+    private final TopProductsSketch topProductsSketch;
+    private final InventoryValuationService inventoryValuationService;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCodeLookup productCodeLookup;
+    
+    @GetMapping("/cache-stats")
+    @Operation(summary = "Get cache statistics", description = "Retrieves size, hit ratio and eviction counts of the in-process caches")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved cache statistics"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        log.debug("REST request to get cache statistics");
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("userDetails", userDetailsService.getCacheStatistics());
+        statistics.put("mfaQrCodes", mfaService.getQrCodeCacheStatistics());
+        statistics.put("salesColumnar", salesColumnarCache.getStatistics());
+        statistics.put("reportResults", reportResultCache.getStatistics());
+        statistics.put("topProducts", topProductsSketch.getStatistics());
+        statistics.put("productSearch", productSearchIndex.getStatistics());
+        statistics.put("productCodes", productCodeLookup.getStatistics());
+        return ResponseEntity.ok(statistics);
+    }
+    
+    @GetMapping("/password-hashing-stats")
+    @Operation(summary = "Get password hashing pool statistics", description = "Retrieves activity, queue depth and rejections of the BCrypt pool")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved pool statistics"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> getPasswordHashingStatistics() {
+        log.debug("REST request to get password hashing pool statistics");
+        return ResponseEntity.ok(passwordHashingExecutor.getStatistics());
+    }
+    
+    @GetMapping("/replica-status")
+    @Operation(summary = "Get read replica status", description = "Retrieves whether read-only transactions are routed to the replica and its last measured lag")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved replica status"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> getReplicaStatus() {
+        log.debug("REST request to get read replica status");
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        return ResponseEntity.ok(monitor != null ? monitor.getStatus() : Map.of("configured", false));
+    }
+    
+    @GetMapping("/report-job-stats")
+    @Operation(summary = "Get report job statistics", description = "Retrieves pool activity, jobs by status, deduplicated and rejected submissions of background reports")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved report job statistics"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> getReportJobStatistics() {
+        log.debug("REST request to get report job statistics");
+        return ResponseEntity.ok(reportJobService.getStatistics());
+    }
+    
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "Rebuild sales rollups", description = "Re-applies every sale of the current tenant in a date range to the daily rollup tables")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rollups rebuilt"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> rebuildRollups(
+            @Parameter(description = "First day (ISO format)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("REST request to rebuild sales rollups between {} and {}", startDate, endDate);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startDate", startDate);
+        result.put("endDate", endDate);
+        result.put("salesApplied", salesRollupService.rebuild(startDate, endDate));
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping("/inventory-valuation/reconcile")
+    @Operation(summary = "Reconcile inventory valuation", description = "Compares the current tenant's inventory valuation with a full scan of its products and re-applies the products of any category that differs")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Valuation reconciled"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> reconcileInventoryValuation() {
+        log.info("REST request to reconcile inventory valuation");
+        return ResponseEntity.ok(inventoryValuationService.reconcile());
+    }
+    
+    @PostMapping("/product-search-index/rebuild")
+    @Operation(summary = "Rebuild product search index", description = "Reloads the current tenant's in-memory product search index on this node")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Index rebuilt"),
+        @ApiResponse(responseCode = "400", description = "The in-memory product search index is disabled"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role")
+    })
+    public ResponseEntity<Map<String, Object>> rebuildProductSearchIndex() {
+        log.info("REST request to rebuild the product search index");
+        if (!productSearchIndex.isEnabled()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productsIndexed", productSearchIndex.rebuild(TenantContext.getCurrentTenant()));
+        return ResponseEntity.ok(result);
+    }
+}
@@ -2,12 +2,14 @@ package com.infologic.pos.controller;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -86,9 +88,10 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Authentication successful",
                 content = @Content(schema = @Schema(implementation = TokenResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid credentials"),
-        @ApiResponse(responseCode = "401", description = "Authentication failed")
+        @ApiResponse(responseCode = "401", description = "Authentication failed"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent sign-ins, retry later")
     })
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<TokenResponse> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         log.info("Login request received for username: {}", loginRequest.getUsername());
         
         User authenticatedUser = authService.authenticateUser(
@@ -113,13 +116,12 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "MFA setup initiated successfully"),
         @ApiResponse(responseCode = "404", description = "User not found")
     })
-    public ResponseEntity<String> enableMfa(
+    public CompletableFuture<ResponseEntity<String>> enableMfa(
             @Parameter(description = "ID of the user to enable MFA for") 
             @PathVariable Long userId) {
         log.info("MFA enable request received for user ID: {}", userId);
         
-        String qrCodeUri = authService.enableMfa(userId);
-        return ResponseEntity.ok(qrCodeUri);
+        return authService.enableMfa(userId).thenApply(ResponseEntity::ok);
     }
     
     @PostMapping("/mfa/verify")
@@ -140,4 +142,21 @@ public class AuthController {
         
         return ResponseEntity.ok(new TokenResponse(token, null, false));
     }
-} 
\ No newline at end of file
+    
+    @PostMapping("/logout")
+    @Operation(summary = "Log out", description = "Revoke the bearer token so it can no longer be used")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Token revoked"),
+        @ApiResponse(responseCode = "400", description = "Missing, invalid or expired token")
+    })
+    public ResponseEntity<Void> logout(
+            @Parameter(description = "Bearer token to revoke") 
+            @RequestHeader("Authorization") String authorization) {
+        if (!authorization.startsWith("Bearer ")) {
+            throw new IllegalArgumentException("Authorization header must contain a bearer token");
+        }
+        
+        authService.logout(authorization.substring(7));
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -15,7 +15,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.infologic.pos.dto.CursorPage;
 import com.infologic.pos.dto.ProductDTO;
+import com.infologic.pos.dto.ScannedProduct;
 import com.infologic.pos.model.Product;
 import com.infologic.pos.service.ProductService;
 
@@ -55,6 +57,25 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
     
+    @GetMapping("/cursor")
+    @Operation(summary = "Get products by cursor", 
+               description = "Retrieves products by name, one slice at a time. Pass the nextCursor of a slice " +
+                       "to get the next one; deep slices cost the same as the first and no total is counted")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved products slice"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated"),
+        @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<CursorPage<Product>> getProductsByCursor(
+            @Parameter(description = "nextCursor of the previous slice, omitted for the first") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of products in the slice (1-1000)") 
+            @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get Products after cursor : {}", cursor);
+        return ResponseEntity.ok(productService.getProducts(cursor, Math.max(1, Math.min(size, 1000))));
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieves a specific product by its ID")
     @ApiResponses(value = {
@@ -68,6 +89,18 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
     
+    @GetMapping("/scan/{code}")
+    @Operation(summary = "Scan product", description = "Looks up a product by barcode, or failing that by SKU, returning its ID, price and stock for checkout")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product found"),
+        @ApiResponse(responseCode = "404", description = "No product has this code")
+    })
+    public ResponseEntity<ScannedProduct> scanProduct(
+            @Parameter(description = "Barcode or SKU") @PathVariable String code) {
+        log.debug("REST request to scan Product : {}", code);
+        return ResponseEntity.ok(productService.scanProduct(code));
+    }
+    
     @PostMapping
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR')")
     @Operation(summary = "Create a product", description = "Creates a new product with the provided information")
@@ -128,7 +161,7 @@ public class ProductController {
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Searches for products based on the provided query string")
+    @Operation(summary = "Search products", description = "Searches products by barcode, SKU, name and category, exact barcode and SKU matches first, then by how closely the name matches")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved search results")
     })
@@ -136,7 +169,7 @@ public class ProductController {
             @Parameter(description = "Search query string") @RequestParam String query,
             @Parameter(description = "Pagination parameters") Pageable pageable) {
         log.debug("REST request to search Products with query : {}", query);
-        Page<Product> products = productService.searchProductsByName(query, pageable);
+        Page<Product> products = productService.searchProducts(query, pageable);
         return ResponseEntity.ok(products);
     }
     
@@ -1,19 +1,31 @@
 package com.infologic.pos.controller;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.infologic.pos.analytics.SliceDimension;
+import com.infologic.pos.analytics.TopProductsSketch;
+import com.infologic.pos.dto.ReportJobRequest;
+import com.infologic.pos.dto.ReportJobRequest.ReportType;
+import com.infologic.pos.dto.ReportJobResponse;
 import com.infologic.pos.model.Sale;
+import com.infologic.pos.service.InventoryValuationService;
+import com.infologic.pos.service.ReportJobService;
 import com.infologic.pos.service.ReportService;
+import com.infologic.pos.service.RollupReportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -36,11 +48,15 @@ import lombok.extern.slf4j.Slf4j;
 public class ReportController {
     
     private final ReportService reportService;
+    private final RollupReportService rollupReportService;
+    private final ReportJobService reportJobService;
+    private final InventoryValuationService inventoryValuationService;
     
     @GetMapping("/sales-summary")
     @Operation(summary = "Get sales summary", description = "Retrieves a summary of sales metrics for a date range")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved sales summary"),
+        @ApiResponse(responseCode = "202", description = "Period too long to compute inline, a report job was submitted; see Location"),
         @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
     })
     public ResponseEntity<Map<String, Object>> getSalesSummary(
@@ -49,28 +65,47 @@ public class ReportController {
             @Parameter(description = "End date (ISO format)") 
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         log.debug("REST request to get sales summary between {} and {}", startDate, endDate);
+        if (reportJobService.exceedsAsyncThreshold(startDate.toLocalDate(), endDate.toLocalDate())) {
+            return submitJob(ReportType.SALES_SUMMARY, startDate, endDate, null, null);
+        }
         Map<String, Object> summary = reportService.getSalesSummary(startDate, endDate);
         return ResponseEntity.ok(summary);
     }
     
     @GetMapping("/inventory-status")
-    @Operation(summary = "Get inventory status", description = "Retrieves inventory status information including low stock products")
+    @Operation(summary = "Get inventory status", description = "Retrieves one page of low stock products, with the stock counts on the first page only. Pass nextAfterId from the response as afterId to get the next page")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved inventory status"),
         @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
     })
     public ResponseEntity<Map<String, Object>> getInventoryStatus(
             @Parameter(description = "Threshold for low stock (default: 10)") 
-            @RequestParam(defaultValue = "10") Integer lowStockThreshold) {
-        log.debug("REST request to get inventory status with low stock threshold {}", lowStockThreshold);
-        Map<String, Object> status = reportService.getInventoryStatus(lowStockThreshold);
+            @RequestParam(defaultValue = "10") Integer lowStockThreshold,
+            @Parameter(description = "Only products with a higher ID, from nextAfterId of the previous page (default: 0)") 
+            @RequestParam(defaultValue = "0") long afterId,
+            @Parameter(description = "Number of products per page (default: 100, max: 1000)") 
+            @RequestParam(defaultValue = "100") int limit) {
+        log.debug("REST request to get inventory status with low stock threshold {} after product {}", lowStockThreshold, afterId);
+        Map<String, Object> status = reportService.getInventoryStatus(lowStockThreshold, afterId, Math.max(1, Math.min(limit, 1000)));
         return ResponseEntity.ok(status);
     }
     
+    @GetMapping("/inventory-valuation")
+    @Operation(summary = "Get inventory valuation", description = "Retrieves products, units in stock and stock value at current prices per product category")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved inventory valuation"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<Map<String, Object>> getInventoryValuation() {
+        log.debug("REST request to get inventory valuation");
+        return ResponseEntity.ok(inventoryValuationService.getValuation());
+    }
+    
     @GetMapping("/payment-methods")
     @Operation(summary = "Get sales by payment method", description = "Calculates sales statistics grouped by payment method for a date range")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved payment method statistics"),
+        @ApiResponse(responseCode = "202", description = "Period too long to compute inline, a report job was submitted; see Location"),
         @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
     })
     public ResponseEntity<Map<Sale.PaymentMethod, BigDecimal>> getSalesByPaymentMethod(
@@ -79,7 +114,209 @@ public class ReportController {
             @Parameter(description = "End date (ISO format)") 
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         log.debug("REST request to get sales by payment method between {} and {}", startDate, endDate);
+        if (reportJobService.exceedsAsyncThreshold(startDate.toLocalDate(), endDate.toLocalDate())) {
+            return submitJob(ReportType.PAYMENT_METHODS, startDate, endDate, null, null);
+        }
         Map<Sale.PaymentMethod, BigDecimal> paymentMethodStats = reportService.getSalesByPaymentMethod(startDate, endDate);
         return ResponseEntity.ok(paymentMethodStats);
     }
-} 
\ No newline at end of file
+    
+    @GetMapping("/products/top")
+    @Operation(summary = "Get top products", description = "Retrieves the best selling products of a period by revenue or by quantity")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved top products"),
+        @ApiResponse(responseCode = "202", description = "Period too long to compute inline, a report job was submitted; see Location"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getTopProducts(
+            @Parameter(description = "First day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Ranking metric: revenue or quantity (default: revenue)") 
+            @RequestParam(defaultValue = "revenue") String metric,
+            @Parameter(description = "Number of products (default: 10)") 
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("REST request to get top {} products by {} between {} and {}", limit, metric, startDate, endDate);
+        if (!"revenue".equalsIgnoreCase(metric) && !"quantity".equalsIgnoreCase(metric)) {
+            throw new IllegalArgumentException("Metric must be revenue or quantity");
+        }
+        if (reportJobService.exceedsAsyncThreshold(startDate, endDate)) {
+            return submitJob(ReportType.TOP_PRODUCTS, startDate.atStartOfDay(), endDate.atStartOfDay(),
+                    metric, Math.max(1, Math.min(limit, 100)));
+        }
+        List<Map<String, Object>> products = rollupReportService.getTopProducts(startDate, endDate,
+                "quantity".equalsIgnoreCase(metric), Math.max(1, Math.min(limit, 100)));
+        return ResponseEntity.ok(products);
+    }
+    
+    @GetMapping("/products/top/live")
+    @Operation(summary = "Get live top products", description = "Retrieves approximate best selling products by quantity over the last hour, today or the last 7 days, from in-memory sketches of recent sale events")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved live top products"),
+        @ApiResponse(responseCode = "400", description = "Invalid window"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getLiveTopProducts(
+            @Parameter(description = "Window: LAST_HOUR, TODAY or LAST_7_DAYS (default: TODAY)") 
+            @RequestParam(defaultValue = "TODAY") TopProductsSketch.Window window,
+            @Parameter(description = "Number of products (default: 10)") 
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("REST request to get live top {} products over {}", limit, window);
+        return ResponseEntity.ok(rollupReportService.getLiveTopProducts(window, Math.max(1, Math.min(limit, 50))));
+    }
+    
+    @GetMapping("/products/categories")
+    @Operation(summary = "Get sales by category", description = "Retrieves units sold, revenue, discounts and tax per product category")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved category breakdown"),
+        @ApiResponse(responseCode = "202", description = "Period too long to compute inline, a report job was submitted; see Location"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getCategoryBreakdown(
+            @Parameter(description = "First day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.debug("REST request to get category breakdown between {} and {}", startDate, endDate);
+        if (reportJobService.exceedsAsyncThreshold(startDate, endDate)) {
+            return submitJob(ReportType.CATEGORY_BREAKDOWN, startDate.atStartOfDay(), endDate.atStartOfDay(), null, null);
+        }
+        return ResponseEntity.ok(rollupReportService.getCategoryBreakdown(startDate, endDate));
+    }
+    
+    @GetMapping("/products/{productId}/trend")
+    @Operation(summary = "Get product sales trend", description = "Retrieves the daily quantity and revenue of a product")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved product trend"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getProductTrend(
+            @Parameter(description = "ID of the product") 
+            @PathVariable Long productId,
+            @Parameter(description = "First day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.debug("REST request to get sales trend of product {} between {} and {}", productId, startDate, endDate);
+        return ResponseEntity.ok(rollupReportService.getProductTrend(productId, startDate, endDate));
+    }
+    
+    @GetMapping("/heatmap")
+    @Operation(summary = "Get sales heatmap", description = "Retrieves completed sale counts and revenue by day of week and hour of day in the tenant's time zone, over all time")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved sales heatmap"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<Map<String, Object>> getSalesHeatmap() {
+        log.debug("REST request to get sales heatmap");
+        return ResponseEntity.ok(rollupReportService.getSalesHeatmap());
+    }
+    
+    @GetMapping("/cashiers/leaderboard")
+    @Operation(summary = "Get cashier leaderboard", description = "Ranks the store's cashiers by revenue, sale count, average basket or items per minute over a range of shifts, from per-shift aggregates")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved cashier leaderboard"),
+        @ApiResponse(responseCode = "400", description = "Invalid period or ranking"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<Map<String, Object>> getCashierLeaderboard(
+            @Parameter(description = "First shift date (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last shift date (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Only this shift of each day, numbered from 1 (default: all shifts)") 
+            @RequestParam(required = false) Integer shift,
+            @Parameter(description = "Ranking: REVENUE, SALE_COUNT, AVERAGE_BASKET or ITEMS_PER_MINUTE (default: REVENUE)") 
+            @RequestParam(defaultValue = "REVENUE") RollupReportService.CashierRanking rankBy,
+            @Parameter(description = "Number of cashiers (default: 50, max: 1000)") 
+            @RequestParam(defaultValue = "50") int limit) {
+        log.debug("REST request to get cashier leaderboard between {} and {} by {}", startDate, endDate, rankBy);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        return ResponseEntity.ok(rollupReportService.getCashierLeaderboard(startDate, endDate, shift, rankBy,
+                Math.max(1, Math.min(limit, 1000))));
+    }
+    
+    @GetMapping("/cashiers/{cashierId}/shifts")
+    @Operation(summary = "Get cashier shifts", description = "Retrieves a cashier's sales, refunds, average basket and items per minute per shift")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved cashier shifts"),
+        @ApiResponse(responseCode = "400", description = "Invalid period"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getCashierShifts(
+            @Parameter(description = "ID of the cashier") 
+            @PathVariable Long cashierId,
+            @Parameter(description = "First shift date (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last shift date (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.debug("REST request to get shifts of cashier {} between {} and {}", cashierId, startDate, endDate);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        return ResponseEntity.ok(rollupReportService.getCashierShifts(cashierId, startDate, endDate));
+    }
+    
+    @GetMapping("/customers/unique")
+    @Operation(summary = "Get unique customers", description = "Estimates the distinct customers of completed sales in a period, identified by e-mail address or phone number, from daily HyperLogLog sketches")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully estimated unique customers"),
+        @ApiResponse(responseCode = "400", description = "Invalid period"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<Map<String, Object>> getUniqueCustomers(
+            @Parameter(description = "First day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.debug("REST request to get unique customers between {} and {}", startDate, endDate);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        return ResponseEntity.ok(rollupReportService.getUniqueCustomers(startDate, endDate));
+    }
+    
+    @GetMapping("/slice")
+    @Operation(summary = "Slice sales", description = "Counts and sums sales grouped by day, payment method, status or cashier, with optional filters. Recent ranges are served from memory when the analytics cache is enabled")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully sliced sales"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<Map<String, Object>> getSalesSlice(
+            @Parameter(description = "First day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Last day (ISO format)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Dimension to group by (default: DAY)") 
+            @RequestParam(defaultValue = "DAY") SliceDimension groupBy,
+            @Parameter(description = "Only sales paid with this method") 
+            @RequestParam(required = false) Sale.PaymentMethod paymentMethod,
+            @Parameter(description = "Only sales in this status") 
+            @RequestParam(required = false) Sale.SaleStatus status,
+            @Parameter(description = "Only sales of this cashier") 
+            @RequestParam(required = false) Long cashierId) {
+        log.debug("REST request to slice sales between {} and {} by {}", startDate, endDate, groupBy);
+        return ResponseEntity.ok(reportService.getSalesSlice(startDate, endDate, groupBy, paymentMethod, status, cashierId));
+    }
+    
+    /**
+     * Compute a report in the background and point the client at the job
+     */
+    private <T> ResponseEntity<T> submitJob(ReportType type, LocalDateTime startDate, LocalDateTime endDate,
+                                            String metric, Integer limit) {
+        ReportJobResponse job = reportJobService.submit(ReportJobRequest.builder()
+                .type(type)
+                .startDate(startDate)
+                .endDate(endDate)
+                .metric(metric)
+                .limit(limit)
+                .build());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.getId()))
+                .build();
+    }
+}
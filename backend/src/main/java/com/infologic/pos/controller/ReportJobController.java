@@ -0,0 +1,89 @@
+package com.infologic.pos.controller;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.infologic.pos.dto.ReportJobRequest;
+import com.infologic.pos.dto.ReportJobResponse;
+import com.infologic.pos.service.ReportJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/reports/jobs")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR')")
+@Tag(name = "Report Jobs", description = "Background computation of long-range reports")
+@SecurityRequirement(name = "bearerAuth")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+
+    @PostMapping
+    @Operation(summary = "Submit a report job", description = "Computes a report in the background. An identical request that is still running or recently completed returns the existing job")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Job accepted"),
+        @ApiResponse(responseCode = "400", description = "Invalid input"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role"),
+        @ApiResponse(responseCode = "503", description = "Too many jobs queued, retry later")
+    })
+    public ResponseEntity<ReportJobResponse> submitJob(@Valid @RequestBody ReportJobRequest request) {
+        log.debug("REST request to submit report job : {}", request);
+        ReportJobResponse job = reportJobService.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get report job", description = "Retrieves the status of a report job")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Job found"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role"),
+        @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    public ResponseEntity<ReportJobResponse> getJob(
+            @Parameter(description = "ID of the job") @PathVariable String id) {
+        log.debug("REST request to get report job : {}", id);
+        return ResponseEntity.ok(reportJobService.getJob(id));
+    }
+
+    @GetMapping("/{id}/result")
+    @Operation(summary = "Download report job result", description = "Retrieves the report computed by a completed job as JSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Report retrieved"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role"),
+        @ApiResponse(responseCode = "404", description = "Job not found or not completed")
+    })
+    public ResponseEntity<Resource> getJobResult(
+            @Parameter(description = "ID of the job") @PathVariable String id) {
+        log.debug("REST request to get result of report job : {}", id);
+        Path result = reportJobService.getResult(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CACHE_CONTROL, "private, max-age=300")
+                .body(new FileSystemResource(result));
+    }
+}
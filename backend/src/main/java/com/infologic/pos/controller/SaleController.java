@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,10 +19,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.infologic.pos.dto.CursorPage;
 import com.infologic.pos.dto.SaleDTO;
 import com.infologic.pos.model.Sale;
 import com.infologic.pos.model.Sale.SaleStatus;
+import com.infologic.pos.service.SaleExportService;
 import com.infologic.pos.service.SaleService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -44,6 +49,7 @@ import lombok.extern.slf4j.Slf4j;
 public class SaleController {
     
     private final SaleService saleService;
+    private final SaleExportService saleExportService;
     
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR') or hasRole('ROLE_CASHIER')")
@@ -59,6 +65,25 @@ public class SaleController {
         return ResponseEntity.ok(sales);
     }
     
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR') or hasRole('ROLE_CASHIER')")
+    @Operation(summary = "Get sales by cursor", 
+               description = "Retrieves sales newest first, one slice at a time. Pass the nextCursor of a slice " +
+                       "to get the next one; deep slices cost the same as the first and no total is counted")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved sales slice"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<CursorPage<Sale>> getSalesByCursor(
+            @Parameter(description = "nextCursor of the previous slice, omitted for the first") 
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of sales in the slice (1-1000)") 
+            @RequestParam(defaultValue = "20") int size) {
+        log.debug("REST request to get Sales after cursor : {}", cursor);
+        return ResponseEntity.ok(saleService.getSales(cursor, Math.max(1, Math.min(size, 1000))));
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR') or hasRole('ROLE_CASHIER')")
     @Operation(summary = "Get sale by ID", description = "Retrieves a specific sale by its ID")
@@ -169,7 +194,7 @@ public class SaleController {
     
     @GetMapping("/search")
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR') or hasRole('ROLE_CASHIER')")
-    @Operation(summary = "Search sales", description = "Searches for sales based on the provided query string")
+    @Operation(summary = "Search sales", description = "Searches the tenant's sales by invoice or phone number prefix and by words starting the customer name, exact invoice matches first, then newest first")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved search results"),
         @ApiResponse(responseCode = "403", description = "Access denied")
@@ -215,4 +240,38 @@ public class SaleController {
         Long count = saleService.getSaleCount(startDate, endDate);
         return ResponseEntity.ok(count);
     }
-} 
\ No newline at end of file
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_VENDOR')")
+    @Operation(summary = "Export sales", description = "Streams sales with their items in ID order as NDJSON (one sale per line) or CSV (one item per line). "
+            + "An interrupted export is resumed by passing the ID of the last complete sale received as afterId")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed"),
+        @ApiResponse(responseCode = "400", description = "Unknown export format"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN or VENDOR role")
+    })
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @Parameter(description = "Export format, ndjson or csv") 
+            @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Start date (ISO format)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "End date (ISO format)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Only export sales with a greater ID") 
+            @RequestParam(defaultValue = "0") long afterId,
+            @Parameter(description = "Compress the export with gzip") 
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        log.debug("REST request to export Sales as {} from {} to {} after ID {}", format, startDate, endDate, afterId);
+        SaleExportService.Format exportFormat;
+        try {
+            exportFormat = SaleExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format: " + format);
+        }
+        String filename = "sales-export." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .body(saleExportService.export(exportFormat, startDate, endDate, afterId, gzip));
+    }
+}
@@ -0,0 +1,97 @@
+package com.infologic.pos.controller;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.infologic.pos.dto.ChangePasswordRequest;
+import com.infologic.pos.dto.UpdateRolesRequest;
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+import com.infologic.pos.service.AuthService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+@Tag(name = "Users", description = "User Account Management API")
+@SecurityRequirement(name = "bearerAuth")
+public class UserController {
+    
+    private final AuthService authService;
+    
+    @PutMapping("/{id}/roles")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Update user roles", description = "Replaces the roles assigned to a user")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Roles updated successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid role"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role"),
+        @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<User> updateRoles(
+            @Parameter(description = "ID of the user to update") @PathVariable Long id,
+            @Valid @RequestBody UpdateRolesRequest request) {
+        log.debug("REST request to update roles of User : {}, {}", id, request.getRoles());
+        
+        Set<Role> roles = new HashSet<>();
+        for (String role : request.getRoles()) {
+            roles.add(Role.valueOf(role));
+        }
+        
+        User result = authService.updateRoles(id, roles);
+        return ResponseEntity.ok(result);
+    }
+    
+    @PutMapping("/{id}/password")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or #id == authentication.principal.id")
+    @Operation(summary = "Change password", description = "Changes the password of a user")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Password changed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid password"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<Void> changePassword(
+            @Parameter(description = "ID of the user") @PathVariable Long id,
+            @Valid @RequestBody ChangePasswordRequest request) {
+        log.debug("REST request to change password of User : {}", id);
+        authService.changePassword(id, request.getNewPassword());
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PutMapping("/{id}/enabled")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Operation(summary = "Enable or disable user", 
+               description = "Enables or disables a user account; disabling revokes the user's tokens")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Account status updated successfully"),
+        @ApiResponse(responseCode = "403", description = "Access denied, requires ADMIN role"),
+        @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<User> setEnabled(
+            @Parameter(description = "ID of the user to update") @PathVariable Long id,
+            @Parameter(description = "Whether the user may sign in") @RequestParam boolean enabled) {
+        log.debug("REST request to set enabled of User : {}, {}", id, enabled);
+        User result = authService.setEnabled(id, enabled);
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,20 @@
+package com.infologic.pos.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request object for changing a user's password")
+public class ChangePasswordRequest {
+    
+    @NotBlank(message = "Password is required")
+    @Size(min = 6, max = 100, message = "Password must be between 6 and 100 characters")
+    @Schema(description = "The new password", example = "N3wP@ssw0rd", required = true, minLength = 6, maxLength = 100)
+    private String newPassword;
+}
@@ -0,0 +1,29 @@
+package com.infologic.pos.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One slice of a listing read by cursor, without a total count")
+public class CursorPage<T> {
+
+    @Schema(description = "Items of this slice")
+    private List<T> content;
+
+    @Schema(description = "Requested slice size", example = "20")
+    private int size;
+
+    @Schema(description = "Whether another slice follows")
+    private boolean hasNext;
+
+    @Schema(description = "Opaque token to pass as cursor for the next slice, null on the last one")
+    private String nextCursor;
+}
@@ -0,0 +1,30 @@
+package com.infologic.pos.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Stock level of one product in the inventory status report")
+public class InventoryStatusItem {
+    
+    @Schema(description = "Product identifier", example = "1")
+    private Long id;
+    
+    @Schema(description = "Stock keeping unit", example = "SGS21-128-BLK")
+    private String sku;
+    
+    @Schema(description = "Product name", example = "Samsung Galaxy S21")
+    private String name;
+    
+    @Schema(description = "Units in stock", example = "3")
+    private Integer stockQuantity;
+    
+    @Schema(description = "Stock level at or below which the product needs reordering", example = "5")
+    private Integer alertThreshold;
+}
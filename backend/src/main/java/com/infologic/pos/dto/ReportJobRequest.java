@@ -0,0 +1,48 @@
+package com.infologic.pos.dto;
+
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request to compute a report in the background")
+public class ReportJobRequest {
+    
+    @NotNull(message = "Report type is required")
+    @Schema(description = "Report to compute", example = "SALES_SUMMARY", required = true)
+    private ReportType type;
+    
+    @NotNull(message = "Start date is required")
+    @Schema(description = "Start of the period (ISO format)", example = "2024-01-01T00:00:00", required = true)
+    private LocalDateTime startDate;
+    
+    @NotNull(message = "End date is required")
+    @Schema(description = "End of the period (ISO format)", example = "2024-12-31T23:59:59", required = true)
+    private LocalDateTime endDate;
+    
+    @Schema(description = "Ranking metric of TOP_PRODUCTS: revenue or quantity", example = "revenue")
+    private String metric;
+    
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 100, message = "Limit must be at most 100")
+    @Schema(description = "Number of products of TOP_PRODUCTS", example = "10")
+    private Integer limit;
+    
+    public enum ReportType {
+        SALES_SUMMARY,
+        PAYMENT_METHODS,
+        DAILY_SALES,
+        TOP_PRODUCTS,
+        CATEGORY_BREAKDOWN
+    }
+}
@@ -0,0 +1,45 @@
+package com.infologic.pos.dto;
+
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "State of a background report job")
+public class ReportJobResponse {
+    
+    @Schema(description = "Job identifier", example = "6f1c2b1e-8d0a-4e43-9a57-2f5b1f0c9d11")
+    private String id;
+    
+    @Schema(description = "Report being computed", example = "SALES_SUMMARY")
+    private ReportJobRequest.ReportType type;
+    
+    @Schema(description = "Job status", example = "RUNNING")
+    private JobStatus status;
+    
+    @Schema(description = "When the job was submitted")
+    private LocalDateTime submittedAt;
+    
+    @Schema(description = "When the job finished, if it has")
+    private LocalDateTime completedAt;
+    
+    @Schema(description = "Why the job failed, if it did")
+    private String error;
+    
+    @Schema(description = "Where to download the result once completed", example = "/api/reports/jobs/6f1c2b1e-8d0a-4e43-9a57-2f5b1f0c9d11/result")
+    private String resultUrl;
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,26 @@
+package com.infologic.pos.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Product matched by a barcode or SKU scanned at checkout")
+public class ScannedProduct {
+
+    @Schema(description = "Product identifier", example = "1")
+    private Long id;
+
+    @Schema(description = "Unit price", example = "799.99")
+    private BigDecimal price;
+
+    @Schema(description = "Units in stock when the product was last seen", example = "3")
+    private Integer stockQuantity;
+}
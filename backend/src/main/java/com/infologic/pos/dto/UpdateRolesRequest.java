@@ -0,0 +1,20 @@
+package com.infologic.pos.dto;
+
+import java.util.Set;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Request object for replacing a user's roles")
+public class UpdateRolesRequest {
+    
+    @NotEmpty(message = "At least one role is required")
+    @Schema(description = "Roles to assign to the user", example = "[\"ROLE_CASHIER\"]", required = true)
+    private Set<String> roles;
+}
@@ -0,0 +1,26 @@
+package com.infologic.pos.event;
+
+import java.time.LocalDate;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event telling every node to drop its cached report totals of a run of a tenant's days,
+ * published once a change to the daily rollups of those days has committed.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class ReportCacheEvent extends Event {
+    
+    private LocalDate firstDay;
+    private LocalDate lastDay;
+    
+    public ReportCacheEvent(String tenantId, String createdBy, LocalDate firstDay, LocalDate lastDay) {
+        super(tenantId, createdBy);
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+    }
+}
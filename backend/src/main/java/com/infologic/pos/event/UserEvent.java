@@ -0,0 +1,36 @@
+package com.infologic.pos.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event representing changes to a user account that affect
+ * authentication, like role, password or MFA changes.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class UserEvent extends Event {
+    
+    private Long userId;
+    private String username;
+    private UserEventType eventType;
+    
+    public UserEvent(String tenantId, String createdBy, Long userId, 
+                     String username, UserEventType eventType) {
+        super(tenantId, createdBy);
+        this.userId = userId;
+        this.username = username;
+        this.eventType = eventType;
+    }
+    
+    public enum UserEventType {
+        ROLES_CHANGED,
+        PASSWORD_CHANGED,
+        MFA_ENABLED,
+        MFA_DISABLED,
+        ACCOUNT_ENABLED,
+        ACCOUNT_DISABLED
+    }
+}
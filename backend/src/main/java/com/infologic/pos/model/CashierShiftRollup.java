@@ -0,0 +1,88 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Completed and refunded sales per tenant, shift and cashier. A shift is numbered within the day it
+ * starts on, in the tenant's time zone. The span between the first and last sale only grows, so it
+ * is not narrowed when a sale is deleted. Maintained incrementally from sale events by
+ * {@code SalesRollupService}.
+ */
+@Entity
+@Table(name = "cashier_shift_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cashier_shift_rollups_key",
+                columnNames = "rollup_key"),
+        indexes = @Index(name = "idx_cashier_shift_rollups_tenant_cashier", columnList = "tenant_id, cashier_id, shift_date"))
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashierShiftRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The key columns joined by {@link RollupKey}, which first writers of a key conflict on
+     */
+    @Column(name = "rollup_key", length = RollupKey.LENGTH)
+    private String rollupKey;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "shift_date", nullable = false)
+    private LocalDate shiftDate;
+
+    // 1-based position of the shift's start among the configured shift starts
+    @Column(name = "shift_number", nullable = false)
+    private int shiftNumber;
+
+    @Column(name = "cashier_id", nullable = false)
+    private Long cashierId;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Column(name = "revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    // Units sold on completed sales
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    @Column(name = "refund_count", nullable = false)
+    private long refundCount;
+
+    @Column(name = "refund_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal refundAmount;
+
+    @Column(name = "first_sale_at")
+    private LocalDateTime firstSaleAt;
+
+    @Column(name = "last_sale_at")
+    private LocalDateTime lastSaleAt;
+
+    // Seconds between the first and last sale of the shift
+    @Column(name = "active_seconds", nullable = false)
+    private long activeSeconds;
+}
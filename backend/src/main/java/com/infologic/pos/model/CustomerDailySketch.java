@@ -0,0 +1,53 @@
+package com.infologic.pos.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * HyperLogLog sketch of the distinct customers of completed sales per tenant and day.
+ * Maintained incrementally from sale events by {@code SalesRollupService}.
+ */
+@Entity
+@Table(name = "customer_daily_sketches",
+        uniqueConstraints = @UniqueConstraint(name = "uk_customer_daily_sketches_key",
+                columnNames = "rollup_key"))
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerDailySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The key columns joined by {@link RollupKey}, which first writers of a key conflict on
+     */
+    @Column(name = "rollup_key", length = RollupKey.LENGTH)
+    private String rollupKey;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    // HyperLogLog.toByteArray(): at most the header and 4096 registers
+    @Column(name = "sketch", nullable = false, length = 4097)
+    private byte[] sketch;
+}
@@ -0,0 +1,58 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock on hand and its value at current prices per tenant and product category.
+ * Maintained incrementally from inventory events by {@code InventoryValuationService}.
+ */
+@Entity
+@Table(name = "inventory_valuations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_inventory_valuations_key",
+                columnNames = "rollup_key"))
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryValuation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The key columns joined by {@link RollupKey}, which first writers of a key conflict on
+     */
+    @Column(name = "rollup_key", length = RollupKey.LENGTH)
+    private String rollupKey;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "product_count", nullable = false)
+    private long productCount;
+
+    @Column(name = "unit_count", nullable = false)
+    private long unitCount;
+
+    @Column(name = "stock_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal stockValue;
+}
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Filter;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import jakarta.persistence.Column;
@@ -11,6 +12,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -22,7 +24,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+        indexes = {
+            @Index(name = "idx_products_tenant_stock", columnList = "tenant_id, stock_quantity"),
+            @Index(name = "idx_products_tenant_name", columnList = "tenant_id, name, id"),
+            // Keyset pages of the low stock report walk a tenant's products in ID order
+            @Index(name = "idx_products_tenant_id", columnList = "tenant_id, id")
+        })
+@Filter(name = "tenantFilter")
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,73 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quantities and amounts sold per tenant, day and product, counting completed sales only.
+ * The category is captured when the row is created so history keeps the category a product had at the time.
+ */
+@Entity
+@Table(name = "product_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_daily_rollups_key",
+                columnNames = "rollup_key"),
+        indexes = {
+            @Index(name = "idx_product_daily_rollups_tenant_date", columnList = "tenant_id, sale_date"),
+            @Index(name = "idx_product_daily_rollups_tenant_product", columnList = "tenant_id, product_id, sale_date")
+        })
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The key columns joined by {@link RollupKey}, which first writers of a key conflict on
+     */
+    @Column(name = "rollup_key", length = RollupKey.LENGTH)
+    private String rollupKey;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "quantity", nullable = false)
+    private long quantity;
+
+    @Column(name = "revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "discount_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal discountAmount;
+
+    @Column(name = "tax_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal taxAmount;
+}
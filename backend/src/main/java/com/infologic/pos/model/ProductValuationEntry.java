@@ -0,0 +1,44 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What one product currently contributes to its tenant's inventory valuation, so the contribution
+ * can be backed out exactly when the product's stock, price or category changes.
+ */
+@Entity
+@Table(name = "product_valuation_entries")
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductValuationEntry {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "stock_quantity", nullable = false)
+    private long stockQuantity;
+
+    @Column(name = "stock_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal stockValue;
+}
@@ -0,0 +1,48 @@
+package com.infologic.pos.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A JWT revoked before its expiry. Kept in the default schema for all tenants
+ * and removed once the token would have expired anyway.
+ * <p>
+ * A user-wide entry revokes every token of a user issued before {@code revokedAt}; its ID is
+ * derived from the tenant and username.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(name = "user_wide")
+    private Boolean userWide;
+}
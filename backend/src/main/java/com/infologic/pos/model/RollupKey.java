@@ -0,0 +1,37 @@
+package com.infologic.pos.model;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code rollup_key} of a rollup row: its key columns joined into one value that is never null.
+ * <p>
+ * Rollup rows are created by the first writer of a key with {@code INSERT ... ON CONFLICT DO NOTHING}
+ * against the unique {@code rollup_key}, so concurrent first writers end up on the same row, which the
+ * others then increment. Some key columns, such as the tenant, the cashier
+ * or the payment method, are nullable, and a unique constraint over them would treat two rows with a
+ * null part as distinct; a null part becomes an empty string here instead.
+ */
+public final class RollupKey {
+
+    /**
+     * Long enough for a tenant ID and a product category
+     */
+    public static final int LENGTH = 512;
+
+    private static final String SEPARATOR = "|";
+
+    private RollupKey() {
+    }
+
+    /**
+     * Join the parts of a key
+     * @param parts the key columns, in the order of the table's key
+     * @return the key
+     */
+    public static String of(Object... parts) {
+        return Arrays.stream(parts)
+                .map(part -> part instanceof Enum<?> value ? value.name() : part != null ? part.toString() : "")
+                .collect(Collectors.joining(SEPARATOR));
+    }
+}
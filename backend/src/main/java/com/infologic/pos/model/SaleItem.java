@@ -2,6 +2,8 @@ package com.infologic.pos.model;
 
 import java.math.BigDecimal;
 
+import org.hibernate.annotations.Filter;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -20,6 +22,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "sale_items")
+@Filter(name = "tenantFilter")
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,78 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The contribution a sale currently makes to the rollup tables.
+ * <p>
+ * Applying a sale first backs out the contribution recorded here and then adds the sale's
+ * current state, so replayed or out-of-order events never count a sale twice.
+ */
+@Entity
+@Table(name = "sale_rollup_entries")
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleRollupEntry {
+
+    @Id
+    @Column(name = "sale_id")
+    private Long saleId;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @Column(name = "payment_method")
+    @Enumerated(EnumType.STRING)
+    private Sale.PaymentMethod paymentMethod;
+
+    @Column(name = "sale_status")
+    @Enumerated(EnumType.STRING)
+    private Sale.SaleStatus status;
+
+    @Column(name = "cashier_id")
+    private Long cashierId;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "tax_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(name = "discount_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal discountAmount;
+
+    // Day of week and hour in the tenant's time zone as (ISO day - 1) * 24 + hour; null before hourly rollups existed
+    @Column(name = "heatmap_cell")
+    private Integer heatmapCell;
+
+    // Cashier shift the sale falls in; null before cashier shift rollups existed
+    @Column(name = "shift_date")
+    private LocalDate shiftDate;
+
+    @Column(name = "shift_number")
+    private Integer shiftNumber;
+
+    // Units on the sale's lines
+    @Column(name = "item_count")
+    private Integer itemCount;
+}
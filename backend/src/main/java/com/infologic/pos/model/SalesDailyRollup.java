@@ -0,0 +1,77 @@
+package com.infologic.pos.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.Filter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sale counts and amounts per tenant, day, payment method, status and cashier.
+ * Maintained incrementally from sale events by {@code SalesRollupService}.
+ */
+@Entity
+@Table(name = "sales_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_rollups_key",
+                columnNames = "rollup_key"),
+        indexes = @Index(name = "idx_sales_daily_rollups_tenant_date", columnList = "tenant_id, sale_date"))
+@Filter(name = "tenantFilter")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The key columns joined by {@link RollupKey}, which first writers of a key conflict on
+     */
+    @Column(name = "rollup_key", length = RollupKey.LENGTH)
+    private String rollupKey;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @Column(name = "payment_method")
+    @Enumerated(EnumType.STRING)
+    private Sale.PaymentMethod paymentMethod;
+
+    @Column(name = "sale_status")
+    @Enumerated(EnumType.STRING)
+    private Sale.SaleStatus status;
+
+    @Column(name = "cashier_id")
+    private Long cashierId;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "tax_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(name = "discount_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal discountAmount;
+}
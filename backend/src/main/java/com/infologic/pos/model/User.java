@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.annotations.Filter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -29,6 +30,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "users")
+@Filter(name = "tenantFilter")
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,15 @@
+/**
+ * Tenant filter shared by all tenant-owned entities. It is enabled on every session and only
+ * restricts rows for tenants registered in the shared schema.
+ */
+@FilterDef(name = "tenantFilter",
+        defaultCondition = "(:tenantId IS NULL OR tenant_id = :tenantId)",
+        parameters = @ParamDef(name = "tenantId", type = String.class, resolver = TenantFilterParameterResolver.class),
+        autoEnabled = true,
+        applyToLoadByKey = true)
+package com.infologic.pos.model;
+
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+
+import com.infologic.pos.config.tenant.TenantFilterParameterResolver;
@@ -0,0 +1,96 @@
+package com.infologic.pos.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.CashierShiftRollup;
+
+@Repository
+public interface CashierShiftRollupRepository extends JpaRepository<CashierShiftRollup, Long> {
+
+    List<CashierShiftRollup> findByTenantIdAndCashierIdAndShiftDateBetweenOrderByShiftDateAscShiftNumberAsc(
+            String tenantId, Long cashierId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Create the row of a key holding a first contribution and its sale time, unless a row for the
+     * key exists or is being created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cashier_shift_rollups (rollup_key, tenant_id, shift_date, shift_number, " +
+                   "cashier_id, sale_count, revenue, item_count, refund_count, refund_amount, " +
+                   "first_sale_at, last_sale_at, active_seconds) " +
+                   "VALUES (:rollupKey, :tenantId, :shiftDate, :shiftNumber, :cashierId, :saleCount, :revenue, " +
+                   ":itemCount, :refundCount, :refundAmount, :saleAt, :saleAt, 0) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("shiftDate") LocalDate shiftDate,
+                       @Param("shiftNumber") int shiftNumber,
+                       @Param("cashierId") Long cashierId,
+                       @Param("saleCount") long saleCount,
+                       @Param("revenue") BigDecimal revenue,
+                       @Param("itemCount") long itemCount,
+                       @Param("refundCount") long refundCount,
+                       @Param("refundAmount") BigDecimal refundAmount,
+                       @Param("saleAt") LocalDateTime saleAt);
+
+    @Modifying
+    @Query("UPDATE CashierShiftRollup r SET r.saleCount = r.saleCount + :saleCount, " +
+           "r.revenue = r.revenue + :revenue, r.itemCount = r.itemCount + :itemCount, " +
+           "r.refundCount = r.refundCount + :refundCount, r.refundAmount = r.refundAmount + :refundAmount " +
+           "WHERE r.rollupKey = :rollupKey")
+    int increment(@Param("rollupKey") String rollupKey,
+                  @Param("saleCount") long saleCount,
+                  @Param("revenue") BigDecimal revenue,
+                  @Param("itemCount") long itemCount,
+                  @Param("refundCount") long refundCount,
+                  @Param("refundAmount") BigDecimal refundAmount);
+
+    /**
+     * Read the span of a row without going through a possibly stale managed entity
+     */
+    @Query("SELECT r.firstSaleAt, r.lastSaleAt FROM CashierShiftRollup r WHERE r.rollupKey = :rollupKey")
+    List<Object[]> findSpan(@Param("rollupKey") String rollupKey);
+
+    @Modifying
+    @Query("UPDATE CashierShiftRollup r SET r.firstSaleAt = :firstSaleAt, r.lastSaleAt = :lastSaleAt, " +
+           "r.activeSeconds = :activeSeconds WHERE r.rollupKey = :rollupKey")
+    int setSpan(@Param("rollupKey") String rollupKey,
+                @Param("firstSaleAt") LocalDateTime firstSaleAt,
+                @Param("lastSaleAt") LocalDateTime lastSaleAt,
+                @Param("activeSeconds") long activeSeconds);
+
+    /**
+     * Totals per cashier over a range of shift dates: cashier ID, shifts worked, sale count,
+     * revenue, units, refund count, refund amount and active seconds
+     */
+    @Query("SELECT r.cashierId, COUNT(r), SUM(r.saleCount), SUM(r.revenue), SUM(r.itemCount), " +
+           "SUM(r.refundCount), SUM(r.refundAmount), SUM(r.activeSeconds) FROM CashierShiftRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.shiftDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.cashierId")
+    List<Object[]> getCashierTotals(@Param("tenantId") String tenantId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
+
+    /**
+     * Totals per cashier over one shift number in a range of shift dates, in the same shape as
+     * {@link #getCashierTotals}
+     */
+    @Query("SELECT r.cashierId, COUNT(r), SUM(r.saleCount), SUM(r.revenue), SUM(r.itemCount), " +
+           "SUM(r.refundCount), SUM(r.refundAmount), SUM(r.activeSeconds) FROM CashierShiftRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.shiftDate BETWEEN :startDate AND :endDate " +
+           "AND r.shiftNumber = :shiftNumber GROUP BY r.cashierId")
+    List<Object[]> getCashierTotalsForShift(@Param("tenantId") String tenantId,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate,
+                                            @Param("shiftNumber") int shiftNumber);
+}
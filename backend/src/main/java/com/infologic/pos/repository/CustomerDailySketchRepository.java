@@ -0,0 +1,47 @@
+package com.infologic.pos.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.CustomerDailySketch;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface CustomerDailySketchRepository extends JpaRepository<CustomerDailySketch, Long> {
+    
+    @Query("SELECT s.sketch FROM CustomerDailySketch s WHERE s.rollupKey = :rollupKey")
+    Optional<byte[]> findSketch(@Param("rollupKey") String rollupKey);
+    
+    /**
+     * Create the row of a key holding a first sketch, unless a row for the key exists or is being
+     * created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_daily_sketches (rollup_key, tenant_id, sale_date, sketch) " +
+                   "VALUES (:rollupKey, :tenantId, :saleDate, :sketch) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("saleDate") LocalDate saleDate,
+                       @Param("sketch") byte[] sketch);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CustomerDailySketch s WHERE s.rollupKey = :rollupKey")
+    Optional<CustomerDailySketch> findForUpdate(@Param("rollupKey") String rollupKey);
+    
+    @Query("SELECT s.sketch FROM CustomerDailySketch s WHERE s.tenantId = :tenantId " +
+           "AND s.saleDate BETWEEN :startDate AND :endDate")
+    List<byte[]> findSketches(@Param("tenantId") String tenantId,
+                              @Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,44 @@
+package com.infologic.pos.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.InventoryValuation;
+
+@Repository
+public interface InventoryValuationRepository extends JpaRepository<InventoryValuation, Long> {
+    
+    List<InventoryValuation> findByTenantIdOrderByCategoryAsc(String tenantId);
+    
+    /**
+     * Create the row of a key holding a first contribution, unless a row for the key exists or is
+     * being created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO inventory_valuations (rollup_key, tenant_id, category, product_count, " +
+                   "unit_count, stock_value) " +
+                   "VALUES (:rollupKey, :tenantId, :category, :productCount, :unitCount, :stockValue) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("category") String category,
+                       @Param("productCount") long productCount,
+                       @Param("unitCount") long unitCount,
+                       @Param("stockValue") BigDecimal stockValue);
+    
+    @Modifying
+    @Query("UPDATE InventoryValuation v SET v.productCount = v.productCount + :productCount, " +
+           "v.unitCount = v.unitCount + :unitCount, v.stockValue = v.stockValue + :stockValue " +
+           "WHERE v.rollupKey = :rollupKey")
+    int increment(@Param("rollupKey") String rollupKey,
+                  @Param("productCount") long productCount,
+                  @Param("unitCount") long unitCount,
+                  @Param("stockValue") BigDecimal stockValue);
+}
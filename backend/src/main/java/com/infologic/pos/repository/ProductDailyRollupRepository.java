@@ -0,0 +1,80 @@
+package com.infologic.pos.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.ProductDailyRollup;
+
+@Repository
+public interface ProductDailyRollupRepository extends JpaRepository<ProductDailyRollup, Long> {
+    
+    /**
+     * Create the row of a key holding a first contribution, unless a row for the key exists or is
+     * being created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_daily_rollups (rollup_key, tenant_id, sale_date, product_id, category, " +
+                   "quantity, revenue, discount_amount, tax_amount) " +
+                   "VALUES (:rollupKey, :tenantId, :saleDate, :productId, :category, " +
+                   ":quantity, :revenue, :discountAmount, :taxAmount) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("saleDate") LocalDate saleDate,
+                       @Param("productId") Long productId,
+                       @Param("category") String category,
+                       @Param("quantity") long quantity,
+                       @Param("revenue") BigDecimal revenue,
+                       @Param("discountAmount") BigDecimal discountAmount,
+                       @Param("taxAmount") BigDecimal taxAmount);
+    
+    @Modifying
+    @Query("UPDATE ProductDailyRollup r SET r.quantity = r.quantity + :quantity, r.revenue = r.revenue + :revenue, " +
+           "r.discountAmount = r.discountAmount + :discountAmount, r.taxAmount = r.taxAmount + :taxAmount " +
+           "WHERE r.rollupKey = :rollupKey")
+    int increment(@Param("rollupKey") String rollupKey,
+                  @Param("quantity") long quantity,
+                  @Param("revenue") BigDecimal revenue,
+                  @Param("discountAmount") BigDecimal discountAmount,
+                  @Param("taxAmount") BigDecimal taxAmount);
+    
+    @Query("SELECT r.productId, SUM(r.quantity), SUM(r.revenue) FROM ProductDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.productId ORDER BY SUM(r.revenue) DESC")
+    List<Object[]> getTopProductsByRevenue(@Param("tenantId") String tenantId,
+                                           @Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate,
+                                           Pageable pageable);
+    
+    @Query("SELECT r.productId, SUM(r.quantity), SUM(r.revenue) FROM ProductDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.productId ORDER BY SUM(r.quantity) DESC")
+    List<Object[]> getTopProductsByQuantity(@Param("tenantId") String tenantId,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate,
+                                            Pageable pageable);
+    
+    @Query("SELECT r.category, SUM(r.quantity), SUM(r.revenue), SUM(r.discountAmount), SUM(r.taxAmount) " +
+           "FROM ProductDailyRollup r WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.category ORDER BY SUM(r.revenue) DESC")
+    List<Object[]> getCategoryTotals(@Param("tenantId") String tenantId,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT r.saleDate, r.quantity, r.revenue FROM ProductDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.productId = :productId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY r.saleDate")
+    List<Object[]> getProductTrend(@Param("tenantId") String tenantId,
+                                   @Param("productId") Long productId,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+}
@@ -1,17 +1,25 @@
 package com.infologic.pos.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.infologic.pos.dto.InventoryStatusItem;
 import com.infologic.pos.model.Product;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
@@ -41,7 +49,77 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "(p.name LIKE %:query% OR p.sku LIKE %:query% OR p.barcode LIKE %:query% OR p.category LIKE %:query%)")
     List<Product> searchProducts(@Param("tenantId") String tenantId, @Param("query") String query);
     
+    @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND " +
+           "(p.name LIKE %:query% OR p.sku LIKE %:query% OR p.barcode LIKE %:query% OR p.category LIKE %:query%)")
+    Page<Product> searchProducts(@Param("tenantId") String tenantId, @Param("query") String query, Pageable pageable);
+    
+    /**
+     * First slice of a tenant's products by name; the pageable only limits the rows
+     */
+    @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId ORDER BY p.name, p.id")
+    List<Product> findSliceByTenantId(@Param("tenantId") String tenantId, Pageable pageable);
+    
+    /**
+     * Next slice of a tenant's products by name, after the product with the given name and ID
+     */
+    @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND (p.name, p.id) > (:name, :id) " +
+           "ORDER BY p.name, p.id")
+    List<Product> findSliceByTenantIdAfter(@Param("tenantId") String tenantId,
+                                           @Param("name") String name,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+    
     @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND " +
            "p.stockQuantity <= p.alertThreshold AND p.stockQuantity > 0")
     List<Product> findProductsBelowAlertThreshold(@Param("tenantId") String tenantId);
-} 
\ No newline at end of file
+    
+    /**
+     * One page of products below a stock threshold, ordered by ID so the next page starts after the last ID
+     */
+    @Query("SELECT new com.infologic.pos.dto.InventoryStatusItem(p.id, p.sku, p.name, p.stockQuantity, p.alertThreshold) " +
+           "FROM Product p WHERE p.tenantId = :tenantId AND p.stockQuantity < :threshold AND p.id > :afterId " +
+           "ORDER BY p.id")
+    List<InventoryStatusItem> findLowStockPage(@Param("tenantId") String tenantId,
+                                               @Param("threshold") Integer threshold,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+    
+    /**
+     * Product count, products below a stock threshold, out of stock and at or below their alert threshold
+     */
+    @Query("SELECT COUNT(p), " +
+           "COALESCE(SUM(CASE WHEN p.stockQuantity < :threshold THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN p.stockQuantity <= 0 THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN p.stockQuantity <= p.alertThreshold THEN 1 ELSE 0 END), 0) " +
+           "FROM Product p WHERE p.tenantId = :tenantId")
+    List<Object[]> getStockCounts(@Param("tenantId") String tenantId, @Param("threshold") Integer threshold);
+    
+    @Query("SELECT MIN(p.id), MAX(p.id) FROM Product p WHERE p.tenantId = :tenantId")
+    List<Object[]> getIdRange(@Param("tenantId") String tenantId);
+    
+    /**
+     * Product count, units and stock value per category of the products in an ID range
+     */
+    @Query("SELECT p.category, COUNT(p), COALESCE(SUM(p.stockQuantity), 0), " +
+           "COALESCE(SUM(p.stockQuantity * p.price), 0) FROM Product p " +
+           "WHERE p.tenantId = :tenantId AND p.id BETWEEN :fromId AND :toId GROUP BY p.category")
+    List<Object[]> getValuationChunk(@Param("tenantId") String tenantId,
+                                     @Param("fromId") Long fromId,
+                                     @Param("toId") Long toId);
+    
+    @Query("SELECT p.id FROM Product p WHERE p.tenantId = :tenantId AND " +
+           "(p.category = :category OR (:category IS NULL AND p.category IS NULL))")
+    List<Long> findIdsByCategory(@Param("tenantId") String tenantId, @Param("category") String category);
+    
+    /**
+     * Stream a tenant's products as detached copies for the in-memory search index
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.infologic.pos.model.Product(p.id, p.name, p.description, p.price, p.stockQuantity, " +
+           "p.alertThreshold, p.sku, p.barcode, p.category, p.imageUrl, p.active, p.createdAt, p.updatedAt, p.tenantId) " +
+           "FROM Product p WHERE p.tenantId = :tenantId ORDER BY p.id")
+    Stream<Product> streamSearchableProducts(@Param("tenantId") String tenantId);
+}
@@ -0,0 +1,26 @@
+package com.infologic.pos.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.ProductValuationEntry;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface ProductValuationEntryRepository extends JpaRepository<ProductValuationEntry, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM ProductValuationEntry e WHERE e.productId = :productId")
+    Optional<ProductValuationEntry> findForUpdate(@Param("productId") Long productId);
+    
+    @Query("SELECT e.productId FROM ProductValuationEntry e WHERE e.tenantId = :tenantId AND " +
+           "(e.category = :category OR (:category IS NULL AND e.category IS NULL))")
+    List<Long> findProductIdsByCategory(@Param("tenantId") String tenantId, @Param("category") String category);
+}
@@ -0,0 +1,14 @@
+package com.infologic.pos.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.SaleItemRollupEntry;
+
+@Repository
+public interface SaleItemRollupEntryRepository extends JpaRepository<SaleItemRollupEntry, Long> {
+    
+    List<SaleItemRollupEntry> findBySaleId(Long saleId);
+}
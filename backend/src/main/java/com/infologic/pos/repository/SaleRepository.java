@@ -1,19 +1,27 @@
 package com.infologic.pos.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.infologic.pos.model.Sale;
 import com.infologic.pos.model.Sale.SaleStatus;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
     
@@ -37,8 +45,34 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     
     List<Sale> findByCreatedAtBetweenAndTenantIdOrderByCreatedAtDesc(LocalDateTime startDate, LocalDateTime endDate, String tenantId);
     
-    @Query("SELECT s FROM Sale s WHERE s.customerName LIKE %:search% OR s.customerPhone LIKE %:search% OR s.invoiceNumber LIKE %:search% AND s.tenantId = :tenantId")
-    Page<Sale> searchSales(@Param("search") String search, @Param("tenantId") String tenantId, Pageable pageable);
+    /**
+     * First slice of a tenant's sales, newest first; the pageable only limits the rows
+     */
+    @Query("SELECT s FROM Sale s WHERE s.tenantId = :tenantId ORDER BY s.createdAt DESC, s.id DESC")
+    List<Sale> findSliceByTenantId(@Param("tenantId") String tenantId, Pageable pageable);
+    
+    /**
+     * Next slice of a tenant's sales, newest first, after the sale with the given creation time and ID
+     */
+    @Query("SELECT s FROM Sale s WHERE s.tenantId = :tenantId AND (s.createdAt, s.id) < (:createdAt, :id) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Sale> findSliceByTenantIdAfter(@Param("tenantId") String tenantId,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+    
+    /**
+     * Sales of a tenant whose invoice or phone number starts with a prefix or whose customer name
+     * contains a lower-case pattern; the patterns escape wildcards with a backslash
+     */
+    @Query("SELECT s FROM Sale s WHERE s.tenantId = :tenantId AND (" +
+           "s.invoiceNumber LIKE :invoicePrefix ESCAPE '\\' OR s.customerPhone LIKE :phonePrefix ESCAPE '\\' " +
+           "OR lower(s.customerName) LIKE :namePattern ESCAPE '\\')")
+    Page<Sale> searchSales(@Param("tenantId") String tenantId,
+                           @Param("invoicePrefix") String invoicePrefix,
+                           @Param("phonePrefix") String phonePrefix,
+                           @Param("namePattern") String namePattern,
+                           Pageable pageable);
     
     @Query("SELECT COUNT(s) FROM Sale s WHERE s.createdAt >= :startDate AND s.createdAt <= :endDate AND s.tenantId = :tenantId")
     Long countSalesByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, @Param("tenantId") String tenantId);
@@ -52,4 +86,42 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     
     @Query("SELECT SUM(s.totalAmount) FROM Sale s WHERE s.createdAt >= :startDate AND s.createdAt <= :endDate AND s.tenantId = :tenantId AND s.status = 'COMPLETED'")
     Double getTotalSalesRevenue(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, @Param("tenantId") String tenantId);
-} 
\ No newline at end of file
+    
+    @Query("SELECT s.paymentMethod, s.status, COUNT(s), SUM(s.totalAmount) " +
+           "FROM Sale s WHERE s.tenantId = :tenantId AND s.createdAt BETWEEN :startDate AND :endDate " +
+           "GROUP BY s.paymentMethod, s.status")
+    List<Object[]> getPaymentMethodTotals(@Param("tenantId") String tenantId,
+                                          @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Stream the sales of a date range for aggregations that cannot be expressed in SQL.
+     * Rows are fetched from the JDBC cursor in batches; the caller must consume the stream
+     * inside a transaction and close it.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT s FROM Sale s WHERE s.tenantId = :tenantId AND s.createdAt BETWEEN :startDate AND :endDate ORDER BY s.id")
+    Stream<Sale> streamByCreatedAtBetweenAndTenantId(@Param("startDate") LocalDateTime startDate,
+                                                     @Param("endDate") LocalDateTime endDate,
+                                                     @Param("tenantId") String tenantId);
+    
+    @Query("SELECT s.id FROM Sale s WHERE s.tenantId = :tenantId AND s.createdAt BETWEEN :startDate AND :endDate ORDER BY s.id")
+    List<Long> findIdsByCreatedAtBetweenAndTenantId(@Param("startDate") LocalDateTime startDate,
+                                                    @Param("endDate") LocalDateTime endDate,
+                                                    @Param("tenantId") String tenantId);
+    
+    /**
+     * Stream the columns held by the in-memory analytics cache, without creating entities
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.id, s.createdAt, s.totalAmount, s.status, s.paymentMethod, s.cashierId FROM Sale s " +
+           "WHERE s.tenantId = :tenantId AND s.createdAt >= :since ORDER BY s.id")
+    Stream<Object[]> streamColumnarRows(@Param("tenantId") String tenantId, @Param("since") LocalDateTime since);
+}
@@ -0,0 +1,21 @@
+package com.infologic.pos.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.SaleRollupEntry;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface SaleRollupEntryRepository extends JpaRepository<SaleRollupEntry, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM SaleRollupEntry e WHERE e.saleId = :saleId")
+    Optional<SaleRollupEntry> findForUpdate(@Param("saleId") Long saleId);
+}
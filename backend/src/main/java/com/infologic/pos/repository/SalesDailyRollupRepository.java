@@ -0,0 +1,86 @@
+package com.infologic.pos.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.Sale.SaleStatus;
+import com.infologic.pos.model.SalesDailyRollup;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, Long> {
+    
+    /**
+     * Create the row of a key holding a first contribution, unless a row for the key exists or is
+     * being created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollups (rollup_key, tenant_id, sale_date, payment_method, sale_status, " +
+                   "cashier_id, sale_count, total_amount, tax_amount, discount_amount) " +
+                   "VALUES (:rollupKey, :tenantId, :saleDate, :paymentMethod, :status, :cashierId, " +
+                   ":count, :totalAmount, :taxAmount, :discountAmount) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("saleDate") LocalDate saleDate,
+                       @Param("paymentMethod") String paymentMethod,
+                       @Param("status") String status,
+                       @Param("cashierId") Long cashierId,
+                       @Param("count") long count,
+                       @Param("totalAmount") BigDecimal totalAmount,
+                       @Param("taxAmount") BigDecimal taxAmount,
+                       @Param("discountAmount") BigDecimal discountAmount);
+    
+    @Modifying
+    @Query("UPDATE SalesDailyRollup r SET r.saleCount = r.saleCount + :count, " +
+           "r.totalAmount = r.totalAmount + :totalAmount, r.taxAmount = r.taxAmount + :taxAmount, " +
+           "r.discountAmount = r.discountAmount + :discountAmount WHERE r.rollupKey = :rollupKey")
+    int increment(@Param("rollupKey") String rollupKey,
+                  @Param("count") long count,
+                  @Param("totalAmount") BigDecimal totalAmount,
+                  @Param("taxAmount") BigDecimal taxAmount,
+                  @Param("discountAmount") BigDecimal discountAmount);
+    
+    @Query("SELECT SUM(r.saleCount) FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate")
+    Long countSales(@Param("tenantId") String tenantId,
+                    @Param("startDate") LocalDate startDate,
+                    @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT SUM(r.totalAmount) FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate AND r.status = :status")
+    BigDecimal getTotalAmount(@Param("tenantId") String tenantId,
+                              @Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate,
+                              @Param("status") SaleStatus status);
+    
+    @Query("SELECT r.saleDate, SUM(r.saleCount), SUM(r.totalAmount) FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.saleDate ORDER BY r.saleDate")
+    List<Object[]> getDailyTotals(@Param("tenantId") String tenantId,
+                                  @Param("startDate") LocalDate startDate,
+                                  @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT r.saleDate, SUM(r.saleCount), SUM(r.totalAmount), " +
+           "SUM(CASE WHEN r.status = :status THEN r.totalAmount ELSE 0 END) FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.saleDate")
+    List<Object[]> getDailySummaries(@Param("tenantId") String tenantId,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     @Param("status") SaleStatus status);
+    
+    @Query("SELECT r.paymentMethod, r.status, SUM(r.saleCount), SUM(r.totalAmount) FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId AND r.saleDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.paymentMethod, r.status")
+    List<Object[]> getPaymentMethodTotals(@Param("tenantId") String tenantId,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,42 @@
+package com.infologic.pos.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.infologic.pos.model.SalesHourlyRollup;
+
+@Repository
+public interface SalesHourlyRollupRepository extends JpaRepository<SalesHourlyRollup, Long> {
+    
+    List<SalesHourlyRollup> findByTenantId(String tenantId);
+    
+    /**
+     * Create the row of a key holding a first contribution, unless a row for the key exists or is
+     * being created by a concurrent transaction, which this waits for
+     * @return 1 if the row was created, else 0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_hourly_rollups (rollup_key, tenant_id, day_of_week, hour_of_day, " +
+                   "sale_count, total_amount) " +
+                   "VALUES (:rollupKey, :tenantId, :dayOfWeek, :hourOfDay, :count, :totalAmount) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("rollupKey") String rollupKey,
+                       @Param("tenantId") String tenantId,
+                       @Param("dayOfWeek") int dayOfWeek,
+                       @Param("hourOfDay") int hourOfDay,
+                       @Param("count") long count,
+                       @Param("totalAmount") BigDecimal totalAmount);
+    
+    @Modifying
+    @Query("UPDATE SalesHourlyRollup r SET r.saleCount = r.saleCount + :count, " +
+           "r.totalAmount = r.totalAmount + :totalAmount WHERE r.rollupKey = :rollupKey")
+    int increment(@Param("rollupKey") String rollupKey,
+                  @Param("count") long count,
+                  @Param("totalAmount") BigDecimal totalAmount);
+}
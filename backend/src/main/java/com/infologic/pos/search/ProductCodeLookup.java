@@ -0,0 +1,287 @@
+package com.infologic.pos.search;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infologic.pos.dto.ScannedProduct;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.repository.ProductRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Barcode and SKU lookups for scanning at checkout.
+ * <p>
+ * When {@code products.code-lookup.enabled} is set, each tenant's scanned codes are kept in a
+ * {@link ProductCodeTable} in direct memory, filled from the database on a miss and refreshed from
+ * inventory events: stock changes update the snapshot and catalog edits drop the product's codes
+ * so the next scan reads them again. Events arrive out of order, so snapshots carry the product's
+ * {@code updatedAt} and one older than what the table holds, or than the edit that dropped the
+ * product's codes, is ignored. Misses read the primary, which already has every change an event
+ * was sent for. Codes that match no product are remembered for
+ * {@code products.code-lookup.unknown-ttl-seconds}. The stock level is a snapshot for display;
+ * the sale itself still checks stock in the database. Tables are dropped after
+ * {@code products.code-lookup.max-age-minutes} to bound how long a missed event is visible. Only
+ * database reads open a transaction, so scans answered from the table take no connection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductCodeLookup {
+
+    static final char BARCODE = 'B';
+    static final char SKU = 'S';
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${products.code-lookup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.code-lookup.max-codes-per-tenant:250000}")
+    private int maxCodesPerTenant = 250_000;
+
+    @Value("${products.code-lookup.max-tenants:50}")
+    private int maxTenants = 50;
+
+    @Value("${products.code-lookup.max-age-minutes:60}")
+    private long maxAgeMinutes = 60;
+
+    @Value("${products.code-lookup.unknown-ttl-seconds:30}")
+    private long unknownTtlSeconds = 30;
+
+    @Value("${products.code-lookup.max-unknown-codes:100000}")
+    private long maxUnknownCodes = 100_000;
+
+    @Value("${products.code-lookup.max-dropped-products:100000}")
+    private long maxDroppedProducts = 100_000;
+
+    private Cache<String, ProductCodeTable> tenants;
+    // Tenant and code of scans that matched no product
+    private Cache<String, Boolean> unknownCodes;
+    // Tenant and ID of edited or deleted products, with the oldest version that may be stored again
+    private Cache<String, Long> droppedProducts;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder unknownHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        tenants = Caffeine.newBuilder()
+                .maximumSize(maxTenants)
+                .expireAfterWrite(maxAgeMinutes, TimeUnit.MINUTES)
+                .build();
+        unknownCodes = Caffeine.newBuilder()
+                .maximumSize(maxUnknownCodes)
+                .expireAfterWrite(unknownTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        // Kept as long as a table, which is as long as a stale snapshot could be stored in one
+        droppedProducts = Caffeine.newBuilder()
+                .maximumSize(maxDroppedProducts)
+                .expireAfterWrite(maxAgeMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Find the product with a barcode, or failing that a SKU
+     * @param tenantId the tenant
+     * @param code the scanned code
+     * @return the product's ID, price and stock, or empty if no product has the code
+     */
+    public Optional<ScannedProduct> lookup(String tenantId, String code) {
+        if (!enabled) {
+            return findInDatabase(tenantId, code).map(ProductCodeLookup::toScannedProduct);
+        }
+        ProductCodeTable table = tenants.get(tenantId, id -> new ProductCodeTable(maxCodesPerTenant));
+        ProductCodeTable.Entry entry = table.get(ProductCodeTable.hash(BARCODE, code));
+        if (entry == null) {
+            entry = table.get(ProductCodeTable.hash(SKU, code));
+        }
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(new ScannedProduct(entry.productId(), BigDecimal.valueOf(entry.priceCents(), 2), entry.stock()));
+        }
+
+        String unknownKey = unknownKey(tenantId, code);
+        if (unknownCodes.getIfPresent(unknownKey) != null) {
+            unknownHits.increment();
+            return Optional.empty();
+        }
+        misses.increment();
+        Optional<Product> product = findInDatabase(tenantId, code);
+        if (product.isPresent()) {
+            store(tenantId, table, product.get());
+        } else {
+            unknownCodes.put(unknownKey, Boolean.TRUE);
+        }
+        return product.map(ProductCodeLookup::toScannedProduct);
+    }
+
+    /**
+     * Store the snapshot of a product from an event whose codes are unchanged, such as a new
+     * product or a stock change
+     */
+    public void onProduct(String tenantId, Product product) {
+        if (!enabled || product.getId() == null) {
+            return;
+        }
+        forgetUnknown(tenantId, product);
+        ProductCodeTable table = tenants.getIfPresent(tenantId);
+        if (table != null) {
+            store(tenantId, table, product);
+        }
+    }
+
+    /**
+     * Drop the codes of an edited product, whose previous codes are not known, so its next scan
+     * reads it from the database; snapshots older than the edit are not stored again
+     */
+    public void onProductChanged(String tenantId, Product product) {
+        if (!enabled || product.getId() == null) {
+            return;
+        }
+        forgetUnknown(tenantId, product);
+        drop(tenantId, product.getId(), version(product));
+    }
+
+    /**
+     * Drop the codes of a deleted product for good
+     */
+    public void onProductDeleted(String tenantId, Long productId) {
+        if (enabled) {
+            drop(tenantId, productId, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Get lookup statistics
+     * @return tenants, codes, direct memory, hits, unknown code hits and database lookups
+     */
+    public Map<String, Object> getStatistics() {
+        long codes = 0;
+        long offHeapBytes = 0;
+        for (ProductCodeTable table : tenants.asMap().values()) {
+            codes += table.size();
+            offHeapBytes += table.offHeapBytes();
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("tenants", tenants.estimatedSize());
+        statistics.put("codes", codes);
+        statistics.put("offHeapBytes", offHeapBytes);
+        statistics.put("unknownCodes", unknownCodes.estimatedSize());
+        statistics.put("hitCount", hits.sum());
+        statistics.put("unknownHitCount", unknownHits.sum());
+        statistics.put("missCount", misses.sum());
+        return statistics;
+    }
+
+    private Optional<Product> findInDatabase(String tenantId, String code) {
+        // Not read-only, so the read goes to the primary: a lagging replica could return a product
+        // as it was before an edit whose event has already dropped its codes
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            Optional<Product> product = productRepository.findByBarcodeAndTenantId(code, tenantId);
+            return product.isPresent() ? product : productRepository.findBySkuAndTenantId(code, tenantId);
+        });
+    }
+
+    /**
+     * Stores and drops of a table are serialized: a store sees every drop recorded before it, and a
+     * drop recorded during the store removes what it stored
+     */
+    private void store(String tenantId, ProductCodeTable table, Product product) {
+        long priceCents = product.getPrice() != null
+                ? product.getPrice().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact()
+                : 0;
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        long version = version(product);
+        boolean stored = true;
+        synchronized (table) {
+            Long oldest = droppedProducts.getIfPresent(productKey(tenantId, product.getId()));
+            if (oldest != null && version < oldest) {
+                log.debug("Ignoring a snapshot of product {} of tenant {} older than its last edit", product.getId(), tenantId);
+                return;
+            }
+            if (hasText(product.getBarcode())) {
+                stored = table.put(ProductCodeTable.hash(BARCODE, product.getBarcode()), product.getId(), priceCents, stock, version);
+            }
+            if (hasText(product.getSku())) {
+                stored &= table.put(ProductCodeTable.hash(SKU, product.getSku()), product.getId(), priceCents, stock, version);
+            }
+        }
+        if (!stored) {
+            log.debug("Code table of tenant {} is full, product {} is read from the database", tenantId, product.getId());
+        }
+    }
+
+    /**
+     * Kept even without a table, since a table created later could still be sent an older snapshot
+     */
+    private void drop(String tenantId, Long productId, long oldestVersion) {
+        droppedProducts.asMap().merge(productKey(tenantId, productId), oldestVersion, Math::max);
+        ProductCodeTable table = tenants.getIfPresent(tenantId);
+        if (table != null) {
+            synchronized (table) {
+                table.removeProduct(productId);
+            }
+        }
+    }
+
+    /**
+     * The product's {@code updatedAt} in microseconds, the precision the database keeps, or 0
+     * if it has none
+     */
+    static long version(Product product) {
+        LocalDateTime updatedAt = product.getUpdatedAt();
+        if (updatedAt == null) {
+            return 0;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+
+    private void forgetUnknown(String tenantId, Product product) {
+        if (hasText(product.getBarcode())) {
+            unknownCodes.invalidate(unknownKey(tenantId, product.getBarcode()));
+        }
+        if (hasText(product.getSku())) {
+            unknownCodes.invalidate(unknownKey(tenantId, product.getSku()));
+        }
+    }
+
+    private static String unknownKey(String tenantId, String code) {
+        return tenantId + '\n' + code;
+    }
+
+    private static String productKey(String tenantId, Long productId) {
+        return tenantId + '\n' + productId;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static ScannedProduct toScannedProduct(Product product) {
+        return new ScannedProduct(product.getId(), product.getPrice(), product.getStockQuantity());
+    }
+}
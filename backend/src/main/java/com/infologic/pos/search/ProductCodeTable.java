@@ -0,0 +1,282 @@
+package com.infologic.pos.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash table in direct memory from barcode and SKU hashes to a product snapshot.
+ * <p>
+ * Each slot holds the 64-bit hash of a code, the product ID, the price in cents, the stock level
+ * and the version of the product the snapshot was taken from, so the table creates no objects per
+ * code and the collector never scans it. A snapshot older than the one stored for its code is
+ * ignored, since inventory events and database reads arrive in no particular order. Slots are
+ * probed linearly and deletes shift the following slots back instead of leaving tombstones. Codes
+ * are not stored, only their hashes; two codes of a tenant sharing a 64-bit hash are unlikely
+ * enough at these sizes to be ignored. Lookups run under an optimistic read and only take the
+ * read lock when a write got in the way.
+ */
+public class ProductCodeTable {
+
+    public static final long EMPTY = 0L;
+
+    static final int SLOT_BYTES = 40;
+    private static final int PRODUCT_OFFSET = 8;
+    private static final int PRICE_OFFSET = 16;
+    private static final int STOCK_OFFSET = 24;
+    private static final int VERSION_OFFSET = 32;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final int maxEntries;
+    private final StampedLock lock = new StampedLock();
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+
+    /**
+     * Product snapshot stored for a code
+     */
+    public record Entry(long productId, long priceCents, int stock, long version) {
+    }
+
+    /**
+     * @param maxEntries codes the table accepts before refusing more
+     */
+    public ProductCodeTable(int maxEntries) {
+        this.maxEntries = maxEntries;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Look a code hash up
+     * @return the snapshot, or null
+     */
+    public Entry get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = find(key);
+        if (lock.validate(stamp)) {
+            return entry;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Store the snapshot for a code hash, replacing any previous one that is not newer
+     * @param version the product's version, which only grows as the product changes
+     * @return false if the table is full and the code is not already in it
+     */
+    public boolean put(long key, long productId, long priceCents, int stock, long version) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = probe(key);
+            if (slots.getLong(offset(slot)) != EMPTY) {
+                if (version < slots.getLong(offset(slot) + VERSION_OFFSET)) {
+                    return true;
+                }
+            } else {
+                if (size >= maxEntries) {
+                    return false;
+                }
+                if ((size + 1) * 10L > capacity * 7L) {
+                    resize(capacity * 2);
+                    slot = probe(key);
+                }
+                size++;
+            }
+            write(slot, key, productId, priceCents, stock, version);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a code hash
+     * @return whether it was present
+     */
+    public boolean remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = probe(key);
+            if (slots.getLong(offset(slot)) == EMPTY) {
+                return false;
+            }
+            delete(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove every code of a product by scanning the table; meant for the rare product edits and
+     * deletes, where the codes the product had before are not known
+     * @return the number of codes removed
+     */
+    public int removeProduct(long productId) {
+        long stamp = lock.writeLock();
+        try {
+            int removed = 0;
+            int slot = 0;
+            while (slot < capacity) {
+                int offset = offset(slot);
+                if (slots.getLong(offset) != EMPTY && slots.getLong(offset + PRODUCT_OFFSET) == productId) {
+                    // The shift may move an unvisited slot into this one, so look at it again
+                    delete(slot);
+                    removed++;
+                } else {
+                    slot++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Direct memory held by the table
+     */
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) capacity * SLOT_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Hash a code of a kind into a non-empty key; barcodes and SKUs use different kinds so equal
+     * strings do not collide. Allocates nothing, so lookups stay off the heap end to end.
+     */
+    public static long hash(char kind, String code) {
+        long h = 0xcbf29ce484222325L ^ kind;
+        for (int i = 0; i < code.length(); i++) {
+            h = (h ^ code.charAt(i)) * 0x100000001b3L;
+        }
+        // Finalizer of MurmurHash3, spreading the low bits the probe uses
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != EMPTY ? h : 1L;
+    }
+
+    /**
+     * May run without the lock; a torn read is caught by validating the optimistic stamp. The
+     * probe is bounded so a slot array being rewritten cannot keep it spinning.
+     */
+    private Entry find(long key) {
+        ByteBuffer buffer = slots;
+        int mask = buffer.capacity() / SLOT_BYTES - 1;
+        int slot = (int) key & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int offset = slot * SLOT_BYTES;
+            long stored = buffer.getLong(offset);
+            if (stored == EMPTY) {
+                return null;
+            }
+            if (stored == key) {
+                return new Entry(buffer.getLong(offset + PRODUCT_OFFSET), buffer.getLong(offset + PRICE_OFFSET),
+                        buffer.getInt(offset + STOCK_OFFSET), buffer.getLong(offset + VERSION_OFFSET));
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * The slot holding the key, or the empty slot where it belongs
+     */
+    private int probe(long key) {
+        int mask = capacity - 1;
+        int slot = (int) key & mask;
+        while (true) {
+            long stored = slots.getLong(offset(slot));
+            if (stored == EMPTY || stored == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Empty a slot and shift back later slots of the same run whose home comes at or before it
+     */
+    private void delete(int slot) {
+        int mask = capacity - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (true) {
+            long key = slots.getLong(offset(next));
+            if (key == EMPTY) {
+                break;
+            }
+            int home = (int) key & mask;
+            // Move the entry unless its home lies cyclically within (hole, next]
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                copy(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        write(hole, EMPTY, 0, 0, 0, 0);
+        size--;
+    }
+
+    private void resize(int newCapacity) {
+        ByteBuffer old = slots;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int offset = slot * SLOT_BYTES;
+            long key = old.getLong(offset);
+            if (key != EMPTY) {
+                write(probe(key), key, old.getLong(offset + PRODUCT_OFFSET), old.getLong(offset + PRICE_OFFSET),
+                        old.getInt(offset + STOCK_OFFSET), old.getLong(offset + VERSION_OFFSET));
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        // Direct buffers start zeroed, which is every slot empty
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        capacity = newCapacity;
+    }
+
+    private void write(int slot, long key, long productId, long priceCents, int stock, long version) {
+        int offset = offset(slot);
+        slots.putLong(offset + PRODUCT_OFFSET, productId);
+        slots.putLong(offset + PRICE_OFFSET, priceCents);
+        slots.putInt(offset + STOCK_OFFSET, stock);
+        slots.putLong(offset + VERSION_OFFSET, version);
+        slots.putLong(offset, key);
+    }
+
+    private void copy(int from, int to) {
+        int source = offset(from);
+        write(to, slots.getLong(source), slots.getLong(source + PRODUCT_OFFSET), slots.getLong(source + PRICE_OFFSET),
+                slots.getInt(source + STOCK_OFFSET), slots.getLong(source + VERSION_OFFSET));
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,323 @@
+package com.infologic.pos.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.model.Product;
+import com.infologic.pos.repository.ProductRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional in-memory product search for terminals searching on every keystroke.
+ * <p>
+ * A tenant's products are loaded into a {@link ProductTextIndex} on first search and kept current
+ * from inventory events. Each tenant's index must stay within
+ * {@code products.search.index.max-bytes-per-tenant}; a tenant that does not fit is searched in the
+ * database until its next reload. At most {@code products.search.index.max-tenants} tenants are
+ * held, the least recently searched ones being dropped first. Deleting a product only reaches the
+ * index of the node that deleted it, other nodes drop it on their next reload. Only loading a
+ * tenant opens a transaction, so searches answered from memory never take a database connection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${products.search.index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.search.index.max-bytes-per-tenant:33554432}")
+    private long maxBytesPerTenant;
+
+    @Value("${products.search.index.max-tenants:100}")
+    private int maxTenants;
+
+    // Reload periodically to pick up deletes on other nodes and anything missed while no events were being applied
+    @Value("${products.search.index.reload-minutes:60}")
+    private long reloadMinutes;
+
+    private final Map<String, TenantEntry> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Search a tenant's products from memory
+     * @param tenantId the tenant
+     * @param query the search term
+     * @param offset matches to skip
+     * @param limit maximum matches to return
+     * @return the matching products, best match first, or empty if the search has to be answered by the database
+     */
+    public Optional<List<Product>> search(String tenantId, String query, long offset, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        TenantEntry entry = entryFor(tenantId);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        entry.lock.readLock().lock();
+        try {
+            if (entry.index == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(entry.index.search(query, offset, limit));
+        } finally {
+            entry.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a product from an event to the tenant's index, if it is loaded
+     * @param tenantId the tenant
+     * @param product the product as carried by the event
+     */
+    public void onProduct(String tenantId, Product product) {
+        TenantEntry entry = tenants.get(tenantId);
+        if (entry == null || product.getId() == null) {
+            return;
+        }
+        entry.lock.writeLock().lock();
+        try {
+            if (entry.loading) {
+                entry.pending.add(product);
+            }
+            if (entry.index != null) {
+                apply(entry.index, product);
+                if (entry.index.sizeInBytes() > maxBytesPerTenant) {
+                    log.warn("Products of tenant {} outgrew the search index budget of {} bytes", tenantId, maxBytesPerTenant);
+                    entry.index = null;
+                }
+            }
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted product from the tenant's index, if it is loaded
+     */
+    public void remove(String tenantId, Long productId) {
+        TenantEntry entry = tenants.get(tenantId);
+        if (entry == null) {
+            return;
+        }
+        entry.lock.writeLock().lock();
+        try {
+            if (entry.loading) {
+                entry.removed.add(productId);
+            }
+            if (entry.index != null) {
+                entry.index.remove(productId);
+            }
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reload a tenant's index now, or drop every index when no tenant is given
+     * @param tenantId the tenant, or null
+     * @return the number of products indexed
+     */
+    public int rebuild(String tenantId) {
+        if (tenantId == null) {
+            tenants.clear();
+            return 0;
+        }
+        TenantEntry entry = tenants.computeIfAbsent(tenantId, id -> new TenantEntry());
+        entry.loadLock.lock();
+        try {
+            load(tenantId, entry);
+        } finally {
+            entry.loadLock.unlock();
+        }
+        enforceTenantLimit(tenantId);
+        ProductTextIndex index = entry.index;
+        return index != null ? index.size() : 0;
+    }
+
+    /**
+     * Get index statistics
+     * @return loaded tenants, products, bytes, hits, misses and loads
+     */
+    public Map<String, Object> getStatistics() {
+        long products = 0;
+        long bytes = 0;
+        for (TenantEntry entry : tenants.values()) {
+            entry.lock.readLock().lock();
+            try {
+                products += entry.index != null ? entry.index.size() : 0;
+                bytes += entry.index != null ? entry.index.sizeInBytes() : 0;
+            } finally {
+                entry.lock.readLock().unlock();
+            }
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("tenants", tenants.size());
+        statistics.put("products", products);
+        statistics.put("bytes", bytes);
+        statistics.put("maxBytesPerTenant", maxBytesPerTenant);
+        statistics.put("hitCount", hits.get());
+        statistics.put("missCount", misses.get());
+        statistics.put("loadCount", loads.get());
+        return statistics;
+    }
+
+    /**
+     * The tenant's entry, loaded or reloaded if due; its index stays null while the tenant is over budget
+     */
+    private TenantEntry entryFor(String tenantId) {
+        TenantEntry entry = tenants.computeIfAbsent(tenantId, id -> new TenantEntry());
+        entry.lastAccess = System.nanoTime();
+        if (!entry.isStale(reloadMinutes)) {
+            return entry;
+        }
+
+        // Searches keep using the previous index while one of them reloads it
+        boolean loaded = entry.loadedAt != 0;
+        if (!loaded) {
+            entry.loadLock.lock();
+        } else if (!entry.loadLock.tryLock()) {
+            return entry;
+        }
+        try {
+            if (entry.isStale(reloadMinutes)) {
+                load(tenantId, entry);
+            }
+        } finally {
+            entry.loadLock.unlock();
+        }
+        enforceTenantLimit(tenantId);
+        return tenants.get(tenantId) == entry ? entry : null;
+    }
+
+    private void load(String tenantId, TenantEntry entry) {
+        entry.lock.writeLock().lock();
+        try {
+            entry.loading = true;
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+        long started = System.nanoTime();
+        ProductTextIndex index = new ProductTextIndex();
+        boolean fits = true;
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            fits = Boolean.TRUE.equals(transactionTemplate.execute(status -> fill(tenantId, index)));
+        } finally {
+            entry.lock.writeLock().lock();
+            try {
+                if (fits) {
+                    entry.pending.forEach(product -> apply(index, product));
+                    entry.removed.forEach(index::remove);
+                    entry.index = index;
+                } else {
+                    log.warn("Products of tenant {} exceed the search index budget of {} bytes", tenantId, maxBytesPerTenant);
+                    entry.index = null;
+                }
+                // An oversized tenant is not retried before the next reload either
+                entry.loadedAt = System.nanoTime();
+                entry.pending.clear();
+                entry.removed.clear();
+                entry.loading = false;
+            } finally {
+                entry.lock.writeLock().unlock();
+            }
+        }
+        loads.incrementAndGet();
+        log.info("Loaded {} products of tenant {} into the search index in {} ms", index.size(), tenantId,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Stream a tenant's products into an index
+     * @return false if they outgrew the budget, leaving the index incomplete
+     */
+    private boolean fill(String tenantId, ProductTextIndex index) {
+        try (Stream<Product> products = productRepository.streamSearchableProducts(tenantId)) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                index.upsert(iterator.next());
+                if (index.sizeInBytes() > maxBytesPerTenant) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Drop the least recently searched tenants beyond the limit; the given tenant goes last
+     */
+    private void enforceTenantLimit(String keepTenantId) {
+        while (tenants.size() > maxTenants) {
+            String victim = tenants.entrySet().stream()
+                    .filter(e -> !e.getKey().equals(keepTenantId))
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .map(Map.Entry::getKey)
+                    .orElse(keepTenantId);
+            log.debug("Evicting tenant {} from the product search index", victim);
+            tenants.remove(victim);
+        }
+    }
+
+    /**
+     * Apply a product unless the index already holds a newer version of it
+     */
+    private static void apply(ProductTextIndex index, Product product) {
+        Product indexed = index.get(product.getId());
+        if (indexed != null && indexed.getUpdatedAt() != null && product.getUpdatedAt() != null
+                && product.getUpdatedAt().isBefore(indexed.getUpdatedAt())) {
+            return;
+        }
+        index.upsert(product);
+        index.compact();
+    }
+
+    private static final class TenantEntry {
+        private final ReentrantLock loadLock = new ReentrantLock();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final List<Product> pending = new ArrayList<>();
+        private final List<Long> removed = new ArrayList<>();
+        private ProductTextIndex index;
+        private boolean loading;
+        private volatile long loadedAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private boolean isStale(long reloadMinutes) {
+            return loadedAt == 0 || System.nanoTime() - loadedAt > TimeUnit.MINUTES.toNanos(reloadMinutes);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.infologic.pos.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import com.infologic.pos.model.Product;
+
+/**
+ * In-memory search index over one tenant's products.
+ * <p>
+ * Every whitespace-separated word of a product's name, SKU, barcode and category is indexed by its
+ * trigrams and by its one and two character prefixes. Each term maps to a sorted {@code int[]}
+ * posting list of document slots, so a query intersects the postings of its terms and then checks
+ * the few candidates against the product's text. Updating a product appends a new slot and retires
+ * the old one; retired slots are dropped by {@link #compact()}. Not thread-safe.
+ * <p>
+ * Ranking follows the database search: exact barcode, exact SKU, SKU prefix, then name matches,
+ * with names starting with the query ahead of names merely containing it.
+ */
+public class ProductTextIndex {
+
+    private static final int INITIAL_DOCUMENTS = 64;
+    private static final int INITIAL_POSTINGS = 4;
+    // Rough heap cost of a detached product and its strings, beyond the characters themselves
+    private static final int PRODUCT_OVERHEAD_BYTES = 240;
+
+    private Product[] products = new Product[INITIAL_DOCUMENTS];
+    private String[] texts = new String[INITIAL_DOCUMENTS];
+    private boolean[] retired = new boolean[INITIAL_DOCUMENTS];
+    private int documents;
+    private int retiredDocuments;
+    private long documentBytes;
+
+    private final LongIntMap slotsById = new LongIntMap();
+    private final LongIntMap termOrdinals = new LongIntMap();
+    private int[][] postings = new int[INITIAL_DOCUMENTS][];
+    private int[] postingSizes = new int[INITIAL_DOCUMENTS];
+    private int terms;
+    private long postingBytes;
+
+    /**
+     * Add a product, replacing the indexed version with the same ID
+     */
+    public void upsert(Product product) {
+        remove(product.getId());
+        if (documents == products.length) {
+            int capacity = documents * 2;
+            products = Arrays.copyOf(products, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            retired = Arrays.copyOf(retired, capacity);
+        }
+        int slot = documents++;
+        String text = normalize(String.join(" ", nullToEmpty(product.getName()), nullToEmpty(product.getSku()),
+                nullToEmpty(product.getBarcode()), nullToEmpty(product.getCategory())));
+        products[slot] = product;
+        texts[slot] = text;
+        slotsById.put(product.getId(), slot);
+        documentBytes += PRODUCT_OVERHEAD_BYTES + 2L * (text.length() + nullToEmpty(product.getDescription()).length());
+
+        for (String word : text.split(" ")) {
+            for (int i = 1; i <= Math.min(2, word.length()); i++) {
+                addPosting(term(word, 0, i), slot);
+            }
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                addPosting(term(word, i, 3), slot);
+            }
+        }
+    }
+
+    /**
+     * Retire a product's slot
+     * @return whether the product was indexed
+     */
+    public boolean remove(Long productId) {
+        int slot = slotsById.remove(productId);
+        if (slot < 0) {
+            return false;
+        }
+        retired[slot] = true;
+        products[slot] = null;
+        texts[slot] = null;
+        retiredDocuments++;
+        return true;
+    }
+
+    /**
+     * The indexed version of a product, or null
+     */
+    public Product get(Long productId) {
+        int slot = slotsById.get(productId);
+        return slot >= 0 ? products[slot] : null;
+    }
+
+    /**
+     * Find products matching every word of a query
+     * @param query the search term
+     * @param offset matches to skip
+     * @param limit maximum matches to return
+     * @return the matching products, best match first
+     */
+    public List<Product> search(String query, long offset, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        String[] words = normalized.split(" ");
+        int[] candidates = null;
+        for (String word : words) {
+            for (long term : queryTerms(word)) {
+                int ordinal = termOrdinals.get(term);
+                if (ordinal < 0) {
+                    return List.of();
+                }
+                candidates = candidates == null
+                        ? Arrays.copyOf(postings[ordinal], postingSizes[ordinal])
+                        : intersect(candidates, postings[ordinal], postingSizes[ordinal]);
+                if (candidates.length == 0) {
+                    return List.of();
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int slot : candidates) {
+            if (!retired[slot] && containsWords(texts[slot], words)) {
+                matches.add(new Match(products[slot], score(products[slot], query.trim(), normalized)));
+            }
+        }
+        return matches.stream()
+                .sorted(Comparator.comparingInt(Match::score).reversed()
+                        .thenComparing(match -> nullToEmpty(match.product().getName()))
+                        .thenComparing(match -> match.product().getId()))
+                .skip(offset)
+                .limit(limit)
+                .map(Match::product)
+                .toList();
+    }
+
+    /**
+     * Rebuild without retired slots once they make up half of the index
+     * @return whether the index was rebuilt
+     */
+    public boolean compact() {
+        if (retiredDocuments == 0 || retiredDocuments * 2 < documents) {
+            return false;
+        }
+        Product[] live = new Product[documents - retiredDocuments];
+        int next = 0;
+        for (int slot = 0; slot < documents; slot++) {
+            if (!retired[slot]) {
+                live[next++] = products[slot];
+            }
+        }
+        products = new Product[Math.max(INITIAL_DOCUMENTS, live.length)];
+        texts = new String[products.length];
+        retired = new boolean[products.length];
+        documents = 0;
+        retiredDocuments = 0;
+        documentBytes = 0;
+        slotsById.clear();
+        termOrdinals.clear();
+        postings = new int[INITIAL_DOCUMENTS][];
+        postingSizes = new int[INITIAL_DOCUMENTS];
+        terms = 0;
+        postingBytes = 0;
+        for (Product product : live) {
+            upsert(product);
+        }
+        return true;
+    }
+
+    /**
+     * Number of indexed products
+     */
+    public int size() {
+        return documents - retiredDocuments;
+    }
+
+    /**
+     * Approximate heap held by the index
+     */
+    public long sizeInBytes() {
+        return documentBytes + postingBytes + slotsById.sizeInBytes() + termOrdinals.sizeInBytes()
+                + 9L * products.length + 20L * postings.length;
+    }
+
+    private void addPosting(long term, int slot) {
+        int ordinal = termOrdinals.get(term);
+        if (ordinal < 0) {
+            ordinal = terms++;
+            termOrdinals.put(term, ordinal);
+            if (ordinal == postings.length) {
+                postings = Arrays.copyOf(postings, ordinal * 2);
+                postingSizes = Arrays.copyOf(postingSizes, ordinal * 2);
+            }
+            postings[ordinal] = new int[INITIAL_POSTINGS];
+            postingBytes += 16 + 4 * INITIAL_POSTINGS;
+        }
+        int size = postingSizes[ordinal];
+        // A word repeating a term posts the slot once; slots only grow, so the list stays sorted
+        if (size > 0 && postings[ordinal][size - 1] == slot) {
+            return;
+        }
+        if (size == postings[ordinal].length) {
+            postings[ordinal] = Arrays.copyOf(postings[ordinal], size * 2);
+            postingBytes += 4L * size;
+        }
+        postings[ordinal][size] = slot;
+        postingSizes[ordinal] = size + 1;
+    }
+
+    private static long[] queryTerms(String word) {
+        if (word.length() < 3) {
+            return new long[] { term(word, 0, word.length()) };
+        }
+        long[] queryTerms = new long[word.length() - 2];
+        for (int i = 0; i < queryTerms.length; i++) {
+            queryTerms[i] = term(word, i, 3);
+        }
+        return queryTerms;
+    }
+
+    /**
+     * Pack up to three characters and their count into a term key
+     */
+    private static long term(String word, int from, int length) {
+        long key = (long) length << 48;
+        for (int i = 0; i < length; i++) {
+            key |= (long) word.charAt(from + i) << (16 * (2 - i));
+        }
+        return key;
+    }
+
+    private static int[] intersect(int[] candidates, int[] posting, int postingSize) {
+        int[] result = new int[Math.min(candidates.length, postingSize)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < candidates.length && j < postingSize) {
+            if (candidates[i] == posting[j]) {
+                result[size++] = candidates[i];
+                i++;
+                j++;
+            } else if (candidates[i] < posting[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Postings only prove the terms occur somewhere in the text; short words must start a word
+     * and longer ones occur within one
+     */
+    private static boolean containsWords(String text, String[] words) {
+        for (String word : words) {
+            if (word.length() < 3
+                    ? !text.startsWith(word) && !text.contains(" " + word)
+                    : !text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int score(Product product, String query, String lowerQuery) {
+        if (query.equals(product.getBarcode())) {
+            return 6;
+        }
+        String sku = nullToEmpty(product.getSku()).toLowerCase(Locale.ROOT);
+        if (sku.equals(lowerQuery)) {
+            return 5;
+        }
+        if (sku.startsWith(lowerQuery)) {
+            return 4;
+        }
+        String name = normalize(nullToEmpty(product.getName()));
+        if (name.startsWith(lowerQuery)) {
+            return 3;
+        }
+        if (name.contains(" " + lowerQuery)) {
+            return 2;
+        }
+        return name.contains(lowerQuery) ? 1 : 0;
+    }
+
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private record Match(Product product, int score) {
+    }
+
+    /**
+     * Open-addressing map from long keys to non-negative ints, -1 meaning absent
+     */
+    private static final class LongIntMap {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private static final long REMOVED = Long.MIN_VALUE + 1;
+
+        private long[] keys = newKeys(16);
+        private int[] values = new int[16];
+        private int size;
+        private int used;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((used + 1) * 4 > keys.length * 3) {
+                rehash(size * 4 > keys.length ? keys.length * 2 : keys.length);
+            }
+            int mask = keys.length - 1;
+            int free = -1;
+            int i = mix(key) & mask;
+            for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                if (keys[i] == REMOVED && free < 0) {
+                    free = i;
+                }
+            }
+            if (free < 0) {
+                free = i;
+                used++;
+            }
+            keys[free] = key;
+            values[free] = value;
+            size++;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    keys[i] = REMOVED;
+                    size--;
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void clear() {
+            keys = newKeys(16);
+            values = new int[16];
+            size = 0;
+            used = 0;
+        }
+
+        long sizeInBytes() {
+            return 12L * keys.length;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && oldKeys[i] != REMOVED) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
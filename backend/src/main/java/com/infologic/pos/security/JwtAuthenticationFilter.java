@@ -2,7 +2,7 @@ package com.infologic.pos.security;
 
 import java.io.IOException;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,6 +12,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.service.TokenRevocationService;
 import com.infologic.pos.service.UserDetailsServiceImpl;
 
 import jakarta.servlet.FilterChain;
@@ -28,16 +29,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Build the principal from the signed claims instead of loading the user on every request
+    @Value("${security.jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
+            
+            // Verify the signature once and reuse the claims for the rest of the request
+            JwtClaims claims = StringUtils.hasText(jwt) ? jwtTokenProvider.parseToken(jwt).orElse(null) : null;
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt, null)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                String tenantId = jwtTokenProvider.getTenantIdFromToken(jwt);
+            if (claims != null && tokenRevocationService.isRevoked(claims)) {
+                log.debug("Rejected revoked token {}", claims.getTokenId());
+            } else if (claims != null) {
+                String username = claims.getUsername();
+                String tenantId = claims.getTenantId();
                 
                 // Set tenant context from JWT token
                 if (tenantId != null) {
@@ -45,10 +56,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     log.debug("Set tenant ID from JWT: {}", tenantId);
                 }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = statelessPrincipal && claims.hasPrincipalClaims()
+                        ? claims.toPrincipal()
+                        : userDetailsService.loadUserByUsername(username);
                 
                 // Only proceed if the token is valid for this user
-                if (jwtTokenProvider.validateToken(jwt, userDetails)) {
+                if (jwtTokenProvider.validateClaims(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,94 @@
+package com.infologic.pos.security;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+
+import io.jsonwebtoken.Claims;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Verified claims of a JWT, extracted once per request by {@link JwtTokenProvider#parseToken(String)}.
+ */
+@Value
+@Builder
+public class JwtClaims {
+
+    String tokenId;
+    String username;
+    Long userId;
+    String tenantId;
+    List<String> roles;
+    Date issuedAt;
+    Date expiration;
+
+    static JwtClaims from(Claims claims) {
+        return JwtClaims.builder()
+                .tokenId(claims.getId())
+                .username(claims.getSubject())
+                .userId(claims.get("userId", Long.class))
+                .tenantId(claims.get("tenantId", String.class))
+                .roles(extractRoles(claims.get("roles")))
+                .issuedAt(claims.getIssuedAt())
+                .expiration(claims.getExpiration())
+                .build();
+    }
+
+    /**
+     * Roles are written as role names; older tokens carry serialized authorities instead
+     */
+    private static List<String> extractRoles(Object roles) {
+        if (!(roles instanceof Collection<?> values)) {
+            return null;
+        }
+        return values.stream()
+                .map(value -> value instanceof Map<?, ?> authority ? authority.get("authority") : value)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .toList();
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    /**
+     * Whether the token carries everything needed to build the principal without a user lookup
+     */
+    public boolean hasPrincipalClaims() {
+        return userId != null && roles != null;
+    }
+
+    /**
+     * Build a detached principal from the signed claims
+     * @return the user as described by the token
+     */
+    public User toPrincipal() {
+        Set<Role> userRoles = EnumSet.noneOf(Role.class);
+        for (String role : roles) {
+            try {
+                userRoles.add(Role.valueOf(role));
+            } catch (IllegalArgumentException e) {
+                // Ignore roles this version does not know about
+            }
+        }
+        return User.builder()
+                .id(userId)
+                .username(username)
+                .tenantId(tenantId)
+                .roles(userRoles)
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .enabled(true)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.infologic.pos.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.exception.ServiceUnavailableException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dedicated, CPU-bounded pool for BCrypt hashing and verification.
+ * <p>
+ * A login storm can only occupy as many cores as the pool has threads; once the queue is full
+ * further requests are rejected straight away with a 503 instead of stalling request threads
+ * that checkout traffic needs.
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+    @Value("${security.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run a hashing task on the pool. The caller's tenant is carried over to the worker thread.
+     * @param task the task
+     * @return a future completing with the task's result
+     * @throws ServiceUnavailableException if the pool is saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        String tenantId = TenantContext.getCurrentTenant();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (tenantId != null) {
+                    TenantContext.setCurrentTenant(tenantId);
+                }
+                try {
+                    return task.get();
+                } finally {
+                    TenantContext.clear();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            log.warn("Password hashing pool saturated, rejecting request");
+            throw new ServiceUnavailableException("Too many concurrent sign-ins, please retry shortly");
+        }
+    }
+
+    /**
+     * Run a hashing task on the pool and wait for its result
+     * @param task the task
+     * @return the task's result
+     * @throws ServiceUnavailableException if the pool is saturated
+     */
+    public <T> T execute(Supplier<T> task) {
+        try {
+            return submit(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get pool statistics
+     * @return pool size, active threads, queued tasks and rejections
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("poolSize", executor.getPoolSize());
+        statistics.put("activeCount", executor.getActiveCount());
+        statistics.put("queueSize", executor.getQueue().size());
+        statistics.put("completedTaskCount", executor.getCompletedTaskCount());
+        statistics.put("rejectedCount", rejectedCount.get());
+        return statistics;
+    }
+}
@@ -0,0 +1,42 @@
+package com.infologic.pos.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Runs the hashing of a password encoder on the {@link PasswordHashingExecutor}.
+ * <p>
+ * Only {@link #encode(CharSequence)} and {@link #matches(CharSequence, String)} go to the pool;
+ * everything around them, such as loading the user or storing an upgraded hash, stays on the
+ * calling thread, so the pool's threads spend their time on hashing alone.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public PooledPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * @throws com.infologic.pos.exception.ServiceUnavailableException if the pool is saturated
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * @throws com.infologic.pos.exception.ServiceUnavailableException if the pool is saturated
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
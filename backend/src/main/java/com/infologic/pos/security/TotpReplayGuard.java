@@ -0,0 +1,111 @@
+package com.infologic.pos.security;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import org.springframework.stereotype.Component;
+
+import com.infologic.pos.sketch.Hashing;
+
+/**
+ * Remembers TOTP codes that were already accepted so they cannot be replayed.
+ * <p>
+ * Used codes are kept in a small ring of buckets, one per 30 second time step. A code stays
+ * acceptable for the step it was issued in plus the allowed clock drift either side, so a bucket
+ * only needs to be checked for {@link #RETAINED_STEPS} steps; after that its slot is reused by a
+ * later step and the whole bucket is dropped at once. Marking a code is a lock-free set insertion
+ * plus a constant number of lookups.
+ */
+@Component
+public class TotpReplayGuard {
+
+    public static final int TIME_STEP_SECONDS = 30;
+
+    // Current step plus the two steps during which a code from an earlier step is still accepted
+    static final int RETAINED_STEPS = 3;
+    private static final int RING_SIZE = RETAINED_STEPS + 1;
+
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(RING_SIZE);
+    private final LongSupplier epochSeconds;
+
+    public TotpReplayGuard() {
+        this(() -> System.currentTimeMillis() / 1000);
+    }
+
+    TotpReplayGuard(LongSupplier epochSeconds) {
+        this.epochSeconds = epochSeconds;
+    }
+
+    /**
+     * Record a code as used
+     * @param secret the TOTP secret the code was verified against
+     * @param code the code
+     * @return true if this is the first use of the code, false if it is a replay
+     */
+    public boolean markUsed(String secret, String code) {
+        long step = epochSeconds.getAsLong() / TIME_STEP_SECONDS;
+        long key = Hashing.hash64(secret + ':' + code);
+
+        Bucket current = bucketFor(step);
+        if (current == null || !current.usedCodes.add(key)) {
+            return false;
+        }
+        // Add before looking back: of two concurrent uses straddling a step boundary,
+        // the one in the later step always sees the earlier one
+        for (int i = 1; i < RETAINED_STEPS; i++) {
+            Bucket previous = ring.get(slot(step - i));
+            if (previous != null && previous.step == step - i && previous.usedCodes.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of codes currently remembered
+     */
+    public int size() {
+        long step = epochSeconds.getAsLong() / TIME_STEP_SECONDS;
+        int size = 0;
+        for (int i = 0; i < RING_SIZE; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.step > step - RETAINED_STEPS) {
+                size += bucket.usedCodes.size();
+            }
+        }
+        return size;
+    }
+
+    private Bucket bucketFor(long step) {
+        int slot = slot(step);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.step == step) {
+                return bucket;
+            }
+            if (bucket != null && bucket.step > step) {
+                // The caller stalled for longer than a code stays valid
+                return null;
+            }
+            Bucket fresh = new Bucket(step);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int slot(long step) {
+        return (int) Math.floorMod(step, (long) RING_SIZE);
+    }
+
+    private static final class Bucket {
+        private final long step;
+        private final Set<Long> usedCodes = ConcurrentHashMap.newKeySet();
+
+        private Bucket(long step) {
+            this.step = step;
+        }
+    }
+}
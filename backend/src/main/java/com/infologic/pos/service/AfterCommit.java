@@ -0,0 +1,32 @@
+package com.infologic.pos.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers side effects that other requests or nodes can observe, such as cache evictions and
+ * broadcasts, until the surrounding transaction has committed. Until then a concurrent reader
+ * would still see, and could re-cache, the old rows; after a rollback nothing is published.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, or right away outside a transaction
+     * @param action the action
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -2,21 +2,24 @@ package com.infologic.pos.service;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.event.UserEvent;
+import com.infologic.pos.event.UserEvent.UserEventType;
 import com.infologic.pos.exception.ResourceAlreadyExistsException;
 import com.infologic.pos.exception.ResourceNotFoundException;
 import com.infologic.pos.model.Role;
 import com.infologic.pos.model.User;
 import com.infologic.pos.repository.UserRepository;
+import com.infologic.pos.security.JwtClaims;
 import com.infologic.pos.security.JwtTokenProvider;
 
 import lombok.RequiredArgsConstructor;
@@ -32,6 +35,8 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
     private final MfaService mfaService;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserCacheInvalidationBus userCacheInvalidationBus;
 
     /**
      * Register a new user
@@ -84,10 +89,10 @@ public class AuthService {
     /**
      * Enable MFA for a user
      * @param userId user ID
-     * @return QR code image URI
+     * @return future completing with the QR code image URI
      */
     @Transactional
-    public String enableMfa(Long userId) {
+    public CompletableFuture<String> enableMfa(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
         
@@ -97,22 +102,77 @@ public class AuthService {
         // Enable MFA
         user.setMfaEnabled(true);
         userRepository.save(user);
+        publishUserChange(user, UserEventType.MFA_ENABLED);
         
         // Generate QR code
-        return mfaService.generateQrCodeImageUri(user.getMfaSecret(), user.getUsername());
+        return mfaService.generateQrCodeImageUriAsync(user.getMfaSecret(), user.getUsername());
     }
     
     /**
-     * Authenticate a user with username and password
+     * Change the password of a user
+     * @param userId user ID
+     * @param newPassword the new raw password
+     */
+    @Transactional
+    public void changePassword(Long userId, String newPassword) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        
+        user.setPassword(passwordEncoder.encode(newPassword));
+        userRepository.save(user);
+        tokenRevocationService.revokeUserTokens(user.getTenantId(), user.getUsername());
+        publishUserChange(user, UserEventType.PASSWORD_CHANGED);
+    }
+    
+    /**
+     * Replace the roles of a user
+     * @param userId user ID
+     * @param roles the new roles
+     * @return the updated user
+     */
+    @Transactional
+    public User updateRoles(Long userId, Set<Role> roles) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        
+        user.setRoles(new HashSet<>(roles));
+        User updatedUser = userRepository.save(user);
+        tokenRevocationService.revokeUserTokens(updatedUser.getTenantId(), updatedUser.getUsername());
+        publishUserChange(updatedUser, UserEventType.ROLES_CHANGED);
+        return updatedUser;
+    }
+    
+    /**
+     * Enable or disable a user account; disabling also revokes the user's tokens
+     * @param userId user ID
+     * @param enabled whether the user may sign in
+     * @return the updated user
+     */
+    @Transactional
+    public User setEnabled(Long userId, boolean enabled) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        
+        user.setEnabled(enabled);
+        User updatedUser = userRepository.save(user);
+        if (!enabled) {
+            tokenRevocationService.revokeUserTokens(updatedUser.getTenantId(), updatedUser.getUsername());
+        }
+        publishUserChange(updatedUser, enabled ? UserEventType.ACCOUNT_ENABLED : UserEventType.ACCOUNT_DISABLED);
+        return updatedUser;
+    }
+    
+    /**
+     * Authenticate a user with username and password. The user is loaded, and an upgraded hash
+     * stored, on the calling thread; only the BCrypt verification runs on the password hashing pool.
      * @param username username
      * @param password password
-     * @return authenticated user
+     * @return the authenticated user
+     * @throws com.infologic.pos.exception.ServiceUnavailableException if the hashing pool is saturated
      */
     public User authenticateUser(String username, String password) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username, password));
-        
-        SecurityContextHolder.getContext().setAuthentication(authentication);
         return (User) authentication.getPrincipal();
     }
     
@@ -155,4 +215,30 @@ public class AuthService {
         // Generate token
         return jwtTokenProvider.generateToken(user);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Revoke a token so it can no longer be used, even before it expires
+     * @param token the JWT to revoke
+     */
+    public void logout(String token) {
+        JwtClaims claims = jwtTokenProvider.parseToken(token)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid or expired token"));
+        
+        tokenRevocationService.revoke(claims);
+    }
+    
+    /**
+     * Tell every node to drop its cached copy of the user once the change is committed, so no
+     * request re-caches the old user in between
+     */
+    private void publishUserChange(User user, UserEventType eventType) {
+        UserEvent event = new UserEvent(
+            user.getTenantId(),
+            "system",
+            user.getId(),
+            user.getUsername(),
+            eventType
+        );
+        AfterCommit.run(() -> userCacheInvalidationBus.publish(event));
+    }
+}
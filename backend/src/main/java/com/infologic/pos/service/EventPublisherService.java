@@ -4,8 +4,10 @@ import com.infologic.pos.config.KafkaConfig;
 import com.infologic.pos.event.Event;
 import com.infologic.pos.event.InventoryEvent;
 import com.infologic.pos.event.PaymentEvent;
+import com.infologic.pos.event.ReportCacheEvent;
 import com.infologic.pos.event.SaleEvent;
 import com.infologic.pos.event.SyncEvent;
+import com.infologic.pos.event.UserEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -97,6 +99,40 @@ public class EventPublisherService {
                 });
     }
 
+    /**
+     * Publishes a user event to the user topic.
+     *
+     * @param event The user event to publish
+     * @return A CompletableFuture of the send result
+     */
+    public CompletableFuture<SendResult<String, Object>> publishUserEvent(UserEvent event) {
+        log.info("Publishing user event: {}", event);
+        return kafkaTemplate.send(KafkaConfig.USER_TOPIC, event.getId(), event)
+                .whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        log.info("User event sent successfully: {}", event.getId());
+                    } else {
+                        log.error("Failed to send user event: {}", event.getId(), ex);
+                    }
+                });
+    }
+
+    /**
+     * Publishes a report cache event to the report cache topic.
+     *
+     * @param event The report cache event to publish
+     * @return A CompletableFuture of the send result
+     */
+    public CompletableFuture<SendResult<String, Object>> publishReportCacheEvent(ReportCacheEvent event) {
+        log.debug("Publishing report cache event: {}", event);
+        return kafkaTemplate.send(KafkaConfig.REPORT_CACHE_TOPIC, event.getId(), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to send report cache event: {}", event.getId(), ex);
+                    }
+                });
+    }
+
     /**
      * Generic method to publish any event to a specific topic.
      *
@@ -0,0 +1,331 @@
+package com.infologic.pos.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantDirectory;
+import com.infologic.pos.model.InventoryValuation;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.ProductValuationEntry;
+import com.infologic.pos.model.RollupKey;
+import com.infologic.pos.repository.InventoryValuationRepository;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.ProductValuationEntryRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains each tenant's stock valuation per product category.
+ * <p>
+ * Like the sales rollups, each product's current contribution is recorded in
+ * {@link ProductValuationEntry}; applying a product backs that out and adds the current stock at
+ * the current price, so the valuation stays correct however often, and in whatever order, inventory
+ * events are delivered. A nightly reconciliation compares the valuation with a full scan of the
+ * products, read in ID chunks on a small pool, and re-applies the products of any category that
+ * does not match.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryValuationService {
+
+    private final ProductRepository productRepository;
+    private final ProductValuationEntryRepository entryRepository;
+    private final InventoryValuationRepository valuationRepository;
+    private final TenantDirectory tenantDirectory;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${inventory.valuation.reconcile-chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${inventory.valuation.reconcile-threads:4}")
+    private int reconcileThreads;
+
+    /**
+     * Totals of one category
+     * @param productCount products
+     * @param unitCount units in stock
+     * @param stockValue units in stock at current prices
+     */
+    record CategoryTotals(long productCount, long unitCount, BigDecimal stockValue) {
+
+        static final CategoryTotals EMPTY = new CategoryTotals(0, 0, BigDecimal.ZERO);
+
+        CategoryTotals plus(CategoryTotals other) {
+            return new CategoryTotals(productCount + other.productCount, unitCount + other.unitCount,
+                    stockValue.add(other.stockValue));
+        }
+
+        boolean matches(CategoryTotals other) {
+            return productCount == other.productCount && unitCount == other.unitCount
+                    && stockValue.compareTo(other.stockValue) == 0;
+        }
+    }
+
+    /**
+     * Bring the valuation in line with the current state of a product
+     * @param productId the product ID
+     */
+    @Transactional
+    public void apply(Long productId) {
+        ProductValuationEntry entry = entryRepository.findForUpdate(productId).orElse(null);
+        Product product = productRepository.findById(productId).orElse(null);
+
+        if (entry != null) {
+            if (product != null && isCurrent(entry, product)) {
+                return;
+            }
+            addToValuation(entry, -1);
+        }
+
+        if (product == null) {
+            if (entry != null) {
+                entryRepository.delete(entry);
+            }
+            return;
+        }
+
+        if (entry == null) {
+            entry = ProductValuationEntry.builder().productId(productId).build();
+        }
+        entry.setTenantId(product.getTenantId());
+        entry.setCategory(product.getCategory());
+        entry.setStockQuantity(stock(product));
+        entry.setStockValue(value(product));
+
+        addToValuation(entry, 1);
+        entryRepository.save(entry);
+    }
+
+    /**
+     * Get the current tenant's stock valuation, one row per category
+     * @return the categories with products, units and value, and their totals
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getValuation() {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting inventory valuation for tenant {}", tenantId);
+
+        List<Map<String, Object>> categories = new ArrayList<>();
+        CategoryTotals total = CategoryTotals.EMPTY;
+        for (InventoryValuation valuation : valuationRepository.findByTenantIdOrderByCategoryAsc(tenantId)) {
+            if (valuation.getProductCount() == 0) {
+                continue;
+            }
+            Map<String, Object> category = new LinkedHashMap<>();
+            category.put("category", valuation.getCategory());
+            category.put("productCount", valuation.getProductCount());
+            category.put("unitCount", valuation.getUnitCount());
+            category.put("stockValue", valuation.getStockValue());
+            categories.add(category);
+            total = total.plus(new CategoryTotals(valuation.getProductCount(), valuation.getUnitCount(), valuation.getStockValue()));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("categories", categories);
+        result.put("productCount", total.productCount());
+        result.put("unitCount", total.unitCount());
+        result.put("stockValue", total.stockValue());
+        return result;
+    }
+
+    /**
+     * Reconcile the valuation of every tenant with data, registered or not
+     */
+    @Scheduled(cron = "${inventory.valuation.reconcile-cron:0 30 2 * * *}")
+    public void reconcileAllTenants() {
+        for (String tenantId : tenantDirectory.findTenants()) {
+            TenantContext.setCurrentTenant(tenantId);
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("Inventory valuation reconciliation failed for tenant {}", tenantId, e);
+            } finally {
+                TenantContext.clear();
+            }
+        }
+    }
+
+    /**
+     * Compare the current tenant's valuation with a full scan of its products and re-apply the
+     * products of every category that differs
+     * @return the categories checked, those that differed, and the products re-applied
+     */
+    public Map<String, Object> reconcile() {
+        String tenantId = TenantContext.getCurrentTenant();
+        long started = System.nanoTime();
+        Map<String, CategoryTotals> scanned = scan(tenantId);
+        Map<String, CategoryTotals> maintained = maintained(tenantId);
+
+        Set<String> categories = new HashSet<>(scanned.keySet());
+        categories.addAll(maintained.keySet());
+        List<String> mismatched = new ArrayList<>();
+        for (String category : categories) {
+            CategoryTotals actual = scanned.getOrDefault(category, CategoryTotals.EMPTY);
+            CategoryTotals expected = maintained.getOrDefault(category, CategoryTotals.EMPTY);
+            if (!actual.matches(expected)) {
+                log.warn("Inventory valuation of tenant {} category {} is {} but the products add up to {}",
+                        tenantId, category, expected, actual);
+                mismatched.add(category);
+            }
+        }
+
+        int reapplied = 0;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String category : mismatched) {
+            // Products now in the category and products the valuation still counts in it
+            Set<Long> productIds = new HashSet<>();
+            for (String name : category.isEmpty() ? Arrays.asList(null, "") : List.of(category)) {
+                productIds.addAll(productRepository.findIdsByCategory(tenantId, name));
+                productIds.addAll(entryRepository.findProductIdsByCategory(tenantId, name));
+            }
+            for (Long productId : productIds) {
+                transactionTemplate.executeWithoutResult(status -> apply(productId));
+            }
+            reapplied += productIds.size();
+        }
+
+        log.info("Reconciled inventory valuation of tenant {}: {} categories, {} mismatched, {} products re-applied in {} ms",
+                tenantId, categories.size(), mismatched.size(), reapplied,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("categoriesChecked", categories.size());
+        result.put("mismatchedCategories", mismatched);
+        result.put("productsReapplied", reapplied);
+        return result;
+    }
+
+    /**
+     * Totals per category from the products themselves, read in ID chunks in parallel
+     */
+    Map<String, CategoryTotals> scan(String tenantId) {
+        Object[] range = new TransactionTemplate(transactionManager)
+                .execute(status -> productRepository.getIdRange(tenantId).get(0));
+        Map<String, CategoryTotals> totals = new HashMap<>();
+        if (range == null || range[0] == null) {
+            return totals;
+        }
+        long minId = (Long) range[0];
+        long maxId = (Long) range[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(reconcileThreads,
+                new CustomizableThreadFactory("valuation-reconcile-"));
+        try {
+            List<Future<List<Object[]>>> chunks = new ArrayList<>();
+            for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+                long from = fromId;
+                long to = Math.min(maxId, fromId + chunkSize - 1);
+                chunks.add(executor.submit(() -> readChunk(tenantId, from, to)));
+            }
+            for (Future<List<Object[]>> chunk : chunks) {
+                for (Object[] row : chunk.get()) {
+                    CategoryTotals rowTotals = new CategoryTotals(((Number) row[1]).longValue(),
+                            ((Number) row[2]).longValue(), money(row[3]));
+                    totals.merge(key((String) row[0]), rowTotals, CategoryTotals::plus);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inventory valuation scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Inventory valuation scan failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return totals;
+    }
+
+    private List<Object[]> readChunk(String tenantId, long fromId, long toId) {
+        TenantContext.setCurrentTenant(tenantId);
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            return transactionTemplate.execute(status -> productRepository.getValuationChunk(tenantId, fromId, toId));
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private Map<String, CategoryTotals> maintained(String tenantId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<InventoryValuation> valuations = transactionTemplate.execute(
+                status -> valuationRepository.findByTenantIdOrderByCategoryAsc(tenantId));
+        Map<String, CategoryTotals> totals = new HashMap<>();
+        for (InventoryValuation valuation : valuations) {
+            totals.merge(key(valuation.getCategory()),
+                    new CategoryTotals(valuation.getProductCount(), valuation.getUnitCount(), valuation.getStockValue()),
+                    CategoryTotals::plus);
+        }
+        return totals;
+    }
+
+    /**
+     * Add or back out a product's contribution; the first writer of a category creates its row
+     * holding the contribution, and an insert that finds the row increments it instead
+     */
+    private void addToValuation(ProductValuationEntry entry, int sign) {
+        // Products without a category are valued under an empty name, as the reconciliation compares them
+        String category = key(entry.getCategory());
+        String rollupKey = RollupKey.of(entry.getTenantId(), category);
+        long unitCount = sign * entry.getStockQuantity();
+        BigDecimal stockValue = entry.getStockValue().multiply(BigDecimal.valueOf(sign));
+        if (valuationRepository.insertIfAbsent(rollupKey, entry.getTenantId(), category, sign, unitCount, stockValue) == 0) {
+            valuationRepository.increment(rollupKey, sign, unitCount, stockValue);
+        }
+    }
+
+    private static boolean isCurrent(ProductValuationEntry entry, Product product) {
+        return Objects.equals(entry.getTenantId(), product.getTenantId())
+                && Objects.equals(entry.getCategory(), product.getCategory())
+                && entry.getStockQuantity() == stock(product)
+                && entry.getStockValue().compareTo(value(product)) == 0;
+    }
+
+    private static long stock(Product product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+    }
+
+    private static BigDecimal value(Product product) {
+        return product.getPrice() != null
+                ? money(product.getPrice().multiply(BigDecimal.valueOf(stock(product))))
+                : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal money(Object value) {
+        BigDecimal amount = value instanceof BigDecimal decimal ? decimal
+                : value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Products without a category are compared under an empty name
+     */
+    private static String key(String category) {
+        return category != null ? category : "";
+    }
+}
@@ -0,0 +1,29 @@
+package com.infologic.pos.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.infologic.pos.event.UserEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalidates the local cache immediately and fans the change out to other nodes
+ * through the user topic, see {@link com.infologic.pos.service.consumer.UserEventConsumer}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.user-cache.invalidation", havingValue = "kafka", matchIfMissing = true)
+public class KafkaUserCacheInvalidationBus implements UserCacheInvalidationBus {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final EventPublisherService eventPublisher;
+
+    @Override
+    public void publish(UserEvent event) {
+        userDetailsService.evict(event.getTenantId(), event.getUsername());
+        eventPublisher.publishUserEvent(event);
+    }
+}
@@ -0,0 +1,28 @@
+package com.infologic.pos.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.infologic.pos.event.UserEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process stand-in for single-node deployments and tests: changes are applied
+ * to this node's cache only.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.user-cache.invalidation", havingValue = "local")
+public class LocalUserCacheInvalidationBus implements UserCacheInvalidationBus {
+
+    private final UserDetailsServiceImpl userDetailsService;
+
+    @Override
+    public void publish(UserEvent event) {
+        log.debug("Applying user event locally: {}", event);
+        userDetailsService.evict(event.getTenantId(), event.getUsername());
+    }
+}
@@ -1,7 +1,21 @@
 package com.infologic.pos.service;
 
-import org.springframework.stereotype.Service;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.infologic.pos.security.TotpReplayGuard;
 
 import dev.samstevens.totp.code.CodeGenerator;
 import dev.samstevens.totp.code.CodeVerifier;
@@ -16,18 +30,52 @@ import dev.samstevens.totp.secret.DefaultSecretGenerator;
 import dev.samstevens.totp.secret.SecretGenerator;
 import dev.samstevens.totp.time.SystemTimeProvider;
 import dev.samstevens.totp.time.TimeProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class MfaService {
 
+    private final TotpReplayGuard totpReplayGuard;
+
     private final SecretGenerator secretGenerator = new DefaultSecretGenerator();
     private final QrGenerator qrGenerator = new ZxingPngQrGenerator();
     private final TimeProvider timeProvider = new SystemTimeProvider();
     private final CodeGenerator codeGenerator = new DefaultCodeGenerator();
     private final CodeVerifier codeVerifier = new DefaultCodeVerifier(codeGenerator, timeProvider);
 
+    @Value("${security.mfa.qr-cache.maximum-size:1000}")
+    private long qrCacheMaximumSize;
+
+    @Value("${security.mfa.qr-threads:2}")
+    private int qrThreads;
+
+    // Rendered QR codes keyed by username and secret; a secret only changes on re-registration
+    private AsyncCache<String, String> qrCodeCache;
+    private ThreadPoolExecutor qrExecutor;
+
+    @PostConstruct
+    void init() {
+        qrExecutor = new ThreadPoolExecutor(qrThreads, qrThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256),
+                new CustomizableThreadFactory("mfa-qr-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        qrCodeCache = Caffeine.newBuilder()
+                .maximumSize(qrCacheMaximumSize)
+                .executor(qrExecutor)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        qrExecutor.shutdown();
+    }
+
     /**
      * Generate a new secret key for TOTP
      * @return the generated secret
@@ -43,13 +91,28 @@ public class MfaService {
      * @return Base64 encoded QR code image
      */
     public String generateQrCodeImageUri(String secret, String username) {
+        return generateQrCodeImageUriAsync(secret, username).join();
+    }
+
+    /**
+     * Generate a QR code for the TOTP setup off the calling thread. The image is rendered once
+     * per secret and served from the cache afterwards; concurrent requests share one rendering.
+     * @param secret the secret key
+     * @param username the username
+     * @return future completing with the Base64 encoded QR code image, or null if it could not be rendered
+     */
+    public CompletableFuture<String> generateQrCodeImageUriAsync(String secret, String username) {
+        return qrCodeCache.get(username + ':' + secret, key -> renderQrCode(secret, username));
+    }
+
+    private String renderQrCode(String secret, String username) {
         QrData data = new QrData.Builder()
                 .label(username)
                 .secret(secret)
                 .issuer("InfoLogic POS")
                 .algorithm(HashingAlgorithm.SHA1)
                 .digits(6)
-                .period(30)
+                .period(TotpReplayGuard.TIME_STEP_SECONDS)
                 .build();
 
         try {
@@ -64,12 +127,34 @@ public class MfaService {
     }
 
     /**
-     * Verify a TOTP code
+     * Verify a TOTP code. A code is accepted only once; replays within its validity window are rejected.
      * @param code the code to verify
      * @param secret the secret key
-     * @return true if the code is valid
+     * @return true if the code is valid and has not been used before
      */
     public boolean verifyCode(String code, String secret) {
-        return codeVerifier.isValidCode(secret, code);
+        if (!codeVerifier.isValidCode(secret, code)) {
+            return false;
+        }
+        if (!totpReplayGuard.markUsed(secret, code)) {
+            log.warn("Rejected replayed MFA code");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get QR code cache statistics
+     * @return hit and miss counts, hit ratio and current size
+     */
+    public Map<String, Object> getQrCodeCacheStatistics() {
+        CacheStats stats = qrCodeCache.synchronous().stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("size", qrCodeCache.synchronous().estimatedSize());
+        statistics.put("hitCount", stats.hitCount());
+        statistics.put("missCount", stats.missCount());
+        statistics.put("hitRatio", stats.hitRate());
+        statistics.put("usedCodes", totpReplayGuard.size());
+        return statistics;
     }
 } 
\ No newline at end of file
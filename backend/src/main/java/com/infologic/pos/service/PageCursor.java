@@ -0,0 +1,97 @@
+package com.infologic.pos.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Continuation tokens for keyset pagination. A token holds the sort key of the last item
+ * returned, so the next slice starts right after it instead of counting past the earlier rows.
+ * Tokens are opaque URL-safe strings; each listing has its own kind and rejects the others'.
+ */
+public final class PageCursor {
+
+    private static final int VERSION = 1;
+
+    private PageCursor() {
+    }
+
+    /**
+     * Position in sales listed newest first
+     */
+    public record SaleKey(LocalDateTime createdAt, long id) {
+    }
+
+    /**
+     * Position in products listed by name
+     */
+    public record ProductKey(String name, long id) {
+    }
+
+    public static String encode(SaleKey key) {
+        return encode('S', key.createdAt().toString(), key.id());
+    }
+
+    public static String encode(ProductKey key) {
+        return encode('P', key.name(), key.id());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is not a sales cursor
+     */
+    public static SaleKey decodeSaleKey(String token) {
+        try (DataInputStream in = open('S', token)) {
+            return new SaleKey(LocalDateTime.parse(in.readUTF()), in.readLong());
+        } catch (IOException | DateTimeParseException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is not a products cursor
+     */
+    public static ProductKey decodeProductKey(String token) {
+        try (DataInputStream in = open('P', token)) {
+            return new ProductKey(in.readUTF(), in.readLong());
+        } catch (IOException e) {
+            throw invalid(e);
+        }
+    }
+
+    private static String encode(char kind, String sortValue, long id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeChar(kind);
+            out.writeUTF(sortValue);
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static DataInputStream open(char kind, String token) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw invalid(e);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readByte() != VERSION || in.readChar() != kind) {
+            throw invalid(null);
+        }
+        return in;
+    }
+
+    private static IllegalArgumentException invalid(Exception cause) {
+        return new IllegalArgumentException("Invalid cursor", cause);
+    }
+}
@@ -0,0 +1,194 @@
+package com.infologic.pos.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.search.ProductSearchIndex;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ranked product search for terminals, typically called on every keystroke.
+ * <p>
+ * On PostgreSQL the {@code pg_trgm} extension is created at startup, and trigram GIN indexes over
+ * the lower-cased name and category, plus B-tree indexes for SKU and barcode lookups, are created
+ * in the shared schema and every registered dedicated schema at startup, and in any other schema
+ * the first time one of its tenants searches; the statements are idempotent, so they act as the
+ * migration for existing databases. Results rank an exact barcode match first, then an
+ * exact SKU, then a SKU prefix, then by how well the query matches a word of the name or category.
+ * Without the extension, or in a schema where the indexes could not be created, search falls back
+ * to the unranked {@code LIKE} query. When enabled, the
+ * in-memory {@link ProductSearchIndex} answers first with the same ranking and the database is only
+ * asked for tenants it does not hold; answers from memory run without a transaction, so they do
+ * not take a database connection.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    // Extension objects are schema-qualified, as tenant connections only search their own schema
+    private static final String RANKED_SEARCH =
+            "SELECT p.* FROM products p WHERE p.tenant_id = :tenantId AND ("
+            + "p.barcode = :query "
+            + "OR lower(p.sku) LIKE :prefix ESCAPE '\\' "
+            + "OR lower(p.name) LIKE :contains ESCAPE '\\' "
+            + "OR :lowerQuery OPERATOR(public.<%) lower(p.name) "
+            + "OR :lowerQuery OPERATOR(public.<%) lower(p.category)) "
+            + "ORDER BY CASE WHEN p.barcode = :query THEN 4 "
+            + "WHEN lower(p.sku) = :lowerQuery THEN 3 "
+            + "WHEN lower(p.sku) LIKE :prefix ESCAPE '\\' THEN 2 ELSE 0 END "
+            + "+ GREATEST(public.word_similarity(:lowerQuery, lower(p.name)), "
+            + "0.5 * public.word_similarity(:lowerQuery, coalesce(lower(p.category), ''))) DESC, "
+            + "p.name, p.id "
+            + "LIMIT :limit OFFSET :offset";
+
+    private static final List<SchemaIndexes.Index> INDEXES = List.of(
+            new SchemaIndexes.Index("idx_products_name_trgm", "ON %s.products USING gin (lower(name) public.gin_trgm_ops)"),
+            new SchemaIndexes.Index("idx_products_category_trgm", "ON %s.products USING gin (lower(category) public.gin_trgm_ops)"),
+            new SchemaIndexes.Index("idx_products_tenant_sku_lower", "ON %s.products (tenant_id, lower(sku) text_pattern_ops)"),
+            new SchemaIndexes.Index("idx_products_tenant_barcode", "ON %s.products (tenant_id, barcode)"));
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final DataSource dataSource;
+    private final TenantRegistry tenantRegistry;
+    private final ProductSearchIndex productSearchIndex;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${products.search.trigram.enabled:true}")
+    private boolean trigramEnabled = true;
+
+    // Whether the extension exists; each schema's indexes are tracked by searchIndexes
+    private volatile boolean trigramAvailable;
+
+    private volatile SchemaIndexes searchIndexes;
+
+    /**
+     * Create the trigram extension, and start building the search indexes of the schemas known at
+     * startup, once the schema is in place
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        if (!trigramEnabled) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgresql")) {
+                log.info("Trigram product search needs PostgreSQL, using LIKE search");
+                return;
+            }
+        } catch (SQLException e) {
+            log.warn("Could not inspect the database, using LIKE search", e);
+            return;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public");
+        } catch (RuntimeException e) {
+            log.warn("Could not create the pg_trgm extension, using LIKE search: {}", e.getMessage());
+            return;
+        }
+        searchIndexes = new SchemaIndexes("product search", INDEXES, dataSource);
+        Set<String> schemas = new LinkedHashSet<>();
+        schemas.add(TenantRegistry.resolveSchema(TenantRegistry.DEFAULT_SCHEMA));
+        for (Map.Entry<String, TenantRegistry.TenancyMode> tenant : tenantRegistry.getRegisteredTenants().entrySet()) {
+            schemas.add(TenantRegistry.resolveSchema(tenant.getKey()));
+        }
+        // A dedicated schema may not have its tables yet; its first search tries again
+        schemas.forEach(searchIndexes::ensure);
+        trigramAvailable = true;
+        log.info("Trigram product search enabled, building the indexes of {} schemas in the background", schemas.size());
+    }
+
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    /**
+     * Whether ranked search can serve a tenant, starting the build of its schema's indexes on
+     * first use; LIKE search serves the tenant until they are built
+     */
+    private boolean isTrigramAvailable(String tenantId) {
+        return trigramAvailable && searchIndexes.ensure(TenantRegistry.resolveSchema(tenantId));
+    }
+
+    /**
+     * Search the current tenant's products by barcode, SKU, name and category
+     *
+     * @param query    the search term
+     * @param pageable the page; its sort is ignored in favour of the ranking
+     * @return the page of products, best match first
+     */
+    public Page<Product> search(String query, Pageable pageable) {
+        String tenantId = TenantContext.getCurrentTenant();
+        String term = query.trim();
+        log.debug("Searching products with term '{}' for tenant {}", term, tenantId);
+        Optional<List<Product>> indexed = productSearchIndex.search(tenantId, term, pageable.getOffset(), pageable.getPageSize() + 1);
+        if (indexed.isPresent()) {
+            return toPage(indexed.get(), pageable);
+        }
+
+        boolean ranked = isTrigramAvailable(tenantId);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> ranked
+                ? rankedSearch(tenantId, term, pageable)
+                : productRepository.searchProducts(tenantId, term, pageable));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<Product> rankedSearch(String tenantId, String term, Pageable pageable) {
+        String lowerQuery = term.toLowerCase(Locale.ROOT);
+        // One extra row tells whether another page follows, without counting every match
+        List<Product> rows = entityManager.createNativeQuery(RANKED_SEARCH, Product.class)
+                .setParameter("tenantId", tenantId)
+                .setParameter("query", term)
+                .setParameter("lowerQuery", lowerQuery)
+                .setParameter("prefix", escapeLike(lowerQuery) + "%")
+                .setParameter("contains", "%" + escapeLike(lowerQuery) + "%")
+                .setParameter("limit", pageable.getPageSize() + 1)
+                .setParameter("offset", pageable.getOffset())
+                .getResultList();
+        return toPage(rows, pageable);
+    }
+
+    /**
+     * Page a result fetched with one extra row, which tells whether another page follows
+     */
+    private static Page<Product> toPage(List<Product> rows, Pageable pageable) {
+        boolean more = rows.size() > pageable.getPageSize();
+        List<Product> content = more ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new PageImpl<>(content, pageable, pageable.getOffset() + content.size() + (more ? 1 : 0));
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -3,18 +3,23 @@ package com.infologic.pos.service;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.CursorPage;
 import com.infologic.pos.dto.ProductDTO;
+import com.infologic.pos.dto.ScannedProduct;
 import com.infologic.pos.event.InventoryEvent;
 import com.infologic.pos.event.InventoryEvent.InventoryEventType;
 import com.infologic.pos.exception.ResourceAlreadyExistsException;
 import com.infologic.pos.exception.ResourceNotFoundException;
 import com.infologic.pos.model.Product;
 import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.search.ProductCodeLookup;
+import com.infologic.pos.search.ProductSearchIndex;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +31,10 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final EventPublisherService eventPublisher;
+    private final InventoryValuationService inventoryValuationService;
+    private final ProductSearchService productSearchService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCodeLookup productCodeLookup;
 
     /**
      * Create a new product
@@ -68,7 +77,7 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         
         // Publish inventory event for product creation
-        eventPublisher.publishInventoryEvent(new InventoryEvent(
+        publishAfterCommit(new InventoryEvent(
             tenantId, 
             "system", 
             savedProduct, 
@@ -94,6 +103,20 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
     }
 
+    /**
+     * Get the product scanned at checkout by its barcode or SKU
+     *
+     * @param code the barcode or SKU
+     * @return the product's ID, price and stock
+     */
+    public ScannedProduct scanProduct(String code) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Looking up product with code {} for tenant {}", code, tenantId);
+
+        return productCodeLookup.lookup(tenantId, code)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with code: " + code));
+    }
+
     /**
      * Get all products
      *
@@ -108,6 +131,34 @@ public class ProductService {
         return productRepository.findByTenantId(tenantId, pageable);
     }
 
+    /**
+     * Get one slice of products by name, continuing from a cursor
+     *
+     * @param cursor the nextCursor of the previous slice, or null for the first
+     * @param size   the maximum number of products in the slice
+     * @return the slice, with the cursor of the next one if there are more products
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getProducts(String cursor, int size) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting products after cursor {} for tenant {}", cursor, tenantId);
+
+        // One extra row tells whether another slice follows, without counting
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Product> products;
+        if (cursor == null || cursor.isEmpty()) {
+            products = productRepository.findSliceByTenantId(tenantId, limit);
+        } else {
+            PageCursor.ProductKey after = PageCursor.decodeProductKey(cursor);
+            products = productRepository.findSliceByTenantIdAfter(tenantId, after.name(), after.id(), limit);
+        }
+        boolean hasNext = products.size() > size;
+        List<Product> content = hasNext ? products.subList(0, size) : products;
+        Product last = hasNext ? content.get(content.size() - 1) : null;
+        return new CursorPage<>(content, size, hasNext,
+                last != null ? PageCursor.encode(new PageCursor.ProductKey(last.getName(), last.getId())) : null);
+    }
+
     /**
      * Get all products (without pagination)
      * 
@@ -136,6 +187,17 @@ public class ProductService {
         return productRepository.findByNameContainingAndTenantId(name, tenantId, pageable);
     }
     
+    /**
+     * Search products by barcode, SKU, name and category, best match first
+     *
+     * @param query    the search term
+     * @param pageable pagination information
+     * @return page of products
+     */
+    public Page<Product> searchProducts(String query, Pageable pageable) {
+        return productSearchService.search(query, pageable);
+    }
+    
     /**
      * Search products by various criteria (name, SKU, barcode, etc.)
      * 
@@ -222,9 +284,11 @@ public class ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        // Price changes are valued at once rather than when the event comes back
+        inventoryValuationService.apply(updatedProduct.getId());
         
         // Publish inventory event for product update
-        eventPublisher.publishInventoryEvent(new InventoryEvent(
+        publishAfterCommit(new InventoryEvent(
             tenantId, 
             "system", 
             updatedProduct, 
@@ -249,6 +313,12 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
 
         productRepository.delete(product);
+        inventoryValuationService.apply(id);
+        // Until the delete commits, a scan or search still reads the product and could store it again
+        AfterCommit.run(() -> {
+            productSearchIndex.remove(tenantId, id);
+            productCodeLookup.onProductDeleted(tenantId, id);
+        });
     }
 
     /**
@@ -308,7 +378,7 @@ public class ProductService {
             InventoryEventType.STOCK_INCREASED : 
             InventoryEventType.STOCK_DECREASED;
             
-        eventPublisher.publishInventoryEvent(new InventoryEvent(
+        publishAfterCommit(new InventoryEvent(
             tenantId, 
             "system", 
             updatedProduct, 
@@ -321,7 +391,7 @@ public class ProductService {
             newStock <= updatedProduct.getAlertThreshold() && 
             oldStock > updatedProduct.getAlertThreshold()) {
             
-            eventPublisher.publishInventoryEvent(new InventoryEvent(
+            publishAfterCommit(new InventoryEvent(
                 tenantId, 
                 "system", 
                 updatedProduct, 
@@ -332,7 +402,7 @@ public class ProductService {
         
         // Check if we're out of stock
         if (newStock == 0 && oldStock > 0) {
-            eventPublisher.publishInventoryEvent(new InventoryEvent(
+            publishAfterCommit(new InventoryEvent(
                 tenantId, 
                 "system", 
                 updatedProduct, 
@@ -343,4 +413,12 @@ public class ProductService {
         
         return updatedProduct;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Publish an inventory event once the change is committed. Consumers that read the product
+     * back then see the change, and the product's {@code updatedAt} has been set by the flush.
+     */
+    private void publishAfterCommit(InventoryEvent event) {
+        AfterCommit.run(() -> eventPublisher.publishInventoryEvent(event));
+    }
+}
@@ -0,0 +1,323 @@
+package com.infologic.pos.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.ReportJobRequest;
+import com.infologic.pos.dto.ReportJobRequest.ReportType;
+import com.infologic.pos.dto.ReportJobResponse;
+import com.infologic.pos.dto.ReportJobResponse.JobStatus;
+import com.infologic.pos.exception.ResourceNotFoundException;
+import com.infologic.pos.exception.ServiceUnavailableException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes long-range reports in the background.
+ * <p>
+ * Jobs run on a small bounded pool so they cannot exhaust request threads or database
+ * connections, and their results are written as JSON files for clients to download once done.
+ * A request identical to one that is queued, running or completed within
+ * {@code reports.jobs.result-ttl-minutes} returns that job instead of computing the report again,
+ * so clients retrying after a timeout do not pile up duplicate queries. Jobs are held by the
+ * node that accepted them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportJobService {
+
+    private static final int DEFAULT_TOP_PRODUCTS = 10;
+
+    private final ReportService reportService;
+    private final RollupReportService rollupReportService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${reports.jobs.threads:2}")
+    private int threads;
+
+    @Value("${reports.jobs.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${reports.jobs.directory:${java.io.tmpdir}/pos-report-jobs}")
+    private String directory;
+
+    @Value("${reports.jobs.result-ttl-minutes:60}")
+    private long resultTtlMinutes;
+
+    // Reports spanning more days than this are turned into jobs by ReportController; 0 disables
+    @Value("${reports.jobs.async-threshold-days:366}")
+    private long asyncThresholdDays;
+
+    private ThreadPoolExecutor executor;
+    private Path storeDirectory;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        storeDirectory = Files.createDirectories(Paths.get(directory));
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("report-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Report job pool started with {} threads, results stored in {}", threads, storeDirectory);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether a report over a period should be computed as a job rather than inline
+     * @param startDate the first day
+     * @param endDate the last day
+     */
+    public boolean exceedsAsyncThreshold(LocalDate startDate, LocalDate endDate) {
+        return asyncThresholdDays > 0 && ChronoUnit.DAYS.between(startDate, endDate) + 1 > asyncThresholdDays;
+    }
+
+    /**
+     * Submit a report job for the current tenant, or return an identical one already known
+     * @param request the report and its parameters
+     * @return the job
+     * @throws ServiceUnavailableException if the job queue is full
+     */
+    public ReportJobResponse submit(ReportJobRequest request) {
+        if (request.getEndDate().isBefore(request.getStartDate())) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        String tenantId = TenantContext.getCurrentTenant();
+        ReportJobRequest normalized = normalize(request);
+        String key = tenantId + '|' + normalized;
+
+        Job[] created = new Job[1];
+        Job job = jobsByKey.compute(key, (k, existing) -> {
+            if (existing != null && existing.isReusable(resultTtlMinutes)) {
+                return existing;
+            }
+            created[0] = new Job(UUID.randomUUID().toString(), tenantId, key, normalized.getType());
+            return created[0];
+        });
+        if (created[0] == null) {
+            deduplicatedCount.incrementAndGet();
+            log.debug("Report job {} reused for identical request of tenant {}", job.id, tenantId);
+            return toResponse(job);
+        }
+
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, normalized));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            jobsByKey.remove(key, job);
+            rejectedCount.incrementAndGet();
+            log.warn("Report job queue full, rejecting {} for tenant {}", normalized.getType(), tenantId);
+            throw new ServiceUnavailableException("Too many reports are being computed, please retry shortly");
+        }
+        log.info("Submitted report job {} ({}) for tenant {}", job.id, normalized.getType(), tenantId);
+        return toResponse(job);
+    }
+
+    /**
+     * Get a job of the current tenant
+     * @param id the job ID
+     * @return the job
+     * @throws ResourceNotFoundException if there is no such job
+     */
+    public ReportJobResponse getJob(String id) {
+        return toResponse(findJob(id));
+    }
+
+    /**
+     * Get the result file of a completed job of the current tenant
+     * @param id the job ID
+     * @return the JSON file holding the report
+     * @throws ResourceNotFoundException if there is no such job or it has not completed
+     */
+    public Path getResult(String id) {
+        Job job = findJob(id);
+        if (job.status != JobStatus.COMPLETED) {
+            throw new ResourceNotFoundException("Report job " + id + " has no result, its status is " + job.status);
+        }
+        return job.resultFile;
+    }
+
+    /**
+     * Get job statistics
+     * @return pool usage, jobs held by status, deduplicated and rejected submissions
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("poolSize", executor.getPoolSize());
+        statistics.put("activeCount", executor.getActiveCount());
+        statistics.put("queueSize", executor.getQueue().size());
+        for (JobStatus status : JobStatus.values()) {
+            statistics.put(status.name().toLowerCase(), jobs.values().stream().filter(job -> job.status == status).count());
+        }
+        statistics.put("deduplicatedCount", deduplicatedCount.get());
+        statistics.put("rejectedCount", rejectedCount.get());
+        return statistics;
+    }
+
+    /**
+     * Forget finished jobs older than the result TTL and delete their files
+     */
+    @Scheduled(fixedDelayString = "${reports.jobs.purge-interval-ms:60000}")
+    public void purgeExpiredJobs() {
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (!job.isExpired(resultTtlMinutes)) {
+                continue;
+            }
+            iterator.remove();
+            jobsByKey.remove(job.key, job);
+            if (job.resultFile != null) {
+                try {
+                    Files.deleteIfExists(job.resultFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete result of report job {}: {}", job.id, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void run(Job job, ReportJobRequest request) {
+        TenantContext.setCurrentTenant(job.tenantId);
+        job.status = JobStatus.RUNNING;
+        long started = System.nanoTime();
+        try {
+            Object result = compute(request);
+            Path file = storeDirectory.resolve(job.id + ".json");
+            Path partial = storeDirectory.resolve(job.id + ".json.tmp");
+            objectMapper.writeValue(partial.toFile(), result);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.resultFile = file;
+            job.completedAt = LocalDateTime.now();
+            job.status = JobStatus.COMPLETED;
+            log.info("Report job {} completed in {} ms", job.id, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.id, e);
+            job.error = e.getMessage();
+            job.completedAt = LocalDateTime.now();
+            job.status = JobStatus.FAILED;
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private Object compute(ReportJobRequest request) {
+        LocalDateTime start = request.getStartDate();
+        LocalDateTime end = request.getEndDate();
+        return switch (request.getType()) {
+            case SALES_SUMMARY -> reportService.getSalesSummary(start, end);
+            case PAYMENT_METHODS -> reportService.getSalesByPaymentMethod(start, end);
+            case DAILY_SALES -> reportService.getSalesDailyReport(start, end);
+            case TOP_PRODUCTS -> rollupReportService.getTopProducts(start.toLocalDate(), end.toLocalDate(),
+                    "quantity".equals(request.getMetric()), request.getLimit());
+            case CATEGORY_BREAKDOWN -> rollupReportService.getCategoryBreakdown(start.toLocalDate(), end.toLocalDate());
+        };
+    }
+
+    /**
+     * Drop the parameters a report does not use, so equivalent requests share a job
+     */
+    private static ReportJobRequest normalize(ReportJobRequest request) {
+        ReportJobRequest.ReportJobRequestBuilder normalized = ReportJobRequest.builder()
+                .type(request.getType())
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate());
+        if (request.getType() == ReportType.TOP_PRODUCTS || request.getType() == ReportType.CATEGORY_BREAKDOWN) {
+            // Product reports are kept per day
+            normalized.startDate(request.getStartDate().toLocalDate().atStartOfDay())
+                    .endDate(request.getEndDate().toLocalDate().atStartOfDay());
+        }
+        if (request.getType() == ReportType.TOP_PRODUCTS) {
+            String metric = request.getMetric() != null ? request.getMetric().toLowerCase() : "revenue";
+            if (!"revenue".equals(metric) && !"quantity".equals(metric)) {
+                throw new IllegalArgumentException("Metric must be revenue or quantity");
+            }
+            normalized.metric(metric)
+                    .limit(request.getLimit() != null ? request.getLimit() : DEFAULT_TOP_PRODUCTS);
+        }
+        return normalized.build();
+    }
+
+    private Job findJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null || !job.tenantId.equals(TenantContext.getCurrentTenant())) {
+            throw new ResourceNotFoundException("Report job not found with id: " + id);
+        }
+        return job;
+    }
+
+    private static ReportJobResponse toResponse(Job job) {
+        return ReportJobResponse.builder()
+                .id(job.id)
+                .type(job.type)
+                .status(job.status)
+                .submittedAt(job.submittedAt)
+                .completedAt(job.completedAt)
+                .error(job.error)
+                .resultUrl(job.status == JobStatus.COMPLETED ? "/api/reports/jobs/" + job.id + "/result" : null)
+                .build();
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String tenantId;
+        private final String key;
+        private final ReportType type;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime completedAt;
+        private volatile String error;
+        private volatile Path resultFile;
+
+        private Job(String id, String tenantId, String key, ReportType type) {
+            this.id = id;
+            this.tenantId = tenantId;
+            this.key = key;
+            this.type = type;
+        }
+
+        private boolean isReusable(long ttlMinutes) {
+            return status != JobStatus.FAILED && !isExpired(ttlMinutes);
+        }
+
+        private boolean isExpired(long ttlMinutes) {
+            LocalDateTime completed = completedAt;
+            return completed != null && completed.plusMinutes(ttlMinutes).isBefore(LocalDateTime.now());
+        }
+    }
+}
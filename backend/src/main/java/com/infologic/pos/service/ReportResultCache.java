@@ -0,0 +1,219 @@
+package com.infologic.pos.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-tenant totals of closed days, kept until a change to the day invalidates them.
+ * <p>
+ * Reports ask for a run of closed days; cached days are answered from memory and the missing
+ * ones are loaded in a single query. {@code SalesRollupService} invalidates a day on every node
+ * once a change to its rollups has committed, if the day has ended by then. A day is not cached
+ * until {@code reports.cache.settle-seconds} after it ended, nor for as long after it was
+ * invalidated, so a reload racing a rollup update around midnight or the update that caused the
+ * invalidation cannot pin a stale total. Entries expire after {@code reports.cache.ttl-minutes},
+ * which bounds the staleness left by a lost invalidation. The cache is bounded by an estimate of
+ * the bytes held.
+ */
+@Slf4j
+@Component
+public class ReportResultCache {
+
+    // Key, value, two amounts and the cache's own entry
+    private static final int ENTRY_OVERHEAD_BYTES = 240;
+    private static final int MAX_SETTLING_DAYS = 10_000;
+
+    @Value("${reports.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${reports.cache.max-bytes:16777216}")
+    private long maxBytes = 16L * 1024 * 1024;
+
+    @Value("${reports.cache.settle-seconds:30}")
+    private long settleSeconds = 30;
+
+    @Value("${reports.cache.ttl-minutes:60}")
+    private long ttlMinutes = 60;
+
+    private Cache<DayKey, DayTotals> cache;
+
+    // Recently invalidated days and until when (System.nanoTime) they are not cached again
+    private final Map<DayKey, Long> settling = new ConcurrentHashMap<>();
+
+    /**
+     * Sales of one tenant on one day
+     * @param saleCount sales in any status
+     * @param totalAmount total of sales in any status
+     * @param revenue total of completed sales
+     */
+    public record DayTotals(long saleCount, BigDecimal totalAmount, BigDecimal revenue) {
+
+        public static final DayTotals EMPTY = new DayTotals(0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public DayTotals plus(DayTotals other) {
+            return new DayTotals(saleCount + other.saleCount, totalAmount.add(other.totalAmount), revenue.add(other.revenue));
+        }
+    }
+
+    private record DayKey(String tenantId, LocalDate day) {
+    }
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((DayKey key, DayTotals value) -> ENTRY_OVERHEAD_BYTES + 2 * key.tenantId().length())
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the totals of every day in a run of closed days
+     * @param tenantId the tenant
+     * @param firstDay the first day
+     * @param lastDay the last day, before today
+     * @param loader loads the totals of the days with sales in an inclusive range
+     * @return the totals of every day of the run, ordered by day
+     */
+    public Map<LocalDate, DayTotals> getClosedDays(String tenantId, LocalDate firstDay, LocalDate lastDay,
+                                                   BiFunction<LocalDate, LocalDate, Map<LocalDate, DayTotals>> loader) {
+        if (!enabled) {
+            return fill(firstDay, lastDay, loader.apply(firstDay, lastDay));
+        }
+
+        List<DayKey> keys = new ArrayList<>();
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            keys.add(new DayKey(tenantId, day));
+        }
+        Map<DayKey, DayTotals> cached = cache.getAllPresent(keys);
+        if (cached.size() == keys.size()) {
+            return toDays(keys, cached);
+        }
+
+        // One query covering every missing day, the cached days in between are read again
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (DayKey key : keys) {
+            if (!cached.containsKey(key)) {
+                firstMissing = firstMissing == null ? key.day() : firstMissing;
+                lastMissing = key.day();
+            }
+        }
+        Map<LocalDate, DayTotals> loaded = fill(firstMissing, lastMissing, loader.apply(firstMissing, lastMissing));
+
+        Map<DayKey, DayTotals> result = new HashMap<>(cached);
+        long now = System.nanoTime();
+        LocalDateTime settledBefore = LocalDateTime.now().minusSeconds(settleSeconds);
+        loaded.forEach((day, totals) -> {
+            DayKey key = new DayKey(tenantId, day);
+            if (!cached.containsKey(key)) {
+                result.put(key, totals);
+                if (!day.plusDays(1).atStartOfDay().isAfter(settledBefore) && !isSettling(key, now)) {
+                    cache.put(key, totals);
+                }
+            }
+        });
+        return toDays(keys, result);
+    }
+
+    /**
+     * Drop a tenant's totals of one day, e.g. after a sale of that day was refunded or cancelled
+     */
+    public void invalidate(String tenantId, LocalDate day) {
+        DayKey key = new DayKey(tenantId, day);
+        long now = System.nanoTime();
+        if (settling.size() > MAX_SETTLING_DAYS) {
+            settling.values().removeIf(until -> now - until >= 0);
+        }
+        settling.put(key, now + TimeUnit.SECONDS.toNanos(settleSeconds));
+        cache.invalidate(key);
+        log.debug("Invalidated cached report totals of tenant {} for {}", tenantId, day);
+    }
+
+    /**
+     * Drop a tenant's totals of a range of days
+     */
+    public void invalidate(String tenantId, LocalDate firstDay, LocalDate lastDay) {
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            invalidate(tenantId, day);
+        }
+    }
+
+    /**
+     * Drop all totals of a tenant
+     */
+    public void invalidateTenant(String tenantId) {
+        cache.asMap().keySet().removeIf(key -> key.tenantId().equals(tenantId));
+        log.debug("Invalidated all cached report totals of tenant {}", tenantId);
+    }
+
+    /**
+     * Get cache statistics
+     * @return days held, bytes held, hit ratio and evictions
+     */
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("size", cache.estimatedSize());
+        statistics.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        statistics.put("maxBytes", maxBytes);
+        statistics.put("ttlMinutes", ttlMinutes);
+        statistics.put("hitCount", stats.hitCount());
+        statistics.put("missCount", stats.missCount());
+        statistics.put("hitRatio", stats.hitRate());
+        statistics.put("evictionCount", stats.evictionCount());
+        return statistics;
+    }
+
+    private boolean isSettling(DayKey key, long now) {
+        Long until = settling.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (now - until < 0) {
+            return true;
+        }
+        settling.remove(key, until);
+        return false;
+    }
+
+    /**
+     * Days without sales have no rows; they are cached as empty like any other closed day
+     */
+    private static Map<LocalDate, DayTotals> fill(LocalDate firstDay, LocalDate lastDay, Map<LocalDate, DayTotals> loaded) {
+        Map<LocalDate, DayTotals> days = new LinkedHashMap<>();
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            days.put(day, loaded.getOrDefault(day, DayTotals.EMPTY));
+        }
+        return days;
+    }
+
+    private static Map<LocalDate, DayTotals> toDays(List<DayKey> keys, Map<DayKey, DayTotals> totals) {
+        Map<LocalDate, DayTotals> days = new LinkedHashMap<>();
+        for (DayKey key : keys) {
+            days.put(key.day(), totals.get(key));
+        }
+        return days;
+    }
+}
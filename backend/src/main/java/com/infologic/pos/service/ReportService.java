@@ -1,23 +1,44 @@
 package com.infologic.pos.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.infologic.pos.analytics.SalesColumnarCache;
+import com.infologic.pos.analytics.SliceDimension;
 import com.infologic.pos.config.tenant.TenantContext;
-import com.infologic.pos.model.Product;
+import com.infologic.pos.dto.InventoryStatusItem;
 import com.infologic.pos.model.Sale;
 import com.infologic.pos.repository.ProductRepository;
 import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.repository.SalesDailyRollupRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Reports over sales and stock. Date-range totals combine the daily rollups of closed days with
+ * raw sales; reports that read the rollup tables and sketches alone are in {@link RollupReportService}.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -25,6 +46,15 @@ public class ReportService {
     
     private final SaleRepository saleRepository;
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final SalesDailyRollupRepository dailyRollupRepository;
+    private final SalesColumnarCache columnarCache;
+    private final ReportResultCache reportResultCache;
+    
+    // Closed days are answered from the rollup tables once enabled, which must wait until the
+    // rollups have been rebuilt over the tenants' existing sales; until then raw sales are read
+    @Value("${reports.rollups.enabled:false}")
+    private boolean rollupsEnabled;
     
     /**
      * Get a sales summary report for a date range
@@ -38,36 +68,173 @@ public class ReportService {
         String tenantId = TenantContext.getCurrentTenant();
         log.debug("Generating sales summary for tenant {} between {} and {}", tenantId, startDate, endDate);
         
-        Long saleCount = saleRepository.countSalesByDateRange(startDate, endDate, tenantId);
-        Double totalRevenue = saleRepository.getTotalSalesRevenue(startDate, endDate, tenantId);
+        RollupRange range = rollupRange(startDate, endDate);
+        ReportResultCache.DayTotals closedDays = closedDayTotals(tenantId, range);
         
         Map<String, Object> summary = new HashMap<>();
         summary.put("startDate", startDate);
         summary.put("endDate", endDate);
-        summary.put("saleCount", saleCount);
-        summary.put("totalRevenue", totalRevenue != null ? totalRevenue : 0.0);
+        summary.put("saleCount", closedDays.saleCount() + rawSaleCount(tenantId, range));
+        summary.put("totalRevenue", closedDays.revenue().add(rawRevenue(tenantId, range)));
         
         return summary;
     }
     
     /**
-     * Get inventory status report
+     * Count the sales of a date range
+     *
+     * @param startDate the start date
+     * @param endDate   the end date
+     * @return the number of sales
+     */
+    @Transactional(readOnly = true)
+    public long getSaleCount(LocalDateTime startDate, LocalDateTime endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        RollupRange range = rollupRange(startDate, endDate);
+        return closedDayTotals(tenantId, range).saleCount() + rawSaleCount(tenantId, range);
+    }
+    
+    /**
+     * Get the revenue of completed sales in a date range
+     *
+     * @param startDate the start date
+     * @param endDate   the end date
+     * @return the total revenue
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        RollupRange range = rollupRange(startDate, endDate);
+        return closedDayTotals(tenantId, range).revenue().add(rawRevenue(tenantId, range));
+    }
+    
+    /**
+     * Get sale counts and totals per day
+     *
+     * @param startDate the start date
+     * @param endDate   the end date
+     * @return one entry per day with date, count and total, ordered by date
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getSalesDailyReport(LocalDateTime startDate, LocalDateTime endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Generating daily sales report for tenant {} between {} and {}", tenantId, startDate, endDate);
+        RollupRange range = rollupRange(startDate, endDate);
+        
+        List<Object[]> rows = new ArrayList<>();
+        closedDays(tenantId, range).forEach((date, totals) -> {
+            if (totals.saleCount() > 0) {
+                rows.add(new Object[] { date, totals.saleCount(), totals.totalAmount() });
+            }
+        });
+        for (RollupRange.Segment segment : range.getRawSegments()) {
+            rows.addAll(saleRepository.getSalesDailyReport(tenantId, segment.start(), segment.end()));
+        }
+        
+        Map<LocalDate, Map<String, Object>> days = new TreeMap<>();
+        for (Object[] row : rows) {
+            LocalDate date = row[0] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) row[0];
+            long count = ((Number) row[1]).longValue();
+            BigDecimal total = toBigDecimal(row[2]);
+            
+            Map<String, Object> day = days.computeIfAbsent(date, key -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("date", key);
+                item.put("count", 0L);
+                item.put("total", BigDecimal.ZERO);
+                return item;
+            });
+            day.put("count", (Long) day.get("count") + count);
+            day.put("total", ((BigDecimal) day.get("total")).add(total));
+        }
+        
+        return new ArrayList<>(days.values());
+    }
+    
+    /**
+     * Totals of the closed days of a range, from the report cache or the rollup tables
+     */
+    private Map<LocalDate, ReportResultCache.DayTotals> closedDays(String tenantId, RollupRange range) {
+        if (!range.hasClosedDays()) {
+            return Map.of();
+        }
+        return reportResultCache.getClosedDays(tenantId, range.getFirstDay(), range.getLastDay(), (first, last) -> {
+            Map<LocalDate, ReportResultCache.DayTotals> days = new HashMap<>();
+            for (Object[] row : dailyRollupRepository.getDailySummaries(tenantId, first, last, Sale.SaleStatus.COMPLETED)) {
+                days.put((LocalDate) row[0], new ReportResultCache.DayTotals(
+                        ((Number) row[1]).longValue(), toBigDecimal(row[2]), toBigDecimal(row[3])));
+            }
+            return days;
+        });
+    }
+    
+    private ReportResultCache.DayTotals closedDayTotals(String tenantId, RollupRange range) {
+        return closedDays(tenantId, range).values().stream()
+                .reduce(ReportResultCache.DayTotals.EMPTY, ReportResultCache.DayTotals::plus);
+    }
+    
+    private long rawSaleCount(String tenantId, RollupRange range) {
+        long saleCount = 0;
+        for (RollupRange.Segment segment : range.getRawSegments()) {
+            Long partialDay = saleRepository.countSalesByDateRange(segment.start(), segment.end(), tenantId);
+            saleCount += partialDay != null ? partialDay : 0;
+        }
+        return saleCount;
+    }
+    
+    private BigDecimal rawRevenue(String tenantId, RollupRange range) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (RollupRange.Segment segment : range.getRawSegments()) {
+            Double partialDay = saleRepository.getTotalSalesRevenue(segment.start(), segment.end(), tenantId);
+            if (partialDay != null) {
+                revenue = revenue.add(BigDecimal.valueOf(partialDay));
+            }
+        }
+        return revenue;
+    }
+    
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal amount ? amount
+                : value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+    
+    /**
+     * Get inventory status report: one page of the products below the threshold, as projections
+     * ordered by ID, and on the first page the stock counts computed by the database, which scan
+     * all of the tenant's products and do not change from page to page
      *
      * @param lowStockThreshold the threshold for low stock
-     * @return the inventory status
+     * @param afterId           only products with a higher ID, 0 for the first page
+     * @param limit             the maximum number of products on the page
+     * @return the inventory status, with the ID to continue after if there are more products and,
+     *         on the first page, the stock counts
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getInventoryStatus(Integer lowStockThreshold) {
+    public Map<String, Object> getInventoryStatus(Integer lowStockThreshold, long afterId, int limit) {
         String tenantId = TenantContext.getCurrentTenant();
-        log.debug("Generating inventory status for tenant {} with low stock threshold {}", tenantId, lowStockThreshold);
+        log.debug("Generating inventory status for tenant {} with low stock threshold {} after product {}",
+                tenantId, lowStockThreshold, afterId);
         
-        List<Product> lowStockProducts = productRepository.findByStockQuantityLessThanAndTenantId(lowStockThreshold, tenantId);
+        // One extra row tells whether another page follows
+        List<InventoryStatusItem> items = new ArrayList<>(
+                productRepository.findLowStockPage(tenantId, lowStockThreshold, afterId, PageRequest.of(0, limit + 1)));
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items.remove(limit);
+        }
         
-        Map<String, Object> status = new HashMap<>();
+        Map<String, Object> status = new LinkedHashMap<>();
         status.put("timestamp", LocalDateTime.now());
         status.put("lowStockThreshold", lowStockThreshold);
-        status.put("lowStockCount", lowStockProducts.size());
-        status.put("lowStockProducts", lowStockProducts);
+        if (afterId == 0) {
+            Object[] counts = productRepository.getStockCounts(tenantId, lowStockThreshold).get(0);
+            status.put("productCount", ((Number) counts[0]).longValue());
+            status.put("lowStockCount", ((Number) counts[1]).longValue());
+            status.put("outOfStockCount", ((Number) counts[2]).longValue());
+            status.put("belowAlertThresholdCount", ((Number) counts[3]).longValue());
+        }
+        status.put("lowStockProducts", items);
+        status.put("nextAfterId", hasMore ? items.get(items.size() - 1).getId() : null);
         
         return status;
     }
@@ -86,18 +253,139 @@ public class ReportService {
         
         Map<Sale.PaymentMethod, BigDecimal> paymentMethodStats = new HashMap<>();
         
-        // Get all sales in the date range
-        List<Sale> sales = saleRepository.findByCreatedAtBetweenAndTenantId(startDate, endDate, tenantId, null).getContent();
+        // Totals are grouped by the database; only one row per payment method and status comes back
+        RollupRange range = rollupRange(startDate, endDate);
+        List<Object[]> rows = new ArrayList<>();
+        if (range.hasClosedDays()) {
+            rows.addAll(dailyRollupRepository.getPaymentMethodTotals(tenantId, range.getFirstDay(), range.getLastDay()));
+        }
+        for (RollupRange.Segment segment : range.getRawSegments()) {
+            rows.addAll(saleRepository.getPaymentMethodTotals(tenantId, segment.start(), segment.end()));
+        }
         
-        // Calculate totals by payment method
-        for (Sale sale : sales) {
-            if (sale.getStatus() == Sale.SaleStatus.COMPLETED) {
-                Sale.PaymentMethod paymentMethod = sale.getPaymentMethod();
-                BigDecimal currentAmount = paymentMethodStats.getOrDefault(paymentMethod, BigDecimal.ZERO);
-                paymentMethodStats.put(paymentMethod, currentAmount.add(sale.getTotalAmount()));
+        for (Object[] row : rows) {
+            Sale.PaymentMethod paymentMethod = (Sale.PaymentMethod) row[0];
+            Sale.SaleStatus status = (Sale.SaleStatus) row[1];
+            BigDecimal total = (BigDecimal) row[3];
+            if (status == Sale.SaleStatus.COMPLETED && total != null) {
+                paymentMethodStats.merge(paymentMethod, total, BigDecimal::add);
             }
         }
         
         return paymentMethodStats;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Aggregate the sales of a date range one row at a time, for aggregations SQL cannot express.
+     * Rows are read through a JDBC cursor and detached once accumulated, so memory use does not
+     * depend on the number of sales. Items are not loaded; the accumulator must not touch them.
+     *
+     * @param startDate   the start date
+     * @param endDate     the end date
+     * @param identity    creates the empty result
+     * @param accumulator folds a sale into the result
+     * @return the result
+     */
+    @Transactional(readOnly = true)
+    public <A> A aggregateSales(LocalDateTime startDate, LocalDateTime endDate,
+                                Supplier<A> identity, BiConsumer<A, Sale> accumulator) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Streaming sales aggregation for tenant {} between {} and {}", tenantId, startDate, endDate);
+        
+        A result = identity.get();
+        try (Stream<Sale> sales = saleRepository.streamByCreatedAtBetweenAndTenantId(startDate, endDate, tenantId)) {
+            sales.forEach(sale -> {
+                accumulator.accept(result, sale);
+                entityManager.detach(sale);
+            });
+        }
+        return result;
+    }
+    
+    /**
+     * Count and sum sales grouped by one dimension, optionally filtered by payment method,
+     * status and cashier. Served from the in-memory columnar cache when it is enabled and holds
+     * the whole range, otherwise from the database.
+     *
+     * @param startDate     the first day
+     * @param endDate       the last day
+     * @param groupBy       the dimension to group by
+     * @param paymentMethod only sales paid this way, or null
+     * @param status        only sales in this status, or null
+     * @param cashierId     only sales of this cashier, or null
+     * @return the rows with key, count and total, and where they were computed
+     */
+    @Transactional(readOnly = true)
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Map<String, Object> getSalesSlice(LocalDate startDate, LocalDate endDate, SliceDimension groupBy,
+                                             Sale.PaymentMethod paymentMethod, Sale.SaleStatus status, Long cashierId) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Slicing sales of tenant {} between {} and {} by {}", tenantId, startDate, endDate, groupBy);
+        
+        Map<String, Object> slice = new LinkedHashMap<>();
+        slice.put("startDate", startDate);
+        slice.put("endDate", endDate);
+        slice.put("groupBy", groupBy);
+        
+        Optional<List<Map<String, Object>>> cached = columnarCache.slice(tenantId, startDate, endDate, groupBy, paymentMethod, status, cashierId);
+        if (cached.isPresent()) {
+            slice.put("source", "memory");
+            slice.put("rows", cached.get());
+            return slice;
+        }
+        
+        // Only whitelisted expressions end up in the query text
+        String key = switch (groupBy) {
+            case NONE -> null;
+            case DAY -> "CAST(s.createdAt AS DATE)";
+            case PAYMENT_METHOD -> "s.paymentMethod";
+            case STATUS -> "s.status";
+            case CASHIER -> "s.cashierId";
+        };
+        String jpql = "SELECT " + (key != null ? key + ", " : "") + "COUNT(s), SUM(s.totalAmount) FROM Sale s " +
+                "WHERE s.tenantId = :tenantId AND s.createdAt BETWEEN :startDate AND :endDate" +
+                (paymentMethod != null ? " AND s.paymentMethod = :paymentMethod" : "") +
+                (status != null ? " AND s.status = :status" : "") +
+                (cashierId != null ? " AND s.cashierId = :cashierId" : "") +
+                (key != null ? " GROUP BY " + key : "");
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class)
+                .setParameter("tenantId", tenantId)
+                .setParameter("startDate", startDate.atStartOfDay())
+                .setParameter("endDate", endDate.plusDays(1).atStartOfDay().minus(1, ChronoUnit.MICROS));
+        if (paymentMethod != null) {
+            query.setParameter("paymentMethod", paymentMethod);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (cashierId != null) {
+            query.setParameter("cashierId", cashierId);
+        }
+        
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int offset = key != null ? 1 : 0;
+        for (Object[] row : query.getResultList()) {
+            long count = ((Number) row[offset]).longValue();
+            if (count == 0) {
+                continue;
+            }
+            Object group = key != null ? row[0] : null;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", group instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : group);
+            item.put("count", count);
+            item.put("total", row[offset + 1] != null ? row[offset + 1] : BigDecimal.ZERO);
+            rows.add(item);
+        }
+        // Same order as the in-memory path: by day, enum declaration order or cashier ID
+        rows.sort(Comparator.comparing(row -> (Comparable) row.get("key"), Comparator.nullsFirst(Comparator.naturalOrder())));
+        slice.put("source", "database");
+        slice.put("rows", rows);
+        return slice;
+    }
+    
+    private RollupRange rollupRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return rollupsEnabled
+                ? RollupRange.of(startDate, endDate, LocalDate.now())
+                : RollupRange.rawOnly(startDate, endDate);
+    }
+}
@@ -0,0 +1,88 @@
+package com.infologic.pos.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a report range into the closed days that can be answered from rollup tables and
+ * the partial edges (including the still-open current day) that have to be read from raw rows.
+ * Both bounds of the range are inclusive, like the {@code BETWEEN} queries on sales.
+ */
+final class RollupRange {
+
+    /**
+     * An inclusive range of raw rows
+     */
+    record Segment(LocalDateTime start, LocalDateTime end) {
+    }
+
+    private final LocalDate firstDay;
+    private final LocalDate lastDay;
+    private final List<Segment> rawSegments;
+
+    private RollupRange(LocalDate firstDay, LocalDate lastDay, List<Segment> rawSegments) {
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.rawSegments = rawSegments;
+    }
+
+    /**
+     * Split a range
+     * @param start the inclusive start
+     * @param end the inclusive end
+     * @param today the current day, which is never read from rollups
+     * @return the split range
+     */
+    static RollupRange of(LocalDateTime start, LocalDateTime end, LocalDate today) {
+        LocalDate first = start.equals(start.toLocalDate().atStartOfDay())
+                ? start.toLocalDate()
+                : start.toLocalDate().plusDays(1);
+        // A day is complete when the range reaches the last instant before the next midnight
+        LocalDate last = end.plus(1, ChronoUnit.MICROS).toLocalDate().minusDays(1);
+        if (!last.isBefore(today)) {
+            last = today.minusDays(1);
+        }
+
+        if (first.isAfter(last)) {
+            return new RollupRange(null, null, Collections.singletonList(new Segment(start, end)));
+        }
+
+        List<Segment> segments = new ArrayList<>(2);
+        LocalDateTime firstStart = first.atStartOfDay();
+        if (start.isBefore(firstStart)) {
+            segments.add(new Segment(start, firstStart.minus(1, ChronoUnit.MICROS)));
+        }
+        LocalDateTime tailStart = last.plusDays(1).atStartOfDay();
+        if (!tailStart.isAfter(end)) {
+            segments.add(new Segment(tailStart, end));
+        }
+        return new RollupRange(first, last, segments);
+    }
+
+    /**
+     * A range answered entirely from raw rows
+     */
+    static RollupRange rawOnly(LocalDateTime start, LocalDateTime end) {
+        return new RollupRange(null, null, Collections.singletonList(new Segment(start, end)));
+    }
+
+    boolean hasClosedDays() {
+        return firstDay != null;
+    }
+
+    LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    LocalDate getLastDay() {
+        return lastDay;
+    }
+
+    List<Segment> getRawSegments() {
+        return rawSegments;
+    }
+}
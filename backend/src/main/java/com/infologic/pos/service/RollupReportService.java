@@ -0,0 +1,376 @@
+package com.infologic.pos.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.infologic.pos.analytics.TopProductsSketch;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.CashierShiftRollup;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.SalesHourlyRollup;
+import com.infologic.pos.repository.CashierShiftRollupRepository;
+import com.infologic.pos.repository.CustomerDailySketchRepository;
+import com.infologic.pos.repository.ProductDailyRollupRepository;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.SalesHourlyRollupRepository;
+import com.infologic.pos.sketch.HyperLogLog;
+import com.infologic.pos.sketch.SpaceSaving;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reports answered from the product, hourly and cashier shift rollups, the daily customer sketches
+ * and the live top products sketches, without reading raw sales. Their cost depends on the number
+ * of rollup rows in the range, not on the number of sales.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RollupReportService {
+    
+    private static final long MAX_TREND_DAYS = 3660;
+    
+    private final ProductRepository productRepository;
+    private final ProductDailyRollupRepository productRollupRepository;
+    private final SalesHourlyRollupRepository hourlyRollupRepository;
+    private final TopProductsSketch topProductsSketch;
+    private final CustomerDailySketchRepository customerSketchRepository;
+    private final CashierShiftRollupRepository cashierShiftRepository;
+    
+    /**
+     * Measure cashiers are ranked by on the leaderboard
+     */
+    public enum CashierRanking {
+        REVENUE,
+        SALE_COUNT,
+        AVERAGE_BASKET,
+        ITEMS_PER_MINUTE
+    }
+    
+    /**
+     * Get the best selling products of a period from the product rollups
+     *
+     * @param startDate the first day
+     * @param endDate   the last day
+     * @param byQuantity rank by units sold instead of revenue
+     * @param limit     the maximum number of products
+     * @return the products with quantity and revenue, best first
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTopProducts(LocalDate startDate, LocalDate endDate, boolean byQuantity, int limit) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting top {} products by {} for tenant {} between {} and {}",
+                limit, byQuantity ? "quantity" : "revenue", tenantId, startDate, endDate);
+        
+        PageRequest page = PageRequest.of(0, limit);
+        List<Object[]> rows = byQuantity
+                ? productRollupRepository.getTopProductsByQuantity(tenantId, startDate, endDate, page)
+                : productRollupRepository.getTopProductsByRevenue(tenantId, startDate, endDate, page);
+        
+        List<Long> productIds = rows.stream().map(row -> (Long) row[0]).toList();
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Product product = products.get((Long) row[0]);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", row[0]);
+            item.put("name", product != null ? product.getName() : null);
+            item.put("sku", product != null ? product.getSku() : null);
+            item.put("category", product != null ? product.getCategory() : null);
+            item.put("quantity", row[1]);
+            item.put("revenue", row[2]);
+            result.add(item);
+        }
+        return result;
+    }
+    
+    /**
+     * Get the approximate best-selling products of a recent window from the in-memory sketches
+     *
+     * @param window the window
+     * @param limit  the number of products
+     * @return the products with units sold as an upper bound and how much it may overestimate, best first
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getLiveTopProducts(TopProductsSketch.Window window, int limit) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting live top {} products over {} for tenant {}", limit, window, tenantId);
+        
+        List<SpaceSaving.Entry> entries = topProductsSketch.getTop(tenantId, window, limit);
+        List<Long> productIds = entries.stream().map(SpaceSaving.Entry::key).toList();
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (SpaceSaving.Entry entry : entries) {
+            Product product = products.get(entry.key());
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", entry.key());
+            item.put("name", product != null ? product.getName() : null);
+            item.put("sku", product != null ? product.getSku() : null);
+            item.put("category", product != null ? product.getCategory() : null);
+            item.put("quantity", entry.count());
+            item.put("maxError", entry.error());
+            result.add(item);
+        }
+        return result;
+    }
+    
+    /**
+     * Get units sold and amounts per product category
+     *
+     * @param startDate the first day
+     * @param endDate   the last day
+     * @return one entry per category, highest revenue first
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getCategoryBreakdown(LocalDate startDate, LocalDate endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting category breakdown for tenant {} between {} and {}", tenantId, startDate, endDate);
+        
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : productRollupRepository.getCategoryTotals(tenantId, startDate, endDate)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("category", row[0]);
+            item.put("quantity", row[1]);
+            item.put("revenue", row[2]);
+            item.put("discountAmount", row[3]);
+            item.put("taxAmount", row[4]);
+            result.add(item);
+        }
+        return result;
+    }
+    
+    /**
+     * Get the daily sales series of a product, with zeros for days without sales
+     *
+     * @param productId the product ID
+     * @param startDate the first day
+     * @param endDate   the last day
+     * @return one entry per day with quantity and revenue
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductTrend(Long productId, LocalDate startDate, LocalDate endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting sales trend of product {} for tenant {} between {} and {}", productId, tenantId, startDate, endDate);
+        
+        if (endDate.isBefore(startDate) || ChronoUnit.DAYS.between(startDate, endDate) > MAX_TREND_DAYS) {
+            throw new IllegalArgumentException("Trend range must span between 1 and " + (MAX_TREND_DAYS + 1) + " days");
+        }
+        
+        Map<LocalDate, Object[]> byDay = new HashMap<>();
+        for (Object[] row : productRollupRepository.getProductTrend(tenantId, productId, startDate, endDate)) {
+            byDay.put((LocalDate) row[0], row);
+        }
+        
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            Object[] row = byDay.get(day);
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day);
+            point.put("quantity", row != null ? row[1] : 0L);
+            point.put("revenue", row != null ? row[2] : BigDecimal.ZERO);
+            series.add(point);
+        }
+        return series;
+    }
+    
+    /**
+     * Get completed sales by day of week and hour of day in the tenant's time zone, over all time.
+     * Reads the at most 168 cells of the hourly rollup, however long the tenant's history.
+     *
+     * @return the time zone, the days of the week, and 7 x 24 grids of sale counts and revenue
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getSalesHeatmap() {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting sales heatmap for tenant {}", tenantId);
+        
+        long[][] saleCounts = new long[7][24];
+        BigDecimal[][] revenue = new BigDecimal[7][24];
+        for (BigDecimal[] day : revenue) {
+            Arrays.fill(day, BigDecimal.ZERO);
+        }
+        int peakDay = -1;
+        int peakHour = -1;
+        for (SalesHourlyRollup cell : hourlyRollupRepository.findByTenantId(tenantId)) {
+            int day = cell.getDayOfWeek() - 1;
+            int hour = cell.getHourOfDay();
+            saleCounts[day][hour] = cell.getSaleCount();
+            revenue[day][hour] = cell.getTotalAmount();
+            if (cell.getSaleCount() > 0 && (peakDay < 0 || cell.getSaleCount() > saleCounts[peakDay][peakHour])) {
+                peakDay = day;
+                peakHour = hour;
+            }
+        }
+        
+        Map<String, Object> heatmap = new LinkedHashMap<>();
+        heatmap.put("timeZone", TenantRegistry.getTimeZone(tenantId).getId());
+        heatmap.put("days", DayOfWeek.values());
+        heatmap.put("saleCount", saleCounts);
+        heatmap.put("revenue", revenue);
+        if (peakDay >= 0) {
+            heatmap.put("peak", Map.of("dayOfWeek", DayOfWeek.of(peakDay + 1), "hour", peakHour));
+        }
+        return heatmap;
+    }
+    
+    /**
+     * Estimate the distinct customers of completed sales over a period by merging the daily
+     * HyperLogLog sketches, one small row per day instead of a distinct count over every sale.
+     * Customers are identified by e-mail address, else phone number; anonymous sales are not counted.
+     *
+     * @param startDate the first day
+     * @param endDate   the last day
+     * @return the estimated number of unique customers and its relative standard error
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUniqueCustomers(LocalDate startDate, LocalDate endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting unique customers for tenant {} between {} and {}", tenantId, startDate, endDate);
+        
+        HyperLogLog customers = new HyperLogLog();
+        List<byte[]> sketches = customerSketchRepository.findSketches(tenantId, startDate, endDate);
+        for (byte[] sketch : sketches) {
+            customers.merge(HyperLogLog.fromByteArray(sketch));
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startDate", startDate);
+        result.put("endDate", endDate);
+        result.put("uniqueCustomers", customers.estimate());
+        result.put("standardError", customers.standardError());
+        result.put("daysWithCustomers", sketches.size());
+        return result;
+    }
+    
+    /**
+     * Rank a store's cashiers over a range of shifts from the cashier shift rollup, one grouped
+     * read of at most one row per cashier and shift, however many sales they rang up.
+     * Items per minute are units sold over the time between each shift's first and last sale.
+     *
+     * @param startDate   the first shift date
+     * @param endDate     the last shift date
+     * @param shiftNumber only this shift of each day, or null for all shifts
+     * @param rankBy      the measure to rank by, highest first
+     * @param limit       the number of cashiers
+     * @return the cashiers with their totals, rank first
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getCashierLeaderboard(LocalDate startDate, LocalDate endDate, Integer shiftNumber,
+                                                     CashierRanking rankBy, int limit) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting cashier leaderboard for tenant {} between {} and {} by {}", tenantId, startDate, endDate, rankBy);
+        
+        List<Object[]> rows = shiftNumber != null
+                ? cashierShiftRepository.getCashierTotalsForShift(tenantId, startDate, endDate, shiftNumber)
+                : cashierShiftRepository.getCashierTotals(tenantId, startDate, endDate);
+        List<Map<String, Object>> cashiers = new ArrayList<>();
+        for (Object[] row : rows) {
+            Map<String, Object> cashier = cashierTotals(((Number) row[2]).longValue(), toBigDecimal(row[3]),
+                    ((Number) row[4]).longValue(), ((Number) row[5]).longValue(), toBigDecimal(row[6]),
+                    ((Number) row[7]).longValue());
+            cashier.put("cashierId", row[0]);
+            cashier.put("shifts", ((Number) row[1]).longValue());
+            cashiers.add(cashier);
+        }
+        String measure = switch (rankBy) {
+            case REVENUE -> "revenue";
+            case SALE_COUNT -> "saleCount";
+            case AVERAGE_BASKET -> "averageBasket";
+            case ITEMS_PER_MINUTE -> "itemsPerMinute";
+        };
+        cashiers.sort(Comparator.<Map<String, Object>, BigDecimal>comparing(cashier -> toBigDecimal(cashier.get(measure)))
+                .reversed()
+                .thenComparing(cashier -> (Long) cashier.get("cashierId")));
+        
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, cashiers.size()); i++) {
+            Map<String, Object> cashier = new LinkedHashMap<>();
+            cashier.put("rank", i + 1);
+            cashier.putAll(cashiers.get(i));
+            ranked.add(cashier);
+        }
+        
+        Map<String, Object> leaderboard = new LinkedHashMap<>();
+        leaderboard.put("startDate", startDate);
+        leaderboard.put("endDate", endDate);
+        leaderboard.put("shiftNumber", shiftNumber);
+        leaderboard.put("rankBy", rankBy);
+        leaderboard.put("cashierCount", cashiers.size());
+        leaderboard.put("cashiers", ranked);
+        return leaderboard;
+    }
+    
+    /**
+     * Get a cashier's totals per shift from the cashier shift rollup
+     *
+     * @param cashierId the cashier
+     * @param startDate the first shift date
+     * @param endDate   the last shift date
+     * @return one entry per shift worked, ordered by date and shift number
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getCashierShifts(Long cashierId, LocalDate startDate, LocalDate endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting shifts of cashier {} for tenant {} between {} and {}", cashierId, tenantId, startDate, endDate);
+        
+        List<Map<String, Object>> shifts = new ArrayList<>();
+        for (CashierShiftRollup shift : cashierShiftRepository
+                .findByTenantIdAndCashierIdAndShiftDateBetweenOrderByShiftDateAscShiftNumberAsc(tenantId, cashierId, startDate, endDate)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("shiftDate", shift.getShiftDate());
+            item.put("shiftNumber", shift.getShiftNumber());
+            item.put("firstSaleAt", shift.getFirstSaleAt());
+            item.put("lastSaleAt", shift.getLastSaleAt());
+            item.putAll(cashierTotals(shift.getSaleCount(), shift.getRevenue(), shift.getItemCount(),
+                    shift.getRefundCount(), shift.getRefundAmount(), shift.getActiveSeconds()));
+            shifts.add(item);
+        }
+        return shifts;
+    }
+    
+    private static Map<String, Object> cashierTotals(long saleCount, BigDecimal revenue, long itemCount,
+                                                     long refundCount, BigDecimal refundAmount, long activeSeconds) {
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("saleCount", saleCount);
+        totals.put("revenue", revenue);
+        totals.put("itemCount", itemCount);
+        totals.put("refundCount", refundCount);
+        totals.put("refundAmount", refundAmount);
+        totals.put("averageBasket", saleCount > 0
+                ? revenue.divide(BigDecimal.valueOf(saleCount), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        // A shift of a single sale still took at least a minute
+        totals.put("itemsPerMinute", BigDecimal.valueOf(itemCount)
+                .divide(BigDecimal.valueOf(Math.max(60, activeSeconds)), 6, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(60))
+                .setScale(2, RoundingMode.HALF_UP));
+        return totals;
+    }
+    
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal amount ? amount
+                : value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+}
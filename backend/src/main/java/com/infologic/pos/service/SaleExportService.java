@@ -0,0 +1,329 @@
+package com.infologic.pos.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.infologic.pos.config.tenant.TenantContext;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams sales with their items straight from a forward-only JDBC cursor.
+ * <p>
+ * Rows are written as they are read, so an export of any size runs in constant memory. Sales
+ * are exported in ID order; an interrupted export is resumed by passing the ID of the last
+ * complete sale received as {@code afterId}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SaleExportService {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final int FLUSH_EVERY_SALES = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String EXPORT_SQL =
+            "SELECT s.id, s.invoice_number, s.created_at, s.customer_name, s.customer_phone, s.customer_email, "
+            + "s.total_amount, s.tax_amount, s.discount_amount, s.payment_method, s.payment_reference, "
+            + "s.sale_status, s.cashier_id, "
+            + "i.id, i.product_id, p.name, p.sku, i.quantity, i.unit_price, i.discount_amount, i.tax_amount, i.subtotal "
+            + "FROM sales s "
+            + "LEFT JOIN sale_items i ON i.sale_id = s.id "
+            + "LEFT JOIN products p ON p.id = i.product_id "
+            + "WHERE s.tenant_id = ? AND s.id > ?";
+
+    private static final String[] CSV_HEADER = {
+        "sale_id", "invoice_number", "created_at", "customer_name", "customer_phone", "customer_email",
+        "total_amount", "tax_amount", "discount_amount", "payment_method", "payment_reference",
+        "status", "cashier_id",
+        "item_id", "product_id", "product_name", "sku", "quantity", "unit_price",
+        "item_discount_amount", "item_tax_amount", "subtotal"
+    };
+
+    // Column positions in EXPORT_SQL
+    private static final int SALE_ID = 1;
+    private static final int CREATED_AT = 3;
+    private static final int TOTAL_AMOUNT = 7;
+    private static final int DISCOUNT_AMOUNT = 9;
+    private static final int CASHIER_ID = 13;
+    private static final int ITEM_ID = 14;
+    private static final int PRODUCT_ID = 15;
+    private static final int QUANTITY = 18;
+    private static final int UNIT_PRICE = 19;
+
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${sales.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Build a response body streaming the current tenant's sales
+     * @param format NDJSON, one sale with its items per line, or CSV, one item per line
+     * @param startDate only sales made at or after this instant, or null
+     * @param endDate only sales made at or before this instant, or null
+     * @param afterId only sales with a greater ID, to resume an interrupted export
+     * @param gzip whether to compress the output
+     * @return the response body, written on the async request thread
+     */
+    public StreamingResponseBody export(Format format, LocalDateTime startDate, LocalDateTime endDate,
+                                        long afterId, boolean gzip) {
+        String tenantId = TenantContext.getCurrentTenant();
+        return outputStream -> {
+            TenantContext.setCurrentTenant(tenantId);
+            long started = System.nanoTime();
+            try {
+                OutputStream out = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                long sales = transactionTemplate.execute(status -> entityManager.unwrap(Session.class)
+                        .doReturningWork(connection -> {
+                            try {
+                                return export(connection, tenantId, format, startDate, endDate, afterId, out);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                if (out instanceof GZIPOutputStream compressed) {
+                    compressed.finish();
+                }
+                out.flush();
+                log.info("Exported {} sales of tenant {} as {} in {} ms", sales, tenantId, format,
+                        (System.nanoTime() - started) / 1_000_000);
+            } catch (UncheckedIOException e) {
+                // Usually the client going away; it can resume from the last sale it received
+                log.warn("Sales export of tenant {} aborted: {}", tenantId, e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                TenantContext.clear();
+            }
+        };
+    }
+
+    /**
+     * Run the export query on a connection and write the rows
+     * @return the number of sales written
+     */
+    long export(Connection connection, String tenantId, Format format, LocalDateTime startDate,
+                LocalDateTime endDate, long afterId, OutputStream out) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        if (startDate != null) {
+            sql.append(" AND s.created_at >= ?");
+        }
+        if (endDate != null) {
+            sql.append(" AND s.created_at <= ?");
+        }
+        sql.append(" ORDER BY s.id, i.id");
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // With auto-commit off the PostgreSQL driver fetches in batches instead of buffering everything
+            statement.setFetchSize(fetchSize);
+            int parameter = 1;
+            statement.setString(parameter++, tenantId);
+            statement.setLong(parameter++, afterId);
+            if (startDate != null) {
+                statement.setObject(parameter++, startDate);
+            }
+            if (endDate != null) {
+                statement.setObject(parameter, endDate);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                return write(rows, format, out);
+            }
+        }
+    }
+
+    /**
+     * Write rows ordered by sale and item ID
+     * @return the number of sales written
+     */
+    static long write(ResultSet rows, Format format, OutputStream out) throws SQLException, IOException {
+        return format == Format.CSV ? writeCsv(rows, out) : writeNdjson(rows, out);
+    }
+
+    private static long writeNdjson(ResultSet rows, OutputStream out) throws SQLException, IOException {
+        long sales = 0;
+        long currentSaleId = 0;
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+            // One sale per line rather than the default space between root values
+            json.setRootValueSeparator(null);
+            while (rows.next()) {
+                long saleId = rows.getLong(SALE_ID);
+                if (sales == 0 || saleId != currentSaleId) {
+                    if (sales > 0) {
+                        endSale(json);
+                        if (sales % FLUSH_EVERY_SALES == 0) {
+                            json.flush();
+                        }
+                    }
+                    currentSaleId = saleId;
+                    sales++;
+                    startSale(json, rows);
+                }
+                if (rows.getObject(ITEM_ID) != null) {
+                    writeItem(json, rows);
+                }
+            }
+            if (sales > 0) {
+                endSale(json);
+            }
+        }
+        return sales;
+    }
+
+    private static void startSale(JsonGenerator json, ResultSet rows) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", rows.getLong(SALE_ID));
+        json.writeStringField("invoiceNumber", rows.getString(2));
+        json.writeStringField("createdAt", timestamp(rows.getObject(CREATED_AT, LocalDateTime.class)));
+        json.writeStringField("customerName", rows.getString(4));
+        json.writeStringField("customerPhone", rows.getString(5));
+        json.writeStringField("customerEmail", rows.getString(6));
+        writeNumberField(json, "totalAmount", rows.getBigDecimal(TOTAL_AMOUNT));
+        writeNumberField(json, "taxAmount", rows.getBigDecimal(8));
+        writeNumberField(json, "discountAmount", rows.getBigDecimal(DISCOUNT_AMOUNT));
+        json.writeStringField("paymentMethod", rows.getString(10));
+        json.writeStringField("paymentReference", rows.getString(11));
+        json.writeStringField("status", rows.getString(12));
+        long cashierId = rows.getLong(CASHIER_ID);
+        if (rows.wasNull()) {
+            json.writeNullField("cashierId");
+        } else {
+            json.writeNumberField("cashierId", cashierId);
+        }
+        json.writeArrayFieldStart("items");
+    }
+
+    private static void writeItem(JsonGenerator json, ResultSet rows) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", rows.getLong(ITEM_ID));
+        json.writeNumberField("productId", rows.getLong(PRODUCT_ID));
+        json.writeStringField("productName", rows.getString(16));
+        json.writeStringField("sku", rows.getString(17));
+        json.writeNumberField("quantity", rows.getInt(QUANTITY));
+        writeNumberField(json, "unitPrice", rows.getBigDecimal(UNIT_PRICE));
+        writeNumberField(json, "discountAmount", rows.getBigDecimal(20));
+        writeNumberField(json, "taxAmount", rows.getBigDecimal(21));
+        writeNumberField(json, "subtotal", rows.getBigDecimal(22));
+        json.writeEndObject();
+    }
+
+    private static void endSale(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeNumberField(JsonGenerator json, String name, BigDecimal value) throws IOException {
+        json.writeFieldName(name);
+        json.writeNumber(value);
+    }
+
+    private static long writeCsv(ResultSet rows, OutputStream out) throws SQLException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeCsvLine(writer, CSV_HEADER);
+
+        long sales = 0;
+        long currentSaleId = 0;
+        String[] line = new String[CSV_HEADER.length];
+        while (rows.next()) {
+            long saleId = rows.getLong(SALE_ID);
+            if (sales == 0 || saleId != currentSaleId) {
+                if (sales > 0 && sales % FLUSH_EVERY_SALES == 0) {
+                    writer.flush();
+                }
+                currentSaleId = saleId;
+                sales++;
+            }
+            for (int column = 1; column <= line.length; column++) {
+                line[column - 1] = column == CREATED_AT
+                        ? timestamp(rows.getObject(CREATED_AT, LocalDateTime.class))
+                        : csvValue(rows, column);
+            }
+            writeCsvLine(writer, line);
+        }
+        writer.flush();
+        return sales;
+    }
+
+    private static String csvValue(ResultSet rows, int column) throws SQLException {
+        if ((column >= TOTAL_AMOUNT && column <= DISCOUNT_AMOUNT) || column >= UNIT_PRICE) {
+            BigDecimal value = rows.getBigDecimal(column);
+            return value != null ? value.toPlainString() : null;
+        }
+        return rows.getString(column);
+    }
+
+    private static void writeCsvLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String timestamp(LocalDateTime value) {
+        return value != null ? TIMESTAMP_FORMAT.format(value) : null;
+    }
+}
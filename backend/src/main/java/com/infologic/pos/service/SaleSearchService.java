@@ -0,0 +1,178 @@
+package com.infologic.pos.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.repository.SaleRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sales search by invoice number, customer phone and customer name, always within the current
+ * tenant.
+ * <p>
+ * Invoice numbers and phone numbers match on a prefix, so an exact number is its own prefix, and
+ * customer names match when every word of the query starts a word of the name. On PostgreSQL,
+ * B-tree indexes leading with the tenant over the invoice and phone numbers, and a full-text index
+ * over the customer name, are created in the shared schema and every registered dedicated schema
+ * at startup, and in any other schema the first time one of its tenants searches; results put an
+ * exact invoice match first, then the newest sales. On other databases, or in a schema where the
+ * indexes could not be created, the same filters run as {@code LIKE} queries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SaleSearchService {
+
+    private static final String FULL_TEXT_SEARCH =
+            "SELECT s.* FROM sales s WHERE s.tenant_id = :tenantId AND ("
+            + "s.invoice_number LIKE :invoicePrefix ESCAPE '\\' "
+            + "OR s.customer_phone LIKE :phonePrefix ESCAPE '\\' "
+            + "OR (:nameQuery <> '' AND to_tsvector('simple', coalesce(s.customer_name, '')) "
+            + "@@ to_tsquery('simple', :nameQuery))) "
+            + "ORDER BY CASE WHEN s.invoice_number = :invoiceNumber THEN 0 ELSE 1 END, s.created_at DESC, s.id DESC "
+            + "LIMIT :limit OFFSET :offset";
+
+    // text_pattern_ops lets prefix LIKE use the index whatever the database collation
+    private static final List<SchemaIndexes.Index> INDEXES = List.of(
+            new SchemaIndexes.Index("idx_sales_tenant_invoice_prefix", "ON %s.sales (tenant_id, invoice_number text_pattern_ops)"),
+            new SchemaIndexes.Index("idx_sales_tenant_phone_prefix", "ON %s.sales (tenant_id, customer_phone text_pattern_ops)"),
+            new SchemaIndexes.Index("idx_sales_customer_name_fts",
+                    "ON %s.sales USING gin (to_tsvector('simple', coalesce(customer_name, '')))"));
+
+    private final SaleRepository saleRepository;
+    private final EntityManager entityManager;
+    private final DataSource dataSource;
+    private final TenantRegistry tenantRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${sales.search.full-text.enabled:true}")
+    private boolean fullTextEnabled = true;
+
+    // Whether the database supports it; each schema's indexes are tracked by searchIndexes
+    private volatile boolean fullTextAvailable;
+
+    private volatile SchemaIndexes searchIndexes;
+
+    /**
+     * Start building the search indexes of the schemas known at startup once the schema is in place
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        if (!fullTextEnabled) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgresql")) {
+                log.info("Full-text sales search needs PostgreSQL, using LIKE search");
+                return;
+            }
+        } catch (SQLException e) {
+            log.warn("Could not inspect the database, using LIKE search", e);
+            return;
+        }
+
+        searchIndexes = new SchemaIndexes("sales search", INDEXES, dataSource);
+        Set<String> schemas = new LinkedHashSet<>();
+        schemas.add(TenantRegistry.resolveSchema(TenantRegistry.DEFAULT_SCHEMA));
+        for (Map.Entry<String, TenantRegistry.TenancyMode> tenant : tenantRegistry.getRegisteredTenants().entrySet()) {
+            schemas.add(TenantRegistry.resolveSchema(tenant.getKey()));
+        }
+        // A dedicated schema may not have its tables yet; its first search tries again
+        schemas.forEach(searchIndexes::ensure);
+        fullTextAvailable = true;
+        log.info("Full-text sales search enabled, building the indexes of {} schemas in the background", schemas.size());
+    }
+
+    public boolean isFullTextAvailable() {
+        return fullTextAvailable;
+    }
+
+    /**
+     * Whether full-text search can serve a tenant, starting the build of its schema's indexes on
+     * first use; LIKE search serves the tenant until they are built
+     */
+    private boolean isFullTextAvailable(String tenantId) {
+        return fullTextAvailable && searchIndexes.ensure(TenantRegistry.resolveSchema(tenantId));
+    }
+
+    /**
+     * Search the current tenant's sales
+     *
+     * @param query    an invoice number or its start, a phone number or its start, or words of a customer name
+     * @param pageable the page; with full-text search its sort is ignored in favour of the ranking
+     * @return the page of sales
+     */
+    public Page<Sale> search(String query, Pageable pageable) {
+        String tenantId = TenantContext.getCurrentTenant();
+        String term = query.trim();
+        log.debug("Searching sales with term '{}' for tenant {}", term, tenantId);
+        // Invoice numbers are generated in upper case
+        String invoiceNumber = term.toUpperCase(Locale.ROOT);
+        String invoicePrefix = ProductSearchService.escapeLike(invoiceNumber) + "%";
+        String phonePrefix = ProductSearchService.escapeLike(term) + "%";
+        boolean fullText = isFullTextAvailable(tenantId);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        if (!fullText) {
+            String nameContains = "%" + ProductSearchService.escapeLike(term.toLowerCase(Locale.ROOT)) + "%";
+            return transactionTemplate.execute(status ->
+                    saleRepository.searchSales(tenantId, invoicePrefix, phonePrefix, nameContains, pageable));
+        }
+        return transactionTemplate.execute(status ->
+                fullTextSearch(tenantId, term, invoiceNumber, invoicePrefix, phonePrefix, pageable));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<Sale> fullTextSearch(String tenantId, String term, String invoiceNumber, String invoicePrefix,
+                                      String phonePrefix, Pageable pageable) {
+        // One extra row tells whether another page follows, without counting every match
+        List<Sale> rows = entityManager.createNativeQuery(FULL_TEXT_SEARCH, Sale.class)
+                .setParameter("tenantId", tenantId)
+                .setParameter("invoiceNumber", invoiceNumber)
+                .setParameter("invoicePrefix", invoicePrefix)
+                .setParameter("phonePrefix", phonePrefix)
+                .setParameter("nameQuery", toPrefixQuery(term))
+                .setParameter("limit", pageable.getPageSize() + 1)
+                .setParameter("offset", pageable.getOffset())
+                .getResultList();
+        boolean more = rows.size() > pageable.getPageSize();
+        List<Sale> content = more ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new PageImpl<>(content, pageable, pageable.getOffset() + content.size() + (more ? 1 : 0));
+    }
+
+    /**
+     * Turn the words of a query into a text search query matching names with words starting with
+     * each of them; anything but letters and digits is dropped, so the query cannot be malformed
+     */
+    static String toPrefixQuery(String term) {
+        return Arrays.stream(term.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
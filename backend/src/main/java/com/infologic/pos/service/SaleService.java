@@ -3,7 +3,6 @@ package com.infologic.pos.service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -11,11 +10,13 @@ import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.CursorPage;
 import com.infologic.pos.dto.SaleDTO;
 import com.infologic.pos.dto.SaleItemDTO;
 import com.infologic.pos.event.SaleEvent;
@@ -39,6 +40,8 @@ public class SaleService {
     private final ProductRepository productRepository;
     private final ProductService productService;
     private final EventPublisherService eventPublisher;
+    private final ReportService reportService;
+    private final SaleSearchService saleSearchService;
 
     /**
      * Create a new sale
@@ -100,13 +103,9 @@ public class SaleService {
 
         Sale savedSale = saleRepository.save(sale);
         
-        // Publish sale created event
-        eventPublisher.publishSaleEvent(new SaleEvent(
-            tenantId,
-            "system",
-            savedSale,
-            SaleEventType.CREATED
-        ));
+        // Publish sale created event once the sale is committed, so its consumers can read it
+        SaleEvent event = new SaleEvent(tenantId, "system", savedSale, SaleEventType.CREATED);
+        AfterCommit.run(() -> eventPublisher.publishSaleEvent(event));
         
         return savedSale;
     }
@@ -190,6 +189,34 @@ public class SaleService {
         return saleRepository.findByTenantId(tenantId, pageable);
     }
     
+    /**
+     * Get one slice of sales, newest first, continuing from a cursor
+     *
+     * @param cursor the nextCursor of the previous slice, or null for the first
+     * @param size   the maximum number of sales in the slice
+     * @return the slice, with the cursor of the next one if there are more sales
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Sale> getSales(String cursor, int size) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.debug("Getting sales after cursor {} for tenant {}", cursor, tenantId);
+
+        // One extra row tells whether another slice follows, without counting
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Sale> sales;
+        if (cursor == null || cursor.isEmpty()) {
+            sales = saleRepository.findSliceByTenantId(tenantId, limit);
+        } else {
+            PageCursor.SaleKey after = PageCursor.decodeSaleKey(cursor);
+            sales = saleRepository.findSliceByTenantIdAfter(tenantId, after.createdAt(), after.id(), limit);
+        }
+        boolean hasNext = sales.size() > size;
+        List<Sale> content = hasNext ? sales.subList(0, size) : sales;
+        Sale last = hasNext ? content.get(content.size() - 1) : null;
+        return new CursorPage<>(content, size, hasNext,
+                last != null ? PageCursor.encode(new PageCursor.SaleKey(last.getCreatedAt(), last.getId())) : null);
+    }
+    
     /**
      * Get all sales (without pagination)
      * 
@@ -279,18 +306,14 @@ public class SaleService {
     }
 
     /**
-     * Search sales
+     * Search sales by invoice number, customer phone and customer name
      *
      * @param search   the search term
      * @param pageable pagination information
      * @return page of sales
      */
-    @Transactional(readOnly = true)
     public Page<Sale> searchSales(String search, Pageable pageable) {
-        String tenantId = TenantContext.getCurrentTenant();
-        log.debug("Searching sales with term '{}' for tenant {}", search, tenantId);
-
-        return saleRepository.searchSales(search, tenantId, pageable);
+        return saleSearchService.search(search, pageable);
     }
 
     /**
@@ -341,13 +364,9 @@ public class SaleService {
                 break;
         }
         
-        // Publish sale status update event
-        eventPublisher.publishSaleEvent(new SaleEvent(
-            tenantId,
-            "system",
-            updatedSale,
-            eventType
-        ));
+        // Publish sale status update event once the new status is committed
+        SaleEvent event = new SaleEvent(tenantId, "system", updatedSale, eventType);
+        AfterCommit.run(() -> eventPublisher.publishSaleEvent(event));
         
         return updatedSale;
     }
@@ -364,8 +383,7 @@ public class SaleService {
         String tenantId = TenantContext.getCurrentTenant();
         log.debug("Getting total sales revenue between {} and {} for tenant {}", startDate, endDate, tenantId);
 
-        Double revenue = saleRepository.getTotalSalesRevenue(startDate, endDate, tenantId);
-        return revenue != null ? BigDecimal.valueOf(revenue) : BigDecimal.ZERO;
+        return reportService.getTotalRevenue(startDate, endDate);
     }
 
     /**
@@ -380,7 +398,7 @@ public class SaleService {
         String tenantId = TenantContext.getCurrentTenant();
         log.debug("Getting sale count between {} and {} for tenant {}", startDate, endDate, tenantId);
 
-        return saleRepository.countSalesByDateRange(startDate, endDate, tenantId);
+        return reportService.getSaleCount(startDate, endDate);
     }
     
     /**
@@ -395,18 +413,7 @@ public class SaleService {
         String tenantId = TenantContext.getCurrentTenant();
         log.debug("Getting daily sales report between {} and {} for tenant {}", startDate, endDate, tenantId);
         
-        List<Object[]> reportData = saleRepository.getSalesDailyReport(tenantId, startDate, endDate);
-        
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Object[] row : reportData) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("date", row[0]);
-            item.put("count", row[1]);
-            item.put("total", row[2]);
-            result.add(item);
-        }
-        
-        return result;
+        return reportService.getSalesDailyReport(startDate, endDate);
     }
     
     /**
@@ -441,13 +448,14 @@ public class SaleService {
                     Sale processedSale = createSale(tenantId, userId, offlineSale);
                     processedSales.add(processedSale);
                     
-                    // Publish sync event
-                    eventPublisher.publishSaleEvent(new SaleEvent(
+                    // Publish sync event once the synced sales are committed
+                    SaleEvent event = new SaleEvent(
                         tenantId,
                         String.valueOf(userId),
                         processedSale,
                         SaleEventType.SYNCED
-                    ));
+                    );
+                    AfterCommit.run(() -> eventPublisher.publishSaleEvent(event));
                 } catch (Exception e) {
                     // Log the error and continue with the next sale
                     log.error("Error processing offline sale: {}", e.getMessage(), e);
@@ -0,0 +1,472 @@
+package com.infologic.pos.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.event.ReportCacheEvent;
+import com.infologic.pos.model.CustomerDailySketch;
+import com.infologic.pos.model.RollupKey;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.SaleItem;
+import com.infologic.pos.model.SaleItemRollupEntry;
+import com.infologic.pos.model.SaleRollupEntry;
+import com.infologic.pos.repository.CashierShiftRollupRepository;
+import com.infologic.pos.repository.CustomerDailySketchRepository;
+import com.infologic.pos.repository.ProductDailyRollupRepository;
+import com.infologic.pos.repository.SaleItemRollupEntryRepository;
+import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.repository.SaleRollupEntryRepository;
+import com.infologic.pos.repository.SalesDailyRollupRepository;
+import com.infologic.pos.repository.SalesHourlyRollupRepository;
+import com.infologic.pos.sketch.Hashing;
+import com.infologic.pos.sketch.HyperLogLog;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the daily sales, product, hourly and cashier shift rollup tables and the daily
+ * customer sketches.
+ * <p>
+ * Each sale's current contribution is recorded in {@link SaleRollupEntry} and
+ * {@link SaleItemRollupEntry}. Applying a sale
+ * reloads it, backs out the recorded contribution and adds the current one, so the rollups
+ * stay correct however often, and in whatever order, sale events are delivered. Customer sketches
+ * only ever grow: a customer of a completed sale stays counted for that day.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final String DEFAULT_SHIFT_STARTS = "06:00,14:00,22:00";
+
+    private final SaleRepository saleRepository;
+    private final SaleRollupEntryRepository rollupEntryRepository;
+    private final SalesDailyRollupRepository dailyRollupRepository;
+    private final SaleItemRollupEntryRepository itemEntryRepository;
+    private final ProductDailyRollupRepository productRollupRepository;
+    private final SalesHourlyRollupRepository hourlyRollupRepository;
+    private final CustomerDailySketchRepository customerSketchRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ReportResultCache reportResultCache;
+    private final CashierShiftRollupRepository cashierShiftRepository;
+    private final EventPublisherService eventPublisher;
+
+    private List<LocalTime> shiftStarts = parseShiftStarts(DEFAULT_SHIFT_STARTS);
+
+    /**
+     * Local times at which cashier shifts start, e.g. {@code 06:00,14:00,22:00}
+     */
+    @Value("${reports.cashier.shift-starts:" + DEFAULT_SHIFT_STARTS + "}")
+    void setShiftStarts(String shiftStarts) {
+        this.shiftStarts = parseShiftStarts(shiftStarts);
+    }
+
+    /**
+     * Bring the rollups in line with the current state of a sale
+     * @param saleId the sale ID
+     */
+    @Transactional
+    public void apply(Long saleId) {
+        apply(saleId, true);
+    }
+
+    /**
+     * @param invalidateReports whether to invalidate the cached report totals of the days changed,
+     *                          which a rebuild does once for its whole range instead
+     */
+    private void apply(Long saleId, boolean invalidateReports) {
+        SaleRollupEntry entry = rollupEntryRepository.findForUpdate(saleId).orElse(null);
+        Sale sale = saleRepository.findById(saleId).orElse(null);
+
+        applyToDailyRollups(saleId, entry, sale, invalidateReports);
+        applyToProductRollups(saleId, sale);
+        applyToCustomerSketch(sale);
+    }
+
+    private void applyToDailyRollups(Long saleId, SaleRollupEntry entry, Sale sale, boolean invalidateReports) {
+        String previousTenantId = null;
+        LocalDate previousDay = null;
+        if (entry != null) {
+            if (sale != null && isCurrent(entry, sale)) {
+                log.debug("Daily rollups already reflect sale {}", saleId);
+                return;
+            }
+            addToDailyRollup(entry, -1);
+            addToHourlyRollup(entry, -1);
+            addToCashierShiftRollup(entry, -1, null);
+            previousTenantId = entry.getTenantId();
+            previousDay = entry.getSaleDate();
+        }
+
+        if (sale == null) {
+            if (entry != null) {
+                rollupEntryRepository.delete(entry);
+                if (invalidateReports) {
+                    invalidateReportsAfterCommit(previousTenantId, previousDay, previousDay);
+                }
+            }
+            return;
+        }
+
+        if (entry == null) {
+            entry = SaleRollupEntry.builder().saleId(saleId).build();
+        }
+        entry.setTenantId(sale.getTenantId());
+        entry.setSaleDate(sale.getCreatedAt().toLocalDate());
+        entry.setPaymentMethod(sale.getPaymentMethod());
+        entry.setStatus(sale.getStatus());
+        entry.setCashierId(sale.getCashierId());
+        entry.setTotalAmount(amount(sale.getTotalAmount()));
+        entry.setTaxAmount(amount(sale.getTaxAmount()));
+        entry.setDiscountAmount(amount(sale.getDiscountAmount()));
+        entry.setHeatmapCell(heatmapCell(sale.getCreatedAt(), TenantRegistry.getTimeZone(sale.getTenantId())));
+        Shift shift = shiftOf(sale.getCreatedAt(), TenantRegistry.getTimeZone(sale.getTenantId()), shiftStarts);
+        entry.setShiftDate(shift.date());
+        entry.setShiftNumber(shift.number());
+        entry.setItemCount(itemCount(sale));
+
+        addToDailyRollup(entry, 1);
+        addToHourlyRollup(entry, 1);
+        addToCashierShiftRollup(entry, 1, sale.getCreatedAt());
+        rollupEntryRepository.save(entry);
+        if (invalidateReports) {
+            if (previousDay != null && (!previousDay.equals(entry.getSaleDate())
+                    || !Objects.equals(previousTenantId, entry.getTenantId()))) {
+                invalidateReportsAfterCommit(previousTenantId, previousDay, previousDay);
+            }
+            invalidateReportsAfterCommit(entry.getTenantId(), entry.getSaleDate(), entry.getSaleDate());
+        }
+    }
+
+    /**
+     * Drop the cached report totals of changed days on every node once the rollup change has
+     * committed; a node reloading a day before then would cache the old totals again. Days that
+     * have not ended when the change commits are skipped, as no node caches them yet.
+     */
+    private void invalidateReportsAfterCommit(String tenantId, LocalDate firstDay, LocalDate lastDay) {
+        AfterCommit.run(() -> {
+            if (!firstDay.isBefore(LocalDate.now())) {
+                return;
+            }
+            reportResultCache.invalidate(tenantId, firstDay, lastDay);
+            eventPublisher.publishReportCacheEvent(new ReportCacheEvent(tenantId, "system", firstDay, lastDay));
+        });
+    }
+
+    /**
+     * Only completed sales count towards what was sold; a cancelled or refunded sale
+     * backs its items out again
+     */
+    private void applyToProductRollups(Long saleId, Sale sale) {
+        List<SaleItemRollupEntry> previous = itemEntryRepository.findBySaleId(saleId);
+        List<SaleItemRollupEntry> current = sale != null && sale.getStatus() == Sale.SaleStatus.COMPLETED
+                ? itemEntries(sale)
+                : List.of();
+        if (sameItems(previous, current)) {
+            return;
+        }
+
+        previous.forEach(item -> addToProductRollup(item, -1));
+        itemEntryRepository.deleteAll(previous);
+        current.forEach(item -> addToProductRollup(item, 1));
+        itemEntryRepository.saveAll(current);
+    }
+
+    /**
+     * Add the customer of a completed sale to the sketch of its day; the row is only locked and
+     * written when the customer changes the sketch, which repeat customers and repeated events do not
+     */
+    private void applyToCustomerSketch(Sale sale) {
+        String customerKey = sale != null && sale.getStatus() == Sale.SaleStatus.COMPLETED ? customerKey(sale) : null;
+        if (customerKey == null) {
+            return;
+        }
+        long hash = Hashing.hash64(customerKey);
+        LocalDate saleDate = sale.getCreatedAt().toLocalDate();
+        String rollupKey = RollupKey.of(sale.getTenantId(), saleDate);
+        // Read the bytes rather than the entity, so the locking read below is not served stale state
+        boolean changes = customerSketchRepository.findSketch(rollupKey)
+                .map(stored -> HyperLogLog.fromByteArray(stored).add(hash))
+                .orElse(true);
+        if (!changes) {
+            return;
+        }
+
+        HyperLogLog first = new HyperLogLog();
+        first.add(hash);
+        if (customerSketchRepository.insertIfAbsent(rollupKey, sale.getTenantId(), saleDate, first.toByteArray()) > 0) {
+            return;
+        }
+        CustomerDailySketch row = customerSketchRepository.findForUpdate(rollupKey)
+                .orElseThrow(() -> new IllegalStateException("Customer sketch " + rollupKey + " vanished"));
+        HyperLogLog sketch = HyperLogLog.fromByteArray(row.getSketch());
+        if (sketch.add(hash)) {
+            row.setSketch(sketch.toByteArray());
+            customerSketchRepository.save(row);
+        }
+    }
+
+    /**
+     * Normalised identity of a sale's customer: the e-mail address in lower case, else the digits
+     * of the phone number, or null for anonymous sales
+     */
+    static String customerKey(Sale sale) {
+        String email = sale.getCustomerEmail() != null ? sale.getCustomerEmail().trim().toLowerCase() : "";
+        if (!email.isEmpty()) {
+            return "email:" + email;
+        }
+        String phone = sale.getCustomerPhone() != null ? sale.getCustomerPhone().replaceAll("[^0-9]", "") : "";
+        return phone.isEmpty() ? null : "phone:" + phone;
+    }
+
+    /**
+     * Apply every sale of the current tenant in a date range, e.g. to backfill the rollups
+     * for sales recorded before they existed
+     * @param startDate the first day
+     * @param endDate the last day
+     * @return the number of sales applied
+     */
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        String tenantId = TenantContext.getCurrentTenant();
+        log.info("Rebuilding sales rollups for tenant {} between {} and {}", tenantId, startDate, endDate);
+
+        List<Long> saleIds = saleRepository.findIdsByCreatedAtBetweenAndTenantId(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay().minus(1, ChronoUnit.MICROS), tenantId);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < saleIds.size(); i += REBUILD_BATCH_SIZE) {
+            List<Long> batch = saleIds.subList(i, Math.min(i + REBUILD_BATCH_SIZE, saleIds.size()));
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(saleId -> apply(saleId, false)));
+        }
+        invalidateReportsAfterCommit(tenantId, startDate, endDate);
+        return saleIds.size();
+    }
+
+    /**
+     * The first writer of a key creates its row holding its contribution; everyone else adds to the
+     * row in place, so concurrent first writers neither fail nor lose an update
+     */
+    private void addToDailyRollup(SaleRollupEntry entry, int sign) {
+        String rollupKey = RollupKey.of(entry.getTenantId(), entry.getSaleDate(), entry.getPaymentMethod(),
+                entry.getStatus(), entry.getCashierId());
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        BigDecimal totalAmount = entry.getTotalAmount().multiply(factor);
+        BigDecimal taxAmount = entry.getTaxAmount().multiply(factor);
+        BigDecimal discountAmount = entry.getDiscountAmount().multiply(factor);
+        if (dailyRollupRepository.insertIfAbsent(rollupKey, entry.getTenantId(), entry.getSaleDate(),
+                name(entry.getPaymentMethod()), name(entry.getStatus()), entry.getCashierId(),
+                sign, totalAmount, taxAmount, discountAmount) == 0) {
+            dailyRollupRepository.increment(rollupKey, sign, totalAmount, taxAmount, discountAmount);
+        }
+    }
+
+    /**
+     * Only completed sales count towards the hourly heatmap
+     */
+    private void addToHourlyRollup(SaleRollupEntry entry, int sign) {
+        if (entry.getHeatmapCell() == null || entry.getStatus() != Sale.SaleStatus.COMPLETED) {
+            return;
+        }
+        int dayOfWeek = entry.getHeatmapCell() / 24 + 1;
+        int hourOfDay = entry.getHeatmapCell() % 24;
+        String rollupKey = RollupKey.of(entry.getTenantId(), dayOfWeek, hourOfDay);
+        BigDecimal totalAmount = entry.getTotalAmount().multiply(BigDecimal.valueOf(sign));
+        if (hourlyRollupRepository.insertIfAbsent(rollupKey, entry.getTenantId(), dayOfWeek, hourOfDay,
+                sign, totalAmount) == 0) {
+            hourlyRollupRepository.increment(rollupKey, sign, totalAmount);
+        }
+    }
+
+    /**
+     * The heatmap cell of an instant: (ISO day of week - 1) * 24 + hour, in the given zone.
+     * Sale timestamps are stored in the server's zone.
+     */
+    static int heatmapCell(LocalDateTime createdAt, ZoneId zone) {
+        ZonedDateTime local = createdAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(zone);
+        return (local.getDayOfWeek().getValue() - 1) * 24 + local.getHour();
+    }
+
+    /**
+     * Completed sales count towards a cashier's sales and refunded ones towards their refunds.
+     * Only adding a sale extends the shift's span, as the span of the remaining sales is not known.
+     */
+    private void addToCashierShiftRollup(SaleRollupEntry entry, int sign, LocalDateTime saleAt) {
+        boolean completed = entry.getStatus() == Sale.SaleStatus.COMPLETED;
+        if (entry.getShiftDate() == null || entry.getCashierId() == null
+                || !completed && entry.getStatus() != Sale.SaleStatus.REFUNDED) {
+            return;
+        }
+        String rollupKey = RollupKey.of(entry.getTenantId(), entry.getShiftDate(), entry.getShiftNumber(),
+                entry.getCashierId());
+        BigDecimal amount = entry.getTotalAmount().multiply(BigDecimal.valueOf(sign));
+        long items = entry.getItemCount() != null ? entry.getItemCount() : 0;
+        long saleCount = completed ? sign : 0;
+        BigDecimal revenue = completed ? amount : BigDecimal.ZERO;
+        long itemCount = completed ? sign * items : 0;
+        long refundCount = completed ? 0 : sign;
+        BigDecimal refundAmount = completed ? BigDecimal.ZERO : amount;
+        if (cashierShiftRepository.insertIfAbsent(rollupKey, entry.getTenantId(), entry.getShiftDate(),
+                entry.getShiftNumber(), entry.getCashierId(), saleCount, revenue, itemCount, refundCount,
+                refundAmount, saleAt) > 0) {
+            return;
+        }
+        cashierShiftRepository.increment(rollupKey, saleCount, revenue, itemCount, refundCount, refundAmount);
+        if (saleAt == null) {
+            return;
+        }
+
+        // The increment above holds the row lock, so the span read here cannot be overtaken
+        Object[] span = cashierShiftRepository.findSpan(rollupKey).get(0);
+        LocalDateTime first = span[0] != null && ((LocalDateTime) span[0]).isBefore(saleAt) ? (LocalDateTime) span[0] : saleAt;
+        LocalDateTime last = span[1] != null && ((LocalDateTime) span[1]).isAfter(saleAt) ? (LocalDateTime) span[1] : saleAt;
+        if (!first.equals(span[0]) || !last.equals(span[1])) {
+            cashierShiftRepository.setSpan(rollupKey, first, last, ChronoUnit.SECONDS.between(first, last));
+        }
+    }
+
+    /**
+     * A cashier shift: the tenant-local day it starts on and its 1-based number that day
+     */
+    record Shift(LocalDate date, int number) {
+    }
+
+    /**
+     * The shift an instant falls in, in the given zone; before the first start of a day it belongs
+     * to the last shift of the day before. Sale timestamps are stored in the server's zone.
+     */
+    static Shift shiftOf(LocalDateTime createdAt, ZoneId zone, List<LocalTime> shiftStarts) {
+        LocalDateTime local = createdAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(zone).toLocalDateTime();
+        for (int i = shiftStarts.size() - 1; i >= 0; i--) {
+            if (!local.toLocalTime().isBefore(shiftStarts.get(i))) {
+                return new Shift(local.toLocalDate(), i + 1);
+            }
+        }
+        return new Shift(local.toLocalDate().minusDays(1), shiftStarts.size());
+    }
+
+    static List<LocalTime> parseShiftStarts(String shiftStarts) {
+        List<LocalTime> starts = Arrays.stream(shiftStarts.split(","))
+                .map(String::trim)
+                .filter(start -> !start.isEmpty())
+                .map(LocalTime::parse)
+                .sorted()
+                .distinct()
+                .toList();
+        if (starts.isEmpty()) {
+            throw new IllegalArgumentException("At least one shift start is required");
+        }
+        return starts;
+    }
+
+    private static int itemCount(Sale sale) {
+        int items = 0;
+        for (SaleItem item : sale.getItems()) {
+            items += item.getQuantity() != null ? item.getQuantity() : 0;
+        }
+        return items;
+    }
+
+    private void addToProductRollup(SaleItemRollupEntry item, int sign) {
+        String rollupKey = RollupKey.of(item.getTenantId(), item.getSaleDate(), item.getProductId());
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        long quantity = sign * item.getQuantity();
+        BigDecimal revenue = item.getRevenue().multiply(factor);
+        BigDecimal discountAmount = item.getDiscountAmount().multiply(factor);
+        BigDecimal taxAmount = item.getTaxAmount().multiply(factor);
+        if (productRollupRepository.insertIfAbsent(rollupKey, item.getTenantId(), item.getSaleDate(),
+                item.getProductId(), item.getCategory(), quantity, revenue, discountAmount, taxAmount) == 0) {
+            productRollupRepository.increment(rollupKey, quantity, revenue, discountAmount, taxAmount);
+        }
+    }
+
+    /**
+     * One entry per product, summing lines that repeat a product
+     */
+    private static List<SaleItemRollupEntry> itemEntries(Sale sale) {
+        Map<Long, SaleItemRollupEntry> entries = new LinkedHashMap<>();
+        for (SaleItem item : sale.getItems()) {
+            Long productId = item.getProduct().getId();
+            SaleItemRollupEntry entry = entries.computeIfAbsent(productId, id -> SaleItemRollupEntry.builder()
+                    .saleId(sale.getId())
+                    .tenantId(sale.getTenantId())
+                    .saleDate(sale.getCreatedAt().toLocalDate())
+                    .productId(id)
+                    .category(item.getProduct().getCategory())
+                    .quantity(0)
+                    .revenue(BigDecimal.ZERO)
+                    .discountAmount(BigDecimal.ZERO)
+                    .taxAmount(BigDecimal.ZERO)
+                    .build());
+            entry.setQuantity(entry.getQuantity() + item.getQuantity());
+            entry.setRevenue(entry.getRevenue().add(amount(item.getSubtotal())));
+            entry.setDiscountAmount(entry.getDiscountAmount().add(amount(item.getDiscountAmount())));
+            entry.setTaxAmount(entry.getTaxAmount().add(amount(item.getTaxAmount())));
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    private static boolean sameItems(List<SaleItemRollupEntry> previous, List<SaleItemRollupEntry> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        Map<Long, SaleItemRollupEntry> byProduct = new LinkedHashMap<>();
+        previous.forEach(item -> byProduct.put(item.getProductId(), item));
+        for (SaleItemRollupEntry item : current) {
+            SaleItemRollupEntry other = byProduct.get(item.getProductId());
+            if (other == null
+                    || !Objects.equals(other.getSaleDate(), item.getSaleDate())
+                    || other.getQuantity() != item.getQuantity()
+                    || other.getRevenue().compareTo(item.getRevenue()) != 0
+                    || other.getDiscountAmount().compareTo(item.getDiscountAmount()) != 0
+                    || other.getTaxAmount().compareTo(item.getTaxAmount()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCurrent(SaleRollupEntry entry, Sale sale) {
+        return Objects.equals(entry.getTenantId(), sale.getTenantId())
+                && Objects.equals(entry.getSaleDate(), sale.getCreatedAt().toLocalDate())
+                && Objects.equals(entry.getHeatmapCell(),
+                        heatmapCell(sale.getCreatedAt(), TenantRegistry.getTimeZone(sale.getTenantId())))
+                && Objects.equals(new Shift(entry.getShiftDate(), entry.getShiftNumber() != null ? entry.getShiftNumber() : 0),
+                        shiftOf(sale.getCreatedAt(), TenantRegistry.getTimeZone(sale.getTenantId()), shiftStarts))
+                && Objects.equals(entry.getItemCount(), itemCount(sale))
+                && entry.getPaymentMethod() == sale.getPaymentMethod()
+                && entry.getStatus() == sale.getStatus()
+                && Objects.equals(entry.getCashierId(), sale.getCashierId())
+                && entry.getTotalAmount().compareTo(amount(sale.getTotalAmount())) == 0
+                && entry.getTaxAmount().compareTo(amount(sale.getTaxAmount())) == 0
+                && entry.getDiscountAmount().compareTo(amount(sale.getDiscountAmount())) == 0;
+    }
+
+    private static BigDecimal amount(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
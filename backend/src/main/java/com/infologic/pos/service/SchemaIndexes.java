@@ -0,0 +1,172 @@
+package com.infologic.pos.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The PostgreSQL indexes one kind of search needs, built in each schema the first time one of its
+ * tenants searches, so dedicated schemas that appear after startup are indexed too.
+ * <p>
+ * Builds run on a background thread with {@code CREATE INDEX CONCURRENTLY} on the pool's autocommit
+ * connections, outside any transaction, so writes to the table carry on and no search waits: until
+ * a schema's indexes are built its searches take the slower path. An index left invalid by an interrupted build is dropped
+ * and built again, unless a build of it is still running elsewhere, in which case the schema is
+ * looked at again later. A schema only counts as indexed once every index is valid. After a
+ * failure, for example in a dedicated schema whose tables do not exist yet, the build is tried
+ * again by a later search, at most once per retry interval.
+ */
+@Slf4j
+class SchemaIndexes {
+
+    private static final long RETRY_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    // Unquoted names are folded to lower case in the catalog
+    private static final String INDEX_STATE = "SELECT i.indisvalid AS valid, "
+            + "EXISTS (SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = i.indexrelid) AS building "
+            + "FROM pg_index i "
+            + "JOIN pg_class c ON c.oid = i.indexrelid "
+            + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE n.nspname = ? AND c.relname = ?";
+
+    /**
+     * An index to build in every schema
+     * @param name       the index name, unqualified and in lower case
+     * @param definition what follows the name in {@code CREATE INDEX}, with a {@code %s} for the schema
+     */
+    record Index(String name, String definition) {
+    }
+
+    private final String search;
+    private final List<Index> indexes;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final LongSupplier epochMillis;
+    private final Set<String> indexedSchemas = ConcurrentHashMap.newKeySet();
+    private final Set<String> buildingSchemas = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> failedAt = new ConcurrentHashMap<>();
+
+    /**
+     * @param search     the search, for the log and the name of the build thread
+     * @param indexes    the indexes
+     * @param dataSource the database
+     */
+    SchemaIndexes(String search, List<Index> indexes, DataSource dataSource) {
+        // One build at a time per search; a daemon, as an interrupted build is cleaned up by the next
+        this(search, indexes, new JdbcTemplate(dataSource), Executors.newSingleThreadExecutor(
+                daemon(new CustomizableThreadFactory(search.replace(' ', '-') + "-indexes-"))),
+                System::currentTimeMillis);
+    }
+
+    SchemaIndexes(String search, List<Index> indexes, JdbcTemplate jdbcTemplate, Executor executor,
+            LongSupplier epochMillis) {
+        this.search = search;
+        this.indexes = indexes;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Whether a schema has the indexes, starting their build in the background unless one is
+     * running or failed within the retry interval
+     * @param schema the schema
+     * @return whether the schema has the indexes
+     */
+    boolean ensure(String schema) {
+        if (indexedSchemas.contains(schema)) {
+            return true;
+        }
+        Long failed = failedAt.get(schema);
+        if (failed != null && epochMillis.getAsLong() - failed < RETRY_INTERVAL_MILLIS) {
+            return false;
+        }
+        if (buildingSchemas.add(schema)) {
+            try {
+                executor.execute(() -> build(schema));
+            } catch (RejectedExecutionException e) {
+                buildingSchemas.remove(schema);
+                log.warn("Could not start building {} indexes in schema {}: {}", search, schema, e.getMessage());
+            }
+        }
+        return indexedSchemas.contains(schema);
+    }
+
+    /**
+     * Get the schemas with the indexes
+     * @return the schema names
+     */
+    Set<String> getIndexedSchemas() {
+        return Set.copyOf(indexedSchemas);
+    }
+
+    private void build(String schema) {
+        try {
+            for (Index index : indexes) {
+                if (!build(schema, index)) {
+                    failedAt.put(schema, epochMillis.getAsLong());
+                    return;
+                }
+            }
+            failedAt.remove(schema);
+            indexedSchemas.add(schema);
+            log.info("Created {} indexes in schema {}", search, schema);
+        } catch (RuntimeException e) {
+            failedAt.put(schema, epochMillis.getAsLong());
+            log.warn("Could not create {} indexes in schema {}: {}", search, schema, e.getMessage());
+        } finally {
+            buildingSchemas.remove(schema);
+        }
+    }
+
+    /**
+     * @return whether the index is valid, rather than still being built by another session
+     */
+    private boolean build(String schema, Index index) {
+        Map<String, Object> state = state(schema, index);
+        if (state != null && !isTrue(state, "valid") && !isTrue(state, "building")) {
+            log.warn("Dropping the invalid {} index {}.{} left by an interrupted build", search, schema, index.name());
+            jdbcTemplate.execute(String.format("DROP INDEX CONCURRENTLY IF EXISTS %s.%s", schema, index.name()));
+            state = null;
+        }
+        if (state == null) {
+            jdbcTemplate.execute(String.format("CREATE INDEX CONCURRENTLY IF NOT EXISTS %s %s",
+                    index.name(), String.format(index.definition(), schema)));
+            // A build started elsewhere since the state was read is skipped by IF NOT EXISTS
+            state = state(schema, index);
+        }
+        if (state != null && isTrue(state, "valid")) {
+            return true;
+        }
+        log.info("The {} index {}.{} is still being built elsewhere", search, schema, index.name());
+        return false;
+    }
+
+    private Map<String, Object> state(String schema, Index index) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(INDEX_STATE, schema.toLowerCase(Locale.ROOT), index.name());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static boolean isTrue(Map<String, Object> state, String column) {
+        return Boolean.TRUE.equals(state.get(column));
+    }
+
+    private static CustomizableThreadFactory daemon(CustomizableThreadFactory threadFactory) {
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,211 @@
+package com.infologic.pos.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.RevokedToken;
+import com.infologic.pos.repository.RevokedTokenRepository;
+import com.infologic.pos.security.JwtClaims;
+import com.infologic.pos.sketch.BloomFilter;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks JWTs revoked before their expiry.
+ * <p>
+ * Every authenticated request checks the in-memory Bloom filter first, so the common case of a
+ * token that was never revoked costs no database access. Filter hits are confirmed against the
+ * {@code revoked_tokens} table, which is also reloaded periodically to pick up revocations made
+ * on other nodes.
+ * <p>
+ * Changes to a user's password, roles or account status revoke every token issued to the user
+ * before the change, so a principal built from the claims of an older token is never trusted.
+ * These user-wide revocations are few and kept in memory in full.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${security.jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${security.jwt.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${jwt.expiration}")
+    private long jwtExpirationMs;
+
+    private volatile BloomFilter revokedTokens;
+
+    // User-wide revocation ID to the time before which the user's tokens are revoked
+    private volatile Map<String, LocalDateTime> userRevocations = new ConcurrentHashMap<>();
+
+    // Revocations made on this node while the filter is being rebuilt
+    private final Set<String> recentlyRevoked = ConcurrentHashMap.newKeySet();
+    private final Map<String, LocalDateTime> recentUserRevocations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        revokedTokens = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    /**
+     * Revoke a token until it expires
+     * @param claims the verified claims of the token
+     */
+    public void revoke(JwtClaims claims) {
+        if (claims.getTokenId() == null) {
+            throw new IllegalArgumentException("Token has no ID and cannot be revoked");
+        }
+        log.info("Revoking token {} of user {}", claims.getTokenId(), claims.getUsername());
+
+        RevokedToken revokedToken = RevokedToken.builder()
+                .tokenId(claims.getTokenId())
+                .username(claims.getUsername())
+                .tenantId(claims.getTenantId())
+                .expiresAt(LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()))
+                .revokedAt(LocalDateTime.now())
+                .build();
+        inDefaultSchema(() -> newTransaction().execute(status -> revokedTokenRepository.save(revokedToken)));
+
+        recentlyRevoked.add(claims.getTokenId());
+        revokedTokens.put(claims.getTokenId());
+    }
+
+    /**
+     * Revoke every token of a user issued until now, e.g. after a password or role change
+     * @param tenantId the user's tenant ID
+     * @param username the username
+     */
+    public void revokeUserTokens(String tenantId, String username) {
+        log.info("Revoking all tokens of user {} in tenant {}", username, tenantId);
+        String revocationId = userRevocationId(tenantId, username);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Tokens issued before now expire within one token lifetime
+        RevokedToken revokedToken = RevokedToken.builder()
+                .tokenId(revocationId)
+                .username(username)
+                .tenantId(tenantId)
+                .expiresAt(now.plus(jwtExpirationMs, ChronoUnit.MILLIS))
+                .revokedAt(now)
+                .userWide(true)
+                .build();
+        inDefaultSchema(() -> newTransaction().execute(status -> revokedTokenRepository.save(revokedToken)));
+
+        recentUserRevocations.put(revocationId, now);
+        userRevocations.put(revocationId, now);
+    }
+
+    /**
+     * Check whether a token has been revoked, by itself or with all tokens of its user
+     * @param claims the verified claims of the token
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        LocalDateTime userRevokedAt = userRevocations.get(userRevocationId(claims.getTenantId(), claims.getUsername()));
+        if (userRevokedAt != null && isIssuedBefore(claims, userRevokedAt)) {
+            return true;
+        }
+        String tokenId = claims.getTokenId();
+        if (tokenId == null || !revokedTokens.mightContain(tokenId)) {
+            return false;
+        }
+        // Possible false positive, confirm against the table
+        return inDefaultSchema(() -> revokedTokenRepository.existsById(tokenId));
+    }
+
+    /**
+     * Rebuild the filter from the revocation table and purge expired entries
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            recentlyRevoked.clear();
+            recentUserRevocations.clear();
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, LocalDateTime> users = new ConcurrentHashMap<>();
+            List<String> activeTokenIds = inDefaultSchema(() -> newTransaction().execute(status -> {
+                revokedTokenRepository.deleteExpired(now);
+                revokedTokenRepository.findActiveUserRevocations(now)
+                        .forEach(revoked -> users.put(revoked.getTokenId(), revoked.getRevokedAt()));
+                return revokedTokenRepository.findActiveTokenIds(now);
+            }));
+
+            BloomFilter filter = new BloomFilter(Math.max(expectedEntries, activeTokenIds.size()), falsePositiveRate);
+            activeTokenIds.forEach(filter::put);
+            revokedTokens = filter;
+            recentlyRevoked.forEach(filter::put);
+            userRevocations = users;
+            users.putAll(recentUserRevocations);
+            log.debug("Revocation filter rebuilt with {} tokens ({} bytes)", activeTokenIds.size(), filter.sizeInBytes());
+        } catch (Exception e) {
+            log.error("Could not refresh token revocation filter", e);
+        }
+    }
+
+    /**
+     * The ID of a user-wide revocation, a name-based UUID so it fits the token ID column
+     */
+    static String userRevocationId(String tenantId, String username) {
+        return UUID.nameUUIDFromBytes(("user:" + tenantId + ':' + username).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Issue times have a precision of seconds; a token issued within the second of the revocation
+     * is kept, so a user signing in right after a change is not locked out
+     */
+    private static boolean isIssuedBefore(JwtClaims claims, LocalDateTime revokedAt) {
+        if (claims.getIssuedAt() == null) {
+            return true;
+        }
+        LocalDateTime issuedAt = LocalDateTime.ofInstant(claims.getIssuedAt().toInstant(), ZoneId.systemDefault());
+        return issuedAt.isBefore(revokedAt.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * Revocations are shared by all tenants and live in the default schema
+     */
+    private <T> T inDefaultSchema(Supplier<T> action) {
+        String previousTenant = TenantContext.getCurrentTenant();
+        TenantContext.setCurrentTenant(TenantRegistry.DEFAULT_SCHEMA);
+        try {
+            return action.get();
+        } finally {
+            if (previousTenant != null) {
+                TenantContext.setCurrentTenant(previousTenant);
+            } else {
+                TenantContext.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.infologic.pos.service;
+
+import com.infologic.pos.event.UserEvent;
+
+/**
+ * Broadcasts user account changes so every node drops its cached copy of the user.
+ */
+public interface UserCacheInvalidationBus {
+
+    /**
+     * Publish a user change to all nodes, including this one
+     * @param event the user event
+     */
+    void publish(UserEvent event);
+}
@@ -1,25 +1,113 @@
 package com.infologic.pos.service;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.User;
 import com.infologic.pos.repository.UserRepository;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
+    @Value("${security.user-cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+
+    @Value("${security.user-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Users keyed by tenant and username; entries are evicted on account changes via UserCacheInvalidationBus
+    private Cache<String, User> userCache;
+
+    @PostConstruct
+    void init() {
+        userCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+    }
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        User user = userCache.get(cacheKey(TenantContext.getCurrentTenant(), username),
+                key -> userRepository.findByUsername(username).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return user;
+    }
+
+    /**
+     * Store a re-hashed password after a successful login, called when the configured BCrypt cost changed
+     * @param user the authenticated user
+     * @param newPassword the password encoded with the current settings
+     * @return the updated user
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User storedUser = userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + user.getUsername()));
+        log.info("Upgrading password hash of user {}", storedUser.getUsername());
+        
+        storedUser.setPassword(newPassword);
+        User updatedUser = userRepository.save(storedUser);
+        AfterCommit.run(() -> evict(updatedUser.getTenantId(), updatedUser.getUsername()));
+        return updatedUser;
+    }
+
+    /**
+     * Remove a user from the cache so the next lookup reads the database.
+     * Lookups made before a tenant is known (e.g. at login) are cached under the default tenant,
+     * so both entries are removed.
+     * @param tenantId tenant ID
+     * @param username username
+     */
+    public void evict(String tenantId, String username) {
+        log.debug("Evicting cached user {} of tenant {}", username, tenantId);
+        userCache.invalidate(cacheKey(tenantId, username));
+        userCache.invalidate(cacheKey(null, username));
+    }
+
+    /**
+     * Get cache statistics
+     * @return hit and miss counts, hit ratio, evictions and current size
+     */
+    public Map<String, Object> getCacheStatistics() {
+        CacheStats stats = userCache.stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("size", userCache.estimatedSize());
+        statistics.put("hitCount", stats.hitCount());
+        statistics.put("missCount", stats.missCount());
+        statistics.put("hitRatio", stats.hitRate());
+        statistics.put("evictionCount", stats.evictionCount());
+        return statistics;
+    }
+
+    private static String cacheKey(String tenantId, String username) {
+        return (tenantId != null ? tenantId : TenantRegistry.DEFAULT_SCHEMA) + ':' + username;
     }
-} 
\ No newline at end of file
+}
@@ -5,6 +5,7 @@ import com.infologic.pos.config.tenant.TenantContext;
 import com.infologic.pos.event.InventoryEvent;
 import com.infologic.pos.model.Product;
 import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.service.InventoryValuationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -21,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class InventoryEventConsumer {
 
     private final ProductRepository productRepository;
+    private final InventoryValuationService inventoryValuationService;
 
     /**
      * Processes inventory events from the inventory topic.
@@ -67,6 +69,11 @@ public class InventoryEventConsumer {
                     log.warn("Unknown inventory event type: {}", event.getEventType());
             }
             
+            // Keep the stock valuation in step with the product's new state
+            if (event.getProduct() != null && event.getProduct().getId() != null) {
+                inventoryValuationService.apply(event.getProduct().getId());
+            }
+            
             // Acknowledge the message
             ack.acknowledge();
         } catch (Exception e) {
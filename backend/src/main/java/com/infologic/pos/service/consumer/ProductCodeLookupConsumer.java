@@ -0,0 +1,62 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.InventoryEvent;
+import com.infologic.pos.search.ProductCodeLookup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service keeping the barcode and SKU lookup tables current.
+ * Every node uses its own consumer group because each one holds its own tables.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "products.code-lookup.enabled", havingValue = "true")
+public class ProductCodeLookupConsumer {
+
+    private final ProductCodeLookup productCodeLookup;
+
+    /**
+     * Processes inventory events from the inventory topic.
+     *
+     * @param event The inventory event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.INVENTORY_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-product-codes-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeInventoryEvent(InventoryEvent event, Acknowledgment ack) {
+        try {
+            if (event.getProduct() == null || event.getEventType() == null) {
+                return;
+            }
+            switch (event.getEventType()) {
+                case PRODUCT_CREATED:
+                case STOCK_INCREASED:
+                case STOCK_DECREASED:
+                    productCodeLookup.onProduct(event.getTenantId(), event.getProduct());
+                    break;
+                // Edits may change the codes, and synced or recounted products may lose to a newer version
+                case PRODUCT_UPDATED:
+                case SYNCED:
+                case DISCREPANCY_DETECTED:
+                    productCodeLookup.onProductChanged(event.getTenantId(), event.getProduct());
+                    break;
+                default:
+                    // Alerts do not change the product
+                    break;
+            }
+        } catch (Exception e) {
+            log.error("Error applying inventory event to the product code tables: {}", event, e);
+        } finally {
+            // A missed event is corrected when the tenant's table reaches its maximum age
+            ack.acknowledge();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.InventoryEvent;
+import com.infologic.pos.search.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service keeping the in-memory product search indexes current.
+ * Every node uses its own consumer group because each one holds its own indexes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "products.search.index.enabled", havingValue = "true")
+public class ProductSearchIndexConsumer {
+
+    private final ProductSearchIndex productSearchIndex;
+
+    /**
+     * Processes inventory events from the inventory topic.
+     *
+     * @param event The inventory event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.INVENTORY_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-product-search-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeInventoryEvent(InventoryEvent event, Acknowledgment ack) {
+        try {
+            if (event.getProduct() == null || event.getEventType() == null) {
+                return;
+            }
+            switch (event.getEventType()) {
+                case PRODUCT_CREATED:
+                case PRODUCT_UPDATED:
+                case SYNCED:
+                // Stock changes carry the saved product too, keeping the stock shown in results current
+                case STOCK_INCREASED:
+                case STOCK_DECREASED:
+                    productSearchIndex.onProduct(event.getTenantId(), event.getProduct());
+                    break;
+                default:
+                    // Alerts and discrepancies do not change what is searched
+                    break;
+            }
+        } catch (Exception e) {
+            log.error("Error applying inventory event to the product search index: {}", event, e);
+        } finally {
+            // A missed event is picked up by the next reload of the tenant's index
+            ack.acknowledge();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.ReportCacheEvent;
+import com.infologic.pos.service.ReportResultCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service dropping cached report totals of the days whose daily rollups changed,
+ * as broadcast by {@code SalesRollupService} once the change has committed.
+ * Every node uses its own consumer group because each one holds its own cache.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "reports.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ReportCacheConsumer {
+
+    private final ReportResultCache reportResultCache;
+
+    /**
+     * Processes report cache events from the report cache topic.
+     *
+     * @param event The report cache event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.REPORT_CACHE_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-report-cache-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeReportCacheEvent(ReportCacheEvent event, Acknowledgment ack) {
+        try {
+            if (event.getFirstDay() == null || event.getLastDay() == null) {
+                reportResultCache.invalidateTenant(event.getTenantId());
+            } else {
+                reportResultCache.invalidate(event.getTenantId(), event.getFirstDay(), event.getLastDay());
+            }
+        } catch (Exception e) {
+            log.error("Error applying report cache event: {}", event, e);
+            reportResultCache.invalidateTenant(event.getTenantId());
+        } finally {
+            // A missed invalidation is bounded by reports.cache.ttl-minutes
+            ack.acknowledge();
+        }
+    }
+}
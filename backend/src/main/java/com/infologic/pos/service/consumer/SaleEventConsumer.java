@@ -5,6 +5,7 @@ import com.infologic.pos.config.tenant.TenantContext;
 import com.infologic.pos.event.SaleEvent;
 import com.infologic.pos.model.Sale;
 import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.service.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -21,14 +22,17 @@ import org.springframework.transaction.annotation.Transactional;
 public class SaleEventConsumer {
 
     private final SaleRepository saleRepository;
+    private final SalesRollupService salesRollupService;
 
     /**
-     * Processes sale events from the sales topic.
+     * Processes sale events from the sales topic. A failure is rethrown, so the event is retried
+     * and finally sent to {@link KafkaConfig#SALES_DLT_TOPIC} instead of being lost.
      *
      * @param event The sale event to process
      * @param ack The acknowledgment to manually acknowledge the message
      */
-    @KafkaListener(topics = KafkaConfig.SALES_TOPIC, groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = KafkaConfig.SALES_TOPIC, groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = KafkaConfig.SALE_EVENT_LISTENER_FACTORY)
     @Transactional
     public void consumeSaleEvent(SaleEvent event, Acknowledgment ack) {
         try {
@@ -37,6 +41,13 @@ public class SaleEventConsumer {
             // Set the tenant context for multi-tenancy
             TenantContext.setCurrentTenant(event.getTenantId());
             
+            // Sales are never deleted and their events are sent after commit, so a sale that
+            // cannot be read yet is retried rather than left out of the rollups
+            Long saleId = event.getSale() != null ? event.getSale().getId() : null;
+            if (saleId != null && !saleRepository.existsById(saleId)) {
+                throw new IllegalStateException("Sale " + saleId + " not found");
+            }
+            
             // Process the event based on its type
             switch (event.getEventType()) {
                 case CREATED:
@@ -64,13 +75,18 @@ public class SaleEventConsumer {
                     log.warn("Unknown sale event type: {}", event.getEventType());
             }
             
+            // Keep the daily rollups in step with the sale's new state
+            if (saleId != null) {
+                salesRollupService.apply(saleId);
+            }
+            
             // Acknowledge the message
             ack.acknowledge();
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
+            // Left unacknowledged: the container retries the event, then sends it to the
+            // dead-letter topic
             log.error("Error processing sale event: {}", event, e);
-            // You could implement retry logic or dead-letter queue here
-            // For now, just acknowledge to prevent redelivery
-            ack.acknowledge();
+            throw e;
         } finally {
             // Clear the tenant context
             TenantContext.clear();
@@ -0,0 +1,47 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.analytics.SalesColumnarCache;
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.SaleEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service keeping the in-memory sales analytics cache current.
+ * Every node uses its own consumer group because each one holds its own copy of the sales.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "analytics.columnar.enabled", havingValue = "true")
+public class SalesAnalyticsConsumer {
+
+    private final SalesColumnarCache columnarCache;
+
+    /**
+     * Processes sale events from the sales topic.
+     *
+     * @param event The sale event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.SALES_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-analytics-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeSaleEvent(SaleEvent event, Acknowledgment ack) {
+        try {
+            if (event.getSale() != null) {
+                columnarCache.onSale(event.getTenantId(), event.getSale());
+            }
+        } catch (Exception e) {
+            log.error("Error applying sale event to the analytics cache: {}", event, e);
+            columnarCache.invalidate(event.getTenantId());
+        } finally {
+            // Acknowledge the message, anything missed is picked up by the periodic reload
+            ack.acknowledge();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.analytics.TopProductsSketch;
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.SaleEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service feeding completed sales into the live top products sketches.
+ * Every node uses its own consumer group because each one holds its own sketches.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "analytics.top-products.enabled", havingValue = "true", matchIfMissing = true)
+public class TopProductsConsumer {
+
+    private final TopProductsSketch topProductsSketch;
+
+    /**
+     * Processes sale events from the sales topic.
+     *
+     * @param event The sale event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.SALES_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-top-products-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeSaleEvent(SaleEvent event, Acknowledgment ack) {
+        try {
+            if (event.getSale() != null) {
+                topProductsSketch.onSale(event.getTenantId(), event.getSale());
+            }
+        } catch (Exception e) {
+            log.error("Error applying sale event to the top products sketches: {}", event, e);
+        } finally {
+            // The sketches are approximate, a lost event only makes them slightly less so
+            ack.acknowledge();
+        }
+    }
+}
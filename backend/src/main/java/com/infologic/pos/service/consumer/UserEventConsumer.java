@@ -0,0 +1,45 @@
+package com.infologic.pos.service.consumer;
+
+import com.infologic.pos.config.KafkaConfig;
+import com.infologic.pos.event.UserEvent;
+import com.infologic.pos.service.UserDetailsServiceImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Consumer service for processing user events from Kafka.
+ * Every node uses its own consumer group so that each one evicts its cached copy of the user.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "security.user-cache.invalidation", havingValue = "kafka", matchIfMissing = true)
+public class UserEventConsumer {
+
+    private final UserDetailsServiceImpl userDetailsService;
+
+    /**
+     * Processes user events from the user topic.
+     *
+     * @param event The user event to process
+     * @param ack The acknowledgment to manually acknowledge the message
+     */
+    @KafkaListener(topics = KafkaConfig.USER_TOPIC,
+                   groupId = "${spring.kafka.consumer.group-id}-users-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void consumeUserEvent(UserEvent event, Acknowledgment ack) {
+        try {
+            log.info("Consuming user event: {}", event);
+            userDetailsService.evict(event.getTenantId(), event.getUsername());
+        } catch (Exception e) {
+            log.error("Error processing user event: {}", event, e);
+        } finally {
+            // Acknowledge the message, a missed eviction is bounded by the cache TTL
+            ack.acknowledge();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.infologic.pos.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit hashing shared by the probabilistic data structures in this package.
+ * Uses FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer to spread the bits.
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+        // Utility class
+    }
+
+    /**
+     * Hash a string to 64 bits
+     * @param value the value to hash
+     * @return the hash
+     */
+    public static long hash64(String value) {
+        return hash64(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash a byte array to 64 bits
+     * @param bytes the bytes to hash
+     * @return the hash
+     */
+    public static long hash64(byte[] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * Hash a long to 64 bits
+     * @param value the value to hash
+     * @return the hash
+     */
+    public static long hash64(long value) {
+        return mix64(value ^ FNV_OFFSET_BASIS);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer
+     * @param h the value to mix
+     * @return the mixed value
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,161 @@
+package com.infologic.pos.sketch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog estimate of the number of distinct values in a stream.
+ * <p>
+ * With precision {@code p} the sketch holds {@code 2^p} one-byte registers and estimates with a
+ * standard error of about {@code 1.04 / sqrt(2^p)}, 1.6% for the default of 12. Sketches of the
+ * same precision merge losslessly, so the count over a union of streams is the estimate of the
+ * merged sketches. Sparsely filled sketches serialise to index/value pairs. Not thread-safe.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 16;
+    private static final int SPARSE_FLAG = 0x80;
+    private static final int SPARSE_ENTRY_BYTES = 3;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Create an empty sketch
+     * @param precision number of index bits, between 4 and 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Add a value by its 64-bit hash
+     * @param hash the hash of the value, e.g. from {@link Hashing#hash64(String)}
+     * @return whether the sketch changed
+     */
+    public boolean add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // The guard bit caps the rank when the remaining bits are all zero
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] >= rank) {
+            return false;
+        }
+        registers[index] = rank;
+        return true;
+    }
+
+    /**
+     * Add every value of another sketch to this one
+     * @param other a sketch of the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimate the number of distinct values added
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate while many registers are still empty
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Relative standard error of the estimate
+     */
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Serialise the sketch; a sketch with few filled registers is stored as index/value pairs
+     * @return the precision, flagged when sparse, followed by the registers
+     */
+    public byte[] toByteArray() {
+        int filled = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                filled++;
+            }
+        }
+        if (filled * SPARSE_ENTRY_BYTES >= registers.length) {
+            ByteBuffer dense = ByteBuffer.allocate(1 + registers.length);
+            dense.put((byte) precision).put(registers);
+            return dense.array();
+        }
+        ByteBuffer sparse = ByteBuffer.allocate(1 + filled * SPARSE_ENTRY_BYTES);
+        sparse.put((byte) (precision | SPARSE_FLAG));
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                sparse.putShort((short) i).put(registers[i]);
+            }
+        }
+        return sparse.array();
+    }
+
+    /**
+     * Read a sketch written by {@link #toByteArray()}
+     * @param bytes the serialised sketch
+     * @return the sketch
+     */
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Empty HyperLogLog sketch");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int header = buffer.get() & 0xff;
+        HyperLogLog sketch = new HyperLogLog(header & ~SPARSE_FLAG);
+        if ((header & SPARSE_FLAG) == 0) {
+            if (buffer.remaining() != sketch.registers.length) {
+                throw new IllegalArgumentException("Truncated HyperLogLog sketch");
+            }
+            buffer.get(sketch.registers);
+            return sketch;
+        }
+        if (buffer.remaining() % SPARSE_ENTRY_BYTES != 0) {
+            throw new IllegalArgumentException("Truncated HyperLogLog sketch");
+        }
+        while (buffer.hasRemaining()) {
+            int index = buffer.getShort() & 0xffff;
+            if (index >= sketch.registers.length) {
+                throw new IllegalArgumentException("Corrupt HyperLogLog sketch");
+            }
+            sketch.registers[index] = buffer.get();
+        }
+        return sketch;
+    }
+}
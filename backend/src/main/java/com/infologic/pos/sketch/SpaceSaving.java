@@ -0,0 +1,166 @@
+package com.infologic.pos.sketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the heaviest keys of a weighted stream, in fixed memory.
+ * <p>
+ * At most {@code capacity} keys are monitored. A new key that does not fit replaces the key with
+ * the smallest count and inherits that count as its error, so every reported count is an upper
+ * bound of the true weight and exceeds it by at most the reported error. Any key whose true weight
+ * is above {@code total / capacity} is guaranteed to be monitored. Not thread-safe.
+ */
+public class SpaceSaving {
+
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+
+    /**
+     * One monitored key
+     * @param key the key
+     * @param count upper bound of the key's weight
+     * @param error how much the count may overestimate the weight
+     */
+    public record Entry(long key, long count, long error) {
+
+        /**
+         * Guaranteed lower bound of the key's weight
+         */
+        public long lowerBound() {
+            return count - error;
+        }
+    }
+
+    /**
+     * Create a summary
+     * @param capacity the number of keys monitored
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+    }
+
+    /**
+     * Add weight to a key
+     * @param key the key
+     * @param weight the weight, positive
+     */
+    public void add(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                counts[i] += weight;
+                return;
+            }
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            size++;
+            return;
+        }
+        int min = minIndex();
+        keys[min] = key;
+        errors[min] = counts[min];
+        counts[min] += weight;
+    }
+
+    /**
+     * The most a key that is not monitored can weigh
+     */
+    public long minCount() {
+        return size < keys.length ? 0 : counts[minIndex()];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Forget every key
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Memory held by the summary's arrays
+     */
+    public long sizeInBytes() {
+        return (long) keys.length * Long.BYTES * 3;
+    }
+
+    /**
+     * The heaviest monitored keys
+     * @param k how many keys
+     * @return up to k entries, heaviest first
+     */
+    public List<Entry> top(int k) {
+        return merge(List.of(this), k);
+    }
+
+    /**
+     * Combine summaries of disjoint parts of a stream and return the heaviest keys.
+     * A key missing from a summary may still weigh up to that summary's minimum count, which is
+     * added to both its count and its error.
+     * @param summaries the summaries
+     * @param k how many keys
+     * @return up to k entries, heaviest first
+     */
+    public static List<Entry> merge(List<SpaceSaving> summaries, int k) {
+        long minSum = 0;
+        Map<Long, long[]> totals = new HashMap<>();
+        for (SpaceSaving summary : summaries) {
+            long min = summary.minCount();
+            minSum += min;
+            for (int i = 0; i < summary.size; i++) {
+                // Count, error and the minimums of the summaries that hold the key
+                long[] total = totals.computeIfAbsent(summary.keys[i], key -> new long[3]);
+                total[0] += summary.counts[i];
+                total[1] += summary.errors[i];
+                total[2] += min;
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, long[]> total : totals.entrySet()) {
+            long absent = minSum - total.getValue()[2];
+            entries.add(new Entry(total.getKey(), total.getValue()[0] + absent, total.getValue()[1] + absent));
+        }
+        entries.sort(Comparator.comparingLong(Entry::count).reversed().thenComparingLong(Entry::key));
+        return entries.size() > k ? entries.subList(0, k) : entries;
+    }
+
+    private int minIndex() {
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public String toString() {
+        return "SpaceSaving" + Arrays.toString(Arrays.copyOf(keys, size));
+    }
+}
@@ -0,0 +1,121 @@
+package com.infologic.pos.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.infologic.pos.model.Sale;
+
+class SalesColumnsTest {
+
+    // Above the parallel threshold so slices are split across the fork-join pool
+    private static final int ROWS = 200_000;
+    private static final int FIRST_DAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+    private static final int DAYS = 90;
+
+    private record Generated(int day, long cents, byte status, byte method, long cashierId) {
+    }
+
+    private final List<Generated> generated = new ArrayList<>();
+    private SalesColumns columns;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        columns = new SalesColumns();
+        for (int i = 1; i <= ROWS; i++) {
+            Generated sale = new Generated(
+                    FIRST_DAY + random.nextInt(DAYS),
+                    100 + random.nextInt(100_000),
+                    (byte) random.nextInt(Sale.SaleStatus.values().length),
+                    random.nextInt(20) == 0 ? SalesColumns.MISSING : (byte) random.nextInt(Sale.PaymentMethod.values().length),
+                    random.nextInt(10) == 0 ? SalesColumns.NO_CASHIER : 1 + random.nextInt(25));
+            generated.add(sale);
+            assertThat(columns.upsert(i, sale.day(), sale.cents(), sale.status(), sale.method(), sale.cashierId())).isTrue();
+        }
+    }
+
+    @Test
+    void slicesMatchAFullScanForEveryDimension() {
+        SalesColumns.Filter filter = new SalesColumns.Filter(FIRST_DAY + 10, FIRST_DAY + 40,
+                SalesColumns.ANY, (byte) Sale.SaleStatus.COMPLETED.ordinal(), SalesColumns.ANY_CASHIER);
+
+        for (SliceDimension dimension : SliceDimension.values()) {
+            assertThat(toMap(columns.slice(filter, dimension)))
+                    .as(dimension.name())
+                    .isEqualTo(expected(filter, dimension));
+        }
+    }
+
+    @Test
+    void filtersByPaymentMethodAndCashier() {
+        SalesColumns.Filter filter = new SalesColumns.Filter(FIRST_DAY, FIRST_DAY + DAYS,
+                (byte) Sale.PaymentMethod.CASH.ordinal(), SalesColumns.ANY, 7);
+
+        assertThat(toMap(columns.slice(filter, SliceDimension.DAY))).isEqualTo(expected(filter, SliceDimension.DAY));
+    }
+
+    @Test
+    void updatesExistingSalesInPlace() {
+        SalesColumns.Filter all = new SalesColumns.Filter(FIRST_DAY, FIRST_DAY + DAYS,
+                SalesColumns.ANY, SalesColumns.ANY, SalesColumns.ANY_CASHIER);
+        long before = columns.slice(all, SliceDimension.NONE).get(0).count();
+
+        Generated first = generated.get(0);
+        assertThat(columns.upsert(1, first.day(), first.cents(), (byte) Sale.SaleStatus.REFUNDED.ordinal(),
+                first.method(), first.cashierId())).isTrue();
+
+        assertThat(columns.size()).isEqualTo(ROWS);
+        assertThat(columns.slice(all, SliceDimension.NONE).get(0).count()).isEqualTo(before);
+    }
+
+    @Test
+    void rejectsNewSalesOlderThanTheNewestOneHeld() {
+        SalesColumns sparse = new SalesColumns();
+        assertThat(sparse.upsert(10, FIRST_DAY, 100, (byte) 0, (byte) 0, 1)).isTrue();
+        assertThat(sparse.upsert(20, FIRST_DAY, 100, (byte) 0, (byte) 0, 1)).isTrue();
+
+        assertThat(sparse.upsert(15, FIRST_DAY, 100, (byte) 0, (byte) 0, 1)).isFalse();
+        assertThat(sparse.upsert(10, FIRST_DAY, 200, (byte) 0, (byte) 0, 1)).isTrue();
+        assertThat(sparse.size()).isEqualTo(2);
+    }
+
+    private Map<Object, List<Long>> expected(SalesColumns.Filter filter, SliceDimension dimension) {
+        Map<Object, List<Long>> totals = new HashMap<>();
+        for (Generated sale : generated) {
+            if (sale.day() < filter.fromDay() || sale.day() > filter.toDay()
+                    || (filter.method() != SalesColumns.ANY && sale.method() != filter.method())
+                    || (filter.status() != SalesColumns.ANY && sale.status() != filter.status())
+                    || (filter.cashierId() != SalesColumns.ANY_CASHIER && sale.cashierId() != filter.cashierId())) {
+                continue;
+            }
+            Object key = switch (dimension) {
+                case NONE -> null;
+                case DAY -> LocalDate.ofEpochDay(sale.day());
+                case PAYMENT_METHOD -> sale.method() == SalesColumns.MISSING ? null : Sale.PaymentMethod.values()[sale.method()];
+                case STATUS -> Sale.SaleStatus.values()[sale.status()];
+                case CASHIER -> sale.cashierId() == SalesColumns.NO_CASHIER ? null : sale.cashierId();
+            };
+            List<Long> total = totals.computeIfAbsent(key, k -> new ArrayList<>(List.of(0L, 0L)));
+            total.set(0, total.get(0) + 1);
+            total.set(1, total.get(1) + sale.cents());
+        }
+        return totals;
+    }
+
+    private static Map<Object, List<Long>> toMap(List<SalesColumns.Row> rows) {
+        Map<Object, List<Long>> totals = new HashMap<>();
+        for (SalesColumns.Row row : rows) {
+            assertThat(totals.put(row.key(), List.of(row.count(), row.cents()))).as("duplicate key %s", row.key()).isNull();
+        }
+        return totals;
+    }
+}
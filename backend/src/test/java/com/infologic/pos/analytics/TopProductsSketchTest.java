@@ -0,0 +1,169 @@
+package com.infologic.pos.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.infologic.pos.analytics.TopProductsSketch.Window;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.SaleItem;
+import com.infologic.pos.sketch.SpaceSaving;
+
+class TopProductsSketchTest {
+
+    private static final String TENANT = "tenant1";
+    private static final int PRODUCTS = 2_000;
+    private static final int SALES = 50_000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private long startOfToday;
+    private TopProductsSketch sketch;
+    private long nextSaleId;
+
+    @BeforeEach
+    void setUp() {
+        ZoneId zone = TenantRegistry.getTimeZone(TENANT);
+        startOfToday = LocalDate.of(2024, 3, 10).atStartOfDay(zone).toInstant().toEpochMilli();
+        clock.set(startOfToday + TimeUnit.HOURS.toMillis(14));
+        sketch = new TopProductsSketch(clock::get);
+        sketch.init();
+    }
+
+    @Test
+    void weeklyTopProductsMatchExactCountsWithinTheirErrorBounds() {
+        Random random = new Random(42);
+        double[] cumulative = zipf(PRODUCTS, 1.1);
+        Map<Long, Long> exact = new HashMap<>();
+        long weekMillis = TimeUnit.DAYS.toMillis(7) - TimeUnit.HOURS.toMillis(1);
+
+        for (int i = 0; i < SALES; i++) {
+            long time = clock.get() - (long) (random.nextDouble() * weekMillis);
+            Sale sale = sale(time, Sale.SaleStatus.COMPLETED);
+            int items = 1 + random.nextInt(3);
+            for (int j = 0; j < items; j++) {
+                long productId = 1 + sample(cumulative, random);
+                int quantity = 1 + random.nextInt(3);
+                if (sale.getItems().add(item(productId, quantity))) {
+                    exact.merge(productId, (long) quantity, Long::sum);
+                }
+            }
+            sketch.onSale(TENANT, sale);
+        }
+
+        List<SpaceSaving.Entry> top = sketch.getTop(TENANT, Window.LAST_7_DAYS, 10);
+
+        assertThat(top).hasSize(10);
+        for (SpaceSaving.Entry entry : top) {
+            long count = exact.get(entry.key());
+            assertThat(entry.lowerBound()).isLessThanOrEqualTo(count);
+            assertThat(entry.count()).isGreaterThanOrEqualTo(count);
+            // Hourly sketches are summed, so the error stays small next to the weekly count
+            assertThat(entry.error()).isLessThan(count / 4);
+        }
+        List<Long> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(5)
+                .map(Map.Entry::getKey)
+                .toList();
+        assertThat(top.subList(0, 5)).extracting(SpaceSaving.Entry::key).containsExactlyElementsOf(exactTop);
+
+        Map<String, Object> statistics = sketch.getStatistics();
+        @SuppressWarnings("unchecked")
+        Map<String, Long> bytesPerTenant = (Map<String, Long>) statistics.get("bytesPerTenant");
+        assertThat(bytesPerTenant.get(TENANT)).isPositive()
+                .isLessThanOrEqualTo((Long) statistics.get("maxBytesPerTenant"));
+    }
+
+    @Test
+    void windowsOnlyCoverTheirOwnPeriod() {
+        long now = clock.get();
+        sketch.onSale(TENANT, sale(now - TimeUnit.MINUTES.toMillis(10), Sale.SaleStatus.COMPLETED, item(1, 5)));
+        sketch.onSale(TENANT, sale(now - TimeUnit.HOURS.toMillis(3), Sale.SaleStatus.COMPLETED, item(2, 7)));
+        sketch.onSale(TENANT, sale(startOfToday - TimeUnit.HOURS.toMillis(2), Sale.SaleStatus.COMPLETED, item(3, 9)));
+        sketch.onSale(TENANT, sale(now - TimeUnit.DAYS.toMillis(8), Sale.SaleStatus.COMPLETED, item(4, 11)));
+        sketch.onSale(TENANT, sale(now - TimeUnit.MINUTES.toMillis(5), Sale.SaleStatus.REFUNDED, item(5, 13)));
+
+        assertThat(keys(Window.LAST_HOUR)).containsExactly(1L);
+        assertThat(keys(Window.TODAY)).containsExactly(2L, 1L);
+        assertThat(keys(Window.LAST_7_DAYS)).containsExactly(3L, 2L, 1L);
+
+        // An hour later the first sale has left the last hour, but not today
+        clock.addAndGet(TimeUnit.HOURS.toMillis(1));
+        assertThat(keys(Window.LAST_HOUR)).isEmpty();
+        assertThat(keys(Window.TODAY)).containsExactly(2L, 1L);
+
+        // After midnight only the last 7 days still hold the sales
+        clock.set(startOfToday + TimeUnit.HOURS.toMillis(25));
+        assertThat(keys(Window.TODAY)).isEmpty();
+        assertThat(keys(Window.LAST_7_DAYS)).containsExactly(3L, 2L, 1L);
+        assertThat(sketch.getTop("tenant2", Window.LAST_7_DAYS, 10)).isEmpty();
+    }
+
+    @Test
+    void aSaleIsCountedOnce() {
+        Sale sale = sale(clock.get(), Sale.SaleStatus.COMPLETED, item(1, 2));
+
+        sketch.onSale(TENANT, sale);
+        sketch.onSale(TENANT, sale);
+
+        assertThat(sketch.getTop(TENANT, Window.LAST_HOUR, 10))
+                .containsExactly(new SpaceSaving.Entry(1, 2, 0));
+    }
+
+    private List<Long> keys(Window window) {
+        return sketch.getTop(TENANT, window, 10).stream().map(SpaceSaving.Entry::key).toList();
+    }
+
+    private Sale sale(long epochMillis, Sale.SaleStatus status, SaleItem... items) {
+        Set<SaleItem> saleItems = new HashSet<>(List.of(items));
+        return Sale.builder()
+                .id(++nextSaleId)
+                .status(status)
+                .createdAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()))
+                .items(saleItems)
+                .build();
+    }
+
+    private static SaleItem item(long productId, int quantity) {
+        return SaleItem.builder()
+                .product(Product.builder().id(productId).build())
+                .quantity(quantity)
+                .build();
+    }
+
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
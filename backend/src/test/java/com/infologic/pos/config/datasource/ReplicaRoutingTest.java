@@ -0,0 +1,132 @@
+package com.infologic.pos.config.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Two in-memory databases stand in for the primary and the replica
+ */
+class ReplicaRoutingTest {
+
+    private JdbcDataSource primary;
+    private JdbcDataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+        setLag(0.5);
+        lagMonitor = new ReplicaLagMonitor(replica, "SELECT seconds FROM replica_lag", 5, 60_000);
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new ReplicaRoutingDataSource(primary, replica));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("com.infologic.pos.config.datasource");
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "none"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        ReplicaRoutingTransactionManager transactionManager =
+                new ReplicaRoutingTransactionManager(entityManagerFactory, lagMonitor);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+        new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaOnceItIsCurrent() {
+        // Nothing is known about the replica before the first check
+        assertThat(databaseOf(readOnly)).isEqualTo("PRIMARY");
+
+        lagMonitor.check();
+
+        assertThat(databaseOf(readOnly)).isEqualTo("REPLICA");
+        assertThat(databaseOf(readWrite)).isEqualTo("PRIMARY");
+        // A read-only call joining a read-write transaction stays with it
+        String joined = readWrite.execute(status -> databaseOf(readOnly));
+        assertThat(joined).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    void laggingOrUnreachableReplicaFallsBackToThePrimary() {
+        setLag(30);
+        lagMonitor.check();
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+        assertThat(databaseOf(readOnly)).isEqualTo("PRIMARY");
+
+        setLag(1);
+        lagMonitor.check();
+        assertThat(databaseOf(readOnly)).isEqualTo("REPLICA");
+
+        new JdbcTemplate(replica).execute("DROP TABLE replica_lag");
+        lagMonitor.check();
+        assertThat(lagMonitor.getStatus()).containsEntry("replicaUsable", false).containsEntry("lagSeconds", null);
+        assertThat(databaseOf(readOnly)).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    void requestScopedEntityManagerReturnsToThePrimaryAfterAReadOnlyTransaction() {
+        lagMonitor.check();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            assertThat(databaseOf(readOnly)).isEqualTo("REPLICA");
+            assertThat(databaseOf(readWrite)).isEqualTo("PRIMARY");
+            // The request now holds a primary connection, so reads stay on it
+            assertThat(databaseOf(readOnly)).isEqualTo("PRIMARY");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+        }
+    }
+
+    private String databaseOf(TransactionTemplate template) {
+        return template.execute(status -> EntityManagerFactoryUtils
+                .getTransactionalEntityManager(entityManagerFactory)
+                .unwrap(Session.class)
+                .doReturningWork(connection -> connection.getCatalog()));
+    }
+
+    private void setLag(double seconds) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+        jdbcTemplate.update("DELETE FROM replica_lag");
+        jdbcTemplate.update("INSERT INTO replica_lag VALUES (?)", seconds);
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+}
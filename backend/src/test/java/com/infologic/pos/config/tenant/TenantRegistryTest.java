@@ -0,0 +1,156 @@
+package com.infologic.pos.config.tenant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The registry is static, so each test uses tenant IDs of its own and the configuration is put
+ * back to the defaults afterwards
+ */
+class TenantRegistryTest {
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        configure(TenantRegistry.TenancyMode.DEDICATED, "public", List.of(), List.of());
+    }
+
+    @Test
+    void resolvesRegisteredAndDefaultModes() {
+        configure(TenantRegistry.TenancyMode.DEDICATED, "public", List.of("small_shop"), List.of("big_chain"));
+
+        assertThat(TenantRegistry.getMode("small_shop")).isEqualTo(TenantRegistry.TenancyMode.SHARED);
+        assertThat(TenantRegistry.getMode("big_chain")).isEqualTo(TenantRegistry.TenancyMode.DEDICATED);
+        assertThat(TenantRegistry.getMode("unlisted_shop")).isEqualTo(TenantRegistry.TenancyMode.DEDICATED);
+        assertThat(TenantRegistry.resolveSchema("small_shop")).isEqualTo("public");
+        assertThat(TenantRegistry.resolveSchema("big_chain")).isEqualTo("big_chain");
+        assertThat(TenantRegistry.resolveSchema("unlisted_shop")).isEqualTo("unlisted_shop");
+        assertThat(TenantRegistry.isShared("small_shop")).isTrue();
+        assertThat(TenantRegistry.isShared("unlisted_shop")).isFalse();
+        assertThatThrownBy(() -> TenantRegistry.resolveSchema("shop; DROP SCHEMA public"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        configure(TenantRegistry.TenancyMode.SHARED, "public", List.of(), List.of("big_chain"));
+        assertThat(TenantRegistry.getMode("another_unlisted_shop")).isEqualTo(TenantRegistry.TenancyMode.SHARED);
+        assertThat(TenantRegistry.resolveSchema("another_unlisted_shop")).isEqualTo("public");
+        assertThat(TenantRegistry.resolveSchema("big_chain")).isEqualTo("big_chain");
+    }
+
+    @Test
+    void sendsSharedTenantsAndRequestsWithoutATenantToTheConfiguredSharedSchema() {
+        configure(TenantRegistry.TenancyMode.DEDICATED, "pos_shared", List.of("corner_shop"), List.of());
+        CurrentTenantIdentifierResolverImpl resolver = new CurrentTenantIdentifierResolverImpl();
+        TenantFilterParameterResolver filterParameter = new TenantFilterParameterResolver();
+
+        TenantContext.setCurrentTenant("corner_shop");
+        assertThat(resolver.resolveCurrentTenantIdentifier()).isEqualTo("pos_shared");
+        assertThat(filterParameter.get()).isEqualTo("corner_shop");
+
+        TenantContext.setCurrentTenant(TenantRegistry.DEFAULT_SCHEMA);
+        assertThat(resolver.resolveCurrentTenantIdentifier()).isEqualTo("pos_shared");
+        assertThat(filterParameter.get()).isNull();
+
+        TenantContext.clear();
+        assertThat(resolver.resolveCurrentTenantIdentifier()).isEqualTo("pos_shared");
+
+        TenantContext.setCurrentTenant("other_shop");
+        assertThat(resolver.resolveCurrentTenantIdentifier()).isEqualTo("other_shop");
+        assertThat(filterParameter.get()).isNull();
+    }
+
+    @Test
+    void setsTheSearchPathForEverySchemaButTheDefaultOne() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        MultiTenantSchemaConnectionProvider provider = new MultiTenantSchemaConnectionProvider(dataSource);
+
+        provider.releaseConnection("public", provider.getConnection("public"));
+        verify(connection, never()).createStatement();
+
+        provider.releaseConnection("pos_shared", provider.getConnection("pos_shared"));
+        verify(statement).execute("SET search_path TO pos_shared");
+        verify(statement).execute("SET search_path TO public");
+        verify(connection, never()).abort(any());
+    }
+
+    @Test
+    void abortsConnectionsWhoseSearchPathCannotBeReset() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.execute("SET search_path TO public")).thenThrow(new SQLException("connection lost"));
+        MultiTenantSchemaConnectionProvider provider = new MultiTenantSchemaConnectionProvider(dataSource);
+
+        provider.releaseConnection("outlet_chain", provider.getConnection("outlet_chain"));
+
+        InOrder order = inOrder(connection);
+        order.verify(connection).abort(any());
+        order.verify(connection).close();
+    }
+
+    @Test
+    void directoryFindsTenantsInTheSchemaTheirDataLivesIn() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:tenant-directory;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE public.products (id BIGINT, tenant_id VARCHAR(64))");
+        jdbcTemplate.execute("CREATE TABLE public.users (id BIGINT, tenant_id VARCHAR(64))");
+        jdbcTemplate.execute("CREATE SCHEMA outlet_chain");
+        jdbcTemplate.execute("CREATE TABLE outlet_chain.products (id BIGINT, tenant_id VARCHAR(64))");
+        jdbcTemplate.execute("INSERT INTO public.products VALUES (1, 'walkin_kiosk'), (2, NULL)");
+        jdbcTemplate.execute("INSERT INTO public.users VALUES (1, 'flower_stall')");
+        jdbcTemplate.execute("INSERT INTO outlet_chain.products VALUES (1, 'outlet_chain')");
+        try {
+            // Unlisted tenants get their own schema, so the rows in the shared schema are leftovers
+            configure(TenantRegistry.TenancyMode.DEDICATED, "public", List.of(), List.of("listed_chain"));
+            TenantDirectory directory = new TenantDirectory(dataSource, new TenantRegistry());
+            assertThat(directory.findTenants()).contains("outlet_chain", "listed_chain")
+                    .doesNotContain("walkin_kiosk", "flower_stall")
+                    .doesNotContainNull();
+
+            // Unlisted tenants share the schema, with products or only users
+            configure(TenantRegistry.TenancyMode.SHARED, "public", List.of(), List.of());
+            assertThat(directory.findTenants()).contains("walkin_kiosk", "flower_stall")
+                    .doesNotContain("outlet_chain");
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static void configure(TenantRegistry.TenancyMode defaultMode, String sharedSchema,
+                                  List<String> sharedTenants, List<String> dedicatedTenants) {
+        TenantRegistry registry = new TenantRegistry();
+        ReflectionTestUtils.setField(registry, "configuredDefaultMode", defaultMode);
+        ReflectionTestUtils.setField(registry, "configuredSharedSchema", sharedSchema);
+        ReflectionTestUtils.setField(registry, "sharedTenants", sharedTenants);
+        ReflectionTestUtils.setField(registry, "dedicatedTenants", dedicatedTenants);
+        ReflectionTestUtils.setField(registry, "configuredDefaultTimeZone", "");
+        ReflectionTestUtils.setField(registry, "tenantTimeZones", List.of());
+        registry.init();
+    }
+}
@@ -0,0 +1,130 @@
+package com.infologic.pos.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.infologic.pos.dto.ScannedProduct;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.repository.ProductRepository;
+
+class ProductCodeLookupTest {
+
+    private static final String TENANT = "tenant1";
+
+    private ProductRepository productRepository;
+    private PlatformTransactionManager transactionManager;
+    private ProductCodeLookup lookup;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findByBarcodeAndTenantId(anyString(), anyString())).thenReturn(Optional.empty());
+        when(productRepository.findBySkuAndTenantId(anyString(), anyString())).thenReturn(Optional.empty());
+        transactionManager = mock(PlatformTransactionManager.class);
+        lookup = new ProductCodeLookup(productRepository, transactionManager);
+        ReflectionTestUtils.setField(lookup, "enabled", true);
+        lookup.init();
+    }
+
+    @Test
+    void readsThroughOnceThenFollowsStockEvents() {
+        Product product = product(7L, "5000112637922", "DRK-001", "1.99", 12);
+        when(productRepository.findBySkuAndTenantId("DRK-001", TENANT)).thenReturn(Optional.of(product));
+
+        assertThat(lookup.lookup(TENANT, "DRK-001")).contains(new ScannedProduct(7L, new BigDecimal("1.99"), 12));
+        // Both codes were stored from the one read
+        assertThat(lookup.lookup(TENANT, "5000112637922")).contains(new ScannedProduct(7L, new BigDecimal("1.99"), 12));
+        lookup.onProduct(TENANT, product(7L, "5000112637922", "DRK-001", "1.99", 11));
+
+        assertThat(lookup.lookup(TENANT, "DRK-001")).contains(new ScannedProduct(7L, new BigDecimal("1.99"), 11));
+        verify(productRepository).findBySkuAndTenantId("DRK-001", TENANT);
+        verify(productRepository).findByBarcodeAndTenantId("DRK-001", TENANT);
+        assertThat(lookup.getStatistics()).containsEntry("hitCount", 2L).containsEntry("missCount", 1L);
+        // Only the miss opened a transaction
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void remembersUnknownCodesUntilAProductTakesThem() {
+        assertThat(lookup.lookup(TENANT, "0000000000000")).isEmpty();
+        assertThat(lookup.lookup(TENANT, "0000000000000")).isEmpty();
+        verify(productRepository, times(1)).findByBarcodeAndTenantId("0000000000000", TENANT);
+
+        Product product = product(8L, "0000000000000", "SNK-001", "2.50", 4);
+        when(productRepository.findByBarcodeAndTenantId("0000000000000", TENANT)).thenReturn(Optional.of(product));
+        lookup.onProduct(TENANT, product);
+
+        assertThat(lookup.lookup(TENANT, "0000000000000")).contains(new ScannedProduct(8L, new BigDecimal("2.50"), 4));
+    }
+
+    @Test
+    void editedProductsAreReadAgainUnderTheirNewCodes() {
+        when(productRepository.findByBarcodeAndTenantId("111", TENANT)).thenReturn(Optional.of(product(9L, "111", null, "5.00", 1)));
+        assertThat(lookup.lookup(TENANT, "111")).isPresent();
+
+        when(productRepository.findByBarcodeAndTenantId("111", TENANT)).thenReturn(Optional.empty());
+        lookup.onProductChanged(TENANT, product(9L, "222", null, "5.00", 1));
+
+        assertThat(lookup.lookup(TENANT, "111")).isEmpty();
+    }
+
+    @Test
+    void lateSnapshotsDoNotBringBackAnEditedPrice() {
+        LocalDateTime before = LocalDateTime.of(2024, 3, 5, 9, 0);
+        LocalDateTime edited = before.plusMinutes(5);
+        when(productRepository.findByBarcodeAndTenantId("111", TENANT))
+                .thenReturn(Optional.of(product(9L, "111", null, "5.00", 3, before)));
+        assertThat(lookup.lookup(TENANT, "111")).contains(new ScannedProduct(9L, new BigDecimal("5.00"), 3));
+
+        lookup.onProductChanged(TENANT, product(9L, "111", null, "6.00", 3, edited));
+        // A stock event sent before the edit, and a miss that read the row before the edit
+        lookup.onProduct(TENANT, product(9L, "111", null, "5.00", 2, before));
+        assertThat(lookup.lookup(TENANT, "111")).contains(new ScannedProduct(9L, new BigDecimal("5.00"), 3));
+        verify(productRepository, times(2)).findByBarcodeAndTenantId("111", TENANT);
+
+        when(productRepository.findByBarcodeAndTenantId("111", TENANT))
+                .thenReturn(Optional.of(product(9L, "111", null, "6.00", 3, edited)));
+        assertThat(lookup.lookup(TENANT, "111")).contains(new ScannedProduct(9L, new BigDecimal("6.00"), 3));
+        lookup.onProduct(TENANT, product(9L, "111", null, "5.00", 2, before));
+        assertThat(lookup.lookup(TENANT, "111")).contains(new ScannedProduct(9L, new BigDecimal("6.00"), 3));
+        verify(productRepository, times(3)).findByBarcodeAndTenantId("111", TENANT);
+    }
+
+    @Test
+    void missesReadThePrimary() {
+        lookup.lookup(TENANT, "111");
+
+        verify(transactionManager).getTransaction(argThat(definition -> !definition.isReadOnly()));
+    }
+
+    private static Product product(Long id, String barcode, String sku, String price, int stock) {
+        return product(id, barcode, sku, price, stock, null);
+    }
+
+    private static Product product(Long id, String barcode, String sku, String price, int stock, LocalDateTime updatedAt) {
+        return Product.builder()
+                .id(id)
+                .barcode(barcode)
+                .sku(sku)
+                .price(new BigDecimal(price))
+                .stockQuantity(stock)
+                .tenantId(TENANT)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
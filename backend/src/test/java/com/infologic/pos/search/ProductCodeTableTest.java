@@ -0,0 +1,112 @@
+package com.infologic.pos.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ProductCodeTableTest {
+
+    @Test
+    void matchesAHashMapUnderRandomPutsAndRemoves() {
+        ProductCodeTable table = new ProductCodeTable(100_000);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Codes repeat, so they are replaced, removed and added again as the table grows
+            long key = ProductCodeTable.hash(ProductCodeLookup.BARCODE, "code-" + random.nextInt(20_000));
+            if (random.nextInt(3) == 0) {
+                assertThat(table.remove(key)).isEqualTo(expected.remove(key) != null);
+            } else {
+                long productId = random.nextInt(1_000);
+                table.put(key, productId, productId * 100, (int) productId, i);
+                expected.put(key, productId);
+            }
+        }
+
+        assertThat(table.size()).isEqualTo(expected.size());
+        for (int i = 0; i < 20_000; i++) {
+            long key = ProductCodeTable.hash(ProductCodeLookup.BARCODE, "code-" + i);
+            ProductCodeTable.Entry entry = table.get(key);
+            if (expected.containsKey(key)) {
+                assertThat(entry).extracting(ProductCodeTable.Entry::productId, ProductCodeTable.Entry::priceCents,
+                        ProductCodeTable.Entry::stock)
+                        .containsExactly(expected.get(key), expected.get(key) * 100, expected.get(key).intValue());
+            } else {
+                assertThat(entry).isNull();
+            }
+        }
+    }
+
+    @Test
+    void removesEveryCodeOfAProductAndRefusesCodesBeyondTheLimit() {
+        ProductCodeTable table = new ProductCodeTable(3);
+        long barcode = ProductCodeTable.hash(ProductCodeLookup.BARCODE, "5000112637922");
+        long sku = ProductCodeTable.hash(ProductCodeLookup.SKU, "5000112637922");
+        long other = ProductCodeTable.hash(ProductCodeLookup.SKU, "DRK-001");
+        assertThat(barcode).isNotEqualTo(sku);
+
+        assertThat(table.put(barcode, 7L, 199, 12, 1)).isTrue();
+        assertThat(table.put(sku, 7L, 199, 12, 1)).isTrue();
+        assertThat(table.put(other, 8L, 250, 3, 1)).isTrue();
+        assertThat(table.put(ProductCodeTable.hash(ProductCodeLookup.SKU, "DRK-002"), 9L, 250, 3, 1)).isFalse();
+        assertThat(table.put(other, 8L, 250, 2, 2)).isTrue();
+
+        assertThat(table.removeProduct(7L)).isEqualTo(2);
+        assertThat(table.get(barcode)).isNull();
+        assertThat(table.get(sku)).isNull();
+        assertThat(table.get(other)).isEqualTo(new ProductCodeTable.Entry(8L, 250, 2, 2));
+    }
+
+    @Test
+    void ignoresSnapshotsOlderThanTheStoredOne() {
+        ProductCodeTable table = new ProductCodeTable(10);
+        long barcode = ProductCodeTable.hash(ProductCodeLookup.BARCODE, "5000112637922");
+
+        table.put(barcode, 7L, 249, 12, 20);
+        // A late stock event taken before the price change
+        assertThat(table.put(barcode, 7L, 199, 11, 10)).isTrue();
+        assertThat(table.get(barcode)).isEqualTo(new ProductCodeTable.Entry(7L, 249, 12, 20));
+
+        table.put(barcode, 7L, 249, 11, 20);
+        assertThat(table.get(barcode)).isEqualTo(new ProductCodeTable.Entry(7L, 249, 11, 20));
+    }
+
+    /**
+     * Stands in for the 10M code target at a size the test JVM holds comfortably; the table grows
+     * in direct memory, so the heap must not grow with it
+     */
+    @Test
+    void keepsCodesOutOfTheHeap() {
+        int codes = 2_000_000;
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .findFirst()
+                .orElseThrow();
+        long heapBefore = usedHeap();
+
+        ProductCodeTable table = new ProductCodeTable(codes);
+        for (long i = 1; i <= codes; i++) {
+            table.put(i * 0x9E3779B97F4A7C15L, i, i * 10, (int) i, i);
+        }
+        long heapAfter = usedHeap();
+
+        assertThat(table.size()).isEqualTo(codes);
+        assertThat(table.offHeapBytes()).isEqualTo(4_194_304L * ProductCodeTable.SLOT_BYTES);
+        assertThat(direct.getMemoryUsed()).isGreaterThanOrEqualTo(table.offHeapBytes());
+        assertThat(heapAfter - heapBefore).isLessThan(16L * 1024 * 1024);
+        for (long i = 1; i <= codes; i += 997) {
+            assertThat(table.get(i * 0x9E3779B97F4A7C15L).productId()).isEqualTo(i);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
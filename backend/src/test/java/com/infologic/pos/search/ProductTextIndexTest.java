@@ -0,0 +1,128 @@
+package com.infologic.pos.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.infologic.pos.model.Product;
+
+class ProductTextIndexTest {
+
+    private static final String[] WORDS = { "cola", "coffee", "cocoa", "water", "sparkling", "juice", "orange",
+            "apple", "lemon", "tea", "green", "milk", "oat", "chocolate", "bar", "crisps", "salt", "vinegar" };
+    private static final String[] CATEGORIES = { "Drinks", "Snacks", "Dairy", "Hot Drinks" };
+
+    private ProductTextIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductTextIndex();
+    }
+
+    @Test
+    void ranksBarcodeThenSkuThenNameMatches() {
+        index.upsert(product(1L, "Diet Cola 330ml", "COLA-D", "5000112637922", "Drinks"));
+        index.upsert(product(2L, "Cola 330ml", "DRK-001", "5000112637939", "Drinks"));
+        index.upsert(product(3L, "Cola Zero", "COLA", "5000112637946", "Drinks"));
+        index.upsert(product(4L, "Chocolate Bar", "SNK-010", "5000112637953", "Snacks"));
+
+        assertThat(ids(index.search("cola", 0, 10))).containsExactly(3L, 1L, 2L, 4L);
+        assertThat(ids(index.search("5000112637939", 0, 10))).containsExactly(2L);
+        assertThat(ids(index.search("drk", 0, 10))).containsExactly(2L);
+        assertThat(ids(index.search("cola", 1, 2))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shortQueriesMatchWordPrefixesOnly() {
+        index.upsert(product(1L, "Oat Milk", "DRY-001", null, "Dairy"));
+        index.upsert(product(2L, "Coat Hanger", "HOM-001", null, "Home"));
+        index.upsert(product(3L, "Orange Juice", "DRK-002", null, "Drinks"));
+
+        assertThat(ids(index.search("o", 0, 10))).containsExactly(1L, 3L);
+        assertThat(ids(index.search("oa", 0, 10))).containsExactly(1L);
+        assertThat(ids(index.search("oat", 0, 10))).containsExactly(1L, 2L);
+        assertThat(ids(index.search("  OAT   milk ", 0, 10))).containsExactly(1L);
+        assertThat(index.search("", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void updatesAndDeletesReplaceIndexedText() {
+        index.upsert(product(1L, "Green Tea", "TEA-001", null, "Hot Drinks"));
+        index.upsert(product(1L, "Earl Grey", "TEA-001", null, "Hot Drinks"));
+        index.upsert(product(2L, "Green Apple", "FRU-001", null, "Fruit"));
+
+        assertThat(ids(index.search("green", 0, 10))).containsExactly(2L);
+        assertThat(ids(index.search("earl", 0, 10))).containsExactly(1L);
+        assertThat(index.remove(2L)).isTrue();
+        assertThat(index.remove(2L)).isFalse();
+        assertThat(index.search("green", 0, 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(1L).getName()).isEqualTo("Earl Grey");
+    }
+
+    @Test
+    void matchesAFullScanAndStaysSmallAfterCompaction() {
+        Random random = new Random(42);
+        Product[] products = new Product[20_001];
+        for (long id = 1; id <= 20_000; id++) {
+            products[(int) id] = randomProduct(id, random);
+            index.upsert(products[(int) id]);
+        }
+        long loadedBytes = index.sizeInBytes();
+        // Rewrite every product twice, retiring two thirds of the slots
+        for (int round = 0; round < 2; round++) {
+            for (long id = 1; id <= 20_000; id++) {
+                products[(int) id] = randomProduct(id, random);
+                index.upsert(products[(int) id]);
+                index.compact();
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(20_000);
+        assertThat(index.sizeInBytes()).isLessThan(loadedBytes * 3);
+        for (String query : List.of("cola", "co", "choc", "salt vinegar", "snacks", "ora jui", "sku-12")) {
+            String[] words = query.split(" ");
+            Predicate<Product> matches = product -> {
+                String text = String.join(" ", product.getName(), product.getSku(), product.getCategory()).toLowerCase(Locale.ROOT);
+                for (String word : words) {
+                    if (word.length() < 3 ? !text.startsWith(word) && !text.contains(" " + word) : !text.contains(word)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+            long expected = Arrays.stream(products, 1, products.length).filter(matches).count();
+            assertThat(index.search(query, 0, Integer.MAX_VALUE)).as(query).hasSize((int) expected);
+        }
+    }
+
+    private static Product randomProduct(long id, Random random) {
+        String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(1000);
+        return product(id, name, "SKU-" + id, null, CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+
+    private static Product product(Long id, String name, String sku, String barcode, String category) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .sku(sku)
+                .barcode(barcode)
+                .category(category)
+                .price(BigDecimal.ONE)
+                .stockQuantity(10)
+                .tenantId("tenant1")
+                .build();
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,133 @@
+package com.infologic.pos.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+import com.infologic.pos.repository.RevokedTokenRepository;
+import com.infologic.pos.service.TokenRevocationService;
+import com.infologic.pos.service.UserDetailsServiceImpl;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+class JwtClaimsTest {
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void buildsThePrincipalFromTheSignedClaims() {
+        Claims claims = Jwts.claims();
+        claims.setSubject("vendor1");
+        claims.setId("b8f4c7a2-0d1e-4f6a-9b3c-2e5d7f9a1c3b");
+        claims.put("userId", 12L);
+        claims.put("tenantId", "tenant1");
+        // An unknown role from a newer version is ignored rather than failing the request
+        claims.put("roles", List.of("ROLE_VENDOR", "ROLE_CASHIER", "ROLE_AUDITOR"));
+
+        JwtClaims jwtClaims = JwtClaims.from(claims);
+        User principal = jwtClaims.toPrincipal();
+
+        assertThat(jwtClaims.hasPrincipalClaims()).isTrue();
+        assertThat(principal.getId()).isEqualTo(12L);
+        assertThat(principal.getUsername()).isEqualTo("vendor1");
+        assertThat(principal.getTenantId()).isEqualTo("tenant1");
+        assertThat(principal.getRoles()).containsExactlyInAnyOrder(Role.ROLE_VENDOR, Role.ROLE_CASHIER);
+        assertThat(principal.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_VENDOR", "ROLE_CASHIER");
+        assertThat(principal.isEnabled()).isTrue();
+        assertThat(principal.isAccountNonLocked()).isTrue();
+    }
+
+    @Test
+    void readsLegacyAuthorityClaimsAndNeedsTheUserIdAndRoles() {
+        Claims legacy = Jwts.claims();
+        legacy.setSubject("admin1");
+        legacy.put("userId", 1);
+        legacy.put("roles", List.of(Map.of("authority", "ROLE_ADMIN")));
+        assertThat(JwtClaims.from(legacy).getRoles()).containsExactly("ROLE_ADMIN");
+        assertThat(JwtClaims.from(legacy).hasPrincipalClaims()).isTrue();
+
+        Claims withoutRoles = Jwts.claims();
+        withoutRoles.setSubject("admin1");
+        withoutRoles.put("userId", 1L);
+        assertThat(JwtClaims.from(withoutRoles).hasPrincipalClaims()).isFalse();
+    }
+
+    @Test
+    void statelessFilterTrustsClaimsOnlyUntilTheUserChanges() throws Exception {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret",
+                "testSecretKeyForJwtClaimsTestsWithEnoughBytesForHs512SigningToWork!");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", 3_600_000L);
+        tokenProvider.init();
+        TokenRevocationService revocationService = new TokenRevocationService(mock(RevokedTokenRepository.class),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(revocationService, "expectedEntries", 1_000);
+        ReflectionTestUtils.setField(revocationService, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(revocationService, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(revocationService, "init");
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService, revocationService);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+
+        User admin = User.builder()
+                .id(3L)
+                .username("admin1")
+                .tenantId("tenant1")
+                .roles(EnumSet.of(Role.ROLE_ADMIN))
+                .build();
+        // Issued a few seconds ago, before the roles change below
+        String token = Jwts.builder()
+                .setClaims(Map.of("userId", 3L, "tenantId", "tenant1", "roles", List.of("ROLE_ADMIN")))
+                .setId("0f6e2c1a-7b3d-4e5f-8a9b-1c2d3e4f5a6b")
+                .setSubject(admin.getUsername())
+                .setIssuedAt(new Date(System.currentTimeMillis() - 5_000))
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith((Key) ReflectionTestUtils.getField(tokenProvider, "signingKey"))
+                .compact();
+
+        Authentication authentication = authenticate(filter, token);
+        assertThat(authentication.getPrincipal()).isInstanceOf(User.class);
+        assertThat(((User) authentication.getPrincipal()).getRoles()).containsExactly(Role.ROLE_ADMIN);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+
+        revocationService.revokeUserTokens("tenant1", "admin1");
+        assertThat(authenticate(filter, token)).isNull();
+        assertThat(authenticate(filter, tokenProvider.generateToken(admin))).isNotNull();
+    }
+
+    private static Authentication authenticate(JwtAuthenticationFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,127 @@
+package com.infologic.pos.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+import com.infologic.pos.service.TokenRevocationService;
+import com.infologic.pos.service.UserDetailsServiceImpl;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "testSecretKeyForJwtTokenProviderTestsWithEnoughBytesForHs512Signing!";
+
+    private JwtTokenProvider tokenProvider;
+    private User cashier;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = provider(SECRET, 60_000);
+        cashier = User.builder()
+                .id(7L)
+                .username("cashier1")
+                .tenantId("tenant1")
+                .roles(EnumSet.of(Role.ROLE_CASHIER))
+                .enabled(true)
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void parsesValidTokensAndRejectsExpiredForgedAndMalformedOnes() {
+        String token = tokenProvider.generateToken(cashier);
+
+        JwtClaims claims = tokenProvider.parseToken(token).orElseThrow();
+        assertThat(claims.getUsername()).isEqualTo("cashier1");
+        assertThat(claims.getUserId()).isEqualTo(7L);
+        assertThat(claims.getTenantId()).isEqualTo("tenant1");
+        assertThat(claims.getRoles()).containsExactly("ROLE_CASHIER");
+        assertThat(claims.getTokenId()).isNotBlank();
+        assertThat(tokenProvider.validateToken(token, cashier)).isTrue();
+
+        String expired = provider(SECRET, -1_000).generateToken(cashier);
+        String forged = provider(SECRET.replace('t', 'x'), 60_000).generateToken(cashier);
+        String tampered = token.substring(0, token.length() - 4)
+                + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        assertThat(tokenProvider.parseToken(expired)).isEmpty();
+        assertThat(tokenProvider.parseToken(forged)).isEmpty();
+        assertThat(tokenProvider.parseToken(tampered)).isEmpty();
+        assertThat(tokenProvider.parseToken("not.a.jwt")).isEmpty();
+        assertThat(tokenProvider.parseToken("")).isEmpty();
+        assertThat(tokenProvider.validateToken(expired, cashier)).isFalse();
+        assertThat(tokenProvider.validateToken(forged, cashier)).isFalse();
+    }
+
+    @Test
+    void filterVerifiesTheTokenOnceAndReusesItsClaims() throws Exception {
+        JwtTokenProvider verifier = spy(tokenProvider);
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.loadUserByUsername("cashier1")).thenReturn(cashier);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(verifier, userDetailsService,
+                mock(TokenRevocationService.class));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + tokenProvider.generateToken(cashier));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isSameAs(cashier);
+        assertThat(TenantContext.getCurrentTenant()).isEqualTo("tenant1");
+        verify(verifier, times(1)).parseToken(anyString());
+        verify(verifier, never()).getUsernameFromToken(anyString());
+        verify(verifier, never()).getTenantIdFromToken(anyString());
+        verify(verifier, never()).validateToken(anyString(), any());
+        verify(verifier, never()).getClaimFromToken(anyString(), any());
+    }
+
+    @Test
+    void filterLeavesRequestsWithExpiredTokensUnauthenticated() throws Exception {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService,
+                mock(TokenRevocationService.class));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + provider(SECRET, -1_000).generateToken(cashier));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(chain.getRequest()).isSameAs(request);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private static JwtTokenProvider provider(String secret, long expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        provider.init();
+        return provider;
+    }
+}
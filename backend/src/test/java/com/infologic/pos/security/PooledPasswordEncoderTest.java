@@ -0,0 +1,181 @@
+package com.infologic.pos.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.controller.AuthController;
+import com.infologic.pos.exception.GlobalExceptionHandler;
+import com.infologic.pos.exception.ServiceUnavailableException;
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+import com.infologic.pos.repository.UserRepository;
+import com.infologic.pos.service.AuthService;
+import com.infologic.pos.service.MfaService;
+import com.infologic.pos.service.TokenRevocationService;
+import com.infologic.pos.service.UserCacheInvalidationBus;
+import com.infologic.pos.service.UserDetailsServiceImpl;
+
+class PooledPasswordEncoderTest {
+
+    private final List<String> hashingThreads = new CopyOnWriteArrayList<>();
+    private final List<String> repositoryThreads = new CopyOnWriteArrayList<>();
+    private PasswordHashingExecutor hashingExecutor;
+    private User cashier;
+    private UserRepository userRepository;
+    private ProviderManager authenticationManager;
+
+    @BeforeEach
+    void setUp() {
+        hashingExecutor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(hashingExecutor, "threads", 1);
+        ReflectionTestUtils.setField(hashingExecutor, "queueCapacity", 1);
+        ReflectionTestUtils.invokeMethod(hashingExecutor, "init");
+
+        // Stored with cost 4, while the encoder is now configured with cost 5
+        cashier = User.builder()
+                .id(9L)
+                .username("cashier1")
+                .tenantId("tenant1")
+                .roles(EnumSet.of(Role.ROLE_CASHIER))
+                .password(new BCryptPasswordEncoder(4).encode("S3cret!"))
+                .enabled(true)
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .build();
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("cashier1")).thenAnswer(invocation -> {
+            repositoryThreads.add(Thread.currentThread().getName());
+            return Optional.of(cashier);
+        });
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            repositoryThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository);
+        ReflectionTestUtils.setField(userDetailsService, "cacheMaximumSize", 100L);
+        ReflectionTestUtils.setField(userDetailsService, "cacheTtlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(userDetailsService, "init");
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        provider.setPasswordEncoder(new PooledPasswordEncoder(recordingEncoder(new BCryptPasswordEncoder(5)),
+                hashingExecutor));
+        authenticationManager = new ProviderManager(provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(hashingExecutor, "shutdown");
+        TenantContext.clear();
+    }
+
+    @Test
+    void loginHashesOnThePoolAndUpgradesTheStoredHashOnTheCaller() {
+        String caller = Thread.currentThread().getName();
+
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("cashier1", "S3cret!"));
+
+        assertThat(cashier.getPassword()).startsWith("$2a$05$");
+        assertThat(new BCryptPasswordEncoder().matches("S3cret!", cashier.getPassword())).isTrue();
+        // Verification and the re-hash ran on the pool, the user lookup and the update did not
+        assertThat(hashingThreads).hasSizeGreaterThanOrEqualTo(2).allMatch(name -> name.startsWith("password-hashing-"));
+        assertThat(repositoryThreads).isNotEmpty().containsOnly(caller);
+
+        assertThatThrownBy(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("cashier1", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void saturatedPoolRejectsLoginsWithA503() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One task holds the only thread and one waits in the queue of one
+            CompletableFuture<Object> running = hashingExecutor.submit(() -> await(release));
+            CompletableFuture<Object> queued = hashingExecutor.submit(() -> await(release));
+
+            assertThatThrownBy(() -> authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken("cashier1", "S3cret!")))
+                    .isInstanceOf(ServiceUnavailableException.class);
+
+            AuthService authService = new AuthService(userRepository, mock(PasswordEncoder.class), authenticationManager,
+                    mock(JwtTokenProvider.class), mock(MfaService.class), mock(TokenRevocationService.class),
+                    mock(UserCacheInvalidationBus.class));
+            MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AuthController(authService))
+                    .setControllerAdvice(new GlobalExceptionHandler())
+                    .build();
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\":\"cashier1\",\"password\":\"S3cret!\"}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            assertThat(hashingExecutor.getStatistics().get("rejectedCount")).isEqualTo(2L);
+
+            release.countDown();
+            running.join();
+            queued.join();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private PasswordEncoder recordingEncoder(PasswordEncoder delegate) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashingThreads.add(Thread.currentThread().getName());
+                return delegate.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashingThreads.add(Thread.currentThread().getName());
+                return delegate.matches(rawPassword, encodedPassword);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return delegate.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.infologic.pos.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TotpReplayGuardTest {
+
+    private static final String SECRET = "JBSWY3DPEHPK3PXP";
+    private static final int THREADS = 32;
+
+    private AtomicLong now;
+    private TotpReplayGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(1_700_000_010L);
+        guard = new TotpReplayGuard(now::get);
+    }
+
+    @Test
+    void rejectsReplayWithinValidityWindow() {
+        assertThat(guard.markUsed(SECRET, "123456")).isTrue();
+        assertThat(guard.markUsed(SECRET, "123456")).isFalse();
+
+        // Still rejected in the following steps while the code could pass the drift check
+        now.addAndGet(TotpReplayGuard.TIME_STEP_SECONDS);
+        assertThat(guard.markUsed(SECRET, "123456")).isFalse();
+        now.addAndGet(TotpReplayGuard.TIME_STEP_SECONDS);
+        assertThat(guard.markUsed(SECRET, "123456")).isFalse();
+
+        // Other codes and other secrets are unaffected
+        assertThat(guard.markUsed(SECRET, "654321")).isTrue();
+        assertThat(guard.markUsed("KRSXG5CTMVRXEZLU", "123456")).isTrue();
+    }
+
+    @Test
+    void forgetsCodesOnceTheyExpire() {
+        assertThat(guard.markUsed(SECRET, "123456")).isTrue();
+        assertThat(guard.size()).isEqualTo(1);
+
+        now.addAndGet((long) TotpReplayGuard.RETAINED_STEPS * TotpReplayGuard.TIME_STEP_SECONDS);
+        assertThat(guard.size()).isZero();
+        assertThat(guard.markUsed(SECRET, "123456")).isTrue();
+    }
+
+    @Test
+    void acceptsEachCodeOnceUnderConcurrentReplays() throws Exception {
+        int codes = 1_000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int c = 0; c < codes; c++) {
+                        if (guard.markUsed(SECRET, String.format("%06d", c))) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(accepted.get()).isEqualTo(codes);
+    }
+}
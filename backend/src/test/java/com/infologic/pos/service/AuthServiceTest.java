@@ -0,0 +1,114 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.event.UserEvent;
+import com.infologic.pos.event.UserEvent.UserEventType;
+import com.infologic.pos.model.Role;
+import com.infologic.pos.model.User;
+import com.infologic.pos.repository.UserRepository;
+import com.infologic.pos.security.JwtTokenProvider;
+import com.infologic.pos.security.PasswordHashingExecutor;
+import com.infologic.pos.security.PooledPasswordEncoder;
+
+class AuthServiceTest {
+
+    private UserRepository userRepository;
+    private UserCacheInvalidationBus invalidationBus;
+    private TokenRevocationService tokenRevocationService;
+    private PasswordHashingExecutor hashingExecutor;
+    private AuthService authService;
+    private User cashier;
+
+    @BeforeEach
+    void setUp() {
+        cashier = User.builder()
+                .id(5L)
+                .username("cashier1")
+                .tenantId("tenant1")
+                .roles(EnumSet.of(Role.ROLE_CASHIER))
+                .build();
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(5L)).thenReturn(Optional.of(cashier));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        invalidationBus = mock(UserCacheInvalidationBus.class);
+        tokenRevocationService = mock(TokenRevocationService.class);
+        hashingExecutor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(hashingExecutor, "threads", 1);
+        ReflectionTestUtils.setField(hashingExecutor, "queueCapacity", 1);
+        ReflectionTestUtils.invokeMethod(hashingExecutor, "init");
+
+        authService = new AuthService(userRepository, new PooledPasswordEncoder(new BCryptPasswordEncoder(4), hashingExecutor),
+                mock(AuthenticationManager.class), mock(JwtTokenProvider.class), mock(MfaService.class),
+                tokenRevocationService, invalidationBus);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ReflectionTestUtils.invokeMethod(hashingExecutor, "shutdown");
+        TenantContext.clear();
+    }
+
+    @Test
+    void userChangesAreBroadcastOnlyOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        authService.changePassword(5L, "N3wP@ssw0rd");
+        authService.updateRoles(5L, EnumSet.of(Role.ROLE_VENDOR));
+
+        // Until the commit, other requests still read the old user and must not re-cache it
+        verify(invalidationBus, never()).publish(any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        ArgumentCaptor<UserEvent> events = ArgumentCaptor.forClass(UserEvent.class);
+        verify(invalidationBus, times(2)).publish(events.capture());
+        assertThat(events.getAllValues()).extracting(UserEvent::getEventType)
+                .containsExactly(UserEventType.PASSWORD_CHANGED, UserEventType.ROLES_CHANGED);
+        assertThat(events.getAllValues()).allSatisfy(event -> {
+            assertThat(event.getTenantId()).isEqualTo("tenant1");
+            assertThat(event.getUsername()).isEqualTo("cashier1");
+        });
+    }
+
+    @Test
+    void rolledBackChangesAreNeverBroadcast() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        authService.setEnabled(5L, false);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(invalidationBus, never()).publish(any());
+    }
+
+    @Test
+    void changesOutsideATransactionAreBroadcastRightAway() {
+        authService.updateRoles(5L, EnumSet.of(Role.ROLE_ADMIN));
+
+        verify(invalidationBus).publish(any());
+        verify(tokenRevocationService).revokeUserTokens("tenant1", "cashier1");
+    }
+}
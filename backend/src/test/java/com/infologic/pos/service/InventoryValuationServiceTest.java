@@ -0,0 +1,132 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantDirectory;
+import com.infologic.pos.model.InventoryValuation;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.ProductValuationEntry;
+import com.infologic.pos.repository.InventoryValuationRepository;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.ProductValuationEntryRepository;
+
+class InventoryValuationServiceTest {
+
+    private static final String TENANT = "tenant1";
+
+    private ProductRepository productRepository;
+    private ProductValuationEntryRepository entryRepository;
+    private InventoryValuationRepository valuationRepository;
+    private InventoryValuationService valuationService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        entryRepository = mock(ProductValuationEntryRepository.class);
+        valuationRepository = mock(InventoryValuationRepository.class);
+        valuationService = new InventoryValuationService(productRepository, entryRepository, valuationRepository,
+                mock(TenantDirectory.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(valuationService, "chunkSize", 5_000);
+        ReflectionTestUtils.setField(valuationService, "reconcileThreads", 4);
+        TenantContext.setCurrentTenant(TENANT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void priceChangeMovesTheProductsValue() {
+        when(entryRepository.findForUpdate(7L)).thenReturn(Optional.of(ProductValuationEntry.builder()
+                .productId(7L).tenantId(TENANT).category("Phones").stockQuantity(3).stockValue(new BigDecimal("300.00")).build()));
+        when(productRepository.findById(7L)).thenReturn(Optional.of(Product.builder()
+                .id(7L).tenantId(TENANT).category("Phones").stockQuantity(3).price(new BigDecimal("120.00")).build()));
+
+        valuationService.apply(7L);
+
+        // The category's row exists, so both inserts find it and increment it instead
+        verify(valuationRepository).increment("tenant1|Phones", -1, -3, new BigDecimal("-300.00"));
+        verify(valuationRepository).increment("tenant1|Phones", 1, 3, new BigDecimal("360.00"));
+        verify(entryRepository).save(any(ProductValuationEntry.class));
+    }
+
+    @Test
+    void firstProductOfACategoryCreatesItsRow() {
+        when(productRepository.findById(8L)).thenReturn(Optional.of(Product.builder()
+                .id(8L).tenantId(TENANT).stockQuantity(2).price(new BigDecimal("5.00")).build()));
+        when(valuationRepository.insertIfAbsent(TENANT + "|", TENANT, "", 1, 2, new BigDecimal("10.00"))).thenReturn(1);
+
+        valuationService.apply(8L);
+
+        verify(valuationRepository, never()).increment(any(), anyLong(), anyLong(), any());
+        verify(entryRepository).save(any(ProductValuationEntry.class));
+    }
+
+    @Test
+    void unchangedProductsAreNotReapplied() {
+        when(entryRepository.findForUpdate(7L)).thenReturn(Optional.of(ProductValuationEntry.builder()
+                .productId(7L).tenantId(TENANT).category("Phones").stockQuantity(3).stockValue(new BigDecimal("360.00")).build()));
+        when(productRepository.findById(7L)).thenReturn(Optional.of(Product.builder()
+                .id(7L).tenantId(TENANT).category("Phones").stockQuantity(3).price(new BigDecimal("120.00")).build()));
+
+        valuationService.apply(7L);
+
+        verify(valuationRepository, never()).insertIfAbsent(any(), any(), any(), anyLong(), anyLong(), any());
+        verify(valuationRepository, never()).increment(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void reconciliationScansChunksAndReappliesMismatchedCategories() {
+        when(productRepository.getIdRange(TENANT)).thenReturn(List.<Object[]>of(new Object[] { 1L, 12_000L }));
+        when(productRepository.getValuationChunk(TENANT, 1L, 5_000L)).thenReturn(List.of(
+                new Object[] { "Phones", 10L, 40L, new BigDecimal("4000.00") },
+                new Object[] { "Cables", 100L, 900L, new BigDecimal("450.00") }));
+        when(productRepository.getValuationChunk(TENANT, 5_001L, 10_000L)).thenReturn(List.<Object[]>of(
+                new Object[] { "Phones", 5L, 10L, new BigDecimal("1000.00") }));
+        when(productRepository.getValuationChunk(TENANT, 10_001L, 12_000L)).thenReturn(List.<Object[]>of(
+                new Object[] { null, 2L, 4L, new BigDecimal("8.00") }));
+        when(valuationRepository.findByTenantIdOrderByCategoryAsc(TENANT)).thenReturn(List.of(
+                valuation(null, 2, 4, "8.00"),
+                valuation("Cables", 100, 900, "450.00"),
+                // A missed stock event left one phone out
+                valuation("Phones", 15, 49, "4900.00")));
+        when(productRepository.findIdsByCategory(TENANT, "Phones")).thenReturn(List.of(1L, 2L));
+        when(entryRepository.findProductIdsByCategory(TENANT, "Phones")).thenReturn(List.of(2L, 3L));
+
+        Map<String, Object> result = valuationService.reconcile();
+
+        assertThat(result).containsEntry("categoriesChecked", 3)
+                .containsEntry("mismatchedCategories", List.of("Phones"))
+                .containsEntry("productsReapplied", 3);
+        for (long productId = 1; productId <= 3; productId++) {
+            verify(productRepository).findById(productId);
+        }
+        verify(productRepository, times(3)).getValuationChunk(eq(TENANT), anyLong(), anyLong());
+    }
+
+    private static InventoryValuation valuation(String category, long products, long units, String value) {
+        return InventoryValuation.builder().tenantId(TENANT).category(category)
+                .productCount(products).unitCount(units).stockValue(new BigDecimal(value)).build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.CursorPage;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.search.ProductCodeLookup;
+import com.infologic.pos.search.ProductSearchIndex;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Walks the sales and products of a tenant slice by slice against an in-memory database. The
+ * repositories' declared queries are run directly, as SaleRepository cannot be created here:
+ * findByTenantIdAndClientReferenceId names a property Sale does not have.
+ */
+class PageCursorTest {
+
+    private JdbcDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private SaleService saleService;
+    private ProductService productService;
+    private final List<Sale> sales = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:page-cursor;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("com.infologic.pos.model");
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        SaleRepository saleRepository = mock(SaleRepository.class);
+        when(saleRepository.findSliceByTenantId(anyString(), any(Pageable.class)))
+                .thenAnswer(invocation -> runDeclaredQuery(entityManager, invocation, Sale.class));
+        when(saleRepository.findSliceByTenantIdAfter(anyString(), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> runDeclaredQuery(entityManager, invocation, Sale.class));
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findSliceByTenantId(anyString(), any(Pageable.class)))
+                .thenAnswer(invocation -> runDeclaredQuery(entityManager, invocation, Product.class));
+        when(productRepository.findSliceByTenantIdAfter(anyString(), anyString(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> runDeclaredQuery(entityManager, invocation, Product.class));
+        productService = new ProductService(productRepository, mock(EventPublisherService.class),
+                mock(InventoryValuationService.class), mock(ProductSearchService.class),
+                mock(ProductSearchIndex.class), mock(ProductCodeLookup.class));
+        saleService = new SaleService(saleRepository, productRepository, productService,
+                mock(EventPublisherService.class), mock(ReportService.class), mock(SaleSearchService.class));
+
+        EntityManager writer = entityManagerFactory.createEntityManager();
+        writer.getTransaction().begin();
+        for (int i = 0; i < 23; i++) {
+            // Sales share creation times and products share names, so the ID must break the ties
+            Sale sale = sale("tenant1", "INV-" + i, LocalDateTime.of(2024, 3, 1 + i / 3, 12, 0));
+            Product product = product("tenant1", "SKU-" + i, "Product " + (char) ('A' + (i * 7) % 10));
+            writer.persist(sale);
+            writer.persist(product);
+            sales.add(sale);
+            products.add(product);
+        }
+        writer.persist(sale("tenant2", "INV-X", LocalDateTime.of(2024, 3, 5, 12, 0)));
+        writer.persist(product("tenant2", "SKU-X", "Product C"));
+        writer.getTransaction().commit();
+        writer.close();
+        TenantContext.setCurrentTenant("tenant1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        factoryBean.destroy();
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void slicesCoverEverySaleOnceNewestFirst() {
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        int slices = 0;
+        do {
+            CursorPage<Sale> page = saleService.getSales(cursor, 5);
+            page.getContent().forEach(sale -> walked.add(sale.getId()));
+            assertThat(page.isHasNext()).isEqualTo(page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+            slices++;
+        } while (cursor != null);
+
+        assertThat(slices).isEqualTo(5);
+        assertThat(walked).containsExactlyElementsOf(sales.stream()
+                .sorted(Comparator.comparing(Sale::getCreatedAt).thenComparing(Sale::getId).reversed())
+                .map(Sale::getId)
+                .toList());
+    }
+
+    @Test
+    void slicesCoverEveryProductOnceByName() {
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Product> page = productService.getProducts(cursor, 4);
+            page.getContent().forEach(product -> walked.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(walked).containsExactlyElementsOf(products.stream()
+                .sorted(Comparator.comparing(Product::getName).thenComparing(Product::getId))
+                .map(Product::getId)
+                .toList());
+
+        CursorPage<Product> all = productService.getProducts(null, 23);
+        assertThat(all.getContent()).hasSize(23);
+        assertThat(all.isHasNext()).isFalse();
+        assertThat(all.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsTokensOfAnotherKindOrMalformed() {
+        String saleCursor = PageCursor.encode(new PageCursor.SaleKey(LocalDateTime.of(2024, 3, 1, 12, 0, 5), 42L));
+        String productCursor = PageCursor.encode(new PageCursor.ProductKey("Café crème", 7L));
+
+        assertThat(PageCursor.decodeSaleKey(saleCursor))
+                .isEqualTo(new PageCursor.SaleKey(LocalDateTime.of(2024, 3, 1, 12, 0, 5), 42L));
+        assertThat(PageCursor.decodeProductKey(productCursor)).isEqualTo(new PageCursor.ProductKey("Café crème", 7L));
+        assertThat(saleCursor).matches("[A-Za-z0-9_-]+");
+
+        assertThatThrownBy(() -> PageCursor.decodeSaleKey(productCursor)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decodeProductKey(saleCursor)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> saleService.getSales("not a cursor!", 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.getProducts(productCursor.substring(0, 8), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Run the repository method's JPQL as declared, limited to the pageable's size
+     */
+    private static <T> List<T> runDeclaredQuery(EntityManager entityManager, InvocationOnMock invocation, Class<T> type) {
+        Method method = invocation.getMethod();
+        TypedQuery<T> query = entityManager.createQuery(
+                method.getAnnotation(org.springframework.data.jpa.repository.Query.class).value(), type);
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Param param = parameters[i].getAnnotation(Param.class);
+            if (param != null) {
+                query.setParameter(param.value(), invocation.getArgument(i));
+            } else if (invocation.getArgument(i) instanceof Pageable pageable) {
+                query.setMaxResults(pageable.getPageSize());
+            }
+        }
+        return query.getResultList();
+    }
+
+    private static Sale sale(String tenantId, String invoiceNumber, LocalDateTime createdAt) {
+        return Sale.builder()
+                .tenantId(tenantId)
+                .invoiceNumber(invoiceNumber)
+                .totalAmount(BigDecimal.TEN)
+                .status(Sale.SaleStatus.COMPLETED)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static Product product(String tenantId, String sku, String name) {
+        return Product.builder()
+                .tenantId(tenantId)
+                .sku(sku)
+                .name(name)
+                .price(BigDecimal.ONE)
+                .stockQuantity(10)
+                .build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.search.ProductSearchIndex;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+class ProductSearchServiceTest {
+
+    private static final String TENANT = "tenant1";
+
+    private ProductRepository productRepository;
+    private EntityManager entityManager;
+    private ProductSearchIndex searchIndex;
+    private PlatformTransactionManager transactionManager;
+    private JdbcDataSource dataSource;
+    private ProductSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        entityManager = mock(EntityManager.class);
+        searchIndex = mock(ProductSearchIndex.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:product-search");
+        searchService = new ProductSearchService(productRepository, entityManager, dataSource, mock(TenantRegistry.class),
+                searchIndex, transactionManager);
+        TenantContext.setCurrentTenant(TENANT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void otherDatabasesFallBackToLikeSearch() {
+        Pageable pageable = PageRequest.of(0, 20);
+        Page<Product> page = new PageImpl<>(List.of(Product.builder().id(1L).build()));
+        when(productRepository.searchProducts(TENANT, "cola", pageable)).thenReturn(page);
+
+        searchService.createSearchIndexes();
+
+        assertThat(searchService.isTrigramAvailable()).isFalse();
+        assertThat(searchService.search(" cola ", pageable)).isSameAs(page);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rankedSearchPagesWithoutCountingAndEscapesWildcards() {
+        ReflectionTestUtils.setField(searchService, "trigramAvailable", true);
+        // The tenant's schema counts as indexed once its indexes, none here, are built
+        ReflectionTestUtils.setField(searchService, "searchIndexes", new SchemaIndexes("product search", List.of(),
+                new JdbcTemplate(dataSource), Runnable::run, System::currentTimeMillis));
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString(), eq(Product.class))).thenReturn(query);
+        List<Product> rows = LongStream.rangeClosed(1, 11).mapToObj(id -> Product.builder().id(id).build()).toList();
+        when(query.getResultList()).thenReturn(rows);
+
+        Page<Product> page = searchService.search("50%_OFF", PageRequest.of(2, 10));
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.hasNext()).isTrue();
+        verify(query).setParameter("query", "50%_OFF");
+        verify(query).setParameter("lowerQuery", "50%_off");
+        verify(query).setParameter("prefix", "50\\%\\_off%");
+        verify(query).setParameter("contains", "%50\\%\\_off%");
+        verify(query).setParameter("limit", 11);
+        verify(query).setParameter("offset", 20L);
+    }
+
+    @Test
+    void loadedIndexAnswersWithoutTheDatabase() {
+        List<Product> rows = LongStream.rangeClosed(1, 5).mapToObj(id -> Product.builder().id(id).build()).toList();
+        when(searchIndex.search(TENANT, "cola", 10L, 11)).thenReturn(Optional.of(rows));
+
+        Page<Product> page = searchService.search("cola ", PageRequest.of(1, 10));
+
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getTotalElements()).isEqualTo(15);
+        verifyNoInteractions(productRepository, entityManager, transactionManager);
+    }
+
+    @Test
+    void warmIndexHitsDoNotTouchTheDataSource() throws Exception {
+        DataSource pool = spy(dataSource);
+        PlatformTransactionManager jdbcTransactions = new DataSourceTransactionManager(pool);
+        ProductSearchIndex index = new ProductSearchIndex(productRepository, jdbcTransactions);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxBytesPerTenant", 1L << 20);
+        ReflectionTestUtils.setField(index, "maxTenants", 10);
+        ReflectionTestUtils.setField(index, "reloadMinutes", 60L);
+        when(productRepository.streamSearchableProducts(TENANT)).thenAnswer(invocation -> Stream.of(
+                Product.builder().id(1L).tenantId(TENANT).name("Cola 330ml").sku("DRK-001").build(),
+                Product.builder().id(2L).tenantId(TENANT).name("Cola Zero 330ml").sku("DRK-002").build()));
+        // Called as the application calls them, through their transaction annotations
+        ProductSearchService service = transactional(new ProductSearchService(productRepository, entityManager,
+                dataSource, mock(TenantRegistry.class), transactional(index, jdbcTransactions), jdbcTransactions),
+                jdbcTransactions);
+
+        // The first search loads the index within a transaction
+        assertThat(service.search("cola", PageRequest.of(0, 10)).getContent()).hasSize(2);
+        verify(pool, times(1)).getConnection();
+
+        clearInvocations(pool);
+        assertThat(service.search("zero", PageRequest.of(0, 10)).getContent()).extracting(Product::getId).containsExactly(2L);
+        verify(pool, never()).getConnection();
+        verify(productRepository, times(1)).streamSearchableProducts(TENANT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T transactional(T target, PlatformTransactionManager transactionManager) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (T) proxyFactory.getProxy();
+    }
+}
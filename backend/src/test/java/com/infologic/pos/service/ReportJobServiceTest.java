@@ -0,0 +1,133 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.ReportJobRequest;
+import com.infologic.pos.dto.ReportJobRequest.ReportType;
+import com.infologic.pos.dto.ReportJobResponse;
+import com.infologic.pos.dto.ReportJobResponse.JobStatus;
+import com.infologic.pos.exception.ResourceNotFoundException;
+
+class ReportJobServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private ReportService reportService;
+    private RollupReportService rollupReportService;
+    private ReportJobService reportJobService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        reportService = mock(ReportService.class);
+        rollupReportService = mock(RollupReportService.class);
+        reportJobService = new ReportJobService(reportService, rollupReportService,
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(reportJobService, "threads", 1);
+        ReflectionTestUtils.setField(reportJobService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(reportJobService, "directory", directory.toString());
+        ReflectionTestUtils.setField(reportJobService, "resultTtlMinutes", 60L);
+        ReflectionTestUtils.setField(reportJobService, "asyncThresholdDays", 366L);
+        reportJobService.init();
+        TenantContext.setCurrentTenant("tenant1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportJobService.shutdown();
+        TenantContext.clear();
+    }
+
+    @Test
+    void identicalRequestsShareOneJob() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportService.getSalesSummary(START, END)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of("saleCount", 42L);
+        });
+
+        ReportJobResponse first = reportJobService.submit(request(ReportType.SALES_SUMMARY));
+        ReportJobResponse second = reportJobService.submit(request(ReportType.SALES_SUMMARY));
+        release.countDown();
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        ReportJobResponse completed = awaitCompletion(first.getId());
+        assertThat(completed.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(completed.getResultUrl()).isEqualTo("/api/reports/jobs/" + first.getId() + "/result");
+        assertThat(Files.readString(reportJobService.getResult(first.getId()))).isEqualTo("{\"saleCount\":42}");
+
+        // A retry after completion is answered from the stored result
+        assertThat(reportJobService.submit(request(ReportType.SALES_SUMMARY)).getId()).isEqualTo(first.getId());
+        verify(reportService, times(1)).getSalesSummary(START, END);
+        assertThat(reportJobService.getStatistics()).containsEntry("deduplicatedCount", 2L);
+    }
+
+    @Test
+    void failedJobsAreRetriedOnResubmission() throws Exception {
+        when(rollupReportService.getCategoryBreakdown(START.toLocalDate(), END.toLocalDate()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        ReportJobResponse failed = awaitCompletion(reportJobService.submit(request(ReportType.CATEGORY_BREAKDOWN)).getId());
+
+        assertThat(failed.getStatus()).isEqualTo(JobStatus.FAILED);
+        assertThat(failed.getError()).isEqualTo("database unavailable");
+        assertThatThrownBy(() -> reportJobService.getResult(failed.getId())).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(reportJobService.submit(request(ReportType.CATEGORY_BREAKDOWN)).getId()).isNotEqualTo(failed.getId());
+    }
+
+    @Test
+    void jobsAreInvisibleToOtherTenants() throws Exception {
+        ReportJobResponse job = reportJobService.submit(request(ReportType.PAYMENT_METHODS));
+
+        TenantContext.setCurrentTenant("tenant2");
+
+        assertThatThrownBy(() -> reportJobService.getJob(job.getId())).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(reportJobService.submit(request(ReportType.PAYMENT_METHODS)).getId()).isNotEqualTo(job.getId());
+    }
+
+    @Test
+    void onlyLongPeriodsExceedTheThreshold() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        assertThat(reportJobService.exceedsAsyncThreshold(start, start.plusDays(365))).isFalse();
+        assertThat(reportJobService.exceedsAsyncThreshold(start, start.plusDays(366))).isTrue();
+    }
+
+    private static ReportJobRequest request(ReportType type) {
+        return ReportJobRequest.builder().type(type).startDate(START).endDate(END).build();
+    }
+
+    private ReportJobResponse awaitCompletion(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ReportJobResponse job = reportJobService.getJob(id);
+        while ((job.getStatus() == JobStatus.QUEUED || job.getStatus() == JobStatus.RUNNING) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = reportJobService.getJob(id);
+        }
+        return job;
+    }
+}
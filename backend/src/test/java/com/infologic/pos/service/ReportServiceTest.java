@@ -0,0 +1,226 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.infologic.pos.analytics.SalesColumnarCache;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.dto.InventoryStatusItem;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.Sale.PaymentMethod;
+import com.infologic.pos.model.Sale.SaleStatus;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.repository.SalesDailyRollupRepository;
+
+import jakarta.persistence.EntityManager;
+
+class ReportServiceTest {
+
+    private static final String TENANT = "tenant1";
+    private static final int ROWS = 1_000_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private SaleRepository saleRepository;
+    private ProductRepository productRepository;
+    private EntityManager entityManager;
+    private SalesDailyRollupRepository dailyRollupRepository;
+    private ReportResultCache reportResultCache;
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        // Stub-only mocks do not record invocations, which would otherwise retain every streamed sale
+        saleRepository = mock(SaleRepository.class, withSettings().stubOnly());
+        entityManager = mock(EntityManager.class, withSettings().stubOnly());
+        dailyRollupRepository = mock(SalesDailyRollupRepository.class);
+        reportResultCache = new ReportResultCache();
+        reportResultCache.init();
+        productRepository = mock(ProductRepository.class);
+        reportService = new ReportService(saleRepository, productRepository, entityManager,
+                dailyRollupRepository, mock(SalesColumnarCache.class), reportResultCache);
+        ReflectionTestUtils.setField(reportService, "rollupsEnabled", true);
+        TenantContext.setCurrentTenant(TENANT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void salesByPaymentMethodUsesGroupedTotalsOfCompletedSales() {
+        // Closed days come from the rollups, the instant at the end of the range from raw rows
+        when(dailyRollupRepository.getPaymentMethodTotals(TENANT, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(List.of(
+                        new Object[] { PaymentMethod.CASH, SaleStatus.COMPLETED, 3L, new BigDecimal("30.00") },
+                        new Object[] { PaymentMethod.CASH, SaleStatus.CANCELLED, 1L, new BigDecimal("10.00") }));
+        when(saleRepository.getPaymentMethodTotals(TENANT, END, END)).thenReturn(List.<Object[]>of(
+                new Object[] { PaymentMethod.CASH, SaleStatus.COMPLETED, 1L, new BigDecimal("5.00") },
+                new Object[] { PaymentMethod.CREDIT_CARD, SaleStatus.COMPLETED, 2L, new BigDecimal("25.50") }));
+
+        Map<PaymentMethod, BigDecimal> totals = reportService.getSalesByPaymentMethod(START, END);
+
+        assertThat(totals).containsOnly(
+                Map.entry(PaymentMethod.CASH, new BigDecimal("35.00")),
+                Map.entry(PaymentMethod.CREDIT_CARD, new BigDecimal("25.50")));
+    }
+
+    @Test
+    void rollupsAreOnlyReadOnceEnabled() {
+        ReportService defaults = new ReportService(saleRepository, productRepository, entityManager,
+                dailyRollupRepository, mock(SalesColumnarCache.class), reportResultCache);
+        when(saleRepository.getPaymentMethodTotals(TENANT, START, END)).thenReturn(List.<Object[]>of(
+                new Object[] { PaymentMethod.CASH, SaleStatus.COMPLETED, 4L, new BigDecimal("35.00") }));
+
+        Map<PaymentMethod, BigDecimal> totals = defaults.getSalesByPaymentMethod(START, END);
+
+        assertThat(totals).containsOnly(Map.entry(PaymentMethod.CASH, new BigDecimal("35.00")));
+        verifyNoInteractions(dailyRollupRepository);
+    }
+
+    @Test
+    void salesSummaryCombinesRollupsWithPartialDays() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 10, 18, 0);
+        when(dailyRollupRepository.getDailySummaries(TENANT, LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 9), SaleStatus.COMPLETED))
+                .thenReturn(List.<Object[]>of(
+                        new Object[] { LocalDate.of(2024, 1, 2), 30L, new BigDecimal("350.00"), new BigDecimal("300.00") },
+                        new Object[] { LocalDate.of(2024, 1, 5), 50L, new BigDecimal("500.00"), new BigDecimal("500.00") }));
+        when(saleRepository.countSalesByDateRange(eq(start), any(), eq(TENANT))).thenReturn(5L);
+        when(saleRepository.countSalesByDateRange(eq(LocalDateTime.of(2024, 1, 10, 0, 0)), eq(end), eq(TENANT))).thenReturn(7L);
+        when(saleRepository.getTotalSalesRevenue(eq(start), any(), eq(TENANT))).thenReturn(50.0);
+        when(saleRepository.getTotalSalesRevenue(eq(LocalDateTime.of(2024, 1, 10, 0, 0)), eq(end), eq(TENANT))).thenReturn(70.0);
+
+        Map<String, Object> summary = reportService.getSalesSummary(start, end);
+
+        assertThat(summary.get("saleCount")).isEqualTo(92L);
+        assertThat((BigDecimal) summary.get("totalRevenue")).isEqualByComparingTo("920.00");
+    }
+    
+    @Test
+    void closedDaysAreServedFromTheCacheUntilInvalidated() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 4, 0, 0).minusNanos(1000);
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        LocalDate lastDay = LocalDate.of(2024, 1, 3);
+        when(dailyRollupRepository.getDailySummaries(TENANT, firstDay, lastDay, SaleStatus.COMPLETED))
+                .thenReturn(List.<Object[]>of(
+                        new Object[] { LocalDate.of(2024, 1, 2), 4L, new BigDecimal("40.00"), new BigDecimal("40.00") }));
+        when(dailyRollupRepository.getDailySummaries(TENANT, LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2), SaleStatus.COMPLETED))
+                .thenReturn(List.<Object[]>of(
+                        new Object[] { LocalDate.of(2024, 1, 2), 4L, new BigDecimal("40.00"), new BigDecimal("30.00") }));
+        
+        assertThat(reportService.getTotalRevenue(start, end)).isEqualByComparingTo("40.00");
+        assertThat(reportService.getSaleCount(start, end)).isEqualTo(4L);
+        verify(dailyRollupRepository, times(1)).getDailySummaries(TENANT, firstDay, lastDay, SaleStatus.COMPLETED);
+        
+        // A refund on the 2nd only reloads that day
+        reportResultCache.invalidate(TENANT, LocalDate.of(2024, 1, 2));
+        assertThat(reportService.getTotalRevenue(start, end)).isEqualByComparingTo("30.00");
+        verify(dailyRollupRepository, times(1)).getDailySummaries(TENANT, firstDay, lastDay, SaleStatus.COMPLETED);
+        assertThat(reportResultCache.getStatistics().get("hitCount")).isEqualTo(5L);
+    }
+
+    @Test
+    void inventoryStatusPagesProjectionsAfterTheLastId() {
+        List<Object[]> counts = List.<Object[]>of(new Object[] { 200_000L, 1_234L, 56L, 789L });
+        when(productRepository.getStockCounts(TENANT, 10)).thenReturn(counts);
+        when(productRepository.findLowStockPage(TENANT, 10, 0L, PageRequest.of(0, 3))).thenReturn(List.of(
+                new InventoryStatusItem(4L, "SKU-4", "Cable", 0, 5),
+                new InventoryStatusItem(9L, "SKU-9", "Charger", 2, 5),
+                new InventoryStatusItem(12L, "SKU-12", "Case", 7, 5)));
+        when(productRepository.findLowStockPage(TENANT, 10, 9L, PageRequest.of(0, 3))).thenReturn(List.of(
+                new InventoryStatusItem(12L, "SKU-12", "Case", 7, 5),
+                new InventoryStatusItem(15L, "SKU-15", "Screen guard", 1, 5)));
+
+        Map<String, Object> first = reportService.getInventoryStatus(10, 0, 2);
+        Map<String, Object> last = reportService.getInventoryStatus(10, 9, 2);
+
+        assertThat(first).containsEntry("productCount", 200_000L)
+                .containsEntry("lowStockCount", 1_234L)
+                .containsEntry("outOfStockCount", 56L)
+                .containsEntry("belowAlertThresholdCount", 789L)
+                .containsEntry("nextAfterId", 9L);
+        assertThat((List<?>) first.get("lowStockProducts")).extracting("id").containsExactly(4L, 9L);
+        assertThat((List<?>) last.get("lowStockProducts")).extracting("id").containsExactly(12L, 15L);
+        assertThat(last.get("nextAfterId")).isNull();
+        // The counts cover all products, so later pages do not recompute them
+        assertThat(last).doesNotContainKeys("productCount", "lowStockCount", "outOfStockCount",
+                "belowAlertThresholdCount");
+        verify(productRepository, times(1)).getStockCounts(TENANT, 10);
+    }
+    
+    @Test
+    void streamingAggregationRunsInConstantMemory() {
+        AtomicReference<WeakReference<Sale>> firstSale = new AtomicReference<>();
+        when(saleRepository.streamByCreatedAtBetweenAndTenantId(eq(START), eq(END), eq(TENANT)))
+                .thenAnswer(invocation -> LongStream.rangeClosed(1, ROWS).mapToObj(id -> {
+                    Sale sale = newSale(id);
+                    firstSale.compareAndSet(null, new WeakReference<>(sale));
+                    return sale;
+                }));
+        AtomicLong detached = new AtomicLong();
+        doAnswer(invocation -> detached.incrementAndGet()).when(entityManager).detach(any());
+
+        long heapBefore = usedHeapAfterGc();
+        Map<PaymentMethod, BigDecimal> totals = reportService.aggregateSales(START, END,
+                () -> new EnumMap<>(PaymentMethod.class),
+                (result, sale) -> result.merge(sale.getPaymentMethod(), sale.getTotalAmount(), BigDecimal::add));
+        long heapGrowth = usedHeapAfterGc() - heapBefore;
+
+        assertThat(detached.get()).isEqualTo(ROWS);
+        assertThat(totals.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(BigDecimal.valueOf(ROWS).multiply(new BigDecimal("10.00")));
+        // Retaining a million sales would take hundreds of megabytes
+        assertThat(heapGrowth).isLessThan(32L * 1024 * 1024);
+        assertThat(firstSale.get().get()).isNull();
+    }
+
+    private static Sale newSale(long id) {
+        PaymentMethod[] methods = PaymentMethod.values();
+        return Sale.builder()
+                .id(id)
+                .invoiceNumber("INV-" + id)
+                .totalAmount(new BigDecimal("10.00"))
+                .paymentMethod(methods[(int) (id % methods.length)])
+                .status(SaleStatus.COMPLETED)
+                .createdAt(START.plusSeconds(id))
+                .tenantId(TENANT)
+                .build();
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
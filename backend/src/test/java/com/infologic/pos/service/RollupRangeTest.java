@@ -0,0 +1,56 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class RollupRangeTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+    @Test
+    void wholeDaysComeFromRollups() {
+        RollupRange range = RollupRange.of(LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 1, 31, 23, 59, 59, 999_999_000), TODAY);
+
+        assertThat(range.getFirstDay()).isEqualTo(LocalDate.of(2024, 1, 1));
+        assertThat(range.getLastDay()).isEqualTo(LocalDate.of(2024, 1, 31));
+        assertThat(range.getRawSegments()).isEmpty();
+    }
+
+    @Test
+    void partialEdgesAreReadFromRawRows() {
+        RollupRange range = RollupRange.of(LocalDateTime.of(2024, 1, 1, 12, 0),
+                LocalDateTime.of(2024, 1, 10, 18, 0), TODAY);
+
+        assertThat(range.getFirstDay()).isEqualTo(LocalDate.of(2024, 1, 2));
+        assertThat(range.getLastDay()).isEqualTo(LocalDate.of(2024, 1, 9));
+        assertThat(range.getRawSegments()).containsExactly(
+                new RollupRange.Segment(LocalDateTime.of(2024, 1, 1, 12, 0), LocalDateTime.of(2024, 1, 1, 23, 59, 59, 999_999_000)),
+                new RollupRange.Segment(LocalDateTime.of(2024, 1, 10, 0, 0), LocalDateTime.of(2024, 1, 10, 18, 0)));
+    }
+
+    @Test
+    void currentDayIsNeverReadFromRollups() {
+        RollupRange range = RollupRange.of(LocalDateTime.of(2024, 3, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 31, 0, 0), TODAY);
+
+        assertThat(range.getLastDay()).isEqualTo(LocalDate.of(2024, 3, 14));
+        assertThat(range.getRawSegments()).containsExactly(
+                new RollupRange.Segment(TODAY.atStartOfDay(), LocalDateTime.of(2024, 3, 31, 0, 0)));
+    }
+
+    @Test
+    void rangeWithinOneDayIsReadFromRawRows() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 5, 8, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 5, 17, 0);
+
+        RollupRange range = RollupRange.of(start, end, TODAY);
+
+        assertThat(range.hasClosedDays()).isFalse();
+        assertThat(range.getRawSegments()).containsExactly(new RollupRange.Segment(start, end));
+    }
+}
@@ -0,0 +1,153 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.infologic.pos.analytics.TopProductsSketch;
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.SalesHourlyRollup;
+import com.infologic.pos.repository.CashierShiftRollupRepository;
+import com.infologic.pos.repository.CustomerDailySketchRepository;
+import com.infologic.pos.repository.ProductDailyRollupRepository;
+import com.infologic.pos.repository.ProductRepository;
+import com.infologic.pos.repository.SalesHourlyRollupRepository;
+import com.infologic.pos.sketch.Hashing;
+import com.infologic.pos.sketch.HyperLogLog;
+
+class RollupReportServiceTest {
+
+    private static final String TENANT = "tenant1";
+
+    private ProductDailyRollupRepository productRollupRepository;
+    private SalesHourlyRollupRepository hourlyRollupRepository;
+    private CustomerDailySketchRepository customerSketchRepository;
+    private CashierShiftRollupRepository cashierShiftRepository;
+    private RollupReportService rollupReportService;
+
+    @BeforeEach
+    void setUp() {
+        productRollupRepository = mock(ProductDailyRollupRepository.class);
+        hourlyRollupRepository = mock(SalesHourlyRollupRepository.class);
+        customerSketchRepository = mock(CustomerDailySketchRepository.class);
+        cashierShiftRepository = mock(CashierShiftRollupRepository.class);
+        rollupReportService = new RollupReportService(mock(ProductRepository.class), productRollupRepository,
+                hourlyRollupRepository, new TopProductsSketch(), customerSketchRepository, cashierShiftRepository);
+        TenantContext.setCurrentTenant(TENANT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void productTrendFillsDaysWithoutSales() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 4);
+        when(productRollupRepository.getProductTrend(TENANT, 7L, start, end)).thenReturn(List.<Object[]>of(
+                new Object[] { LocalDate.of(2024, 1, 2), 3L, new BigDecimal("30.00") },
+                new Object[] { LocalDate.of(2024, 1, 4), 1L, new BigDecimal("10.00") }));
+
+        List<Map<String, Object>> series = rollupReportService.getProductTrend(7L, start, end);
+
+        assertThat(series).extracting(point -> point.get("quantity")).containsExactly(0L, 3L, 0L, 1L);
+        assertThat(series).extracting(point -> point.get("date"))
+                .containsExactly(start, start.plusDays(1), start.plusDays(2), end);
+    }
+
+    @Test
+    void heatmapIsAFixedGridOfTheHourlyRollup() {
+        when(hourlyRollupRepository.findByTenantId(TENANT)).thenReturn(List.of(
+                SalesHourlyRollup.builder().tenantId(TENANT).dayOfWeek(1).hourOfDay(9).saleCount(4).totalAmount(new BigDecimal("40.00")).build(),
+                SalesHourlyRollup.builder().tenantId(TENANT).dayOfWeek(6).hourOfDay(14).saleCount(12).totalAmount(new BigDecimal("150.00")).build()));
+        
+        Map<String, Object> heatmap = rollupReportService.getSalesHeatmap();
+        
+        long[][] saleCounts = (long[][]) heatmap.get("saleCount");
+        BigDecimal[][] revenue = (BigDecimal[][]) heatmap.get("revenue");
+        assertThat(saleCounts).hasDimensions(7, 24);
+        assertThat(saleCounts[0][9]).isEqualTo(4);
+        assertThat(saleCounts[5][14]).isEqualTo(12);
+        assertThat(revenue[5][14]).isEqualByComparingTo("150.00");
+        assertThat(revenue[3][3]).isEqualByComparingTo("0");
+        assertThat(heatmap.get("peak")).isEqualTo(Map.of("dayOfWeek", DayOfWeek.SATURDAY, "hour", 14));
+    }
+    
+    @Test
+    void uniqueCustomersMergeTheDailySketches() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 12, 31);
+        Set<String> exact = new HashSet<>();
+        List<byte[]> sketches = new ArrayList<>();
+        Random random = new Random(7);
+        for (int day = 0; day < 366; day++) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int visit = 0; visit < 300; visit++) {
+                String customer = SalesRollupService.customerKey(Sale.builder()
+                        .customerPhone("082 555 " + random.nextInt(40_000)).build());
+                sketch.add(Hashing.hash64(customer));
+                exact.add(customer);
+            }
+            sketches.add(sketch.toByteArray());
+        }
+        when(customerSketchRepository.findSketches(TENANT, start, end)).thenReturn(sketches);
+
+        Map<String, Object> result = rollupReportService.getUniqueCustomers(start, end);
+
+        long estimate = (Long) result.get("uniqueCustomers");
+        double standardError = (Double) result.get("standardError");
+        assertThat(Math.abs(estimate - exact.size()) / (double) exact.size()).isLessThan(3 * standardError);
+        assertThat(result).containsEntry("daysWithCustomers", 366);
+    }
+    
+    @Test
+    void cashierLeaderboardRanksAStoreFromOneGroupedRead() {
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2024, 12, 31);
+        List<Object[]> totals = new ArrayList<>();
+        for (long cashierId = 1; cashierId <= 500; cashierId++) {
+            // Cashier 7 rings up the most, cashier 3 the biggest baskets, cashier 11 scans fastest
+            long sales = cashierId == 7 ? 12_000 : 5_000;
+            BigDecimal revenue = BigDecimal.valueOf(sales * (cashierId == 3 ? 90 : 40));
+            long activeSeconds = cashierId == 11 ? 150_000 : 600_000;
+            totals.add(new Object[] { cashierId, 400L, sales, revenue, sales * 3, 10L, new BigDecimal("250.00"), activeSeconds });
+        }
+        when(cashierShiftRepository.getCashierTotals(TENANT, start, end)).thenReturn(totals);
+
+        Map<String, Object> byRevenue = rollupReportService.getCashierLeaderboard(start, end, null, RollupReportService.CashierRanking.REVENUE, 3);
+        Map<String, Object> bySpeed = rollupReportService.getCashierLeaderboard(start, end, null, RollupReportService.CashierRanking.ITEMS_PER_MINUTE, 1);
+
+        assertThat(byRevenue).containsEntry("cashierCount", 500);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> ranked = (List<Map<String, Object>>) byRevenue.get("cashiers");
+        assertThat(ranked).extracting(cashier -> cashier.get("cashierId")).containsExactly(7L, 3L, 1L);
+        assertThat(ranked.get(1)).containsEntry("rank", 2)
+                .containsEntry("averageBasket", new BigDecimal("90.00"))
+                .containsEntry("itemsPerMinute", new BigDecimal("1.50"))
+                .containsEntry("refundCount", 10L);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> fastest = (List<Map<String, Object>>) bySpeed.get("cashiers");
+        assertThat(fastest).singleElement().satisfies(cashier -> assertThat(cashier)
+                .containsEntry("cashierId", 11L)
+                .containsEntry("itemsPerMinute", new BigDecimal("6.00")));
+        verify(cashierShiftRepository, times(2)).getCashierTotals(TENANT, start, end);
+    }
+}
@@ -0,0 +1,192 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+class SaleExportServiceTest {
+
+    private static final String TENANT = "tenant1";
+    private static final long SALES = 1_500_000;
+    private static final int ITEMS_PER_SALE = 2;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private Connection connection;
+    private SaleExportService exportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exportService = new SaleExportService(mock(EntityManager.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(exportService, "fetchSize", 100);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:sale-export;DB_CLOSE_DELAY=0");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255), sku VARCHAR(255))");
+            statement.execute("CREATE TABLE sales (id BIGINT PRIMARY KEY, invoice_number VARCHAR(255), created_at TIMESTAMP, "
+                    + "customer_name VARCHAR(255), customer_phone VARCHAR(255), customer_email VARCHAR(255), "
+                    + "total_amount DECIMAL(19,2), tax_amount DECIMAL(19,2), discount_amount DECIMAL(19,2), "
+                    + "payment_method VARCHAR(32), payment_reference VARCHAR(255), sale_status VARCHAR(32), "
+                    + "cashier_id BIGINT, tenant_id VARCHAR(64))");
+            statement.execute("CREATE TABLE sale_items (id BIGINT PRIMARY KEY, sale_id BIGINT, product_id BIGINT, "
+                    + "quantity INT, unit_price DECIMAL(19,2), discount_amount DECIMAL(19,2), tax_amount DECIMAL(19,2), "
+                    + "subtotal DECIMAL(19,2))");
+            statement.execute("INSERT INTO products VALUES (1, 'Coffee, large', 'COF-L'), (2, 'Tea \"green\"', 'TEA-G')");
+            statement.execute("INSERT INTO sales VALUES "
+                    + "(1, 'INV-1', TIMESTAMP '2024-01-01 09:00:00', 'Ann', NULL, NULL, 25.00, 0.00, 0.00, 'CASH', NULL, 'COMPLETED', 7, 'tenant1'), "
+                    + "(2, 'INV-2', TIMESTAMP '2024-01-02 10:30:00', NULL, NULL, NULL, 10.00, 0.00, 0.00, 'CREDIT_CARD', 'ref', 'PENDING', NULL, 'tenant1'), "
+                    + "(3, 'INV-3', TIMESTAMP '2024-01-02 11:00:00', NULL, NULL, NULL, 99.00, 0.00, 0.00, 'CASH', NULL, 'COMPLETED', 7, 'tenant2'), "
+                    + "(4, 'INV-4', TIMESTAMP '2024-01-03 12:00:00', 'Bob', NULL, NULL, 5.00, 0.00, 0.00, 'CASH', NULL, 'REFUNDED', 8, 'tenant1')");
+            statement.execute("INSERT INTO sale_items VALUES "
+                    + "(10, 1, 1, 1, 15.00, 0.00, 0.00, 15.00), "
+                    + "(11, 1, 2, 2, 5.00, 0.00, 0.00, 10.00), "
+                    + "(12, 3, 1, 1, 99.00, 0.00, 0.00, 99.00), "
+                    + "(13, 4, 2, 1, 5.00, 0.00, 0.00, 5.00)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    void exportsOneSaleWithItsItemsPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long sales = exportService.export(connection, TENANT, SaleExportService.Format.NDJSON, null, null, 0, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(sales).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines.get(0));
+        assertThat(first.get("id").asLong()).isEqualTo(1);
+        assertThat(first.get("createdAt").asText()).isEqualTo("2024-01-01T09:00:00");
+        assertThat(first.get("totalAmount").decimalValue()).isEqualByComparingTo("25.00");
+        assertThat(first.get("items")).extracting(item -> item.get("sku").asText()).containsExactly("COF-L", "TEA-G");
+        JsonNode second = mapper.readTree(lines.get(1));
+        assertThat(second.get("items")).isEmpty();
+        assertThat(second.get("cashierId").isNull()).isTrue();
+        assertThat(mapper.readTree(lines.get(2)).get("id").asLong()).isEqualTo(4);
+    }
+
+    @Test
+    void resumesAfterTheLastSaleReceivedWithinTheDateRange() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long sales = exportService.export(connection, TENANT, SaleExportService.Format.CSV,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 23, 59), 0, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(sales).isEqualTo(2);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).startsWith("sale_id,invoice_number,created_at");
+        assertThat(lines.get(1)).startsWith("1,INV-1,2024-01-01T09:00:00,Ann,,,25.00,").contains(",\"Coffee, large\",COF-L,1,15.00,");
+        assertThat(lines.get(2)).contains(",\"Tea \"\"green\"\"\",TEA-G,");
+        assertThat(lines.get(3)).startsWith("2,INV-2,").endsWith(",PENDING,,,,,,,,,,");
+
+        out.reset();
+        exportService.export(connection, TENANT, SaleExportService.Format.CSV, null, null, 2, out);
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().skip(1)).singleElement().asString().startsWith("4,INV-4,");
+    }
+
+    @Test
+    void exportsMillionsOfRowsInConstantMemory() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+
+        long heapBefore = usedHeapAfterGc();
+        long sales = SaleExportService.write(syntheticRows(), SaleExportService.Format.NDJSON, out);
+        long heapGrowth = usedHeapAfterGc() - heapBefore;
+
+        assertThat(sales).isEqualTo(SALES);
+        assertThat(out.lines).isEqualTo(SALES);
+        assertThat(out.bytes).isGreaterThan(SALES * 100);
+        // The output alone is several hundred megabytes
+        assertThat(heapGrowth).isLessThan(16L * 1024 * 1024);
+    }
+
+    /**
+     * A result set of {@link #SALES} sales with {@link #ITEMS_PER_SALE} items each, generated as it is read
+     */
+    private static ResultSet syntheticRows() {
+        long[] row = { 0 };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    long saleId = (row[0] - 1) / ITEMS_PER_SALE + 1;
+                    int column = args != null && args.length > 0 && args[0] instanceof Integer index ? index : 0;
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] <= SALES * ITEMS_PER_SALE;
+                        case "wasNull":
+                            return false;
+                        case "getLong":
+                            return column == 1 ? saleId : column == 14 ? row[0] : 1L;
+                        case "getInt":
+                            return 1;
+                        case "getString":
+                            return column == 2 ? "INV-" + saleId : column == 10 ? "CASH" : column == 12 ? "COMPLETED" : "value";
+                        case "getBigDecimal":
+                            return new BigDecimal("10.00");
+                        case "getObject":
+                            return args.length == 2 ? START.plusSeconds(saleId) : (Object) row[0];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
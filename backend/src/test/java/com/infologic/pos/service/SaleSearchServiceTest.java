@@ -0,0 +1,176 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.config.tenant.TenantRegistry;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.repository.SaleRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Runs the LIKE search against an in-memory database holding the sales of two tenants. The
+ * repository's declared query is run directly, as the whole repository cannot be created here:
+ * findByTenantIdAndClientReferenceId names a property Sale does not have.
+ */
+class SaleSearchServiceTest {
+
+    private JdbcDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private SaleSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sale-search;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("com.infologic.pos.model");
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        SaleRepository saleRepository = mock(SaleRepository.class);
+        when(saleRepository.searchSales(anyString(), anyString(), anyString(), anyString(), any(Pageable.class)))
+                .thenAnswer(invocation -> runDeclaredQuery(entityManager, invocation));
+        searchService = new SaleSearchService(saleRepository, entityManager, dataSource, mock(TenantRegistry.class),
+                new JpaTransactionManager(entityManagerFactory));
+        searchService.createSearchIndexes();
+
+        EntityManager writer = entityManagerFactory.createEntityManager();
+        writer.getTransaction().begin();
+        // The other tenant's sales match every query below
+        writer.persist(sale("tenant1", "INV-1A2B3C4D", "Thandi Mokoena", "+27821234567", 1));
+        writer.persist(sale("tenant1", "INV-1A2B9999", "Sipho Dlamini", "+27831112222", 2));
+        writer.persist(sale("tenant1", "INV-77777777", "Anna Thandeka", "+27821239999", 3));
+        writer.persist(sale("tenant2", "INV-1A2B0000", "Thandi Nkosi", "+27821230000", 4));
+        writer.persist(sale("tenant2", "INV-1A2B3C4E", "Sipho Mokoena", "+27831110000", 5));
+        writer.getTransaction().commit();
+        writer.close();
+        TenantContext.setCurrentTenant("tenant1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        factoryBean.destroy();
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void everyKindOfMatchStaysWithinTheTenant() {
+        assertThat(invoices("inv-1a2b")).containsExactly("INV-1A2B9999", "INV-1A2B3C4D");
+        assertThat(invoices("INV-1A2B3C4D")).containsExactly("INV-1A2B3C4D");
+        assertThat(invoices("+2782123")).containsExactly("INV-77777777", "INV-1A2B3C4D");
+        assertThat(invoices("thand")).containsExactly("INV-77777777", "INV-1A2B3C4D");
+        assertThat(invoices("mokoena")).containsExactly("INV-1A2B3C4D");
+        assertThat(invoices("%")).isEmpty();
+
+        TenantContext.setCurrentTenant("tenant2");
+        assertThat(invoices("inv-1a2b")).containsExactly("INV-1A2B3C4E", "INV-1A2B0000");
+        assertThat(invoices("sipho")).containsExactly("INV-1A2B3C4E");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fullTextSearchMatchesNameWordPrefixes() {
+        EntityManager entityManager = mock(EntityManager.class);
+        SaleSearchService fullText = new SaleSearchService(mock(SaleRepository.class), entityManager, dataSource,
+                mock(TenantRegistry.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(fullText, "fullTextAvailable", true);
+        // The tenant's schema counts as indexed once its indexes, none here, are built
+        ReflectionTestUtils.setField(fullText, "searchIndexes", new SchemaIndexes("sales search", List.of(),
+                new JdbcTemplate(dataSource), Runnable::run, System::currentTimeMillis));
+        Query query = mock(Query.class, RETURNS_SELF);
+        when(entityManager.createNativeQuery(anyString(), eq(Sale.class))).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of());
+
+        fullText.search(" inv-1a2b_ ", PageRequest.of(1, 25));
+
+        verify(query).setParameter("tenantId", "tenant1");
+        verify(query).setParameter("invoiceNumber", "INV-1A2B_");
+        verify(query).setParameter("invoicePrefix", "INV-1A2B\\_%");
+        verify(query).setParameter("phonePrefix", "inv-1a2b\\_%");
+        verify(query).setParameter("nameQuery", "inv:* & 1a2b:*");
+        verify(query).setParameter("limit", 26);
+        verify(query).setParameter("offset", 25L);
+        assertThat(SaleSearchService.toPrefixQuery("O'Brien  van-der")).isEqualTo("o:* & brien:* & van:* & der:*");
+        assertThat(SaleSearchService.toPrefixQuery("+27 82")).isEqualTo("27:* & 82:*");
+    }
+
+    /**
+     * Run the repository method's JPQL as declared, newest first
+     */
+    private static Page<Sale> runDeclaredQuery(EntityManager entityManager, InvocationOnMock invocation) {
+        Method method = invocation.getMethod();
+        TypedQuery<Sale> query = entityManager.createQuery(
+                method.getAnnotation(org.springframework.data.jpa.repository.Query.class).value() + " ORDER BY s.createdAt DESC",
+                Sale.class);
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Param param = parameters[i].getAnnotation(Param.class);
+            if (param != null) {
+                query.setParameter(param.value(), invocation.getArgument(i));
+            }
+        }
+        return new PageImpl<>(query.getResultList());
+    }
+
+    private List<String> invoices(String query) {
+        return searchService.search(query, PageRequest.of(0, 20))
+                .map(Sale::getInvoiceNumber)
+                .getContent();
+    }
+
+    private static Sale sale(String tenantId, String invoiceNumber, String customerName, String customerPhone, int day) {
+        return Sale.builder()
+                .tenantId(tenantId)
+                .invoiceNumber(invoiceNumber)
+                .customerName(customerName)
+                .customerPhone(customerPhone)
+                .totalAmount(BigDecimal.TEN)
+                .status(Sale.SaleStatus.COMPLETED)
+                .createdAt(LocalDateTime.of(2024, 3, day, 12, 0))
+                .build();
+    }
+}
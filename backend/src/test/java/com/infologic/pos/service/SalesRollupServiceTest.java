@@ -0,0 +1,330 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infologic.pos.event.ReportCacheEvent;
+import com.infologic.pos.model.Product;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.model.SaleItem;
+import com.infologic.pos.model.SalesDailyRollup;
+import com.infologic.pos.model.SalesHourlyRollup;
+import com.infologic.pos.repository.CashierShiftRollupRepository;
+import com.infologic.pos.repository.CustomerDailySketchRepository;
+import com.infologic.pos.repository.ProductDailyRollupRepository;
+import com.infologic.pos.repository.SaleItemRollupEntryRepository;
+import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.repository.SaleRollupEntryRepository;
+import com.infologic.pos.repository.SalesDailyRollupRepository;
+import com.infologic.pos.repository.SalesHourlyRollupRepository;
+import com.infologic.pos.sketch.HyperLogLog;
+
+import jakarta.persistence.EntityManager;
+
+class SalesRollupServiceTest {
+
+    private JdbcDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+    private SalesRollupService rollupService;
+    private SalesDailyRollupRepository dailyRollupRepository;
+    private ProductDailyRollupRepository productRollupRepository;
+    private SalesHourlyRollupRepository hourlyRollupRepository;
+    private CustomerDailySketchRepository customerSketchRepository;
+    private CashierShiftRollupRepository cashierShiftRepository;
+    private ReportResultCache reportResultCache;
+    private EventPublisherService eventPublisher;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sales-rollup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("com.infologic.pos.model");
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(factoryBean.getObject());
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(factoryBean.getObject());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        SaleRepository saleRepository = mock(SaleRepository.class);
+        when(saleRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(sales.get(invocation.<Long>getArgument(0))));
+        dailyRollupRepository = repositories.getRepository(SalesDailyRollupRepository.class);
+        productRollupRepository = repositories.getRepository(ProductDailyRollupRepository.class);
+        hourlyRollupRepository = repositories.getRepository(SalesHourlyRollupRepository.class);
+        customerSketchRepository = repositories.getRepository(CustomerDailySketchRepository.class);
+        cashierShiftRepository = repositories.getRepository(CashierShiftRollupRepository.class);
+        reportResultCache = new ReportResultCache();
+        reportResultCache.init();
+        eventPublisher = mock(EventPublisherService.class);
+        rollupService = new SalesRollupService(saleRepository,
+                repositories.getRepository(SaleRollupEntryRepository.class),
+                dailyRollupRepository,
+                repositories.getRepository(SaleItemRollupEntryRepository.class),
+                productRollupRepository,
+                hourlyRollupRepository,
+                customerSketchRepository,
+                transactionManager,
+                reportResultCache,
+                cashierShiftRepository,
+                eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void concurrentFirstWritersOfARollupKeyLoseNoUpdates() throws Exception {
+        int days = 10;
+        for (int day = 0; day < days; day++) {
+            // Two sales per day with the same rollup keys, including the null cashier
+            LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1 + day, 12, 0);
+            for (long saleId = 2L * day + 1; saleId <= 2L * day + 2; saleId++) {
+                Sale sale = Sale.builder()
+                        .id(saleId)
+                        .tenantId("tenant1")
+                        .createdAt(createdAt)
+                        .paymentMethod(Sale.PaymentMethod.CASH)
+                        .status(Sale.SaleStatus.COMPLETED)
+                        .customerEmail("customer" + saleId + "@example.com")
+                        .totalAmount(new BigDecimal("10.00"))
+                        .items(new HashSet<>())
+                        .build();
+                sale.getItems().add(SaleItem.builder()
+                        .sale(sale)
+                        .product(Product.builder().id(5L).category("Cables").build())
+                        .quantity(3)
+                        .subtotal(new BigDecimal("10.00"))
+                        .build());
+                sales.put(saleId, sale);
+            }
+        }
+
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            for (int day = 0; day < days; day++) {
+                long firstSaleId = 2L * day + 1;
+                CyclicBarrier bothStarted = new CyclicBarrier(2);
+                List<Future<?>> applied = List.of(
+                        writers.submit(() -> applyOnceBothStarted(firstSaleId, bothStarted)),
+                        writers.submit(() -> applyOnceBothStarted(firstSaleId + 1, bothStarted)));
+                for (Future<?> future : applied) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+
+        List<SalesDailyRollup> rollups = dailyRollupRepository.findAll();
+        assertThat(rollups).hasSize(days).allSatisfy(rollup -> {
+            assertThat(rollup.getSaleCount()).isEqualTo(2);
+            assertThat(rollup.getTotalAmount()).isEqualByComparingTo("20.00");
+            assertThat(rollup.getCashierId()).isNull();
+        });
+        assertThat(productRollupRepository.findAll()).hasSize(days).allSatisfy(rollup -> {
+            assertThat(rollup.getQuantity()).isEqualTo(6);
+            assertThat(rollup.getRevenue()).isEqualByComparingTo("20.00");
+        });
+        // Ten days fall on seven days of the week, all at noon
+        List<SalesHourlyRollup> cells = hourlyRollupRepository.findAll();
+        assertThat(cells).hasSize(7).allSatisfy(cell -> assertThat(cell.getHourOfDay()).isEqualTo(12));
+        assertThat(cells.stream().mapToLong(SalesHourlyRollup::getSaleCount).sum()).isEqualTo(2L * days);
+        assertThat(customerSketchRepository.findAll()).hasSize(days).allSatisfy(row ->
+                assertThat(HyperLogLog.fromByteArray(row.getSketch()).estimate()).isEqualTo(2));
+    }
+
+    @Test
+    void concurrentFirstSalesOfACashierShiftShareItsRow() throws Exception {
+        int shifts = 5;
+        for (int day = 0; day < shifts; day++) {
+            // Two sales an hour apart in the morning shift of one cashier
+            for (int sale = 0; sale < 2; sale++) {
+                long saleId = 2L * day + sale + 1;
+                sales.put(saleId, Sale.builder()
+                        .id(saleId)
+                        .tenantId("tenant1")
+                        .cashierId(42L)
+                        .createdAt(LocalDateTime.of(2024, 3, 1 + day, 10 + sale, 0))
+                        .paymentMethod(Sale.PaymentMethod.CREDIT_CARD)
+                        .status(Sale.SaleStatus.COMPLETED)
+                        .totalAmount(new BigDecimal("15.00"))
+                        .items(new HashSet<>())
+                        .build());
+            }
+        }
+
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            for (int day = 0; day < shifts; day++) {
+                long firstSaleId = 2L * day + 1;
+                CyclicBarrier bothStarted = new CyclicBarrier(2);
+                List<Future<?>> applied = List.of(
+                        writers.submit(() -> applyOnceBothStarted(firstSaleId, bothStarted)),
+                        writers.submit(() -> applyOnceBothStarted(firstSaleId + 1, bothStarted)));
+                for (Future<?> future : applied) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+
+        assertThat(cashierShiftRepository.findAll()).hasSize(shifts).allSatisfy(rollup -> {
+            assertThat(rollup.getCashierId()).isEqualTo(42L);
+            assertThat(rollup.getSaleCount()).isEqualTo(2);
+            assertThat(rollup.getRevenue()).isEqualByComparingTo("30.00");
+            // Whichever sale came first, the span covers both
+            assertThat(rollup.getFirstSaleAt().getHour()).isEqualTo(10);
+            assertThat(rollup.getLastSaleAt().getHour()).isEqualTo(11);
+            assertThat(rollup.getActiveSeconds()).isEqualTo(3600);
+        });
+    }
+
+    @Test
+    void heatmapCellsUseTheTenantsLocalTime() {
+        // Monday 2024-01-01 23:30 UTC is Tuesday 01:30 in Johannesburg
+        LocalDateTime createdAt = ZonedDateTime.of(2024, 1, 1, 23, 30, 0, 0, ZoneId.of("UTC"))
+                .withZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+
+        assertThat(SalesRollupService.heatmapCell(createdAt, ZoneId.of("UTC"))).isEqualTo(23);
+        assertThat(SalesRollupService.heatmapCell(createdAt, ZoneId.of("Africa/Johannesburg"))).isEqualTo(24 + 1);
+        assertThat(SalesRollupService.heatmapCell(createdAt, ZoneId.of("Pacific/Kiritimati"))).isEqualTo(24 + 13);
+    }
+
+    @Test
+    void salesBeforeTheFirstShiftStartBelongToTheNightShift() {
+        ZoneId zone = ZoneId.of("Africa/Johannesburg");
+        var starts = SalesRollupService.parseShiftStarts("22:00, 06:00,14:00");
+
+        assertThat(SalesRollupService.shiftOf(local(2024, 3, 5, 6, 0, zone), zone, starts))
+                .isEqualTo(new SalesRollupService.Shift(LocalDate.of(2024, 3, 5), 1));
+        assertThat(SalesRollupService.shiftOf(local(2024, 3, 5, 13, 59, zone), zone, starts))
+                .isEqualTo(new SalesRollupService.Shift(LocalDate.of(2024, 3, 5), 1));
+        assertThat(SalesRollupService.shiftOf(local(2024, 3, 5, 23, 10, zone), zone, starts))
+                .isEqualTo(new SalesRollupService.Shift(LocalDate.of(2024, 3, 5), 3));
+        // 02:00 on the 6th is still the night shift that started on the 5th
+        assertThat(SalesRollupService.shiftOf(local(2024, 3, 6, 2, 0, zone), zone, starts))
+                .isEqualTo(new SalesRollupService.Shift(LocalDate.of(2024, 3, 5), 3));
+    }
+
+    @Test
+    void customersAreIdentifiedByNormalisedEmailThenPhone() {
+        Sale byEmail = Sale.builder().customerEmail("  Jane.Doe@Example.com ").customerPhone("082 555 0101").build();
+        Sale byPhone = Sale.builder().customerPhone("+27 (82) 555-0101").build();
+        Sale anonymous = Sale.builder().customerEmail(" ").customerPhone("n/a").build();
+
+        assertThat(SalesRollupService.customerKey(byEmail)).isEqualTo("email:jane.doe@example.com");
+        assertThat(SalesRollupService.customerKey(byPhone)).isEqualTo("phone:27825550101");
+        assertThat(SalesRollupService.customerKey(anonymous)).isNull();
+    }
+
+    @Test
+    void reportCachesAreInvalidatedEverywhereOnceTheRollupChangeCommits() {
+        // Sold a minute before midnight and applied after it, when the day may already be cached
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        sales.put(1L, Sale.builder()
+                .id(1L)
+                .tenantId("tenant1")
+                .createdAt(yesterday.atTime(23, 59))
+                .paymentMethod(Sale.PaymentMethod.CASH)
+                .status(Sale.SaleStatus.PENDING)
+                .totalAmount(new BigDecimal("10.00"))
+                .items(new HashSet<>())
+                .build());
+        sales.put(2L, Sale.builder()
+                .id(2L)
+                .tenantId("tenant1")
+                .createdAt(LocalDateTime.now())
+                .paymentMethod(Sale.PaymentMethod.CASH)
+                .status(Sale.SaleStatus.PENDING)
+                .totalAmount(new BigDecimal("10.00"))
+                .items(new HashSet<>())
+                .build());
+        loadClosedDay(yesterday, 0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupService.apply(1L);
+            rollupService.apply(2L);
+            // Until the commit other nodes would reload, and cache, the old totals
+            verify(eventPublisher, never()).publishReportCacheEvent(any());
+            assertThat(reportResultCache.getStatistics().get("size")).isEqualTo(1L);
+        });
+
+        ArgumentCaptor<ReportCacheEvent> events = ArgumentCaptor.forClass(ReportCacheEvent.class);
+        verify(eventPublisher).publishReportCacheEvent(events.capture());
+        assertThat(events.getValue().getTenantId()).isEqualTo("tenant1");
+        assertThat(events.getValue().getFirstDay()).isEqualTo(yesterday);
+        assertThat(events.getValue().getLastDay()).isEqualTo(yesterday);
+        // Dropped locally and held back from the cache while the change settles
+        assertThat(loadClosedDay(yesterday, 1).saleCount()).isEqualTo(1);
+        assertThat(reportResultCache.getStatistics().get("size")).isEqualTo(0L);
+    }
+
+    private ReportResultCache.DayTotals loadClosedDay(LocalDate day, long saleCount) {
+        return reportResultCache.getClosedDays("tenant1", day, day, (first, last) -> Map.of(day,
+                new ReportResultCache.DayTotals(saleCount, BigDecimal.TEN, BigDecimal.ZERO))).get(day);
+    }
+
+    private Object applyOnceBothStarted(long saleId, CyclicBarrier bothStarted) {
+        return transactionTemplate.execute(status -> {
+            try {
+                bothStarted.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            rollupService.apply(saleId);
+            return null;
+        });
+    }
+
+    private static LocalDateTime local(int year, int month, int day, int hour, int minute, ZoneId zone) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, zone)
+                .withZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+    }
+}
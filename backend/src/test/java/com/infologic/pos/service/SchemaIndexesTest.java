@@ -0,0 +1,116 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class SchemaIndexesTest {
+
+    private static final String CREATE_SHOP_A =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name ON shop_a.products (name)";
+    private static final String CREATE_SHOP_B =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name ON shop_b.products (name)";
+
+    private JdbcTemplate jdbcTemplate;
+    private final Queue<Runnable> builds = new ArrayDeque<>();
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private SchemaIndexes indexes;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        indexes = new SchemaIndexes("product search",
+                List.of(new SchemaIndexes.Index("idx_products_name", "ON %s.products (name)")),
+                jdbcTemplate, builds::add, now::get);
+    }
+
+    @Test
+    void searchesDoNotWaitForTheBuild() {
+        when(jdbcTemplate.queryForList(anyString(), eq("shop_a"), eq("idx_products_name")))
+                .thenReturn(List.of(), List.of(state(true, false)));
+
+        assertThat(indexes.ensure("shop_a")).isFalse();
+        // A build is already queued for the schema
+        assertThat(indexes.ensure("shop_a")).isFalse();
+        assertThat(builds).hasSize(1);
+        verify(jdbcTemplate, never()).execute(anyString());
+
+        builds.poll().run();
+        verify(jdbcTemplate).execute(CREATE_SHOP_A);
+        assertThat(indexes.ensure("shop_a")).isTrue();
+        assertThat(builds).isEmpty();
+    }
+
+    @Test
+    void invalidLeftoversAreDroppedAndBuiltAgain() {
+        when(jdbcTemplate.queryForList(anyString(), eq("shop_a"), eq("idx_products_name")))
+                .thenReturn(List.of(state(false, false)), List.of(state(true, false)));
+
+        indexes.ensure("shop_a");
+        builds.poll().run();
+
+        verify(jdbcTemplate).execute("DROP INDEX CONCURRENTLY IF EXISTS shop_a.idx_products_name");
+        verify(jdbcTemplate).execute(CREATE_SHOP_A);
+        assertThat(indexes.getIndexedSchemas()).containsExactly("shop_a");
+    }
+
+    @Test
+    void indexesStillBeingBuiltElsewhereAreLeftAlone() {
+        when(jdbcTemplate.queryForList(anyString(), eq("shop_a"), eq("idx_products_name")))
+                .thenReturn(List.of(state(false, true)), List.of(state(true, false)));
+
+        indexes.ensure("shop_a");
+        builds.poll().run();
+        verify(jdbcTemplate, never()).execute(anyString());
+        assertThat(indexes.ensure("shop_a")).isFalse();
+        assertThat(builds).isEmpty();
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        indexes.ensure("shop_a");
+        builds.poll().run();
+        assertThat(indexes.ensure("shop_a")).isTrue();
+    }
+
+    @Test
+    void failedBuildsAreRetriedAfterTheInterval() {
+        when(jdbcTemplate.queryForList(anyString(), eq("shop_b"), eq("idx_products_name")))
+                .thenReturn(List.of(), List.of(), List.of(state(true, false)));
+        // Without its tables the schema is not indexed, and is not tried again straight away
+        doThrow(new BadSqlGrammarException("create", CREATE_SHOP_B, new SQLException("no table")))
+                .doNothing()
+                .when(jdbcTemplate).execute(CREATE_SHOP_B);
+
+        indexes.ensure("shop_b");
+        builds.poll().run();
+        assertThat(indexes.ensure("shop_b")).isFalse();
+        assertThat(builds).isEmpty();
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        indexes.ensure("shop_b");
+        builds.poll().run();
+        assertThat(indexes.ensure("shop_b")).isTrue();
+        assertThat(indexes.getIndexedSchemas()).containsExactly("shop_b");
+    }
+
+    private static Map<String, Object> state(boolean valid, boolean building) {
+        return Map.of("valid", valid, "building", building);
+    }
+}
@@ -0,0 +1,139 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.model.RevokedToken;
+import com.infologic.pos.repository.RevokedTokenRepository;
+import com.infologic.pos.security.JwtClaims;
+
+class TokenRevocationServiceTest {
+
+    private final Map<String, RevokedToken> table = new HashMap<>();
+    private RevokedTokenRepository repository;
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        when(repository.save(any(RevokedToken.class))).thenAnswer(invocation -> {
+            RevokedToken revoked = invocation.getArgument(0);
+            table.put(revoked.getTokenId(), revoked);
+            return revoked;
+        });
+        when(repository.existsById(anyString())).thenAnswer(invocation -> table.containsKey(invocation.getArgument(0)));
+        when(repository.findActiveTokenIds(any())).thenAnswer(invocation -> new ArrayList<>(table.keySet()));
+        when(repository.findActiveUserRevocations(any())).thenAnswer(invocation -> table.values().stream()
+                .filter(revoked -> Boolean.TRUE.equals(revoked.getUserWide()))
+                .toList());
+        revocationService = service(repository, 100_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void neverRevokedTokensAreAnsweredFromTheFilterAlone() {
+        TenantContext.setCurrentTenant("tenant1");
+        JwtClaims revoked = claims(UUID.randomUUID().toString(), "cashier1", new Date());
+        revocationService.revoke(revoked);
+
+        assertThat(revocationService.isRevoked(revoked)).isTrue();
+        assertThat(revocationService.isRevoked(claims(UUID.randomUUID().toString(), "cashier1", new Date()))).isFalse();
+        verify(repository).existsById(revoked.getTokenId());
+        // The default schema is used for the table and the caller's tenant is put back
+        assertThat(TenantContext.getCurrentTenant()).isEqualTo("tenant1");
+    }
+
+    @Test
+    void filterFalsePositivesAreConfirmedAgainstTheTable() {
+        // A filter sized for one entry but given 200 answers yes for most other IDs too
+        TokenRevocationService crowded = service(repository, 1);
+        for (int i = 0; i < 200; i++) {
+            crowded.revoke(claims(UUID.randomUUID().toString(), "cashier" + i, new Date()));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertThat(crowded.isRevoked(claims(UUID.randomUUID().toString(), "cashier1", new Date()))).isFalse();
+        }
+
+        verify(repository, atLeastOnce()).existsById(anyString());
+    }
+
+    @Test
+    void userWideRevocationRejectsOnlyTokensIssuedBeforeIt() {
+        JwtClaims before = claims(UUID.randomUUID().toString(), "cashier1",
+                Date.from(LocalDateTime.now().minusMinutes(5).atZone(ZoneId.systemDefault()).toInstant()));
+        JwtClaims otherUser = claims(UUID.randomUUID().toString(), "cashier2", before.getIssuedAt());
+
+        revocationService.revokeUserTokens("tenant1", "cashier1");
+        JwtClaims after = claims(UUID.randomUUID().toString(), "cashier1", new Date());
+
+        assertThat(revocationService.isRevoked(before)).isTrue();
+        assertThat(revocationService.isRevoked(after)).isFalse();
+        assertThat(revocationService.isRevoked(otherUser)).isFalse();
+        assertThat(table.get(TokenRevocationService.userRevocationId("tenant1", "cashier1")).getExpiresAt())
+                .isAfter(LocalDateTime.now().plusMinutes(59));
+    }
+
+    @Test
+    void refreshPicksUpRevocationsMadeOnOtherNodes() {
+        String tokenId = UUID.randomUUID().toString();
+        JwtClaims token = claims(tokenId, "cashier1", new Date());
+        JwtClaims olderToken = claims(UUID.randomUUID().toString(), "cashier2",
+                Date.from(LocalDateTime.now().minusMinutes(5).atZone(ZoneId.systemDefault()).toInstant()));
+        TokenRevocationService otherNode = service(repository, 100_000);
+        otherNode.revoke(token);
+        otherNode.revokeUserTokens("tenant1", "cashier2");
+        assertThat(revocationService.isRevoked(token)).isFalse();
+        assertThat(revocationService.isRevoked(olderToken)).isFalse();
+
+        revocationService.refresh();
+
+        assertThat(revocationService.isRevoked(token)).isTrue();
+        assertThat(revocationService.isRevoked(olderToken)).isTrue();
+        verify(repository, atLeastOnce()).deleteExpired(any());
+        verify(repository, never()).findAll();
+    }
+
+    private static TokenRevocationService service(RevokedTokenRepository repository, int expectedEntries) {
+        TokenRevocationService service = new TokenRevocationService(repository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "expectedEntries", expectedEntries);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(service, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    private static JwtClaims claims(String tokenId, String username, Date issuedAt) {
+        return JwtClaims.builder()
+                .tokenId(tokenId)
+                .username(username)
+                .tenantId("tenant1")
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + 3_600_000L))
+                .build();
+    }
+}
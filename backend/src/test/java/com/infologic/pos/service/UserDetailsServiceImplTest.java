@@ -0,0 +1,111 @@
+package com.infologic.pos.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.infologic.pos.config.tenant.TenantContext;
+import com.infologic.pos.event.UserEvent;
+import com.infologic.pos.event.UserEvent.UserEventType;
+import com.infologic.pos.model.User;
+import com.infologic.pos.repository.UserRepository;
+
+class UserDetailsServiceImplTest {
+
+    private static final int USERS = 5;
+    private static final int THREADS = 32;
+    private static final int REQUESTS_PER_THREAD = 5_000;
+
+    private UserRepository userRepository;
+    private UserDetailsServiceImpl userDetailsService;
+    private LocalUserCacheInvalidationBus invalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername(anyString())).thenAnswer(invocation -> {
+            String username = invocation.getArgument(0);
+            return Optional.of(User.builder().username(username).tenantId("tenant1").build());
+        });
+
+        userDetailsService = new UserDetailsServiceImpl(userRepository);
+        ReflectionTestUtils.setField(userDetailsService, "cacheMaximumSize", 100L);
+        ReflectionTestUtils.setField(userDetailsService, "cacheTtlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(userDetailsService, "init");
+        invalidationBus = new LocalUserCacheInvalidationBus(userDetailsService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void concurrentRequestsForFewUsersAreServedFromCache() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                TenantContext.setCurrentTenant("tenant1");
+                try {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        String username = "cashier" + (i % USERS);
+                        UserDetails user = userDetailsService.loadUserByUsername(username);
+                        assertThat(user.getUsername()).isEqualTo(username);
+                    }
+                } finally {
+                    TenantContext.clear();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Each user is loaded exactly once, no matter how many threads race for it
+        verify(userRepository, times(USERS)).findByUsername(anyString());
+        double hitRatio = (double) userDetailsService.getCacheStatistics().get("hitRatio");
+        assertThat(hitRatio).isGreaterThan(0.999);
+    }
+
+    @Test
+    void userEventEvictsCachedUser() {
+        TenantContext.setCurrentTenant("tenant1");
+        userDetailsService.loadUserByUsername("cashier0");
+        userDetailsService.loadUserByUsername("cashier0");
+        verify(userRepository, times(1)).findByUsername("cashier0");
+
+        invalidationBus.publish(new UserEvent("tenant1", "system", 1L, "cashier0", UserEventType.MFA_ENABLED));
+
+        userDetailsService.loadUserByUsername("cashier0");
+        verify(userRepository, times(2)).findByUsername("cashier0");
+    }
+
+    @Test
+    void usersAreCachedPerTenant() {
+        TenantContext.setCurrentTenant("tenant1");
+        userDetailsService.loadUserByUsername("cashier0");
+        TenantContext.setCurrentTenant("tenant2");
+        userDetailsService.loadUserByUsername("cashier0");
+
+        verify(userRepository, times(2)).findByUsername("cashier0");
+    }
+}
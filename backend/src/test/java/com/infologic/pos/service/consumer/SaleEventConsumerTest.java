@@ -0,0 +1,77 @@
+package com.infologic.pos.service.consumer;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import com.infologic.pos.event.SaleEvent;
+import com.infologic.pos.event.SaleEvent.SaleEventType;
+import com.infologic.pos.model.Sale;
+import com.infologic.pos.repository.SaleRepository;
+import com.infologic.pos.service.SalesRollupService;
+
+class SaleEventConsumerTest {
+
+    private static final String TENANT = "tenant1";
+
+    private SaleRepository saleRepository;
+    private SalesRollupService salesRollupService;
+    private SaleEventConsumer consumer;
+    private Acknowledgment ack;
+
+    @BeforeEach
+    void setUp() {
+        saleRepository = mock(SaleRepository.class);
+        salesRollupService = mock(SalesRollupService.class);
+        consumer = new SaleEventConsumer(saleRepository, salesRollupService);
+        ack = mock(Acknowledgment.class);
+    }
+
+    @Test
+    void appliedEventIsAcknowledged() {
+        Sale sale = Sale.builder().id(7L).tenantId(TENANT).status(Sale.SaleStatus.CANCELLED).build();
+        when(saleRepository.existsById(7L)).thenReturn(true);
+        when(saleRepository.findById(7L)).thenReturn(Optional.of(sale));
+
+        consumer.consumeSaleEvent(new SaleEvent(TENANT, "system", sale, SaleEventType.CANCELED), ack);
+
+        verify(salesRollupService).apply(7L);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void saleNotYetVisibleIsRetriedInsteadOfAcknowledged() {
+        Sale sale = Sale.builder().id(7L).tenantId(TENANT).build();
+        when(saleRepository.existsById(7L)).thenReturn(false);
+
+        assertThatThrownBy(() -> consumer.consumeSaleEvent(
+                new SaleEvent(TENANT, "system", sale, SaleEventType.CANCELED), ack))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(salesRollupService, never()).apply(any());
+        verify(ack, never()).acknowledge();
+    }
+
+    @Test
+    void failedRollupIsRetriedInsteadOfAcknowledged() {
+        Sale sale = Sale.builder().id(7L).tenantId(TENANT).build();
+        when(saleRepository.existsById(7L)).thenReturn(true);
+        doThrow(new IllegalStateException("Customer sketch vanished")).when(salesRollupService).apply(7L);
+
+        assertThatThrownBy(() -> consumer.consumeSaleEvent(
+                new SaleEvent(TENANT, "system", sale, SaleEventType.CANCELED), ack))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(ack, never()).acknowledge();
+    }
+}
@@ -0,0 +1,70 @@
+package com.infologic.pos.sketch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedValueAndKeepsFalsePositivesNearTheTargetRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.001);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.mightContain("revoked-" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (filter.mightContain("active-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 0.1% of a million is 1,000; allow twice that for hashing variance
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.sizeInBytes()).isLessThan(256 * 1024);
+    }
+
+    @Test
+    void concurrentPutsLoseNoBits() throws Exception {
+        BloomFilter filter = new BloomFilter(80_000, 0.01);
+        List<String> tokenIds = new ArrayList<>();
+        for (int i = 0; i < 80_000; i++) {
+            tokenIds.add(UUID.nameUUIDFromBytes(("token-" + i).getBytes()).toString());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = thread; i < tokenIds.size(); i += 8) {
+                    filter.put(tokenIds.get(i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(tokenIds).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void rejectsInvalidSizing() {
+        assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(1_000, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(1_000, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
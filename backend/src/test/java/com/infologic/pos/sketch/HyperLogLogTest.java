@@ -0,0 +1,68 @@
+package com.infologic.pos.sketch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesStayWithinThreeStandardErrorsOfExactCounts() {
+        for (int distinct : new int[] { 10, 1_000, 5_000, 50_000, 1_000_000 }) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < distinct; i++) {
+                // Every value twice, duplicates must not count
+                sketch.add(Hashing.hash64("customer-" + i));
+                sketch.add(Hashing.hash64("customer-" + i));
+            }
+
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertThat(error).as("relative error at %d distinct values", distinct)
+                    .isLessThan(3 * sketch.standardError());
+        }
+    }
+
+    @Test
+    void mergedSketchesCountTheUnion() {
+        HyperLogLog union = new HyperLogLog();
+        Set<Integer> customers = new HashSet<>();
+        // 30 days of 2,000 visits each from a pool of 20,000 customers, overlapping between days
+        for (int day = 0; day < 30; day++) {
+            HyperLogLog daily = new HyperLogLog();
+            for (int visit = 0; visit < 2_000; visit++) {
+                int customer = (day * 613 + visit * 7) % 20_000;
+                daily.add(Hashing.hash64("customer-" + customer));
+                customers.add(customer);
+            }
+            union.merge(HyperLogLog.fromByteArray(daily.toByteArray()));
+        }
+        HyperLogLog single = new HyperLogLog();
+        customers.forEach(customer -> single.add(Hashing.hash64("customer-" + customer)));
+
+        // Merging loses nothing: the union is what one sketch over all visits would hold
+        assertThat(union.estimate()).isEqualTo(single.estimate());
+        assertThat((double) union.estimate())
+                .isCloseTo(customers.size(), within(customers.size() * 3 * union.standardError()));
+    }
+
+    @Test
+    void sparseSketchesSerialiseCompactly() {
+        HyperLogLog sparse = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sparse.add(Hashing.hash64(i));
+        }
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            dense.add(Hashing.hash64(i));
+        }
+
+        assertThat(sparse.toByteArray().length).isLessThanOrEqualTo(1 + 100 * 3);
+        assertThat(dense.toByteArray()).hasSize(1 + 4096);
+        assertThat(HyperLogLog.fromByteArray(sparse.toByteArray()).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromByteArray(dense.toByteArray()).estimate()).isEqualTo(dense.estimate());
+    }
+}